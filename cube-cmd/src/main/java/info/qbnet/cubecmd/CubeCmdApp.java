@@ -1,5 +1,6 @@
 package info.qbnet.cubecmd;
 
+import info.qbnet.jtvision.backend.Backend;
 import info.qbnet.jtvision.backend.factory.BackendType;
 import info.qbnet.jtvision.event.TEvent;
 import info.qbnet.jtvision.util.*;
@@ -8,14 +9,34 @@ import info.qbnet.jtvision.views.TView.HelpContext;
 
 import java.io.File;
 import java.util.Arrays;
+import java.util.function.Function;
 
 public class CubeCmdApp extends TApplication {
 
     public static final int CM_PANEL_SETUP = 101;
+    public static final int CM_CALCULATE_SIZES = 102;
     public static final int CM_MANAGER_NEW = 111;
 
     public CubeCmdApp() {
-        super(BackendType.JAVAFX_BITMAP);
+        super(determineBackendType());
+    }
+
+    /**
+     * Creates the file manager with a backend of its own, for running it in
+     * one of many {@link TSession}s of a process.
+     */
+    public CubeCmdApp(int width, int height, Function<Screen, ? extends Backend> backendFactory) {
+        super(width, height, backendFactory);
+    }
+
+    private static BackendType determineBackendType() {
+        String backendTypeName = System.getProperty("console.backend", "JAVAFX_BITMAP");
+        try {
+            return BackendType.valueOf(backendTypeName.toUpperCase());
+        } catch (IllegalArgumentException ex) {
+            System.err.println("Unknown backend: " + backendTypeName + ", using JAVAFX_BITMAP");
+            return BackendType.JAVAFX_BITMAP;
+        }
     }
 
     @Override
@@ -43,7 +64,8 @@ public class CubeCmdApp extends TApplication {
         r.b.y = r.a.y + 1;
         menuBar = new TMenuBar(r, TMenuBar.menu()
                 .submenu("~P~anel", HelpContext.HC_NO_CONTEXT, m -> m
-                        .item("~S~etup panel", "Alt-S", KeyCode.KB_ALT_S, CM_PANEL_SETUP, HelpContext.HC_NO_CONTEXT))
+                        .item("~S~etup panel", "Alt-S", KeyCode.KB_ALT_S, CM_PANEL_SETUP, HelpContext.HC_NO_CONTEXT)
+                        .item("~C~alculate sizes", "Alt-Z", KeyCode.KB_ALT_Z, CM_CALCULATE_SIZES, HelpContext.HC_NO_CONTEXT))
                 .submenu("~M~anager", HelpContext.HC_NO_CONTEXT, m -> m
                         .item("~N~ew", "Ctrl-F3", KeyCode.KB_CTRL_F3, CM_MANAGER_NEW, HelpContext.HC_NO_CONTEXT))
                 .build());
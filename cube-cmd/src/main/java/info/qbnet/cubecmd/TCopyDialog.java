@@ -0,0 +1,146 @@
+package info.qbnet.cubecmd;
+
+import info.qbnet.jtvision.event.TEvent;
+import info.qbnet.jtvision.util.Command;
+import info.qbnet.jtvision.util.TDrawBuffer;
+import info.qbnet.jtvision.util.TRect;
+import info.qbnet.jtvision.views.TButton;
+import info.qbnet.jtvision.views.TDialog;
+import info.qbnet.jtvision.views.TStaticText;
+
+import java.util.Locale;
+
+/**
+ * Progress dialog of a {@link TCopyJob}, after Dos Navigator's copy gauge.
+ * Shows the current file, a gauge, the counts and the throughput, and lets
+ * the user pause or cancel. The dialog closes itself with
+ * {@link Command#CM_OK} when the job finishes. A cancelled job is waited for
+ * as well, so {@link #getResult()} always has the files that failed.
+ */
+public class TCopyDialog extends TDialog {
+
+    public static final int CM_COPY_PAUSE = 50_101;
+
+    private final TCopyJob job;
+    private final TInfoText currentText;
+    private final TGauge gauge;
+    private final TInfoText countText;
+    private final TInfoText rateText;
+    private TCopyJob.Progress result = null;
+    private boolean cancelling = false;
+
+    public TCopyDialog(TCopyJob job, String targetName) {
+        super(new TRect(0, 0, 60, 13), job.isMove() ? "Move" : "Copy");
+        this.job = job;
+        options |= Options.OF_CENTER;
+
+        insert(new TStaticText(new TRect(3, 2, 57, 3), (job.isMove() ? "Moving to " : "Copying to ") + targetName));
+        currentText = new TInfoText(new TRect(3, 3, 57, 4));
+        insert(currentText);
+        gauge = new TGauge(new TRect(3, 5, 57, 6));
+        insert(gauge);
+        countText = new TInfoText(new TRect(3, 6, 57, 7));
+        insert(countText);
+        rateText = new TInfoText(new TRect(3, 7, 57, 8));
+        insert(rateText);
+
+        insert(new TButton(new TRect(17, 9, 29, 11), "~P~ause", CM_COPY_PAUSE, TButton.BF_NORMAL));
+        insert(new TButton(new TRect(31, 9, 43, 11), "Cancel", Command.CM_CANCEL, TButton.BF_DEFAULT));
+        selectNext(false);
+    }
+
+    /**
+     * Starts the job; call before executing the dialog.
+     */
+    public void start() {
+        job.start(new TCopyJob.ProgressListener() {
+            @Override
+            public void progress(TCopyJob.Progress progress) {
+                showProgress(progress);
+            }
+
+            @Override
+            public void finished(TCopyJob.Progress progress) {
+                result = progress;
+                showProgress(progress);
+                if ((state & State.SF_MODAL) != 0) {
+                    endModal(Command.CM_OK);
+                }
+            }
+        });
+    }
+
+    /**
+     * Returns the final progress once the job has finished, or {@code null}.
+     */
+    public TCopyJob.Progress getResult() {
+        return result;
+    }
+
+    private void showProgress(TCopyJob.Progress progress) {
+        currentText.setText(progress.currentName());
+        gauge.setFraction(progress.fraction());
+        countText.setText(String.format(Locale.ROOT, "%d of %d files, %s of %s",
+                progress.doneFiles(), progress.totalFiles(),
+                formatBytes(progress.doneBytes()), formatBytes(progress.totalBytes())));
+        rateText.setText(cancelling
+                ? "Cancelling..."
+                : progress.paused()
+                ? "Paused"
+                : String.format(Locale.ROOT, "%s/s, %.0f files/s",
+                        formatBytes((long) progress.bytesPerSecond()), progress.filesPerSecond()));
+    }
+
+    private static String formatBytes(long bytes) {
+        if (bytes < 1024 * 1024) {
+            return String.format(Locale.ROOT, "%.1f KB", bytes / 1024.0);
+        }
+        return String.format(Locale.ROOT, "%.1f MB", bytes / (1024.0 * 1024.0));
+    }
+
+    @Override
+    public void handleEvent(TEvent event) {
+        if (event.what == TEvent.EV_COMMAND) {
+            if (event.msg.command == CM_COPY_PAUSE) {
+                job.setPaused(!job.isPaused());
+                clearEvent(event);
+                return;
+            }
+            if (event.msg.command == Command.CM_CANCEL && result == null) {
+                // stays open until the job has stopped and reported its errors
+                job.cancel();
+                cancelling = true;
+                rateText.setText("Cancelling...");
+                clearEvent(event);
+                return;
+            }
+        }
+        super.handleEvent(event);
+    }
+
+    /** Horizontal bar showing the completed fraction of the job. */
+    private static class TGauge extends TStaticText {
+        private int filled = 0;
+
+        TGauge(TRect bounds) {
+            super(bounds, "");
+        }
+
+        void setFraction(double fraction) {
+            int cells = (int) Math.round(fraction * getSize().x);
+            if (cells != filled) {
+                filled = cells;
+                drawView();
+            }
+        }
+
+        @Override
+        public void draw() {
+            TDrawBuffer buf = new TDrawBuffer();
+            short color = getColor(StaticTextColor.TEXT);
+            buf.moveChar(0, (char) 0xB0, color, getSize().x);
+            buf.moveChar(0, (char) 0xDB, color, filled);
+            writeLine(0, 0, getSize().x, 1, buf.buffer);
+        }
+    }
+}
@@ -0,0 +1,477 @@
+package info.qbnet.cubecmd;
+
+import info.qbnet.jtvision.views.TSession;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.nio.channels.ClosedByInterruptException;
+import java.nio.channels.FileChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Copies or moves files and directory trees in the background, after Dos
+ * Navigator's {@code COPY.PAS}/{@code FILECOPY.PAS}.
+ *
+ * <p>The job first walks the sources to learn the totals, then copies. Large
+ * files are copied one at a time by the job thread with
+ * {@link FileChannel#transferTo} in chunks, so the kernel moves the data and
+ * the job can pause or stop between chunks. Small files are handed to a
+ * bounded pool of workers, which keeps the disk busy in trees with many
+ * small files. A move first tries to rename each source and falls back to
+ * copy and delete, for example across file systems.</p>
+ *
+ * <p>Existing target files are never overwritten: like a file that fails,
+ * such a file is skipped and reported in {@link Progress#errors()}, and the
+ * rest of the job continues. A move keeps the sources of skipped files.
+ * Sources whose target is the source itself, also when reached through a
+ * symbolic link or another mount, are refused.
+ * Progress is reported on the event loop thread, at most every
+ * {@value #UPDATE_INTERVAL_MS} ms.</p>
+ */
+public class TCopyJob {
+
+    /** Files at least this large are streamed by the job thread itself. */
+    static final long LARGE_FILE = 1L << 20;
+    private static final long CHUNK = 8L << 20;
+    private static final int WORKERS = Math.max(2, Math.min(4, Runtime.getRuntime().availableProcessors()));
+    private static final long UPDATE_INTERVAL_MS = 100;
+
+    /** Receives progress of a job; all calls are made on the event loop thread. */
+    public interface ProgressListener {
+        /** Called while the job runs; updates are coalesced. */
+        void progress(Progress progress);
+
+        /** Called once when the job has stopped, whether done, failed or cancelled. */
+        void finished(Progress progress);
+    }
+
+    /** Snapshot of a job's progress. */
+    public record Progress(long totalBytes, long doneBytes, int totalFiles, int doneFiles,
+                           String currentName, double bytesPerSecond, double filesPerSecond,
+                           boolean paused, boolean cancelled, List<String> errors) {
+        /** Returns the completed fraction of bytes in the range {@code 0..1}. */
+        public double fraction() {
+            if (totalBytes > 0) {
+                return Math.min(1.0, (double) doneBytes / totalBytes);
+            }
+            return totalFiles > 0 ? Math.min(1.0, (double) doneFiles / totalFiles) : 0;
+        }
+    }
+
+    private final List<File> sources;
+    private final File targetDirectory;
+    private final boolean move;
+
+    private final LongAdder doneBytes = new LongAdder();
+    private final AtomicInteger doneFiles = new AtomicInteger();
+    private final ConcurrentLinkedQueue<String> errors = new ConcurrentLinkedQueue<>();
+    private final AtomicBoolean updateScheduled = new AtomicBoolean(false);
+    private final Object pauseLock = new Object();
+    private volatile long totalBytes = 0;
+    private volatile int totalFiles = 0;
+    private volatile String currentName = "";
+    private volatile boolean paused = false;
+    private volatile boolean cancelled = false;
+    private volatile long lastUpdate = 0;
+    private long startNanos;
+    private long pausedNanos = 0;
+    private long pauseStarted = 0;
+    private ProgressListener listener;
+    private TSession session;
+
+    /**
+     * @param sources         files and directories to copy
+     * @param targetDirectory directory the sources are copied into
+     * @param move            whether the sources are removed afterwards
+     */
+    public TCopyJob(List<File> sources, File targetDirectory, boolean move) {
+        this.sources = List.copyOf(sources);
+        this.targetDirectory = targetDirectory;
+        this.move = move;
+    }
+
+    public boolean isMove() {
+        return move;
+    }
+
+    /**
+     * Starts the job on its own thread.
+     */
+    public void start(ProgressListener listener) {
+        this.listener = listener;
+        this.session = TSession.current();
+        this.startNanos = System.nanoTime();
+        Thread thread = new Thread(this::run, move ? "file-move" : "file-copy");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    /**
+     * Pauses or resumes the job. Transfers stop at the next chunk boundary.
+     */
+    public void setPaused(boolean paused) {
+        synchronized (pauseLock) {
+            if (this.paused == paused) {
+                return;
+            }
+            long now = System.nanoTime();
+            if (paused) {
+                pauseStarted = now;
+            } else {
+                pausedNanos += now - pauseStarted;
+            }
+            this.paused = paused;
+            pauseLock.notifyAll();
+        }
+        requestUpdate(true);
+    }
+
+    public boolean isPaused() {
+        return paused;
+    }
+
+    /**
+     * Stops the job. The file being copied is removed; files already copied
+     * stay, and sources of a move are only deleted once copied.
+     */
+    public void cancel() {
+        synchronized (pauseLock) {
+            cancelled = true;
+            pauseLock.notifyAll();
+        }
+    }
+
+    public boolean isCancelled() {
+        return cancelled;
+    }
+
+    private void run() {
+        ExecutorService workers = Executors.newFixedThreadPool(WORKERS, r -> {
+            Thread t = new Thread(r, "file-copy-worker");
+            t.setDaemon(true);
+            return t;
+        });
+        Semaphore slots = new Semaphore(WORKERS * 2);
+        try {
+            long[][] totals = new long[sources.size()][];
+            int files = 0;
+            long bytes = 0;
+            for (int i = 0; i < sources.size(); i++) {
+                totals[i] = measure(sources.get(i).toPath());
+                files += (int) totals[i][0];
+                bytes += totals[i][1];
+            }
+            totalFiles = files;
+            totalBytes = bytes;
+            requestUpdate(true);
+
+            Path target = targetDirectory.toPath();
+            for (int i = 0; i < sources.size(); i++) {
+                checkpoint();
+                Path source = sources.get(i).toPath();
+                Path destination = target.resolve(source.getFileName());
+                if (isInside(source, target)) {
+                    errors.add(source + ": cannot copy into itself");
+                    continue;
+                }
+                if (move && rename(source, destination)) {
+                    doneFiles.addAndGet((int) totals[i][0]);
+                    doneBytes.add(totals[i][1]);
+                    requestUpdate(false);
+                    continue;
+                }
+                List<Path> copied = new ArrayList<>();
+                copyTree(source, destination, workers, slots, copied);
+                if (move) {
+                    awaitWorkers(slots);
+                    deleteCopied(source, copied);
+                }
+            }
+            awaitWorkers(slots);
+        } catch (CancellationException | InterruptedException e) {
+            cancelled = true;
+        } catch (IOException e) {
+            errors.add(e.getMessage());
+        } finally {
+            workers.shutdownNow();
+            try {
+                workers.awaitTermination(10, TimeUnit.SECONDS);
+            } catch (InterruptedException ignored) {
+                Thread.currentThread().interrupt();
+            }
+            session.invokeLater(() -> listener.finished(snapshot()));
+        }
+    }
+
+    /**
+     * Whether the entry {@code source} would land on itself or inside its own
+     * tree when copied into {@code target}. Both directories are resolved to
+     * their real paths, so symbolic links are seen through; the source entry
+     * itself is not followed, as it is copied as a link. Paths that cannot be
+     * resolved count as inside, so nothing is copied over them.
+     */
+    private static boolean isInside(Path source, Path target) {
+        try {
+            Path parent = source.toAbsolutePath().getParent();
+            Path realSource = parent != null ? parent.toRealPath().resolve(source.getFileName()) : source.toRealPath();
+            return target.toRealPath().resolve(source.getFileName()).startsWith(realSource);
+        } catch (IOException e) {
+            return true;
+        }
+    }
+
+    /** Returns the number of files and bytes below {@code path}. */
+    private long[] measure(Path path) throws IOException {
+        long[] totals = new long[2];
+        Files.walkFileTree(path, new SimpleFileVisitor<>() {
+            @Override
+            public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) {
+                totals[0]++;
+                totals[1] += attrs.size();
+                return cancelled ? FileVisitResult.TERMINATE : FileVisitResult.CONTINUE;
+            }
+
+            @Override
+            public FileVisitResult visitFileFailed(Path file, IOException exc) {
+                return FileVisitResult.CONTINUE;
+            }
+        });
+        return totals;
+    }
+
+    private boolean rename(Path source, Path destination) {
+        if (Files.exists(destination, LinkOption.NOFOLLOW_LINKS)) {
+            return false;
+        }
+        try {
+            Files.move(source, destination, StandardCopyOption.ATOMIC_MOVE);
+            return true;
+        } catch (IOException | UnsupportedOperationException e) {
+            return false;
+        }
+    }
+
+    /**
+     * Copies {@code source} to {@code destination}, recording every source
+     * path that was copied completely in {@code copied}. Directories are
+     * recorded after their contents have been queued.
+     */
+    private void copyTree(Path source, Path destination, ExecutorService workers, Semaphore slots,
+                          List<Path> copied) throws InterruptedException {
+        checkpoint();
+        BasicFileAttributes attrs;
+        try {
+            attrs = Files.readAttributes(source, BasicFileAttributes.class, LinkOption.NOFOLLOW_LINKS);
+        } catch (IOException e) {
+            errors.add(source + ": " + e.getMessage());
+            return;
+        }
+
+        if (attrs.isDirectory()) {
+            try {
+                Files.createDirectories(destination);
+            } catch (IOException e) {
+                errors.add(destination + ": " + e.getMessage());
+                return;
+            }
+            try (DirectoryStream<Path> stream = Files.newDirectoryStream(source)) {
+                for (Path child : stream) {
+                    copyTree(child, destination.resolve(child.getFileName()), workers, slots, copied);
+                }
+            } catch (IOException e) {
+                errors.add(source + ": " + e.getMessage());
+                return;
+            }
+            synchronized (copied) {
+                copied.add(source);
+            }
+        } else if (attrs.size() >= LARGE_FILE) {
+            if (copyFile(source, destination)) {
+                synchronized (copied) {
+                    copied.add(source);
+                }
+            }
+        } else {
+            slots.acquire();
+            workers.execute(() -> {
+                try {
+                    if (copyFile(source, destination)) {
+                        synchronized (copied) {
+                            copied.add(source);
+                        }
+                    }
+                } finally {
+                    slots.release();
+                }
+            });
+        }
+    }
+
+    /**
+     * Copies one file. Symbolic links and other special files are copied
+     * as links rather than followed. An existing destination is left alone
+     * and reported, since it may even be the source seen through another
+     * mount.
+     *
+     * @return {@code true} if the file was copied completely
+     */
+    private boolean copyFile(Path source, Path destination) {
+        currentName = source.getFileName().toString();
+        boolean created = false;
+        try {
+            if (Files.exists(destination, LinkOption.NOFOLLOW_LINKS)) {
+                errors.add(source + (Files.isSameFile(source, destination)
+                        ? ": target is the same file"
+                        : ": " + destination + " already exists, skipped"));
+                return false;
+            }
+            if (!Files.isRegularFile(source, LinkOption.NOFOLLOW_LINKS)) {
+                Files.copy(source, destination, LinkOption.NOFOLLOW_LINKS);
+                created = true;
+            } else {
+                try (FileChannel in = FileChannel.open(source, StandardOpenOption.READ);
+                     FileChannel out = FileChannel.open(destination, StandardOpenOption.WRITE,
+                             StandardOpenOption.CREATE_NEW)) {
+                    created = true;
+                    long size = in.size();
+                    long position = 0;
+                    while (position < size) {
+                        checkpoint();
+                        long transferred = in.transferTo(position, Math.min(CHUNK, size - position), out);
+                        if (transferred <= 0) {
+                            break;
+                        }
+                        position += transferred;
+                        doneBytes.add(transferred);
+                        requestUpdate(false);
+                    }
+                }
+                Files.setLastModifiedTime(destination, Files.getLastModifiedTime(source));
+            }
+            doneFiles.incrementAndGet();
+            requestUpdate(false);
+            return true;
+        } catch (CancellationException | ClosedByInterruptException | InterruptedIOException e) {
+            if (created) {
+                deleteQuietly(destination);
+            }
+            return false;
+        } catch (FileAlreadyExistsException e) {
+            // appeared since the check above; not ours to delete
+            errors.add(source + ": " + destination + " already exists, skipped");
+            return false;
+        } catch (IOException e) {
+            errors.add(source + ": " + e.getMessage());
+            if (created) {
+                deleteQuietly(destination);
+            }
+            return false;
+        }
+    }
+
+    /**
+     * Deletes the copied sources of a move, deepest first. A directory that
+     * still holds entries that were not copied is kept.
+     */
+    private void deleteCopied(Path source, List<Path> copied) {
+        List<Path> paths;
+        synchronized (copied) {
+            paths = new ArrayList<>(copied);
+        }
+        paths.sort((a, b) -> Integer.compare(b.getNameCount(), a.getNameCount()));
+        for (Path path : paths) {
+            try {
+                Files.deleteIfExists(path);
+            } catch (IOException e) {
+                if (!Files.isDirectory(path, LinkOption.NOFOLLOW_LINKS)) {
+                    errors.add(path + ": " + e.getMessage());
+                }
+            }
+        }
+    }
+
+    private static void deleteQuietly(Path path) {
+        try {
+            Files.deleteIfExists(path);
+        } catch (IOException ignored) {
+        }
+    }
+
+    /** Waits until all queued small files have been copied. */
+    private void awaitWorkers(Semaphore slots) throws InterruptedException {
+        slots.acquire(WORKERS * 2);
+        slots.release(WORKERS * 2);
+    }
+
+    /** Blocks while the job is paused and stops it once cancelled. */
+    private void checkpoint() {
+        if (!paused && !cancelled) {
+            return;
+        }
+        synchronized (pauseLock) {
+            while (paused && !cancelled) {
+                try {
+                    pauseLock.wait();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new CancellationException();
+                }
+            }
+        }
+        if (cancelled) {
+            throw new CancellationException();
+        }
+    }
+
+    /**
+     * Schedules a progress update on the event loop unless one is pending or
+     * the last one was too recent.
+     */
+    private void requestUpdate(boolean force) {
+        long now = System.currentTimeMillis();
+        if (!force && now - lastUpdate < UPDATE_INTERVAL_MS) {
+            return;
+        }
+        if (updateScheduled.compareAndSet(false, true)) {
+            lastUpdate = now;
+            session.invokeLater(() -> {
+                updateScheduled.set(false);
+                listener.progress(snapshot());
+            });
+        }
+    }
+
+    private Progress snapshot() {
+        long active;
+        synchronized (pauseLock) {
+            long now = paused ? pauseStarted : System.nanoTime();
+            active = now - startNanos - pausedNanos;
+        }
+        double seconds = Math.max(active, 1) / 1e9;
+        long bytes = doneBytes.sum();
+        int files = doneFiles.get();
+        return new Progress(totalBytes, bytes, totalFiles, files, currentName,
+                bytes / seconds, files / seconds, paused, cancelled, List.copyOf(errors));
+    }
+}
@@ -0,0 +1,249 @@
+package info.qbnet.cubecmd;
+
+import info.qbnet.jtvision.views.TSession;
+
+import java.io.IOException;
+import java.nio.file.DirectoryIteratorException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinWorkerThread;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * Computes the total size of directory trees in the background.
+ *
+ * <p>Each directory is one fork/join task that sums its files and forks a
+ * task per subdirectory, so wide trees are walked by all workers at once.
+ * Symbolic links are not followed.</p>
+ *
+ * <p>A directory's modification time only changes when its own entries do,
+ * so only what the directory itself holds is cached with that time: the sum
+ * of its files and its subdirectories. While the time is unchanged a walk
+ * reuses them instead of listing the directory again, but still descends
+ * into every subdirectory, so changes anywhere in the tree are found. The
+ * directories a calculation was asked for are always listed again. Only
+ * the most recently used {@value #CACHE_LIMIT} directories are kept.</p>
+ */
+public final class TDirectorySizes {
+
+    /** Pool for walking directory trees; also used by {@link TFileSearch}. */
+    static final ForkJoinPool POOL = new ForkJoinPool(
+            Math.max(2, Runtime.getRuntime().availableProcessors()),
+            pool -> {
+                ForkJoinWorkerThread thread = ForkJoinPool.defaultForkJoinWorkerThreadFactory.newThread(pool);
+                thread.setName("dir-walk-" + thread.getPoolIndex());
+                thread.setDaemon(true);
+                return thread;
+            },
+            null, false);
+
+    /**
+     * What a directory held when it was last listed, and the total of its
+     * tree from the same walk.
+     */
+    private record Cached(long modified, long files, List<Path> subdirectories, long total) {
+    }
+
+    /** Number of directories kept in {@link #CACHE}. */
+    static final int CACHE_LIMIT = 50_000;
+
+    private static final Map<Path, Cached> CACHE = Collections.synchronizedMap(
+            new LinkedHashMap<>(256, 0.75f, true) {
+                private static final long serialVersionUID = 1L;
+
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<Path, Cached> eldest) {
+                    return size() > CACHE_LIMIT;
+                }
+            });
+
+    private TDirectorySizes() {
+    }
+
+    /**
+     * Receives computed sizes. Both methods are called on the event loop
+     * thread; results that complete close together arrive in one call.
+     */
+    public interface SizeListener {
+        /** Called with the total size of each directory that completed. */
+        void sizesCalculated(Map<TFileRec, Long> sizes);
+
+        /** Called once after the last directory unless cancelled. */
+        void calculationFinished();
+    }
+
+    /**
+     * Handle of a running calculation. Once cancelled, no further listener
+     * calls are made.
+     */
+    public static class Calculation {
+        private volatile boolean cancelled = false;
+        private final SizeListener listener;
+        private final TSession session = TSession.current();
+        private final Map<TFileRec, Long> pending = new LinkedHashMap<>();
+        /** Directories still being walked; guarded by {@link #pending}. */
+        private int remaining;
+        /** Whether a delivery is queued; guarded by {@link #pending}. */
+        private boolean scheduled = false;
+
+        Calculation(SizeListener listener, int count) {
+            this.listener = listener;
+            this.remaining = count;
+        }
+
+        public void cancel() {
+            cancelled = true;
+        }
+
+        public boolean isCancelled() {
+            return cancelled;
+        }
+
+        void complete(TFileRec dir, long size) {
+            synchronized (pending) {
+                pending.put(dir, size);
+                remaining--;
+                if (scheduled) {
+                    return;
+                }
+                scheduled = true;
+            }
+            session.invokeLater(this::deliver);
+        }
+
+        private void deliver() {
+            Map<TFileRec, Long> sizes;
+            boolean finished;
+            synchronized (pending) {
+                sizes = new LinkedHashMap<>(pending);
+                pending.clear();
+                scheduled = false;
+                finished = remaining == 0;
+            }
+            if (cancelled) {
+                return;
+            }
+            listener.sizesCalculated(sizes);
+            if (finished) {
+                listener.calculationFinished();
+            }
+        }
+    }
+
+    /**
+     * Starts computing the sizes of {@code directories}.
+     */
+    public static Calculation calculate(List<TFileRec> directories, SizeListener listener) {
+        Calculation calculation = new Calculation(listener, directories.size());
+        if (directories.isEmpty()) {
+            calculation.session.invokeLater(listener::calculationFinished);
+            return calculation;
+        }
+        for (TFileRec dir : directories) {
+            POOL.execute(() -> {
+                long size = new SizeTask(dir.getFile().toPath(), calculation, false).invoke();
+                calculation.complete(dir, size);
+            });
+        }
+        return calculation;
+    }
+
+    /**
+     * Returns the total of {@code directory} from the last calculation if the
+     * directory still has modification time {@code modified}, or {@code -1}.
+     * Changes below the directory since then are not reflected.
+     */
+    public static long cachedSize(Path directory, long modified) {
+        Cached cached = CACHE.get(directory);
+        return cached != null && cached.modified() == modified ? cached.total() : -1;
+    }
+
+    private static final class SizeTask extends RecursiveTask<Long> {
+        private static final long serialVersionUID = 1L;
+
+        private final Path directory;
+        private final Calculation calculation;
+        /** Whether the directory's own listing may come from the cache. */
+        private final boolean useCache;
+
+        SizeTask(Path directory, Calculation calculation, boolean useCache) {
+            this.directory = directory;
+            this.calculation = calculation;
+            this.useCache = useCache;
+        }
+
+        @Override
+        protected Long compute() {
+            if (calculation.isCancelled()) {
+                return 0L;
+            }
+            long modified;
+            try {
+                modified = Files.getLastModifiedTime(directory).toMillis();
+            } catch (IOException e) {
+                return 0L;
+            }
+            Cached cached = useCache ? CACHE.get(directory) : null;
+            long files = 0;
+            List<Path> subdirectories;
+            List<SizeTask> subtasks = new ArrayList<>();
+            boolean listed = true;
+            if (cached != null && cached.modified() == modified) {
+                files = cached.files();
+                subdirectories = cached.subdirectories();
+                for (Path subdirectory : subdirectories) {
+                    subtasks.add(fork(subdirectory));
+                }
+            } else {
+                subdirectories = new ArrayList<>();
+                try (DirectoryStream<Path> stream = Files.newDirectoryStream(directory)) {
+                    for (Path child : stream) {
+                        if (calculation.isCancelled()) {
+                            break;
+                        }
+                        BasicFileAttributes attributes;
+                        try {
+                            attributes = Files.readAttributes(child, BasicFileAttributes.class, LinkOption.NOFOLLOW_LINKS);
+                        } catch (IOException e) {
+                            listed = false;
+                            continue;
+                        }
+                        if (attributes.isDirectory()) {
+                            subdirectories.add(child);
+                            subtasks.add(fork(child));
+                        } else if (attributes.isRegularFile()) {
+                            files += attributes.size();
+                        }
+                    }
+                } catch (IOException | DirectoryIteratorException e) {
+                    // unreadable directory: count what was read
+                    listed = false;
+                }
+            }
+
+            long total = files;
+            for (SizeTask subtask : subtasks) {
+                total += subtask.join();
+            }
+            if (listed && !calculation.isCancelled()) {
+                CACHE.put(directory, new Cached(modified, files, List.copyOf(subdirectories), total));
+            }
+            return total;
+        }
+
+        private SizeTask fork(Path subdirectory) {
+            SizeTask subtask = new SizeTask(subdirectory, calculation, true);
+            subtask.fork();
+            return subtask;
+        }
+    }
+}
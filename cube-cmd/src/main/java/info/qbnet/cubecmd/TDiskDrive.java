@@ -1,10 +1,49 @@
 package info.qbnet.cubecmd;
 
+import info.qbnet.jtvision.views.TSession;
+
 import java.io.File;
 import java.io.IOException;
+import java.nio.file.DirectoryIteratorException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.nio.file.Path;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
 public class TDiskDrive extends TDrive {
 
+    /** Entries in the first batch; about one screenful. */
+    static final int FIRST_BATCH = 64;
+    /** Entries in later batches. */
+    static final int BATCH = 2048;
+    /** Longest time a read entry waits before its batch is delivered. */
+    static final long BATCH_INTERVAL_NANOS = 100_000_000L;
+
+    private static final ExecutorService LOADER = Executors.newCachedThreadPool(r -> {
+        Thread thread = new Thread(r, "dir-loader");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    /** Watch service shared by all drives; created with its thread on first use. */
+    private static WatchService watchService;
+    /** Watches per key; panels showing the same directory share one key. Guarded by itself. */
+    private static final Map<WatchKey, List<DiskWatch>> WATCHES = new HashMap<>();
+
     private File drive;
     private File currentDirectory;
 
@@ -22,20 +61,205 @@ public class TDiskDrive extends TDrive {
     }
 
     @Override
-    public TFileCollection getDirectory() {
-        TFileCollection directory = new TFileCollection();
-        if (currentDirectory.getParentFile() != null) {
-            directory.add(TFileRec.parentEntry(currentDirectory));
+    public Loading readDirectory(DirectoryListener listener) {
+        Path directory = currentDirectory.toPath();
+        TFileRec parent = currentDirectory.getParentFile() != null ? TFileRec.parentEntry(currentDirectory) : null;
+        Loading loading = new Loading();
+        loading.attach(LOADER.submit(() -> stream(directory, parent, loading, listener)));
+        return loading;
+    }
+
+    private static void stream(Path directory, TFileRec parent, Loading loading, DirectoryListener listener) {
+        List<TFileRec> batch = new ArrayList<>();
+        if (parent != null) {
+            batch.add(parent);
+        }
+        int limit = FIRST_BATCH;
+        long lastDelivery = System.nanoTime();
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(directory)) {
+            for (Path path : stream) {
+                if (loading.isCancelled()) {
+                    return;
+                }
+                batch.add(readEntry(path));
+                long now = System.nanoTime();
+                if (batch.size() >= limit || now - lastDelivery >= BATCH_INTERVAL_NANOS) {
+                    loading.deliver(listener, batch);
+                    batch = new ArrayList<>();
+                    limit = BATCH;
+                    lastDelivery = now;
+                }
+            }
+        } catch (IOException | DirectoryIteratorException e) {
+            // unreadable directory: show what was read so far
+        }
+        loading.deliver(listener, batch);
+        loading.finish(listener);
+    }
+
+    @Override
+    public Watch watchDirectory(ChangeListener listener) {
+        Path directory = currentDirectory.toPath();
+        try {
+            synchronized (WATCHES) {
+                WatchKey key = directory.register(watchService(),
+                        StandardWatchEventKinds.ENTRY_CREATE,
+                        StandardWatchEventKinds.ENTRY_DELETE,
+                        StandardWatchEventKinds.ENTRY_MODIFY);
+                DiskWatch watch = new DiskWatch(key, directory, listener);
+                WATCHES.computeIfAbsent(key, k -> new ArrayList<>()).add(watch);
+                return watch;
+            }
+        } catch (IOException | UnsupportedOperationException e) {
+            return null;
+        }
+    }
+
+    private static synchronized WatchService watchService() throws IOException {
+        if (watchService == null) {
+            watchService = FileSystems.getDefault().newWatchService();
+            Thread thread = new Thread(TDiskDrive::watchLoop, "dir-watch");
+            thread.setDaemon(true);
+            thread.start();
+        }
+        return watchService;
+    }
+
+    private static void watchLoop() {
+        while (true) {
+            WatchKey key;
+            try {
+                key = watchService.take();
+            } catch (InterruptedException | ClosedWatchServiceException e) {
+                return;
+            }
+            List<DiskWatch> watches;
+            synchronized (WATCHES) {
+                watches = List.copyOf(WATCHES.getOrDefault(key, List.of()));
+            }
+            for (WatchEvent<?> event : key.pollEvents()) {
+                for (DiskWatch watch : watches) {
+                    if (event.kind() == StandardWatchEventKinds.OVERFLOW) {
+                        watch.invalidate();
+                    } else {
+                        watch.changed((Path) event.context());
+                    }
+                }
+            }
+            if (!key.reset()) {
+                // the directory itself is gone
+                synchronized (WATCHES) {
+                    WATCHES.remove(key);
+                }
+                for (DiskWatch watch : watches) {
+                    watch.invalidate();
+                }
+            }
+        }
+    }
+
+    /**
+     * Collects the changes of one directory on the watch thread and hands
+     * them to the event loop in one task, however many arrive before that
+     * task runs.
+     */
+    private static final class DiskWatch implements Watch {
+        private final WatchKey key;
+        private final Path directory;
+        private final ChangeListener listener;
+        private final TSession session = TSession.current();
+        // guarded by this
+        private Map<String, TFileRec> pending = new LinkedHashMap<>();
+        private boolean invalidated = false;
+        private boolean scheduled = false;
+        private volatile boolean cancelled = false;
+
+        DiskWatch(WatchKey key, Path directory, ChangeListener listener) {
+            this.key = key;
+            this.directory = directory;
+            this.listener = listener;
+        }
+
+        void changed(Path name) {
+            Path path = directory.resolve(name);
+            TFileRec rec = Files.exists(path, LinkOption.NOFOLLOW_LINKS) ? readEntry(path) : null;
+            synchronized (this) {
+                pending.put(name.toString(), rec);
+                schedule();
+            }
+        }
+
+        synchronized void invalidate() {
+            invalidated = true;
+            schedule();
+        }
+
+        private void schedule() {
+            if (!scheduled && !cancelled) {
+                scheduled = true;
+                session.invokeLater(this::deliver);
+            }
         }
 
-        File[] files = currentDirectory.listFiles();
-        if (files != null) {
-            for (File file : files) {
-                directory.add(new TFileRec(file));
+        private void deliver() {
+            Map<String, TFileRec> changes;
+            boolean reload;
+            synchronized (this) {
+                changes = pending;
+                reload = invalidated;
+                pending = new LinkedHashMap<>();
+                invalidated = false;
+                scheduled = false;
+            }
+            if (cancelled) {
+                return;
+            }
+            if (reload) {
+                listener.directoryInvalidated();
+            } else if (!changes.isEmpty()) {
+                listener.entriesChanged(changes);
+            }
+        }
+
+        @Override
+        public void cancel() {
+            cancelled = true;
+            synchronized (WATCHES) {
+                List<DiskWatch> watches = WATCHES.get(key);
+                if (watches != null) {
+                    watches.remove(this);
+                    if (watches.isEmpty()) {
+                        WATCHES.remove(key);
+                        key.cancel();
+                    }
+                }
             }
         }
+    }
 
-        return directory;
+    /**
+     * Builds a record with one attribute read. Dangling links fall back to
+     * the attributes of the link itself.
+     */
+    static TFileRec readEntry(Path path) {
+        BasicFileAttributes attributes;
+        try {
+            attributes = Files.readAttributes(path, BasicFileAttributes.class);
+        } catch (IOException e) {
+            try {
+                attributes = Files.readAttributes(path, BasicFileAttributes.class, LinkOption.NOFOLLOW_LINKS);
+            } catch (IOException inner) {
+                return new TFileRec(path.toFile());
+            }
+        }
+        TFileRec rec = new TFileRec(path, attributes);
+        if (attributes.isDirectory()) {
+            long size = TDirectorySizes.cachedSize(path, attributes.lastModifiedTime().toMillis());
+            if (size >= 0) {
+                rec = rec.withDirectorySize(size);
+            }
+        }
+        return rec;
     }
 
     @Override
@@ -1,14 +1,25 @@
 package info.qbnet.cubecmd;
 
 import info.qbnet.jtvision.event.TEvent;
+import info.qbnet.jtvision.util.Command;
+import info.qbnet.jtvision.util.DataPacket;
 import info.qbnet.jtvision.util.KeyCode;
+import info.qbnet.jtvision.util.MsgBox;
 import info.qbnet.jtvision.util.PaletteDescriptor;
 import info.qbnet.jtvision.util.PaletteRole;
 import info.qbnet.jtvision.util.TPalette;
 import info.qbnet.jtvision.util.TRect;
+import info.qbnet.jtvision.views.TButton;
+import info.qbnet.jtvision.views.TDialog;
+import info.qbnet.jtvision.views.TInputLine;
+import info.qbnet.jtvision.views.TLabel;
+import info.qbnet.jtvision.views.TProgram;
 import info.qbnet.jtvision.views.TScrollBar;
 
 import java.io.File;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.List;
 
 public class TDoubleWindow extends TStdWindow {
     private static final int MIN_PANEL_WIDTH = 8;
@@ -262,12 +273,140 @@ public class TDoubleWindow extends TStdWindow {
         }
     }
 
+    /**
+     * Opens the file under the cursor of the selected panel in a viewer
+     * window covering the desktop.
+     */
+    private void viewSelected() {
+        if (leftPanel == null || rightPanel == null) {
+            return;
+        }
+        TFilePanel panel = leftPanel.getState(State.SF_SELECTED) ? leftPanel : rightPanel;
+        TFileRec rec = panel.getSelectedFile();
+        if (rec == null || rec.isDirectory()) {
+            return;
+        }
+        TRect bounds = new TRect();
+        TProgram.getDesktop().getExtent(bounds);
+        try {
+            TProgram.getApplication().insertWindow(new TViewerWindow(bounds, rec.getFile().toPath()));
+        } catch (IOException e) {
+            MsgBox.messageBox("Cannot open " + rec.getName() + ": " + e.getMessage(),
+                    MsgBox.MF_ERROR + MsgBox.MF_OK_BUTTON);
+        }
+    }
+
+    /**
+     * Copies or moves the entry under the cursor of the selected panel into
+     * the directory of the other panel, after asking for the target.
+     */
+    private void copySelected(boolean move) {
+        if (leftPanel == null || rightPanel == null) {
+            return;
+        }
+        TFilePanel source = leftPanel.getState(State.SF_SELECTED) ? leftPanel : rightPanel;
+        TFilePanel target = source == leftPanel ? rightPanel : leftPanel;
+        TFileRec rec = source.getSelectedFile();
+        if (rec == null) {
+            return;
+        }
+
+        String targetPath = askTarget(move, rec.getName(), target.getCurrentDirectory().getPath());
+        if (targetPath == null) {
+            return;
+        }
+        File targetDirectory = new File(targetPath);
+        if (!targetDirectory.isDirectory()) {
+            MsgBox.messageBox("Directory " + targetPath + " does not exist", MsgBox.MF_ERROR + MsgBox.MF_OK_BUTTON);
+            return;
+        }
+
+        TCopyJob job = new TCopyJob(List.of(rec.getFile()), targetDirectory, move);
+        TCopyDialog dialog = new TCopyDialog(job, targetDirectory.getPath());
+        dialog.start();
+        TProgram.getDesktop().execView(dialog);
+
+        TCopyJob.Progress result = dialog.getResult();
+        if (result != null && !result.errors().isEmpty()) {
+            MsgBox.messageBox(result.errors().size() + " file(s) failed: " + result.errors().get(0),
+                    MsgBox.MF_ERROR + MsgBox.MF_OK_BUTTON);
+        }
+    }
+
+    /**
+     * Searches below the directory of the selected panel and moves that
+     * panel to the chosen result.
+     */
+    private void findFile() {
+        if (leftPanel == null || rightPanel == null) {
+            return;
+        }
+        TFilePanel panel = leftPanel.getState(State.SF_SELECTED) ? leftPanel : rightPanel;
+        TFindDialog criteriaDialog = new TFindDialog();
+        if (TProgram.getDesktop().execView(criteriaDialog) != Command.CM_OK) {
+            return;
+        }
+
+        TFindResults results = new TFindResults(panel.getCurrentDirectory().toPath(), criteriaDialog.getCriteria());
+        results.start();
+        int command = TProgram.getDesktop().execView(results);
+        results.stop();
+        Path found = results.getSelectedPath();
+        if (command == Command.CM_OK && found != null) {
+            panel.goToFile(found.toFile());
+        }
+    }
+
+    private String askTarget(boolean move, String name, String defaultTarget) {
+        TDialog d = new TDialog(new TRect(0, 0, 60, 8), move ? "Move" : "Copy");
+        d.options |= Options.OF_CENTER;
+
+        TInputLine input = new TInputLine(new TRect(3, 3, 57, 4), 250);
+        d.insert(input);
+        d.insert(new TLabel(new TRect(2, 2, 57, 3), (move ? "~M~ove " : "~C~opy ") + name + " to:", input));
+        d.insert(new TButton(new TRect(17, 5, 29, 7), "O~K~", Command.CM_OK, TButton.BF_DEFAULT));
+        d.insert(new TButton(new TRect(31, 5, 43, 7), "Cancel", Command.CM_CANCEL, TButton.BF_NORMAL));
+        d.selectNext(false);
+
+        d.setData(new DataPacket(d.dataSize())
+                .putStringField(defaultTarget, input.dataSize())
+                .rewind()
+                .getByteBuffer());
+        if (TProgram.getDesktop().execView(d) != Command.CM_OK) {
+            return null;
+        }
+        DataPacket data = new DataPacket(d.dataSize());
+        d.getData(data.getByteBuffer());
+        String target = data.rewind().getStringField(input.dataSize()).trim();
+        return target.isEmpty() ? null : target;
+    }
+
     @Override
     public void handleEvent(TEvent event) {
         super.handleEvent(event);
-        if (event.what == TEvent.EV_KEYDOWN && event.key.keyCode == KeyCode.KB_TAB) {
-            selectOtherPanel();
-            clearEvent(event);
+        if (event.what == TEvent.EV_KEYDOWN) {
+            switch (event.key.keyCode) {
+                case KeyCode.KB_TAB -> {
+                    selectOtherPanel();
+                    clearEvent(event);
+                }
+                case KeyCode.KB_F3 -> {
+                    viewSelected();
+                    clearEvent(event);
+                }
+                case KeyCode.KB_F5 -> {
+                    copySelected(false);
+                    clearEvent(event);
+                }
+                case KeyCode.KB_F6 -> {
+                    copySelected(true);
+                    clearEvent(event);
+                }
+                case KeyCode.KB_ALT_F7 -> {
+                    findFile();
+                    clearEvent(event);
+                }
+            }
         }
     }
 
@@ -1,6 +1,11 @@
 package info.qbnet.cubecmd;
 
+import info.qbnet.jtvision.views.TSession;
+
 import java.io.File;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Future;
 
 public abstract class TDrive {
 
@@ -10,7 +15,103 @@ public abstract class TDrive {
         this.owner = owner;
     }
 
-    abstract public TFileCollection getDirectory();
+    /**
+     * Receives the entries of a directory read by {@link #readDirectory}.
+     * Both methods are called on the event loop thread.
+     */
+    public interface DirectoryListener {
+        /** Called for each batch of entries in the order they were read. */
+        void entriesLoaded(List<TFileRec> batch);
+
+        /** Called once after the last batch unless the load was cancelled. */
+        void loadFinished();
+    }
+
+    /**
+     * Handle of a directory being read in the background. Once cancelled,
+     * no further listener calls are made, including batches already queued
+     * for the event loop.
+     */
+    public static class Loading {
+        private volatile boolean cancelled = false;
+        private final TSession session = TSession.current();
+        private Future<?> task;
+
+        synchronized void attach(Future<?> task) {
+            this.task = task;
+            if (cancelled) {
+                task.cancel(true);
+            }
+        }
+
+        public synchronized void cancel() {
+            cancelled = true;
+            if (task != null) {
+                task.cancel(true);
+            }
+        }
+
+        public boolean isCancelled() {
+            return cancelled;
+        }
+
+        void deliver(DirectoryListener listener, List<TFileRec> batch) {
+            if (batch.isEmpty()) {
+                return;
+            }
+            session.invokeLater(() -> {
+                if (!cancelled) {
+                    listener.entriesLoaded(batch);
+                }
+            });
+        }
+
+        void finish(DirectoryListener listener) {
+            session.invokeLater(() -> {
+                if (!cancelled) {
+                    listener.loadFinished();
+                }
+            });
+        }
+    }
+
+    /**
+     * Receives changes of a watched directory. Both methods are called on the
+     * event loop thread; changes that arrive in quick succession are
+     * coalesced into one call.
+     */
+    public interface ChangeListener {
+        /**
+         * Called with the changed entries keyed by name. A {@code null}
+         * value means the entry was deleted.
+         */
+        void entriesChanged(Map<String, TFileRec> changes);
+
+        /** Called when changes were lost and the directory must be read again. */
+        void directoryInvalidated();
+    }
+
+    /** Handle of a directory watch. */
+    public interface Watch {
+        /** Stops the watch; no further listener calls are made. */
+        void cancel();
+    }
+
+    /**
+     * Watches the current directory for changes. Drives that cannot watch
+     * return {@code null}; their panels only change when reloaded.
+     */
+    public Watch watchDirectory(ChangeListener listener) {
+        return null;
+    }
+
+    /**
+     * Reads the current directory in the background and passes the entries
+     * to {@code listener} in batches. The first batch is small so a panel can
+     * show its first screenful right away.
+     */
+    abstract public Loading readDirectory(DirectoryListener listener);
+
     abstract public File getCurrentDirectory();
     abstract public boolean goToParent();
     abstract public boolean enterDirectory(TFileRec rec);
@@ -1,13 +1,29 @@
 package info.qbnet.cubecmd;
 
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
 import java.util.Comparator;
 import java.util.EnumSet;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Locale;
-import java.util.Set;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.regex.Pattern;
 
+/**
+ * Entries of one directory together with the filtered and sorted view a
+ * panel shows.
+ *
+ * <p>The view is rebuilt only when the sort mode, the panel flags or the file
+ * mask change. Entries added or removed afterwards are placed into the sorted
+ * view by binary search, and larger batches are merged in. Every entry carries
+ * precomputed sort keys (see {@link TFileRec#getSortName()}), and ties are
+ * broken by the exact name, so a reloaded directory always comes out in the
+ * same order.</p>
+ */
 public class TFileCollection {
 
     public enum SortMode {
@@ -24,15 +40,22 @@ public class TFileCollection {
         ARCHIVES_FIRST
     }
 
-    private static final Set<String> EXECUTABLE_EXTENSIONS = Set.of("exe", "bat", "cmd", "com", "sh");
-    private static final Set<String> ARCHIVE_EXTENSIONS = Set.of(
-            "zip", "rar", "7z", "tar", "gz", "bz2", "xz", "tgz", "tbz", "jar");
+    /** Batches up to this size are inserted one by one instead of merged. */
+    private static final int MERGE_THRESHOLD = 16;
 
-    private final List<TFileRec> items = new ArrayList<>();
+    /** Views at least this large are sorted with {@link Arrays#parallelSort}. */
+    private static final int PARALLEL_SORT_THRESHOLD = 8192;
+
+    private static final Map<String, Pattern> MASK_PATTERNS = new ConcurrentHashMap<>();
+
+    /** All entries by name, in the order they were added, which is the unsorted order. */
+    private final Map<String, TFileRec> byName = new LinkedHashMap<>();
     private final List<TFileRec> viewItems = new ArrayList<>();
     private SortMode sortMode = SortMode.NAME;
     private EnumSet<PanelFlag> panelFlags = EnumSet.of(PanelFlag.DIRECTORIES_FIRST);
     private String fileMask = "*.*";
+    private Pattern fileMaskPattern;
+    private Comparator<TFileRec> comparator;
     private int selected = -1;
     private boolean dirty = true;
 
@@ -40,12 +63,65 @@ public class TFileCollection {
     }
 
     public void add(TFileRec fileRec) {
-        items.add(fileRec);
-        dirty = true;
+        byName.put(fileRec.getName(), fileRec);
+        if (!dirty && matches(fileRec)) {
+            insertVisible(fileRec);
+        }
+    }
+
+    /**
+     * Adds a batch of entries. Large batches are sorted on their own and
+     * merged into the view in one pass.
+     */
+    public void addAll(Collection<TFileRec> fileRecs) {
+        if (fileRecs.size() <= MERGE_THRESHOLD) {
+            for (TFileRec rec : fileRecs) {
+                add(rec);
+            }
+            return;
+        }
+        List<TFileRec> visible = new ArrayList<>(fileRecs.size());
+        for (TFileRec rec : fileRecs) {
+            byName.put(rec.getName(), rec);
+            if (!dirty && matches(rec)) {
+                visible.add(rec);
+            }
+        }
+        if (!visible.isEmpty()) {
+            mergeVisible(visible);
+        }
+    }
+
+    /**
+     * Adds {@code fileRec}, replacing an entry with the same name.
+     */
+    public void put(TFileRec fileRec) {
+        remove(fileRec.getName());
+        add(fileRec);
+    }
+
+    /**
+     * Removes the entry called {@code name}.
+     *
+     * @return {@code true} if an entry was removed
+     */
+    public boolean remove(String name) {
+        TFileRec rec = byName.remove(name);
+        if (rec == null) {
+            return false;
+        }
+        if (!dirty) {
+            int index = visibleIndex(rec);
+            if (index >= 0) {
+                viewItems.remove(index);
+                clampSelection();
+            }
+        }
+        return true;
     }
 
     public void clear() {
-        items.clear();
+        byName.clear();
         viewItems.clear();
         selected = -1;
         dirty = false;
@@ -61,12 +137,22 @@ public class TFileCollection {
         return viewItems.size();
     }
 
-    public TFileRec rawGet(int idx) {
-        return items.get(idx);
+    /**
+     * Returns the visible index of {@code fileRec}, or {@code -1} if it is
+     * filtered out or not part of the collection.
+     */
+    public int indexOf(TFileRec fileRec) {
+        ensureView();
+        return visibleIndex(fileRec);
     }
 
-    public int rawSize() {
-        return items.size();
+    /**
+     * Returns the visible index of the entry called {@code name}, or
+     * {@code -1}.
+     */
+    public int indexOfName(String name) {
+        TFileRec rec = byName.get(name);
+        return rec != null ? indexOf(rec) : -1;
     }
 
     public void setSortMode(SortMode sortMode) {
@@ -120,18 +206,35 @@ public class TFileCollection {
         }
 
         viewItems.clear();
-        Pattern fileMaskPattern = buildFileMaskPattern(fileMask);
+        fileMaskPattern = maskPattern(fileMask);
+        comparator = sortMode == SortMode.UNSORTED ? null : new RecComparator(sortMode, panelFlags);
 
-        for (TFileRec rec : items) {
-            if (rec.isDirectory() || fileMaskPattern.matcher(rec.getName()).matches()) {
+        for (TFileRec rec : byName.values()) {
+            if (matches(rec)) {
                 viewItems.add(rec);
             }
         }
 
-        if (sortMode != SortMode.UNSORTED) {
-            viewItems.sort(buildComparator());
+        if (comparator != null) {
+            sortView();
         }
 
+        dirty = false;
+        clampSelection();
+    }
+
+    private void sortView() {
+        if (viewItems.size() < PARALLEL_SORT_THRESHOLD) {
+            viewItems.sort(comparator);
+            return;
+        }
+        TFileRec[] sorted = viewItems.toArray(new TFileRec[0]);
+        Arrays.parallelSort(sorted, comparator);
+        viewItems.clear();
+        Collections.addAll(viewItems, sorted);
+    }
+
+    private void clampSelection() {
         if (viewItems.isEmpty()) {
             selected = -1;
         } else if (selected < 0) {
@@ -139,34 +242,129 @@ public class TFileCollection {
         } else if (selected >= viewItems.size()) {
             selected = viewItems.size() - 1;
         }
-        dirty = false;
     }
 
-    private Comparator<TFileRec> buildComparator() {
-        Comparator<TFileRec> cmp = Comparator.comparing((TFileRec rec) -> rec.getName().startsWith(".") ? 0 : 1);
+    private boolean matches(TFileRec rec) {
+        return rec.isDirectory() || fileMaskPattern.matcher(rec.getName()).matches();
+    }
+
+    private int visibleIndex(TFileRec rec) {
+        if (comparator == null) {
+            return viewItems.indexOf(rec);
+        }
+        int index = Collections.binarySearch(viewItems, rec, comparator);
+        return index >= 0 && viewItems.get(index) == rec ? index : -1;
+    }
+
+    private void insertVisible(TFileRec rec) {
+        if (comparator == null) {
+            viewItems.add(rec);
+        } else {
+            int index = Collections.binarySearch(viewItems, rec, comparator);
+            viewItems.add(index < 0 ? -index - 1 : index, rec);
+        }
+        clampSelection();
+    }
 
-        if (panelFlags.contains(PanelFlag.DIRECTORIES_FIRST)) {
-            cmp = cmp.thenComparing(rec -> rec.isDirectory() ? 0 : 1);
+    private void mergeVisible(List<TFileRec> added) {
+        if (comparator == null) {
+            viewItems.addAll(added);
+            clampSelection();
+            return;
         }
-        if (panelFlags.contains(PanelFlag.EXECUTABLE_FIRST)) {
-            cmp = cmp.thenComparing(rec -> isExecutable(rec) ? 0 : 1);
+        added.sort(comparator);
+        List<TFileRec> merged = new ArrayList<>(viewItems.size() + added.size());
+        int i = 0;
+        int j = 0;
+        while (i < viewItems.size() && j < added.size()) {
+            if (comparator.compare(added.get(j), viewItems.get(i)) < 0) {
+                merged.add(added.get(j++));
+            } else {
+                merged.add(viewItems.get(i++));
+            }
+        }
+        merged.addAll(viewItems.subList(i, viewItems.size()));
+        merged.addAll(added.subList(j, added.size()));
+        viewItems.clear();
+        viewItems.addAll(merged);
+        clampSelection();
+    }
+
+    /**
+     * Orders entries by group, then by the sort mode's key, then by the lower-cased
+     * name and finally by the exact name. Names are unique within a directory,
+     * so the order is total.
+     *
+     * <p>Most comparisons are settled by {@link #packedKey}, which fits the
+     * group bits and a prefix of the mode's key into one long. Only entries
+     * whose packed keys are equal fall back to comparing strings.</p>
+     */
+    private static final class RecComparator implements Comparator<TFileRec> {
+        private static final int KEY_BITS = 60;
+        private static final long KEY_MASK = (1L << KEY_BITS) - 1;
+
+        private final SortMode sortMode;
+        private final int groupMask;
+
+        RecComparator(SortMode sortMode, EnumSet<PanelFlag> panelFlags) {
+            this.sortMode = sortMode;
+            int mask = TFileRec.GROUP_NOT_HIDDEN;
+            if (panelFlags.contains(PanelFlag.DIRECTORIES_FIRST)) {
+                mask |= TFileRec.GROUP_NOT_DIRECTORY;
+            }
+            if (panelFlags.contains(PanelFlag.EXECUTABLE_FIRST)) {
+                mask |= TFileRec.GROUP_NOT_EXECUTABLE;
+            }
+            if (panelFlags.contains(PanelFlag.ARCHIVES_FIRST)) {
+                mask |= TFileRec.GROUP_NOT_ARCHIVE;
+            }
+            this.groupMask = mask;
         }
-        if (panelFlags.contains(PanelFlag.ARCHIVES_FIRST)) {
-            cmp = cmp.thenComparing(rec -> isArchive(rec) ? 0 : 1);
+
+        /**
+         * Returns the group bits in the top four bits and the mode's key,
+         * truncated to 60 bits, below them. Compared unsigned, the result never
+         * contradicts {@link #compare}.
+         */
+        private long packedKey(TFileRec rec) {
+            long key = switch (sortMode) {
+                case EXTENSION -> rec.getExtensionPrefix() >>> (64 - KEY_BITS);
+                case SIZE -> Math.min(Math.max(rec.getSize(), 0), KEY_MASK);
+                case TIME -> KEY_MASK - Math.min(Math.max(rec.getTimestamp(), 0), KEY_MASK);
+                case NAME, UNSORTED -> rec.getNamePrefix() >>> (64 - KEY_BITS);
+            };
+            return ((long) (rec.getGroupBits() & groupMask) << KEY_BITS) | key;
         }
 
-        cmp = cmp.thenComparing(switch (sortMode) {
-            case EXTENSION -> Comparator.comparing(TFileRec::getExtension, String.CASE_INSENSITIVE_ORDER)
-                    .thenComparing(TFileRec::getName, String.CASE_INSENSITIVE_ORDER);
-            case SIZE -> Comparator.comparingLong(TFileRec::getSize)
-                    .thenComparing(TFileRec::getName, String.CASE_INSENSITIVE_ORDER);
-            case TIME -> Comparator.comparingLong(TFileRec::getTimestamp)
-                    .reversed()
-                    .thenComparing(TFileRec::getName, String.CASE_INSENSITIVE_ORDER);
-            case UNSORTED, NAME -> Comparator.comparing(TFileRec::getName, String.CASE_INSENSITIVE_ORDER);
-        });
+        @Override
+        public int compare(TFileRec a, TFileRec b) {
+            int result = Long.compareUnsigned(packedKey(a), packedKey(b));
+            if (result != 0) {
+                return result;
+            }
+            result = switch (sortMode) {
+                case EXTENSION -> a.getExtension().compareTo(b.getExtension());
+                case SIZE -> Long.compare(a.getSize(), b.getSize());
+                case TIME -> Long.compare(b.getTimestamp(), a.getTimestamp());
+                case NAME, UNSORTED -> 0;
+            };
+            if (result != 0) {
+                return result;
+            }
+            result = Long.compareUnsigned(a.getNamePrefix(), b.getNamePrefix());
+            if (result != 0) {
+                return result;
+            }
+            result = a.getSortName().compareTo(b.getSortName());
+            return result != 0 ? result : a.getName().compareTo(b.getName());
+        }
+    }
 
-        return cmp;
+    /**
+     * Returns the compiled, case-insensitive pattern of a DOS style file mask.
+     */
+    static Pattern maskPattern(String fileMask) {
+        return MASK_PATTERNS.computeIfAbsent(fileMask, TFileCollection::buildFileMaskPattern);
     }
 
     private static Pattern buildFileMaskPattern(String fileMask) {
@@ -183,12 +381,4 @@ public class TFileCollection {
         return Pattern.compile(regex.toString(), Pattern.CASE_INSENSITIVE);
     }
 
-    private static boolean isExecutable(TFileRec rec) {
-        return !rec.isDirectory() && EXECUTABLE_EXTENSIONS.contains(rec.getExtension());
-    }
-
-    private static boolean isArchive(TFileRec rec) {
-        return !rec.isDirectory() && ARCHIVE_EXTENSIONS.contains(rec.getExtension());
-    }
-
 }
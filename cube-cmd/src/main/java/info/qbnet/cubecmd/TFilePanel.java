@@ -1,5 +1,6 @@
 package info.qbnet.cubecmd;
 
+import info.qbnet.jtvision.backend.util.Cp437;
 import info.qbnet.jtvision.util.PaletteDescriptor;
 import info.qbnet.jtvision.util.PaletteRole;
 import info.qbnet.jtvision.util.TDrawBuffer;
@@ -8,6 +9,7 @@ import info.qbnet.jtvision.util.TRect;
 import info.qbnet.jtvision.views.TScrollBar;
 
 import java.io.File;
+import java.util.Arrays;
 
 public class TFilePanel extends TFilePanelRoot {
 
@@ -46,50 +48,133 @@ public class TFilePanel extends TFilePanelRoot {
     public static final PaletteDescriptor<FilePanelColor> FILE_PANEL_PALETTE =
             PaletteDescriptor.register("filePanel", FilePanelColor.class);
 
+    /** Top index of the last {@link #draw()}; {@code -1} before the first. */
+    private int drawnTopIndex = -1;
+
     public TFilePanel(TRect bounds, File drive, TScrollBar scrollBar) {
         super(bounds, drive, scrollBar);
     }
 
+    /*
+     * Row layout: " name | size | date | time ". Every row has the same
+     * columns, so the offsets are fixed and each cell is written directly.
+     */
+    private static final int NAME_COL = 1;
+    private static final int NAME_WIDTH = 42;
+    private static final int SIZE_COL = 46;
+    private static final int SIZE_WIDTH = 12;
+    private static final int DATE_COL = 61;
+    private static final int DATE_WIDTH = 8;
+    private static final int TIME_COL = 72;
+    private static final int TIME_WIDTH = 7;
+    private static final int ROW_WIDTH = 80;
+    private static final int[] SEPARATOR_COLS = {44, 59, 70};
+    private static final byte SEPARATOR = (byte) 0xB3;
+
+    private static final byte[] HEADER_ROW = headerRow();
+    private static final byte[] EMPTY_ROW = emptyRow();
+
     protected void drawTop(TDrawBuffer buf) {
         short color = getColor(FilePanelColor.HEADER_TEXT, FilePanelColor.NORMAL_TEXT);
+        moveRow(buf, HEADER_ROW, color & 0xFF, (color >>> 8) & 0xFF);
+    }
 
-        String separator = "~" + (char) 0xB3 + "~";
-        String format = " %-42s " + separator + " %-12s " + separator + " %-8s " + separator + " %-7s ";
-        String line = String.format(format, "Name", "Size", "Date", "Time");
+    private static byte[] emptyRow() {
+        byte[] row = new byte[ROW_WIDTH];
+        Arrays.fill(row, (byte) ' ');
+        for (int col : SEPARATOR_COLS) {
+            row[col] = SEPARATOR;
+        }
+        return row;
+    }
+
+    private static byte[] headerRow() {
+        byte[] row = emptyRow();
+        putLeft(row, NAME_COL, NAME_WIDTH, "Name");
+        putLeft(row, SIZE_COL, SIZE_WIDTH, "Size");
+        putLeft(row, DATE_COL, DATE_WIDTH, "Date");
+        putLeft(row, TIME_COL, TIME_WIDTH, "Time");
+        return row;
+    }
 
-        buf.moveCStr(0, line, color);
+    /**
+     * Returns the formatted row of {@code rec}, building it on first use and
+     * caching it on the record.
+     */
+    private static byte[] rowOf(TFileRec rec) {
+        byte[] row = rec.getPanelRow();
+        if (row == null) {
+            row = emptyRow();
+            putFileName(row, rec.getName());
+            String size = rec.isDirectory() && !rec.isSizeCalculated() ? "<SUB-DIR>" : Long.toString(rec.getSize());
+            putRight(row, SIZE_COL, SIZE_WIDTH, size);
+            putLeft(row, DATE_COL, DATE_WIDTH, rec.getLastModifiedDate());
+            putLeft(row, TIME_COL, TIME_WIDTH, rec.getLastModifiedTime());
+            rec.setPanelRow(row);
+        }
+        return row;
     }
 
-    private static String formatFileName(String fileName, int width) {
+    /**
+     * Writes a file name with its extension aligned to the right edge of the
+     * name column, shortening the base name with ".." if it does not fit.
+     */
+    private static void putFileName(byte[] row, String fileName) {
         if ("..".equals(fileName) || ".".equals(fileName)) {
-            return String.format("%-" + width + "s", fileName);
+            putLeft(row, NAME_COL, NAME_WIDTH, fileName);
+            return;
         }
 
         int dotIndex = fileName.lastIndexOf('.');
-        String namePart = dotIndex >= 0 ? fileName.substring(0, dotIndex) : fileName;
-        String extPart = dotIndex >= 0 ? fileName.substring(dotIndex + 1) : "";
-
-        int totalLength = namePart.length() + 1 + extPart.length();
+        int nameLength = dotIndex >= 0 ? dotIndex : fileName.length();
+        int extStart = dotIndex >= 0 ? dotIndex + 1 : fileName.length();
+        int extLength = Math.min(fileName.length() - extStart, NAME_WIDTH);
+        int nameWidth = NAME_WIDTH - extLength;
 
-        if (totalLength <= width) {
-            String formatted = String.format("%-" + (width - extPart.length()) + "s%s", namePart, extPart);
-            return formatted;
+        if (nameLength + 1 + extLength <= NAME_WIDTH) {
+            putChars(row, NAME_COL, fileName, 0, nameLength);
         } else {
-            int maxNameLength = width - extPart.length() - 2;
-            if (maxNameLength < 0) maxNameLength = 0;
-            String shortName = namePart.length() > maxNameLength
-                    ? namePart.substring(0, maxNameLength) + ".."
-                    : namePart;
-            String formatted = String.format("%-" + (width - extPart.length()) + "s%s", shortName, extPart);
-            return formatted;
+            int kept = Math.min(nameLength, Math.max(0, nameWidth - 2));
+            putChars(row, NAME_COL, fileName, 0, kept);
+            putChars(row, NAME_COL + kept, "..", 0, Math.min(2, nameWidth - kept));
         }
+        putChars(row, NAME_COL + nameWidth, fileName, extStart, extLength);
     }
 
-    private void drawAtIdx(int idx, TDrawBuffer buf) {
-        String separator = "~" + (char) 0xB3 + "~";
-        String format = " %-42s " + separator + " %12s " + separator + " %-8s " + separator + " %-7s ";
+    private static void putLeft(byte[] row, int col, int width, String text) {
+        putChars(row, col, text, 0, Math.min(text.length(), width));
+    }
 
-        String line;
+    private static void putRight(byte[] row, int col, int width, String text) {
+        int length = Math.min(text.length(), width);
+        putChars(row, col + width - length, text, 0, length);
+    }
+
+    /** Stores characters in code page 437; ones it lacks show as {@code '?'}. */
+    private static void putChars(byte[] row, int col, String text, int from, int count) {
+        for (int i = 0; i < count; i++) {
+            char ch = Cp437.fromUnicode(text.charAt(from + i));
+            row[col + i] = (byte) (ch != 0 ? ch : '?');
+        }
+    }
+
+    /**
+     * Copies a formatted row into {@code buf}, painting the column separators
+     * with {@code separatorAttr}.
+     */
+    private static void moveRow(TDrawBuffer buf, byte[] row, int normalAttr, int separatorAttr) {
+        short[] cells = buf.buffer;
+        int normal = normalAttr << 8;
+        for (int i = 0; i < ROW_WIDTH; i++) {
+            cells[i] = (short) (normal | (row[i] & 0xFF));
+        }
+        int separator = separatorAttr << 8;
+        for (int col : SEPARATOR_COLS) {
+            cells[col] = (short) (separator | (row[col] & 0xFF));
+        }
+    }
+
+    private void drawAtIdx(int idx, TDrawBuffer buf) {
         boolean currentRow = idx == collection.getSelected();
         boolean focused = (state & State.SF_FOCUSED) != 0;
         FilePanelColor textRole = currentRow && focused
@@ -100,17 +185,11 @@ public class TFilePanel extends TFilePanelRoot {
         if (currentRow && focused) {
             separatorAttr = (normalAttr & 0xF0) | (separatorAttr & 0x0F);
         }
-        short color = (short) ((separatorAttr << 8) | normalAttr);
 
-        if (idx >= 0 && idx < collection.visibleSize()) {
-            TFileRec rec = collection.visibleGet(idx);
-
-            line = String.format(format, formatFileName(rec.getName(), 42), rec.isDirectory() ? "<SUB-DIR>" : rec.getSize(), rec.getLastModifiedDate(), rec.getLastModifiedTime());
-        } else {
-            line = String.format(format, "", "", "", "");
-        }
-
-        buf.moveCStr(0, line, color);
+        byte[] row = idx >= 0 && idx < collection.visibleSize()
+                ? rowOf(collection.visibleGet(idx))
+                : EMPTY_ROW;
+        moveRow(buf, row, normalAttr, separatorAttr);
     }
 
     @Override
@@ -122,6 +201,12 @@ public class TFilePanel extends TFilePanelRoot {
         drawTop(buf);
         writeLine(0, 0, getSize().x, 1, buf.buffer);
 
+        if (drawnTopIndex >= 0) {
+            // the file rows below the header move; only the ones scrolled in are written anew
+            scrollView(1, getSize().y - 1, drawnTopIndex - getTopIndex());
+        }
+        drawnTopIndex = getTopIndex();
+
         for (int i = 1; i < getSize().y; i++) {
             int idx = getTopIndex() + i - 1;
             drawAtIdx(idx, buf);
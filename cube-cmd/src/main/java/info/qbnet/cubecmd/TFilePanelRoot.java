@@ -7,7 +7,11 @@ import info.qbnet.jtvision.util.TRect;
 import info.qbnet.jtvision.views.TScrollBar;
 
 import java.io.File;
+import java.util.ArrayList;
 import java.util.EnumSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
 
 public class TFilePanelRoot extends THideView {
 
@@ -15,6 +19,13 @@ public class TFilePanelRoot extends THideView {
     protected final TScrollBar scrollBar;
     protected TFileCollection collection = null;
     protected int topIndex;
+    private TDrive.Loading loading = null;
+    private TDrive.Watch watch = null;
+    private TDirectorySizes.Calculation sizing = null;
+    /** Directory changes seen while the directory is still being read. */
+    private final Map<String, TFileRec> deferredChanges = new LinkedHashMap<>();
+    /** Name to select once it has been loaded; dropped when the user moves the selection. */
+    private String pendingSelection = null;
 
     public TFilePanelRoot(TRect bounds, File driveFile, TScrollBar scrollBar) {
         super(bounds);
@@ -26,35 +37,185 @@ public class TFilePanelRoot extends THideView {
         this.topIndex = 0;
         this.drive = new TDiskDrive(driveFile, this, -1);
 
-        collection =  drive.getDirectory();
-        syncScrollBar();
+        reloadCollection(null);
     }
 
     protected int getRowsVisible() {
         return Math.max(0, getSize().y - 1);
     }
 
+    /**
+     * Starts reading the current directory in the background. The panel is
+     * filled batch by batch; a load still running for the previous
+     * directory is cancelled.
+     */
     protected void reloadCollection(String selectedName) {
-        collection = drive.getDirectory();
-        if (selectedName != null) {
+        stopDirectoryTasks();
+        collection = new TFileCollection();
+        topIndex = 0;
+        pendingSelection = selectedName;
+        // watch first so that nothing changing during the read is missed
+        watch = drive.watchDirectory(new TDrive.ChangeListener() {
+            @Override
+            public void entriesChanged(Map<String, TFileRec> changes) {
+                if (loading != null) {
+                    deferredChanges.putAll(changes);
+                } else {
+                    applyChanges(changes);
+                }
+            }
+
+            @Override
+            public void directoryInvalidated() {
+                reloadCollection(selectedName());
+                drawView();
+            }
+        });
+        loading = drive.readDirectory(new TDrive.DirectoryListener() {
+            @Override
+            public void entriesLoaded(List<TFileRec> batch) {
+                addLoadedEntries(batch);
+            }
+
+            @Override
+            public void loadFinished() {
+                loading = null;
+                pendingSelection = null;
+                if (!deferredChanges.isEmpty()) {
+                    applyChanges(new LinkedHashMap<>(deferredChanges));
+                    deferredChanges.clear();
+                }
+            }
+        });
+        syncScrollBar();
+    }
+
+    /**
+     * Applies watched directory changes in place, keeping the selection on
+     * the same entry, and redraws once.
+     */
+    private void applyChanges(Map<String, TFileRec> changes) {
+        String current = selectedName();
+        int selected = collection.getSelected();
+        for (Map.Entry<String, TFileRec> change : changes.entrySet()) {
+            if (change.getValue() != null) {
+                collection.put(change.getValue());
+            } else {
+                collection.remove(change.getKey());
+            }
+        }
+        int index = current != null ? collection.indexOfName(current) : -1;
+        collection.setSelected(index >= 0 ? index : selected);
+        ensureSelectionVisible();
+        syncScrollBar();
+        drawView();
+    }
+
+    /**
+     * Calculates the total size of the directory under the cursor, or of
+     * every directory in the panel if {@code all} is set. Sizes appear in
+     * the panel as each directory completes.
+     */
+    protected void calculateSizes(boolean all) {
+        List<TFileRec> directories = new ArrayList<>();
+        if (all) {
             for (int i = 0; i < collection.visibleSize(); i++) {
-                if (selectedName.equalsIgnoreCase(collection.visibleGet(i).getName())) {
-                    collection.setSelected(i);
-                    ensureSelectionVisible();
-                    syncScrollBar();
-                    return;
+                TFileRec rec = collection.visibleGet(i);
+                if (rec.isDirectory() && !"..".equals(rec.getName())) {
+                    directories.add(rec);
                 }
             }
+        } else {
+            TFileRec rec = getSelectedFile();
+            if (rec != null && rec.isDirectory()) {
+                directories.add(rec);
+            }
         }
-        collection.setSelected(0);
+        if (directories.isEmpty()) {
+            return;
+        }
+        if (sizing != null) {
+            sizing.cancel();
+        }
+        sizing = TDirectorySizes.calculate(directories, new TDirectorySizes.SizeListener() {
+            @Override
+            public void sizesCalculated(Map<TFileRec, Long> sizes) {
+                Map<String, TFileRec> changes = new LinkedHashMap<>();
+                for (Map.Entry<TFileRec, Long> size : sizes.entrySet()) {
+                    changes.put(size.getKey().getName(), size.getKey().withDirectorySize(size.getValue()));
+                }
+                if (loading != null) {
+                    deferredChanges.putAll(changes);
+                } else {
+                    applyChanges(changes);
+                }
+            }
+
+            @Override
+            public void calculationFinished() {
+                sizing = null;
+            }
+        });
+    }
+
+    private String selectedName() {
+        int selected = collection.getSelected();
+        return selected >= 0 && selected < collection.visibleSize()
+                ? collection.visibleGet(selected).getName() : null;
+    }
+
+    private void addLoadedEntries(List<TFileRec> batch) {
+        int selected = collection.getSelected();
+        TFileRec current = selected >= 0 && selected < collection.visibleSize()
+                ? collection.visibleGet(selected) : null;
+        collection.addAll(batch);
+
+        int index = -1;
+        if (pendingSelection != null) {
+            for (TFileRec rec : batch) {
+                if (pendingSelection.equalsIgnoreCase(rec.getName())) {
+                    index = collection.indexOf(rec);
+                    pendingSelection = null;
+                    break;
+                }
+            }
+        }
+        if (index < 0 && current != null) {
+            index = collection.indexOf(current);
+        }
+        collection.setSelected(Math.max(0, index));
         ensureSelectionVisible();
         syncScrollBar();
+        drawView();
+    }
+
+    private void stopDirectoryTasks() {
+        if (loading != null) {
+            loading.cancel();
+            loading = null;
+        }
+        if (watch != null) {
+            watch.cancel();
+            watch = null;
+        }
+        if (sizing != null) {
+            sizing.cancel();
+            sizing = null;
+        }
+        deferredChanges.clear();
+    }
+
+    @Override
+    public void done() {
+        stopDirectoryTasks();
+        super.done();
     }
 
     protected void moveSelection(int delta) {
         if (collection.visibleSize() == 0) {
             return;
         }
+        pendingSelection = null;
         collection.setSelected(collection.getSelected() + delta);
         ensureSelectionVisible();
         syncScrollBar();
@@ -62,6 +223,7 @@ public class TFilePanelRoot extends THideView {
     }
 
     protected void moveSelectionToStart() {
+        pendingSelection = null;
         collection.setSelected(0);
         ensureSelectionVisible();
         syncScrollBar();
@@ -69,6 +231,7 @@ public class TFilePanelRoot extends THideView {
     }
 
     protected void moveSelectionToEnd() {
+        pendingSelection = null;
         collection.setSelected(collection.visibleSize() - 1);
         ensureSelectionVisible();
         syncScrollBar();
@@ -162,6 +325,36 @@ public class TFilePanelRoot extends THideView {
         return drive.getCurrentDirectory().getPath();
     }
 
+    public File getCurrentDirectory() {
+        return drive.getCurrentDirectory();
+    }
+
+    /**
+     * @return the entry under the cursor, or {@code null} if there is none or
+     *         it is the parent directory entry
+     */
+    public TFileRec getSelectedFile() {
+        int selected = collection.getSelected();
+        if (selected < 0 || selected >= collection.visibleSize()) {
+            return null;
+        }
+        TFileRec rec = collection.visibleGet(selected);
+        return "..".equals(rec.getName()) ? null : rec;
+    }
+
+    /**
+     * Shows the directory containing {@code file} with the cursor on it.
+     */
+    public void goToFile(File file) {
+        File directory = file.getParentFile();
+        if (directory == null || !directory.isDirectory()) {
+            return;
+        }
+        this.drive = new TDiskDrive(directory, this, -1);
+        reloadCollection(file.getName());
+        redrawWithHeader();
+    }
+
     protected void cycleDriveRoot() {
         File currentDirectory = drive.getCurrentDirectory();
         File currentRoot = currentDirectory;
@@ -191,6 +384,7 @@ public class TFilePanelRoot extends THideView {
     private void redrawWithHeader() {
         drawView();
         if (getOwner() != null) {
+            getOwner().invalidate();
             getOwner().drawView();
         }
     }
@@ -235,12 +429,21 @@ public class TFilePanelRoot extends THideView {
                     }
                     clearEvent(event);
                 }
+                default -> {
+                    if (event.key.charCode == ' ') {
+                        calculateSizes(false);
+                        clearEvent(event);
+                    }
+                }
             }
         } else if (event.what == TEvent.EV_BROADCAST) {
             if ((options & Options.OF_SELECTABLE) != 0) {
                 if (event.msg.command == Command.CM_SCROLLBAR_CLICKED && event.msg.infoPtr == scrollBar) {
                     select();
                 } else if (event.msg.command == Command.CM_SCROLLBAR_CHANGED && event.msg.infoPtr == scrollBar) {
+                    if (scrollBar.getValue() != collection.getSelected()) {
+                        pendingSelection = null;
+                    }
                     collection.setSelected(scrollBar.getValue());
                     ensureSelectionVisible();
                     drawView();
@@ -253,6 +456,9 @@ public class TFilePanelRoot extends THideView {
             } else if (event.msg.command == TTopView.CM_CUBE_CHANGE_DIR) {
                 openSelected();
                 clearEvent(event);
+            } else if (event.msg.command == CubeCmdApp.CM_CALCULATE_SIZES) {
+                calculateSizes(true);
+                clearEvent(event);
             }
         }
     }
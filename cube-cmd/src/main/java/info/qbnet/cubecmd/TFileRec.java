@@ -1,9 +1,13 @@
 package info.qbnet.cubecmd;
 
 import java.io.File;
-import java.text.SimpleDateFormat;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
 import java.util.Locale;
-import java.util.Date;
+import java.util.Set;
 
 public class TFileRec {
 
@@ -16,30 +20,85 @@ public class TFileRec {
 //    public boolean selected;
     private final long timestamp;
     private final boolean directory;
+    /** Whether {@link #size} of a directory is the total of its tree. */
+    private final boolean sizeCalculated;
     private final String extension;
-
-    private static final SimpleDateFormat dateFormat = new SimpleDateFormat("dd-MM-yy");
-    private static final SimpleDateFormat timeFormat = new SimpleDateFormat("HH:mm");
+    /** Lower-cased name used as the primary sort key. */
+    private final String sortName;
+    /** First characters of {@link #sortName}, see {@link #packPrefix(String)}. */
+    private final long namePrefix;
+    /** First characters of {@link #extension}, see {@link #packPrefix(String)}. */
+    private final long extensionPrefix;
+    /** {@code GROUP_*} bits, set for each group the entry does not belong to. */
+    private final int groupBits;
+
+    /** Set unless the name starts with a dot. */
+    static final int GROUP_NOT_HIDDEN = 8;
+    /** Set unless the entry is a directory. */
+    static final int GROUP_NOT_DIRECTORY = 4;
+    /** Set unless the entry is an executable file. */
+    static final int GROUP_NOT_EXECUTABLE = 2;
+    /** Set unless the entry is an archive file. */
+    static final int GROUP_NOT_ARCHIVE = 1;
+
+    private static final Set<String> EXECUTABLE_EXTENSIONS = Set.of("exe", "bat", "cmd", "com", "sh");
+    private static final Set<String> ARCHIVE_EXTENSIONS = Set.of(
+            "zip", "rar", "7z", "tar", "gz", "bz2", "xz", "tgz", "tbz", "jar");
+
+    /** Immutable, so sessions on different threads can share them. */
+    private static final DateTimeFormatter DATE_FORMAT =
+            DateTimeFormatter.ofPattern("dd-MM-yy").withZone(ZoneId.systemDefault());
+    private static final DateTimeFormatter TIME_FORMAT =
+            DateTimeFormatter.ofPattern("HH:mm").withZone(ZoneId.systemDefault());
 
     private String lastModifiedDate = null;
     private String lastModifiedTime = null;
+    /** Row as formatted by the file panel, cached because records are immutable. */
+    private byte[] panelRow = null;
 
     public TFileRec(File file) {
-        this(file, file.getName(), file.length(), file.lastModified(), file.isDirectory());
+        this(file, file.getName(), file.length(), file.lastModified(), file.isDirectory(), false);
+    }
+
+    /**
+     * Creates a record from attributes that were read in a single call, for
+     * example while streaming a directory.
+     */
+    public TFileRec(Path path, BasicFileAttributes attributes) {
+        this(path.toFile(), String.valueOf(path.getFileName()), attributes.size(),
+                attributes.lastModifiedTime().toMillis(), attributes.isDirectory(), false);
     }
 
-    private TFileRec(File file, String name, long size, long timestamp, boolean directory) {
+    private TFileRec(File file, String name, long size, long timestamp, boolean directory, boolean sizeCalculated) {
         this.file = file;
         this.name = name;
         this.size = size;
         this.timestamp = timestamp;
         this.directory = directory;
+        this.sizeCalculated = sizeCalculated;
         int dotIndex = this.name.lastIndexOf('.');
         if (dotIndex >= 0 && dotIndex + 1 < this.name.length()) {
             this.extension = this.name.substring(dotIndex + 1).toLowerCase(Locale.ROOT);
         } else {
             this.extension = "";
         }
+        this.sortName = this.name.toLowerCase(Locale.ROOT);
+        this.namePrefix = packPrefix(this.sortName);
+        this.extensionPrefix = packPrefix(this.extension);
+        int bits = 0;
+        if (!this.name.startsWith(".")) {
+            bits |= GROUP_NOT_HIDDEN;
+        }
+        if (!directory) {
+            bits |= GROUP_NOT_DIRECTORY;
+        }
+        if (directory || !EXECUTABLE_EXTENSIONS.contains(this.extension)) {
+            bits |= GROUP_NOT_EXECUTABLE;
+        }
+        if (directory || !ARCHIVE_EXTENSIONS.contains(this.extension)) {
+            bits |= GROUP_NOT_ARCHIVE;
+        }
+        this.groupBits = bits;
     }
 
     public static TFileRec parentEntry(File currentDirectory) {
@@ -47,7 +106,15 @@ public class TFileRec {
         if (parent == null) {
             parent = currentDirectory;
         }
-        return new TFileRec(parent, "..", 0, currentDirectory.lastModified(), true);
+        return new TFileRec(parent, "..", 0, currentDirectory.lastModified(), true, false);
+    }
+
+    /**
+     * Returns a copy of this directory entry whose size is the total size of
+     * the directory's tree.
+     */
+    public TFileRec withDirectorySize(long totalSize) {
+        return new TFileRec(file, name, totalSize, timestamp, directory, true);
     }
 
     public String getName() {
@@ -66,6 +133,14 @@ public class TFileRec {
         return directory;
     }
 
+    /**
+     * @return {@code true} if this is a directory whose size has been
+     *         calculated with {@link TDirectorySizes}
+     */
+    public boolean isSizeCalculated() {
+        return sizeCalculated;
+    }
+
     public long getTimestamp() {
         return timestamp;
     }
@@ -74,16 +149,65 @@ public class TFileRec {
         return extension;
     }
 
+    /**
+     * Returns the lower-cased name used for case-insensitive ordering.
+     */
+    public String getSortName() {
+        return sortName;
+    }
+
+    int getGroupBits() {
+        return groupBits;
+    }
+
+    long getNamePrefix() {
+        return namePrefix;
+    }
+
+    long getExtensionPrefix() {
+        return extensionPrefix;
+    }
+
+    /**
+     * Packs the first four characters of {@code s} into a long, 16 bits each
+     * with the first character highest. Unsigned comparison of two packed
+     * values agrees with {@link String#compareTo} on the prefixes; equal
+     * values say nothing about the rest of the strings.
+     */
+    static long packPrefix(String s) {
+        long packed = 0;
+        for (int i = 0; i < 4; i++) {
+            packed = (packed << 16) | (i < s.length() ? s.charAt(i) : 0);
+        }
+        return packed;
+    }
+
+    public boolean isExecutable() {
+        return (groupBits & GROUP_NOT_EXECUTABLE) == 0;
+    }
+
+    public boolean isArchive() {
+        return (groupBits & GROUP_NOT_ARCHIVE) == 0;
+    }
+
+    byte[] getPanelRow() {
+        return panelRow;
+    }
+
+    void setPanelRow(byte[] panelRow) {
+        this.panelRow = panelRow;
+    }
+
     public String getLastModifiedDate() {
         if (lastModifiedDate == null) {
-            lastModifiedDate = dateFormat.format(new Date(timestamp));
+            lastModifiedDate = DATE_FORMAT.format(Instant.ofEpochMilli(timestamp));
         }
         return lastModifiedDate;
     }
 
     public String getLastModifiedTime() {
         if (lastModifiedTime == null) {
-            lastModifiedTime = timeFormat.format(new Date(timestamp));
+            lastModifiedTime = TIME_FORMAT.format(Instant.ofEpochMilli(timestamp));
         }
         return lastModifiedTime;
     }
@@ -0,0 +1,363 @@
+package info.qbnet.cubecmd;
+
+import info.qbnet.jtvision.views.TSession;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryIteratorException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.regex.Pattern;
+
+/**
+ * Searches a directory tree for files by name, size, date and contents,
+ * after Dos Navigator's {@code FILEFIND.PAS}.
+ *
+ * <p>Directories are walked in parallel, one fork/join task per directory.
+ * Contents are searched with the Boyer-Moore-Horspool algorithm. Small files
+ * are read into a buffer; larger ones are memory-mapped in windows, so a
+ * search never copies big files through the Java heap. Symbolic links to
+ * directories are not followed. With a {@link TNameIndex}, unchanged
+ * directories are not read again.</p>
+ */
+public final class TFileSearch {
+
+    /** Files up to this size are read instead of mapped. */
+    private static final int READ_LIMIT = 64 * 1024;
+    /** Size of each mapped window of a large file. */
+    private static final long MAP_WINDOW = 64L << 20;
+
+    private static final ThreadLocal<ByteBuffer> READ_BUFFER =
+            ThreadLocal.withInitial(() -> ByteBuffer.allocate(READ_LIMIT));
+
+    /**
+     * What to search for. Sizes of {@code -1} and a {@code modifiedAfter} of
+     * {@code 0} mean no limit; an empty {@code text} matches any contents.
+     */
+    public record Criteria(String mask, String text, boolean caseSensitive,
+                           long minSize, long maxSize, long modifiedAfter, boolean useIndex) {
+        /** Directories can only match criteria that look at names. */
+        boolean namesOnly() {
+            return text.isEmpty() && minSize < 0 && maxSize < 0 && modifiedAfter <= 0;
+        }
+    }
+
+    /** Receives results; both methods are called on the event loop thread. */
+    public interface ResultListener {
+        /** Called with matches in the order found; close matches are coalesced. */
+        void filesFound(List<Path> found);
+
+        /** Called once after the walk unless cancelled. */
+        void searchFinished(int directories, int files);
+    }
+
+    /**
+     * Handle of a running search. Once cancelled, no further listener calls
+     * are made.
+     */
+    public static class Search {
+        private volatile boolean cancelled = false;
+        private final ResultListener listener;
+        private final TSession session = TSession.current();
+        private final List<Path> pending = new ArrayList<>();
+        /** Whether a delivery is queued; guarded by {@link #pending}. */
+        private boolean scheduled = false;
+        private final AtomicInteger directories = new AtomicInteger();
+        private final AtomicInteger files = new AtomicInteger();
+
+        Search(ResultListener listener) {
+            this.listener = listener;
+        }
+
+        public void cancel() {
+            cancelled = true;
+        }
+
+        public boolean isCancelled() {
+            return cancelled;
+        }
+
+        void found(Path path) {
+            synchronized (pending) {
+                pending.add(path);
+                if (scheduled) {
+                    return;
+                }
+                scheduled = true;
+            }
+            session.invokeLater(this::deliver);
+        }
+
+        private void deliver() {
+            List<Path> found;
+            synchronized (pending) {
+                found = new ArrayList<>(pending);
+                pending.clear();
+                scheduled = false;
+            }
+            if (!cancelled && !found.isEmpty()) {
+                listener.filesFound(found);
+            }
+        }
+
+        void finish() {
+            session.invokeLater(() -> {
+                deliver();
+                if (!cancelled) {
+                    listener.searchFinished(directories.get(), files.get());
+                }
+            });
+        }
+    }
+
+    private final Criteria criteria;
+    private final Pattern mask;
+    private final BytePattern text;
+    private final TNameIndex index;
+    private final Search search;
+
+    private TFileSearch(Path root, Criteria criteria, Search search) {
+        this.criteria = criteria;
+        this.mask = TFileCollection.maskPattern(criteria.mask().isBlank() ? "*" : criteria.mask().trim());
+        this.text = criteria.text().isEmpty() ? null : new BytePattern(criteria.text(), criteria.caseSensitive());
+        this.index = criteria.useIndex() ? TNameIndex.load(root) : null;
+        this.search = search;
+    }
+
+    /**
+     * Starts searching the tree below {@code root}.
+     */
+    public static Search start(Path root, Criteria criteria, ResultListener listener) {
+        Search search = new Search(listener);
+        TDirectorySizes.POOL.execute(() -> {
+            try {
+                TFileSearch walker = new TFileSearch(root, criteria, search);
+                walker.new DirectoryTask(root).invoke();
+                if (walker.index != null && !search.isCancelled()) {
+                    try {
+                        walker.index.save();
+                    } catch (IOException e) {
+                        // the index only speeds up later searches
+                    }
+                }
+            } finally {
+                // the dialog waits for this even if the walk failed
+                search.finish();
+            }
+        });
+        return search;
+    }
+
+    private final class DirectoryTask extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+
+        private final Path directory;
+
+        DirectoryTask(Path directory) {
+            this.directory = directory;
+        }
+
+        @Override
+        protected void compute() {
+            if (search.isCancelled()) {
+                return;
+            }
+            TNameIndex.Entry[] entries = entries(directory);
+            search.directories.incrementAndGet();
+            List<DirectoryTask> subtasks = new ArrayList<>();
+            for (TNameIndex.Entry entry : entries) {
+                if (search.isCancelled()) {
+                    break;
+                }
+                Path path = directory.resolve(entry.name());
+                if (entry.directory()) {
+                    DirectoryTask subtask = new DirectoryTask(path);
+                    subtask.fork();
+                    subtasks.add(subtask);
+                    if (criteria.namesOnly() && matchesName(entry)) {
+                        search.found(path);
+                    }
+                } else {
+                    search.files.incrementAndGet();
+                    if (matches(path, entry)) {
+                        search.found(path);
+                    }
+                }
+            }
+            for (DirectoryTask subtask : subtasks) {
+                subtask.join();
+            }
+        }
+    }
+
+    private TNameIndex.Entry[] entries(Path directory) {
+        long modified = -1;
+        if (index != null) {
+            try {
+                modified = Files.getLastModifiedTime(directory).toMillis();
+                TNameIndex.Entry[] entries = index.lookup(directory, modified);
+                if (entries != null) {
+                    return entries;
+                }
+            } catch (IOException e) {
+                return new TNameIndex.Entry[0];
+            }
+        }
+
+        List<TNameIndex.Entry> entries = new ArrayList<>();
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(directory)) {
+            for (Path child : stream) {
+                try {
+                    BasicFileAttributes attributes =
+                            Files.readAttributes(child, BasicFileAttributes.class, LinkOption.NOFOLLOW_LINKS);
+                    entries.add(new TNameIndex.Entry(String.valueOf(child.getFileName()), attributes.isDirectory(),
+                            attributes.size(), attributes.lastModifiedTime().toMillis()));
+                } catch (IOException e) {
+                    // vanished or unreadable entry
+                }
+            }
+        } catch (IOException | DirectoryIteratorException e) {
+            // unreadable directory: search what was read
+        }
+        TNameIndex.Entry[] result = entries.toArray(new TNameIndex.Entry[0]);
+        if (index != null) {
+            index.store(directory, modified, result);
+        }
+        return result;
+    }
+
+    private boolean matchesName(TNameIndex.Entry entry) {
+        return mask.matcher(entry.name()).matches();
+    }
+
+    private boolean matches(Path path, TNameIndex.Entry entry) {
+        if (!matchesName(entry)) {
+            return false;
+        }
+        if (criteria.minSize() >= 0 && entry.size() < criteria.minSize()) {
+            return false;
+        }
+        if (criteria.maxSize() >= 0 && entry.size() > criteria.maxSize()) {
+            return false;
+        }
+        if (entry.modified() < criteria.modifiedAfter()) {
+            return false;
+        }
+        return text == null || containsText(path);
+    }
+
+    private boolean containsText(Path path) {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (size < text.length()) {
+                return false;
+            }
+            if (size <= READ_LIMIT) {
+                ByteBuffer buffer = READ_BUFFER.get();
+                buffer.clear();
+                while (buffer.hasRemaining() && channel.read(buffer) > 0) {
+                    // fill the buffer
+                }
+                buffer.flip();
+                return text.find(buffer);
+            }
+            // windows overlap so that a match across a boundary is found
+            long step = MAP_WINDOW - text.length() + 1;
+            for (long position = 0; position < size; position += step) {
+                if (search.isCancelled()) {
+                    return false;
+                }
+                long length = Math.min(MAP_WINDOW, size - position);
+                if (length < text.length()) {
+                    break;
+                }
+                if (text.find(channel.map(FileChannel.MapMode.READ_ONLY, position, length))) {
+                    return true;
+                }
+            }
+            return false;
+        } catch (IOException | UnsupportedOperationException e) {
+            return false;
+        }
+    }
+
+    /**
+     * Byte pattern searched with Boyer-Moore-Horspool. The text is matched
+     * as UTF-8; without case sensitivity ASCII letters are folded.
+     */
+    static final class BytePattern {
+        private final byte[] pattern;
+        private final boolean caseSensitive;
+        private final int[] shift = new int[256];
+
+        BytePattern(String text, boolean caseSensitive) {
+            this.caseSensitive = caseSensitive;
+            byte[] bytes = text.getBytes(StandardCharsets.UTF_8);
+            if (!caseSensitive) {
+                for (int i = 0; i < bytes.length; i++) {
+                    bytes[i] = fold(bytes[i]);
+                }
+            }
+            this.pattern = bytes;
+            Arrays.fill(shift, bytes.length);
+            for (int i = 0; i < bytes.length - 1; i++) {
+                shift[bytes[i] & 0xFF] = bytes.length - 1 - i;
+            }
+            if (!caseSensitive) {
+                for (int c = 'a'; c <= 'z'; c++) {
+                    shift[c - 'a' + 'A'] = shift[c];
+                }
+            }
+        }
+
+        int length() {
+            return pattern.length;
+        }
+
+        /** Reports whether the pattern occurs between position and limit of {@code buffer}. */
+        boolean find(ByteBuffer buffer) {
+            return indexOf(buffer) >= 0;
+        }
+
+        /**
+         * Returns the index of the first occurrence between position and limit
+         * of {@code buffer}, or {@code -1}.
+         */
+        int indexOf(ByteBuffer buffer) {
+            int last = pattern.length - 1;
+            int start = buffer.position();
+            int end = buffer.limit() - last;
+            for (int i = start; i < end; ) {
+                int j = last;
+                while (j >= 0 && at(buffer, i + j) == pattern[j]) {
+                    j--;
+                }
+                if (j < 0) {
+                    return i;
+                }
+                i += shift[buffer.get(i + last) & 0xFF];
+            }
+            return -1;
+        }
+
+        private byte at(ByteBuffer buffer, int index) {
+            byte b = buffer.get(index);
+            return caseSensitive ? b : fold(b);
+        }
+
+        private static byte fold(byte b) {
+            return b >= 'A' && b <= 'Z' ? (byte) (b + ('a' - 'A')) : b;
+        }
+    }
+}
@@ -0,0 +1,262 @@
+package info.qbnet.cubecmd;
+
+import info.qbnet.jtvision.util.MsgBox;
+import info.qbnet.jtvision.util.TDrawBuffer;
+import info.qbnet.jtvision.util.TRect;
+import info.qbnet.jtvision.views.TSession;
+import info.qbnet.jtvision.views.TScrollBar;
+import info.qbnet.jtvision.views.TScroller;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.EnumSet;
+
+/**
+ * Scrolling view of a {@link TMappedText}, after Dos Navigator's
+ * {@code FVIEWER.PAS}. Shows the file as text or as a hex dump and
+ * searches it for a string.
+ *
+ * <p>Only the rows on screen are decoded. In text mode the vertical limit
+ * grows while the line index is built, so the start of a file can be read
+ * at once. Bytes are shown as they are, tabs are expanded to multiples of
+ * {@value #TAB_SIZE}.</p>
+ */
+public class TFileViewer extends TScroller {
+
+    private static final int TAB_SIZE = 8;
+    private static final int HEX_BYTES = 16;
+    /** Columns of a hex row: offset, bytes and characters. */
+    private static final int HEX_WIDTH = 12 + HEX_BYTES * 3 + 1 + HEX_BYTES;
+    private static final char[] HEX_DIGITS = "0123456789ABCDEF".toCharArray();
+
+    private final TMappedText text;
+    private boolean hexMode = false;
+
+    /** Start and length of the last match, or {@code -1}. */
+    private long markOffset = -1;
+    private int markLength = 0;
+    private TFileSearch.BytePattern pattern = null;
+    private volatile boolean searching = false;
+
+    /** Last line looked up, so scrolling by a few lines scans little. */
+    private int cachedLine = -1;
+    private long cachedOffset = 0;
+
+    public TFileViewer(TRect bounds, TScrollBar hScrollBar, TScrollBar vScrollBar, TMappedText text) {
+        super(bounds, hScrollBar, vScrollBar);
+        this.text = text;
+        setGrowModes(EnumSet.of(GrowMode.HI_X, GrowMode.HI_Y));
+        updateLimit();
+        text.startIndexing(this::updateLimit);
+    }
+
+    public boolean isHexMode() {
+        return hexMode;
+    }
+
+    /** Switches between text and hex display, keeping the position. */
+    public void toggleHexMode() {
+        long offset = topOffset();
+        hexMode = !hexMode;
+        updateLimit();
+        if (hexMode) {
+            scrollTo(0, rowOf(offset));
+        } else {
+            int lines = text.lineCount();
+            // within the indexed lines, positionOf scans at most STRIDE lines
+            int line = lines == 0 ? 0 : offset >= lineStart(lines - 1) ? lines - 1 : text.positionOf(offset).line();
+            scrollTo(0, line);
+        }
+        drawView();
+    }
+
+    /**
+     * Searches for {@code searchText} from the top of the view in the
+     * background and shows the first match.
+     */
+    public void search(String searchText, boolean caseSensitive) {
+        if (searchText.isEmpty()) {
+            return;
+        }
+        pattern = new TFileSearch.BytePattern(searchText, caseSensitive);
+        markOffset = -1;
+        searchFrom(topOffset());
+    }
+
+    /** Searches for the next match of the last search. */
+    public void searchNext() {
+        if (pattern != null) {
+            searchFrom(markOffset >= 0 ? markOffset + 1 : topOffset());
+        }
+    }
+
+    private void searchFrom(long from) {
+        if (searching) {
+            return;
+        }
+        searching = true;
+        TFileSearch.BytePattern searchPattern = pattern;
+        TSession session = TSession.current();
+        Thread thread = new Thread(() -> {
+            long found;
+            try {
+                found = text.find(searchPattern, from);
+            } catch (IOException e) {
+                found = -1;
+            }
+            TMappedText.Position position = found < 0 ? null : text.positionOf(found);
+            long offset = found;
+            session.invokeLater(() -> showMatch(offset, searchPattern.length(), position));
+        }, "viewer-search");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    private void showMatch(long offset, int length, TMappedText.Position position) {
+        searching = false;
+        if (getOwner() == null) {
+            return;
+        }
+        if (offset < 0) {
+            MsgBox.messageBox("String not found", MsgBox.MF_INFORMATION + MsgBox.MF_OK_BUTTON);
+            return;
+        }
+        markOffset = offset;
+        markLength = length;
+        int row = hexMode ? rowOf(offset) : position.line();
+        int x = delta.x;
+        if (!hexMode) {
+            int column = columnOf(position.lineStart(), offset);
+            if (column < delta.x || column + length > delta.x + getSize().x) {
+                x = Math.max(0, column - getSize().x / 2);
+            }
+        }
+        int y = row >= delta.y && row < delta.y + getSize().y ? delta.y : Math.max(0, row - getSize().y / 2);
+        scrollTo(x, y);
+        drawView();
+    }
+
+    private void updateLimit() {
+        if (hexMode) {
+            setLimit(HEX_WIDTH, rowOf(text.size() + HEX_BYTES - 1));
+        } else {
+            setLimit(TMappedText.MAX_LINE, text.lineCount());
+        }
+        drawView();
+    }
+
+    private static int rowOf(long offset) {
+        return (int) Math.min(Integer.MAX_VALUE - 1, offset / HEX_BYTES);
+    }
+
+    /** Returns the file offset of the top row. */
+    private long topOffset() {
+        if (hexMode) {
+            return (long) delta.y * HEX_BYTES;
+        }
+        return delta.y < text.lineCount() ? lineStart(delta.y) : 0;
+    }
+
+    private long lineStart(int line) {
+        if (cachedLine >= 0 && line >= cachedLine && line - cachedLine < TMappedText.STRIDE) {
+            long offset = cachedOffset;
+            for (int i = cachedLine; i < line; i++) {
+                offset = text.nextLine(offset);
+            }
+            cachedLine = line;
+            cachedOffset = offset;
+            return offset;
+        }
+        cachedLine = line;
+        cachedOffset = text.lineStart(line);
+        return cachedOffset;
+    }
+
+    private int columnOf(long lineStart, long offset) {
+        int column = 0;
+        for (long o = lineStart; o < offset; o++) {
+            column = text.byteAt(o) == '\t' ? (column / TAB_SIZE + 1) * TAB_SIZE : column + 1;
+        }
+        return column;
+    }
+
+    @Override
+    public void draw() {
+        short normal = getColor(ScrollerColor.NORMAL_TEXT);
+        short selected = getColor(ScrollerColor.SELECTED_TEXT);
+        TDrawBuffer buf = new TDrawBuffer();
+        int width = getSize().x;
+        long offset = hexMode ? -1 : topOffset();
+        int lines = text.lineCount();
+        for (int y = 0; y < getSize().y; y++) {
+            buf.moveChar(0, ' ', normal, width);
+            if (hexMode) {
+                drawHexRow(buf, (long) (delta.y + y) * HEX_BYTES, normal, selected);
+            } else if (delta.y + y < lines) {
+                long next = text.nextLine(offset);
+                drawTextRow(buf, offset, next, normal, selected);
+                offset = next;
+            }
+            writeLine(0, y, width, 1, buf.buffer);
+        }
+    }
+
+    private void drawTextRow(TDrawBuffer buf, long start, long end, short normal, short selected) {
+        int right = delta.x + getSize().x;
+        int column = 0;
+        for (long o = start; o < end && column < right; o++) {
+            int b = text.byteAt(o) & 0xFF;
+            if (b == '\n' || (b == '\r' && o + 1 < end && text.byteAt(o + 1) == '\n')) {
+                break;
+            }
+            int color = isMarked(o) ? selected : normal;
+            int cells = b == '\t' ? TAB_SIZE - column % TAB_SIZE : 1;
+            char ch = b == '\t' || b == 0 ? ' ' : (char) b;
+            for (int i = 0; i < cells; i++, column++) {
+                if (column >= delta.x && column < right) {
+                    buf.buffer[column - delta.x] = (short) ((color << 8) | ch);
+                }
+            }
+        }
+    }
+
+    private void drawHexRow(TDrawBuffer buf, long start, short normal, short selected) {
+        if (start >= text.size()) {
+            return;
+        }
+        char[] row = new char[HEX_WIDTH];
+        int[] colors = new int[HEX_WIDTH];
+        Arrays.fill(row, ' ');
+        Arrays.fill(colors, normal);
+        for (int i = 0; i < 10; i++) {
+            row[i] = HEX_DIGITS[(int) (start >>> (36 - 4 * i)) & 0xF];
+        }
+        row[10] = ':';
+        int count = (int) Math.min(HEX_BYTES, text.size() - start);
+        for (int i = 0; i < count; i++) {
+            int b = text.byteAt(start + i) & 0xFF;
+            int hex = 12 + i * 3;
+            int chr = 12 + HEX_BYTES * 3 + 1 + i;
+            row[hex] = HEX_DIGITS[b >>> 4];
+            row[hex + 1] = HEX_DIGITS[b & 0xF];
+            row[chr] = b == 0 ? '.' : (char) b;
+            if (isMarked(start + i)) {
+                colors[hex] = colors[hex + 1] = colors[chr] = selected;
+            }
+        }
+        int width = Math.min(getSize().x, HEX_WIDTH - delta.x);
+        for (int x = 0; x < width; x++) {
+            buf.buffer[x] = (short) ((colors[delta.x + x] << 8) | row[delta.x + x]);
+        }
+    }
+
+    private boolean isMarked(long offset) {
+        return markOffset >= 0 && offset >= markOffset && offset < markOffset + markLength;
+    }
+
+    @Override
+    public void done() {
+        text.close();
+        super.done();
+    }
+}
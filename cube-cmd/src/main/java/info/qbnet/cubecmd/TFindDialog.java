@@ -0,0 +1,105 @@
+package info.qbnet.cubecmd;
+
+import info.qbnet.jtvision.util.Command;
+import info.qbnet.jtvision.util.DataPacket;
+import info.qbnet.jtvision.util.TRect;
+import info.qbnet.jtvision.views.TButton;
+import info.qbnet.jtvision.views.TCheckBoxes;
+import info.qbnet.jtvision.views.TDialog;
+import info.qbnet.jtvision.views.TInputLine;
+import info.qbnet.jtvision.views.TLabel;
+
+import java.util.Arrays;
+
+/**
+ * Asks for the criteria of a file search, after Dos Navigator's find file
+ * dialog.
+ */
+public class TFindDialog extends TDialog {
+
+    private static final int MASK_LENGTH = 80;
+    private static final int TEXT_LENGTH = 200;
+    private static final int NUMBER_LENGTH = 12;
+
+    private static final int OPT_CASE_SENSITIVE = 0x0001;
+    private static final int OPT_USE_INDEX = 0x0002;
+
+    private final TInputLine maskInput;
+    private final TInputLine textInput;
+    private final TInputLine minSizeInput;
+    private final TInputLine maxSizeInput;
+    private final TInputLine daysInput;
+    private final TCheckBoxes optionBoxes;
+
+    public TFindDialog() {
+        super(new TRect(0, 0, 60, 17), "Find file");
+        options |= Options.OF_CENTER;
+
+        maskInput = new TInputLine(new TRect(3, 3, 57, 4), MASK_LENGTH);
+        insert(maskInput);
+        insert(new TLabel(new TRect(2, 2, 57, 3), "File ~m~ask:", maskInput));
+
+        textInput = new TInputLine(new TRect(3, 5, 57, 6), TEXT_LENGTH);
+        insert(textInput);
+        insert(new TLabel(new TRect(2, 4, 57, 5), "~C~ontaining text:", textInput));
+
+        minSizeInput = new TInputLine(new TRect(3, 7, 28, 8), NUMBER_LENGTH);
+        insert(minSizeInput);
+        insert(new TLabel(new TRect(2, 6, 28, 7), "Size at ~l~east (KB):", minSizeInput));
+
+        maxSizeInput = new TInputLine(new TRect(32, 7, 57, 8), NUMBER_LENGTH);
+        insert(maxSizeInput);
+        insert(new TLabel(new TRect(31, 6, 57, 7), "Size at m~o~st (KB):", maxSizeInput));
+
+        daysInput = new TInputLine(new TRect(3, 9, 28, 10), NUMBER_LENGTH);
+        insert(daysInput);
+        insert(new TLabel(new TRect(2, 8, 28, 9), "Modified within ~d~ays:", daysInput));
+
+        optionBoxes = new TCheckBoxes(new TRect(3, 11, 57, 13),
+                Arrays.asList("Case ~s~ensitive", "Use name ~i~ndex"));
+        insert(optionBoxes);
+
+        insert(new TButton(new TRect(17, 14, 29, 16), "~F~ind", Command.CM_OK, TButton.BF_DEFAULT));
+        insert(new TButton(new TRect(31, 14, 43, 16), "Cancel", Command.CM_CANCEL, TButton.BF_NORMAL));
+
+        selectNext(false);
+
+        setData(new DataPacket(dataSize())
+                .putStringField("*", maskInput.dataSize())
+                .putStringField("", textInput.dataSize())
+                .putStringField("", minSizeInput.dataSize())
+                .putStringField("", maxSizeInput.dataSize())
+                .putStringField("", daysInput.dataSize())
+                .putShort((short) 0)
+                .rewind()
+                .getByteBuffer());
+    }
+
+    /**
+     * Returns the criteria entered. Empty or invalid numbers mean no limit.
+     */
+    public TFileSearch.Criteria getCriteria() {
+        DataPacket data = new DataPacket(dataSize());
+        getData(data.getByteBuffer());
+        data.rewind();
+        String mask = data.getStringField(maskInput.dataSize());
+        String text = data.getStringField(textInput.dataSize());
+        long minSize = parseNumber(data.getStringField(minSizeInput.dataSize()));
+        long maxSize = parseNumber(data.getStringField(maxSizeInput.dataSize()));
+        long days = parseNumber(data.getStringField(daysInput.dataSize()));
+        int flags = data.getShort();
+
+        long modifiedAfter = days >= 0 ? System.currentTimeMillis() - days * 86_400_000L : 0;
+        return new TFileSearch.Criteria(mask, text, (flags & OPT_CASE_SENSITIVE) != 0,
+                minSize >= 0 ? minSize * 1024 : -1, maxSize >= 0 ? maxSize * 1024 : -1,
+                modifiedAfter, (flags & OPT_USE_INDEX) != 0);
+    }
+
+    private static long parseNumber(String text) {
+        try {
+            return text.isBlank() ? -1 : Math.max(0, Long.parseLong(text.trim()));
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+}
@@ -0,0 +1,135 @@
+package info.qbnet.cubecmd;
+
+import info.qbnet.jtvision.event.TEvent;
+import info.qbnet.jtvision.util.Command;
+import info.qbnet.jtvision.util.TRect;
+import info.qbnet.jtvision.views.TButton;
+import info.qbnet.jtvision.views.TDialog;
+import info.qbnet.jtvision.views.ListProvider;
+import info.qbnet.jtvision.views.TListViewer;
+import info.qbnet.jtvision.views.TScrollBar;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Shows the results of a {@link TFileSearch} as they are found. The list
+ * reads the found paths through a {@link ListProvider}, so only the visible
+ * names are formatted however many files match. Choosing a
+ * result closes the dialog with {@link Command#CM_OK}; the path is then
+ * available from {@link #getSelectedPath()}.
+ */
+public class TFindResults extends TDialog {
+
+    private final Path root;
+    private final TFileSearch.Criteria criteria;
+    private final List<Path> found = new ArrayList<>();
+    private final TFoundList list;
+    private final TInfoText status;
+    private TFileSearch.Search search = null;
+
+    public TFindResults(Path root, TFileSearch.Criteria criteria) {
+        super(new TRect(0, 0, 70, 20), "Search results");
+        this.root = root;
+        this.criteria = criteria;
+        options |= Options.OF_CENTER;
+
+        TScrollBar scrollBar = new TScrollBar(new TRect(67, 2, 68, 16));
+        insert(scrollBar);
+        list = new TFoundList(new TRect(2, 2, 67, 16), scrollBar);
+        insert(list);
+        status = new TInfoText(new TRect(2, 16, 68, 17));
+        insert(status);
+
+        insert(new TButton(new TRect(20, 17, 32, 19), "~G~o to", Command.CM_OK, TButton.BF_DEFAULT));
+        insert(new TButton(new TRect(36, 17, 48, 19), "Cancel", Command.CM_CANCEL, TButton.BF_NORMAL));
+        list.select();
+    }
+
+    /**
+     * Starts the search; call before executing the dialog.
+     */
+    public void start() {
+        status.setText("Searching " + root + " ...");
+        search = TFileSearch.start(root, criteria, new TFileSearch.ResultListener() {
+            @Override
+            public void filesFound(List<Path> paths) {
+                found.addAll(paths);
+                list.sizeChanged();
+                status.setText("Searching " + root + " ... " + found.size() + " found");
+            }
+
+            @Override
+            public void searchFinished(int directories, int files) {
+                status.setText(found.size() + " found in " + files + " files, " + directories + " directories");
+            }
+        });
+    }
+
+    /**
+     * Stops a search that is still running.
+     */
+    public void stop() {
+        if (search != null) {
+            search.cancel();
+        }
+    }
+
+    /**
+     * Returns the focused result, or {@code null} if nothing was found.
+     */
+    public Path getSelectedPath() {
+        int index = list.getFocused();
+        return index >= 0 && index < found.size() ? found.get(index) : null;
+    }
+
+    @Override
+    public void handleEvent(TEvent event) {
+        super.handleEvent(event);
+        if (event.what == TEvent.EV_BROADCAST && event.msg.command == Command.CM_LIST_ITEM_SELECTED
+                && event.msg.infoPtr == list && (state & State.SF_MODAL) != 0) {
+            endModal(Command.CM_OK);
+            clearEvent(event);
+        }
+    }
+
+    /** List of the found paths, relative to the search root. */
+    private class TFoundList extends TListViewer implements ListProvider {
+        private ListProvider.Listener listener = null;
+
+        TFoundList(TRect bounds, TScrollBar scrollBar) {
+            super(bounds, 1, null, scrollBar);
+            setProvider(this);
+        }
+
+        @Override
+        public int size() {
+            return found.size();
+        }
+
+        @Override
+        public String[] fetch(int first, int count) {
+            String[] names = new String[count];
+            for (int i = 0; i < count; i++) {
+                names[i] = root.relativize(found.get(first + i)).toString();
+            }
+            return names;
+        }
+
+        @Override
+        public void setListener(ListProvider.Listener listener) {
+            this.listener = listener;
+        }
+
+        void sizeChanged() {
+            if (listener != null) {
+                listener.sizeChanged();
+            }
+        }
+
+        int getFocused() {
+            return focused;
+        }
+    }
+}
@@ -0,0 +1,25 @@
+package info.qbnet.cubecmd;
+
+import info.qbnet.jtvision.util.TRect;
+import info.qbnet.jtvision.views.TStaticText;
+
+/**
+ * Static text whose contents change while its dialog is shown, such as
+ * progress counters.
+ */
+public class TInfoText extends TStaticText {
+
+    public TInfoText(TRect bounds) {
+        super(bounds, "");
+    }
+
+    /**
+     * Replaces the text and redraws if it changed.
+     */
+    public void setText(String text) {
+        if (!text.equals(this.text)) {
+            this.text = text;
+            drawView();
+        }
+    }
+}
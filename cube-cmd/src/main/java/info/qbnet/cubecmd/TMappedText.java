@@ -0,0 +1,229 @@
+package info.qbnet.cubecmd;
+
+import info.qbnet.jtvision.views.TSession;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+/**
+ * Read-only memory-mapped file with a lazily built line index, the storage
+ * behind {@link TFileViewer}.
+ *
+ * <p>The file is mapped in segments of 1 GB, so files of any size open
+ * without reading them. A background thread then scans the file once and
+ * records the offset of every {@value #STRIDE}th line. Any line is found
+ * from the nearest recorded offset by scanning at most that many lines.
+ * Lines longer than {@value #MAX_LINE} bytes are broken, which bounds the
+ * work per line in files without line ends.</p>
+ */
+final class TMappedText {
+
+    /** Every {@code STRIDE}th line start is recorded in the index. */
+    static final int STRIDE = 1024;
+    /** Longest line; longer runs without a line end are broken. */
+    static final int MAX_LINE = 4096;
+
+    private static final int SEGMENT_SHIFT = 30;
+    private static final long SEGMENT_MASK = (1L << SEGMENT_SHIFT) - 1;
+    /** Window mapped at a time while searching. */
+    private static final long SEARCH_WINDOW = 64L << 20;
+    /** Bytes indexed between progress reports. */
+    private static final long REPORT_BYTES = 16L << 20;
+
+    private final Path path;
+    private final long size;
+    private final MappedByteBuffer[] segments;
+
+    /** Start offsets of lines 0, STRIDE, 2 * STRIDE, ...; replaced when grown. */
+    private volatile long[] checkpoints = new long[64];
+    private volatile int checkpointCount = 0;
+    /** Lines indexed so far. */
+    private volatile int lineCount = 0;
+    private volatile boolean closed = false;
+
+    private Runnable progressListener;
+    private TSession session;
+    /** Whether a progress report is queued; guarded by {@code this}. */
+    private boolean scheduled = false;
+
+    TMappedText(Path path) throws IOException {
+        this.path = path;
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            size = channel.size();
+            segments = new MappedByteBuffer[(int) ((size + SEGMENT_MASK) >>> SEGMENT_SHIFT)];
+            for (int i = 0; i < segments.length; i++) {
+                long position = (long) i << SEGMENT_SHIFT;
+                segments[i] = channel.map(FileChannel.MapMode.READ_ONLY, position,
+                        Math.min(SEGMENT_MASK + 1, size - position));
+            }
+        }
+    }
+
+    /**
+     * Starts indexing lines in the background. {@code listener} is run on
+     * the event loop thread as the line count grows and once when indexing
+     * is complete.
+     */
+    void startIndexing(Runnable listener) {
+        this.progressListener = listener;
+        this.session = TSession.current();
+        Thread thread = new Thread(this::index, "viewer-index");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    /** Stops indexing and any search; the mapping is released by the GC. */
+    void close() {
+        closed = true;
+    }
+
+    long size() {
+        return size;
+    }
+
+    /** Number of lines indexed so far. */
+    int lineCount() {
+        return lineCount;
+    }
+
+    byte byteAt(long offset) {
+        return segments[(int) (offset >>> SEGMENT_SHIFT)].get((int) (offset & SEGMENT_MASK));
+    }
+
+    /**
+     * Returns the offset just past the line starting at {@code start},
+     * including its line end.
+     */
+    long nextLine(long start) {
+        long end = Math.min(size, start + MAX_LINE);
+        for (long offset = start; offset < end; offset++) {
+            if (byteAt(offset) == '\n') {
+                return offset + 1;
+            }
+        }
+        return end;
+    }
+
+    /**
+     * Returns the start offset of line {@code line}, which must be below
+     * {@link #lineCount()}.
+     */
+    long lineStart(int line) {
+        int count = checkpointCount;
+        long[] starts = checkpoints;
+        int checkpoint = Math.min(line / STRIDE, count - 1);
+        long offset = starts[checkpoint];
+        for (int i = checkpoint * STRIDE; i < line; i++) {
+            offset = nextLine(offset);
+        }
+        return offset;
+    }
+
+    /** A line and the offset it starts at. */
+    record Position(int line, long lineStart) {
+    }
+
+    /**
+     * Returns the line containing {@code offset}, counting past the indexed
+     * lines if needed. May be slow; call off the event loop thread.
+     */
+    Position positionOf(long offset) {
+        int count = checkpointCount;
+        long[] starts = checkpoints;
+        int checkpoint = Math.max(0, Math.min(count - 1, upperCheckpoint(starts, count, offset)));
+        long start = starts[checkpoint];
+        int line = checkpoint * STRIDE;
+        for (long next = nextLine(start); next <= offset && next < size && !closed; next = nextLine(next)) {
+            start = next;
+            line++;
+        }
+        return new Position(line, start);
+    }
+
+    /** Returns the last checkpoint at or before {@code offset}, or -1. */
+    private static int upperCheckpoint(long[] starts, int count, long offset) {
+        int index = Arrays.binarySearch(starts, 0, count, offset);
+        return index >= 0 ? index : -index - 2;
+    }
+
+    /**
+     * Returns the offset of the first occurrence of {@code pattern} at or
+     * after {@code from}, or {@code -1}. May be slow; call off the event
+     * loop thread.
+     */
+    long find(TFileSearch.BytePattern pattern, long from) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            // windows overlap so that a match across a boundary is found
+            long step = SEARCH_WINDOW - pattern.length() + 1;
+            for (long position = from; position < size && !closed; position += step) {
+                long length = Math.min(SEARCH_WINDOW, size - position);
+                if (length < pattern.length()) {
+                    break;
+                }
+                ByteBuffer window = channel.map(FileChannel.MapMode.READ_ONLY, position, length);
+                int index = pattern.indexOf(window);
+                if (index >= 0) {
+                    return position + index;
+                }
+            }
+        }
+        return -1;
+    }
+
+    private void index() {
+        long offset = 0;
+        int line = 0;
+        long nextReport = REPORT_BYTES;
+        while (offset < size && line < Integer.MAX_VALUE - 1) {
+            if (closed) {
+                return;
+            }
+            if (line % STRIDE == 0) {
+                addCheckpoint(offset);
+            }
+            offset = nextLine(offset);
+            line++;
+            if (offset >= nextReport) {
+                lineCount = line;
+                nextReport = offset + REPORT_BYTES;
+                report();
+            }
+        }
+        if (checkpointCount == 0) {
+            addCheckpoint(0);
+        }
+        lineCount = line;
+        report();
+    }
+
+    private void addCheckpoint(long offset) {
+        int count = checkpointCount;
+        if (count == checkpoints.length) {
+            checkpoints = Arrays.copyOf(checkpoints, count * 2);
+        }
+        checkpoints[count] = offset;
+        checkpointCount = count + 1;
+    }
+
+    private void report() {
+        synchronized (this) {
+            if (scheduled) {
+                return;
+            }
+            scheduled = true;
+        }
+        session.invokeLater(() -> {
+            synchronized (this) {
+                scheduled = false;
+            }
+            if (!closed) {
+                progressListener.run();
+            }
+        });
+    }
+}
@@ -0,0 +1,156 @@
+package info.qbnet.cubecmd;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Persistent listing of a directory tree used to speed up repeated
+ * searches.
+ *
+ * <p>For every directory the index stores its modification time and its
+ * entries with their size and time. While a directory's time is unchanged,
+ * a search takes its entries from the index instead of listing the
+ * directory and reading every entry's attributes. Files changed in place
+ * do not change their directory's time, so sizes and dates in the index
+ * can be stale; names never are.</p>
+ *
+ * <p>One index file is kept per search root under
+ * {@code ~/.cube-cmd/find-index}. It is rewritten after each completed
+ * search and then holds exactly the directories that search visited.</p>
+ */
+public final class TNameIndex {
+
+    private static final int MAGIC = 0x434E4958;
+    private static final int VERSION = 1;
+    /** Smallest number of bytes a directory takes in the index file. */
+    private static final int MIN_DIRECTORY_BYTES = 2 + 8 + 4;
+    /** Smallest number of bytes an entry takes in the index file. */
+    private static final int MIN_ENTRY_BYTES = 2 + 1 + 8 + 8;
+
+    /** One directory entry. */
+    public record Entry(String name, boolean directory, long size, long modified) {
+    }
+
+    private record Listing(long modified, Entry[] entries) {
+    }
+
+    private final Path root;
+    private final Path file;
+    private final Map<Path, Listing> stored = new ConcurrentHashMap<>();
+    private final Map<Path, Listing> visited = new ConcurrentHashMap<>();
+
+    private TNameIndex(Path root, Path file) {
+        this.root = root;
+        this.file = file;
+    }
+
+    /**
+     * Loads the index of {@code root}. A missing, unreadable or corrupt
+     * index file gives an empty index.
+     */
+    public static TNameIndex load(Path root) {
+        Path directory = Paths.get(System.getProperty("user.home"), ".cube-cmd", "find-index");
+        String name = Integer.toHexString(root.toString().hashCode()) + ".idx";
+        TNameIndex index = new TNameIndex(root, directory.resolve(name));
+        if (Files.isRegularFile(index.file)) {
+            try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(index.file)))) {
+                index.read(in, Files.size(index.file));
+            } catch (IOException | RuntimeException e) {
+                // whatever the file holds, the search works without it
+                index.stored.clear();
+            }
+        }
+        return index;
+    }
+
+    private void read(DataInputStream in, long length) throws IOException {
+        if (in.readInt() != MAGIC || in.readInt() != VERSION || !root.toString().equals(in.readUTF())) {
+            return;
+        }
+        int directories = readCount(in, length / MIN_DIRECTORY_BYTES);
+        for (int i = 0; i < directories; i++) {
+            Path directory = root.resolve(in.readUTF());
+            long modified = in.readLong();
+            Entry[] entries = new Entry[readCount(in, length / MIN_ENTRY_BYTES)];
+            for (int j = 0; j < entries.length; j++) {
+                entries[j] = new Entry(in.readUTF(), in.readBoolean(), in.readLong(), in.readLong());
+            }
+            stored.put(directory, new Listing(modified, entries));
+        }
+    }
+
+    /** Reads a count, which a file of the index's length can hold at most {@code max} of. */
+    private static int readCount(DataInputStream in, long max) throws IOException {
+        int count = in.readInt();
+        if (count < 0 || count > max) {
+            throw new IOException("Corrupt index: count " + count);
+        }
+        return count;
+    }
+
+    /**
+     * Returns the stored entries of {@code directory} if its modification
+     * time is still {@code modified}, or {@code null}.
+     */
+    public Entry[] lookup(Path directory, long modified) {
+        Listing listing = stored.get(directory);
+        if (listing == null || listing.modified() != modified) {
+            return null;
+        }
+        visited.put(directory, listing);
+        return listing.entries();
+    }
+
+    /**
+     * Records the freshly read entries of {@code directory}.
+     */
+    public void store(Path directory, long modified, Entry[] entries) {
+        visited.put(directory, new Listing(modified, entries));
+    }
+
+    /**
+     * Writes the directories seen since loading to the index file. Searches
+     * of the same root may save at once; each writes a file of its own and
+     * the last one replaces the index.
+     */
+    public void save() throws IOException {
+        Files.createDirectories(file.getParent());
+        Path temp = Files.createTempFile(file.getParent(), file.getFileName().toString(), ".tmp");
+        try {
+            write(temp);
+            Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+    }
+
+    private void write(Path temp) throws IOException {
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(temp)))) {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeUTF(root.toString());
+            out.writeInt(visited.size());
+            for (Map.Entry<Path, Listing> directory : visited.entrySet()) {
+                out.writeUTF(root.relativize(directory.getKey()).toString());
+                out.writeLong(directory.getValue().modified());
+                Entry[] entries = directory.getValue().entries();
+                out.writeInt(entries.length);
+                for (Entry entry : entries) {
+                    out.writeUTF(entry.name());
+                    out.writeBoolean(entry.directory());
+                    out.writeLong(entry.size());
+                    out.writeLong(entry.modified());
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,100 @@
+package info.qbnet.cubecmd;
+
+import info.qbnet.jtvision.event.TEvent;
+import info.qbnet.jtvision.util.Command;
+import info.qbnet.jtvision.util.DataPacket;
+import info.qbnet.jtvision.util.KeyCode;
+import info.qbnet.jtvision.util.TRect;
+import info.qbnet.jtvision.views.TButton;
+import info.qbnet.jtvision.views.TCheckBoxes;
+import info.qbnet.jtvision.views.TDialog;
+import info.qbnet.jtvision.views.TInputLine;
+import info.qbnet.jtvision.views.TLabel;
+import info.qbnet.jtvision.views.TProgram;
+import info.qbnet.jtvision.views.TWindow;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.List;
+
+/**
+ * Window around a {@link TFileViewer}. F4 switches between text and hex,
+ * F7 searches, Shift-F7 finds the next match and Esc closes the window.
+ */
+public class TViewerWindow extends TWindow {
+
+    private final TFileViewer viewer;
+    private String lastSearch = "";
+    private boolean lastCaseSensitive = false;
+
+    public TViewerWindow(TRect bounds, Path file) throws IOException {
+        super(bounds, file.toString(), WN_NO_NUMBER);
+        options |= Options.OF_TILEABLE;
+
+        TMappedText text = new TMappedText(file);
+        TRect r = new TRect();
+        getExtent(r);
+        r.grow(-1, -1);
+        viewer = new TFileViewer(r,
+                standardScrollBar(ScrollBarOptions.SB_HORIZONTAL | ScrollBarOptions.SB_HANDLE_KEYBOARD),
+                standardScrollBar(ScrollBarOptions.SB_VERTICAL | ScrollBarOptions.SB_HANDLE_KEYBOARD),
+                text);
+        insert(viewer);
+    }
+
+    @Override
+    public void handleEvent(TEvent event) {
+        super.handleEvent(event);
+        if (event.what == TEvent.EV_KEYDOWN) {
+            switch (event.key.keyCode) {
+                case KeyCode.KB_F4 -> {
+                    viewer.toggleHexMode();
+                    clearEvent(event);
+                }
+                case KeyCode.KB_F7 -> {
+                    if (askSearch()) {
+                        viewer.search(lastSearch, lastCaseSensitive);
+                    }
+                    clearEvent(event);
+                }
+                case KeyCode.KB_SHIFT_F7 -> {
+                    viewer.searchNext();
+                    clearEvent(event);
+                }
+                case KeyCode.KB_ESC -> {
+                    close();
+                    clearEvent(event);
+                }
+            }
+        }
+    }
+
+    private boolean askSearch() {
+        TDialog d = new TDialog(new TRect(0, 0, 60, 10), "Search");
+        d.options |= Options.OF_CENTER;
+
+        TInputLine input = new TInputLine(new TRect(3, 3, 57, 4), 200);
+        d.insert(input);
+        d.insert(new TLabel(new TRect(2, 2, 57, 3), "~S~earch for:", input));
+        TCheckBoxes caseBox = new TCheckBoxes(new TRect(3, 5, 57, 6), List.of("~C~ase sensitive"));
+        d.insert(caseBox);
+        d.insert(new TButton(new TRect(17, 7, 29, 9), "O~K~", Command.CM_OK, TButton.BF_DEFAULT));
+        d.insert(new TButton(new TRect(31, 7, 43, 9), "Cancel", Command.CM_CANCEL, TButton.BF_NORMAL));
+        d.selectNext(false);
+
+        d.setData(new DataPacket(d.dataSize())
+                .putStringField(lastSearch, input.dataSize())
+                .putShort((short) (lastCaseSensitive ? 1 : 0))
+                .rewind()
+                .getByteBuffer());
+        if (TProgram.getDesktop().execView(d) != Command.CM_OK) {
+            return false;
+        }
+        DataPacket data = new DataPacket(d.dataSize());
+        d.getData(data.getByteBuffer());
+        data.rewind();
+        lastSearch = data.getStringField(input.dataSize());
+        lastCaseSensitive = (data.getShort() & 1) != 0;
+        return !lastSearch.isEmpty();
+    }
+}
@@ -0,0 +1,242 @@
+package info.qbnet.cubecmd;
+
+import info.qbnet.cubecmd.TFileCollection.PanelFlag;
+import info.qbnet.cubecmd.TFileCollection.SortMode;
+import org.junit.jupiter.api.Test;
+
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.FileTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.EnumSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.regex.Pattern;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TFileCollectionTest {
+
+    private record Attributes(long size, long lastModified, boolean directory) implements BasicFileAttributes {
+        @Override public FileTime lastModifiedTime() { return FileTime.fromMillis(lastModified); }
+        @Override public FileTime lastAccessTime() { return lastModifiedTime(); }
+        @Override public FileTime creationTime() { return lastModifiedTime(); }
+        @Override public boolean isRegularFile() { return !directory; }
+        @Override public boolean isDirectory() { return directory; }
+        @Override public boolean isSymbolicLink() { return false; }
+        @Override public boolean isOther() { return false; }
+        @Override public Object fileKey() { return null; }
+    }
+
+    private static TFileRec file(String name, long size, long time) {
+        return new TFileRec(Path.of("dir", name), new Attributes(size, time, false));
+    }
+
+    private static TFileRec directory(String name, long time) {
+        return new TFileRec(Path.of("dir", name), new Attributes(0, time, true));
+    }
+
+    /**
+     * Entries covering every group, equal sizes and times, names equal but
+     * for case or their first characters, and sizes beyond the packed keys.
+     */
+    private static List<TFileRec> entries() {
+        Map<String, TFileRec> byName = new LinkedHashMap<>();
+        for (TFileRec rec : List.of(
+                directory("src", 300), directory("Docs", 100), directory(".git", 200), directory("lib", 100),
+                file(".bashrc", 10, 50), file("run.sh", 10, 50), file("SETUP.EXE", 4000, 70), file("build.bat", 1, 0),
+                file("a.zip", 1L << 62, 80), file("Backup.tar", (1L << 62) + 1, 80), file("x.JAR", 5, 90),
+                file("Makefile", 7, 20), file("makefile", 7, 20), file("README", 0, 0), file("readme.txt", 3, 30),
+                file("longname_aaaa1.txt", 3, 30), file("longname_aaaa2.txt", 3, 31), file("_notes.txt", 9, 1),
+                file("photo.jpeg", 9, Long.MAX_VALUE), file("photo.jpg", 9, 1L << 61), file("noext.", 2, 2))) {
+            byName.put(rec.getName(), rec);
+        }
+        Random random = new Random(17);
+        String letters = "aAbBzZ_-.0";
+        String[] extensions = {"", ".txt", ".TXT", ".sh", ".zip", ".tar.gz", ".c", ".cc"};
+        while (byName.size() < 400) {
+            StringBuilder name = new StringBuilder();
+            for (int i = 1 + random.nextInt(7); i > 0; i--) {
+                name.append(letters.charAt(random.nextInt(letters.length())));
+            }
+            name.append(extensions[random.nextInt(extensions.length)]);
+            long time = random.nextInt(6) * 1000L;
+            TFileRec rec = random.nextInt(8) == 0
+                    ? directory(name.toString(), time)
+                    : file(name.toString(), random.nextInt(5) * 512L, time);
+            byName.putIfAbsent(rec.getName(), rec);
+        }
+        return new ArrayList<>(byName.values());
+    }
+
+    /**
+     * The order the panel had before the sorted index, made total by the
+     * exact name where it left entries in the order they were added.
+     */
+    private static Comparator<TFileRec> comparatorChain(SortMode sortMode, EnumSet<PanelFlag> panelFlags) {
+        Comparator<TFileRec> cmp = Comparator.comparing((TFileRec rec) -> rec.getName().startsWith(".") ? 0 : 1);
+        if (panelFlags.contains(PanelFlag.DIRECTORIES_FIRST)) {
+            cmp = cmp.thenComparing(rec -> rec.isDirectory() ? 0 : 1);
+        }
+        if (panelFlags.contains(PanelFlag.EXECUTABLE_FIRST)) {
+            cmp = cmp.thenComparing(rec -> rec.isExecutable() ? 0 : 1);
+        }
+        if (panelFlags.contains(PanelFlag.ARCHIVES_FIRST)) {
+            cmp = cmp.thenComparing(rec -> rec.isArchive() ? 0 : 1);
+        }
+        cmp = cmp.thenComparing(switch (sortMode) {
+            case EXTENSION -> Comparator.comparing(TFileRec::getExtension, String.CASE_INSENSITIVE_ORDER)
+                    .thenComparing(TFileRec::getName, String.CASE_INSENSITIVE_ORDER);
+            case SIZE -> Comparator.comparingLong(TFileRec::getSize)
+                    .thenComparing(TFileRec::getName, String.CASE_INSENSITIVE_ORDER);
+            case TIME -> Comparator.comparingLong(TFileRec::getTimestamp)
+                    .reversed()
+                    .thenComparing(TFileRec::getName, String.CASE_INSENSITIVE_ORDER);
+            case UNSORTED, NAME -> Comparator.comparing(TFileRec::getName, String.CASE_INSENSITIVE_ORDER);
+        });
+        return cmp.thenComparing(TFileRec::getName);
+    }
+
+    private static List<EnumSet<PanelFlag>> allFlagSets() {
+        List<EnumSet<PanelFlag>> sets = new ArrayList<>();
+        PanelFlag[] flags = PanelFlag.values();
+        for (int bits = 0; bits < 1 << flags.length; bits++) {
+            EnumSet<PanelFlag> set = EnumSet.noneOf(PanelFlag.class);
+            for (int i = 0; i < flags.length; i++) {
+                if ((bits & (1 << i)) != 0) {
+                    set.add(flags[i]);
+                }
+            }
+            sets.add(set);
+        }
+        return sets;
+    }
+
+    private static TFileCollection collection(SortMode sortMode, EnumSet<PanelFlag> panelFlags) {
+        TFileCollection collection = new TFileCollection();
+        collection.setSortMode(sortMode);
+        collection.setPanelFlags(panelFlags);
+        return collection;
+    }
+
+    private static List<TFileRec> visible(TFileCollection collection) {
+        List<TFileRec> result = new ArrayList<>();
+        for (int i = 0; i < collection.visibleSize(); i++) {
+            result.add(collection.visibleGet(i));
+        }
+        return result;
+    }
+
+    private static List<String> names(List<TFileRec> recs) {
+        return recs.stream().map(TFileRec::getName).toList();
+    }
+
+    private static void assertOrder(List<TFileRec> contents, TFileCollection collection, String context) {
+        Pattern mask = TFileCollection.maskPattern(collection.getFileMask());
+        List<TFileRec> expected = new ArrayList<>();
+        for (TFileRec rec : contents) {
+            if (rec.isDirectory() || mask.matcher(rec.getName()).matches()) {
+                expected.add(rec);
+            }
+        }
+        expected.sort(comparatorChain(collection.getSortMode(), collection.getPanelFlags()));
+        List<TFileRec> actual = visible(collection);
+        assertEquals(names(expected), names(actual), context);
+        for (int i = 0; i < actual.size(); i++) {
+            assertEquals(i, collection.indexOf(actual.get(i)), context);
+            assertEquals(i, collection.indexOfName(actual.get(i).getName()), context);
+        }
+    }
+
+    @Test
+    void sortedViewMatchesComparatorChainForEveryModeAndFlags() {
+        List<TFileRec> entries = entries();
+        for (SortMode sortMode : SortMode.values()) {
+            if (sortMode == SortMode.UNSORTED) {
+                continue;
+            }
+            for (EnumSet<PanelFlag> flags : allFlagSets()) {
+                TFileCollection collection = collection(sortMode, flags);
+                for (TFileRec rec : entries) {
+                    collection.add(rec);
+                }
+                assertOrder(entries, collection, sortMode + " " + flags);
+            }
+        }
+    }
+
+    @Test
+    void unsortedViewKeepsTheOrderEntriesWereAdded() {
+        List<TFileRec> entries = entries();
+        TFileCollection collection = collection(SortMode.UNSORTED, EnumSet.allOf(PanelFlag.class));
+        collection.setFileMask("*");
+        collection.addAll(entries);
+        assertEquals(names(entries), names(visible(collection)));
+
+        TFileRec first = entries.get(0);
+        TFileRec replaced = file(first.getName(), 1, 1);
+        collection.put(replaced);
+        assertSame(replaced, collection.visibleGet(collection.visibleSize() - 1));
+        assertTrue(collection.remove(entries.get(1).getName()));
+        assertEquals(names(entries.subList(2, entries.size())),
+                names(visible(collection)).subList(0, entries.size() - 2));
+    }
+
+    @Test
+    void putRemoveAndAddAllKeepTheViewSorted() {
+        List<TFileRec> entries = entries();
+        for (SortMode sortMode : Set.of(SortMode.NAME, SortMode.EXTENSION, SortMode.SIZE, SortMode.TIME)) {
+            for (EnumSet<PanelFlag> flags : allFlagSets()) {
+                String context = sortMode + " " + flags;
+                TFileCollection collection = collection(sortMode, flags);
+                List<TFileRec> contents = new ArrayList<>(entries.subList(0, 100));
+                collection.addAll(contents);
+                assertOrder(contents, collection, context);
+
+                // a large batch is merged in, a small one inserted entry by entry
+                collection.addAll(entries.subList(100, 300));
+                contents.addAll(entries.subList(100, 300));
+                assertOrder(contents, collection, context + " merged");
+                collection.addAll(entries.subList(300, 310));
+                contents.addAll(entries.subList(300, 310));
+                assertOrder(contents, collection, context + " inserted");
+
+                for (int i = 0; i < contents.size(); i += 7) {
+                    TFileRec old = contents.get(i);
+                    TFileRec changed = old.isDirectory()
+                            ? directory(old.getName(), old.getTimestamp() + 5000)
+                            : file(old.getName(), old.getSize() * 3 + 1, old.getTimestamp() + 5000);
+                    collection.put(changed);
+                    contents.set(i, changed);
+                }
+                assertOrder(contents, collection, context + " replaced");
+
+                for (int i = contents.size() - 1; i >= 0; i -= 5) {
+                    assertTrue(collection.remove(contents.remove(i).getName()));
+                }
+                assertFalse(collection.remove("no such entry"));
+                assertOrder(contents, collection, context + " removed");
+            }
+        }
+    }
+
+    @Test
+    void entriesAddedLaterAreFilteredByTheMask() {
+        TFileCollection collection = collection(SortMode.NAME, EnumSet.of(PanelFlag.DIRECTORIES_FIRST));
+        collection.setFileMask("*.txt");
+        collection.add(file("a.txt", 1, 1));
+        assertEquals(1, collection.visibleSize());
+
+        collection.add(file("b.TXT", 1, 1));
+        collection.add(file("c.doc", 1, 1));
+        collection.add(directory("docs", 1));
+        assertEquals(List.of("docs", "a.txt", "b.TXT"), names(visible(collection)));
+        assertEquals(-1, collection.indexOfName("c.doc"));
+        assertTrue(collection.remove("c.doc"));
+        assertEquals(3, collection.visibleSize());
+    }
+}
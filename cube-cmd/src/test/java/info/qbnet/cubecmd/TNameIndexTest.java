@@ -0,0 +1,78 @@
+package info.qbnet.cubecmd;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TNameIndexTest {
+
+    private Path home;
+    private String savedHome;
+
+    @BeforeEach
+    void useTemporaryHome() throws IOException {
+        home = Files.createTempDirectory("cube-cmd-home");
+        savedHome = System.getProperty("user.home");
+        System.setProperty("user.home", home.toString());
+    }
+
+    @AfterEach
+    void restoreHome() throws IOException {
+        System.setProperty("user.home", savedHome);
+        try (Stream<Path> paths = Files.walk(home)) {
+            for (Path path : paths.sorted(Comparator.reverseOrder()).toList()) {
+                Files.delete(path);
+            }
+        }
+    }
+
+    private Path indexFile(Path root) {
+        return home.resolve(".cube-cmd").resolve("find-index")
+                .resolve(Integer.toHexString(root.toString().hashCode()) + ".idx");
+    }
+
+    @Test
+    void savedListingsAreFoundAfterLoading() throws IOException {
+        Path root = home.resolve("tree");
+        TNameIndex index = TNameIndex.load(root);
+        TNameIndex.Entry[] entries = {new TNameIndex.Entry("a.txt", false, 3, 10)};
+        index.store(root.resolve("sub"), 42, entries);
+        index.save();
+
+        TNameIndex loaded = TNameIndex.load(root);
+        assertArrayEquals(entries, loaded.lookup(root.resolve("sub"), 42));
+        assertNull(loaded.lookup(root.resolve("sub"), 43));
+        try (Stream<Path> files = Files.list(indexFile(root).getParent())) {
+            assertEquals(1, files.count(), "no temporary files are left behind");
+        }
+    }
+
+    @Test
+    void corruptCountsGiveAnEmptyIndex() throws IOException {
+        Path root = home.resolve("tree");
+        TNameIndex index = TNameIndex.load(root);
+        index.store(root, 1, new TNameIndex.Entry[]{new TNameIndex.Entry("a", false, 1, 1)});
+        index.save();
+
+        // overwrite the entry count of the only directory
+        byte[] bytes = Files.readAllBytes(indexFile(root));
+        int countOffset = bytes.length - (2 + 1 + 1 + 8 + 8) - 4;
+        for (int value : new int[]{-1, Integer.MAX_VALUE}) {
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            new DataOutputStream(out).writeInt(value);
+            System.arraycopy(out.toByteArray(), 0, bytes, countOffset, 4);
+            Files.write(indexFile(root), bytes);
+            assertNull(TNameIndex.load(root).lookup(root, 1), "count " + value);
+        }
+    }
+}
@@ -0,0 +1,91 @@
+package info.qbnet.jtvision.bench;
+
+import info.qbnet.jtvision.backend.AnsiTerminalBackend;
+import info.qbnet.jtvision.backend.Backend;
+import info.qbnet.jtvision.backend.HeadlessBackend;
+import info.qbnet.jtvision.backend.SwingBasicBackend;
+import info.qbnet.jtvision.backend.SwingBitmapBackend;
+import info.qbnet.jtvision.backend.SwingTrueTypeBackend;
+import info.qbnet.jtvision.util.Screen;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures committing a frame and one {@link Backend#renderScreen()} call per
+ * backend after the whole 80x25 screen changed.
+ *
+ * <p>Only backends that can be created without a display are covered; the
+ * JavaFX and LibGDX backends need a running toolkit and are left out. The
+ * ANSI backend writes to a discarding stream, so only encoding is measured.</p>
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = {"-DLOG_LEVEL=WARN", "-Djava.awt.headless=true"})
+public class BackendRenderBenchmark {
+
+    private static final int WIDTH = 80;
+    private static final int HEIGHT = 25;
+
+    @Param({"HEADLESS", "ANSI", "SWING_BASIC", "SWING_BITMAP", "SWING_TRUETYPE"})
+    public String backendType;
+
+    private Screen screen;
+    private Backend backend;
+    private short[][] rows;
+    private int frame;
+
+    @Setup
+    public void setUp() {
+        screen = new Screen(WIDTH, HEIGHT);
+        backend = switch (backendType) {
+            case "HEADLESS" -> new HeadlessBackend(screen, 8, 16);
+            case "ANSI" -> new AnsiTerminalBackend(screen, 8, 16,
+                    InputStream.nullInputStream(), OutputStream.nullOutputStream());
+            case "SWING_BASIC" -> new SwingBasicBackend(screen, 8, 16);
+            case "SWING_BITMAP" -> new SwingBitmapBackend(screen, 8, 16);
+            case "SWING_TRUETYPE" -> new SwingTrueTypeBackend(screen, 8, 16);
+            default -> throw new IllegalArgumentException("Unknown backend " + backendType);
+        };
+        backend.afterInitialization();
+        rows = new short[2][WIDTH];
+        for (int x = 0; x < WIDTH; x++) {
+            rows[0][x] = (short) (((x & 0x7F) << 8) | ('A' + x % 26));
+            rows[1][x] = (short) ((((x + 1) & 0x7F) << 8) | ('a' + x % 26));
+        }
+    }
+
+    /** Changes every cell commits and renders the frame. */
+    @Benchmark
+    public void fullFrame() {
+        short[] row = rows[frame++ & 1];
+        for (int y = 0; y < HEIGHT; y++) {
+            screen.setCells(0, y, row, 0, WIDTH);
+        }
+        screen.commitFrame();
+        backend.renderScreen();
+    }
+
+    /** Changes one cell commits and renders the frame. */
+    @Benchmark
+    public void singleCellFrame() {
+        screen.setChar(40, 12, (frame++ & 1) == 0 ? 'X' : 'O', 0x1F);
+        screen.commitFrame();
+        backend.renderScreen();
+    }
+}
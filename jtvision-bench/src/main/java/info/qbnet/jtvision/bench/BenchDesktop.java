@@ -0,0 +1,34 @@
+package info.qbnet.jtvision.bench;
+
+import info.qbnet.jtvision.util.IBuffer;
+import info.qbnet.jtvision.util.TPalette;
+import info.qbnet.jtvision.util.TRect;
+import info.qbnet.jtvision.views.TGroup;
+import info.qbnet.jtvision.views.TProgram;
+import info.qbnet.jtvision.views.TView;
+
+/**
+ * Root group standing in for {@link TProgram} in benchmarks.
+ *
+ * <p>It owns its cache buffer and resolves colors through the application
+ * palette, so windows and dialogs can be drawn without creating a backend.</p>
+ */
+public class BenchDesktop extends TGroup {
+
+    public BenchDesktop(int width, int height) {
+        super(new TRect(0, 0, width, height));
+        setState(TView.State.SF_EXPOSED, true);
+    }
+
+    @Override
+    public TPalette getPalette() {
+        return TProgram.APP_COLOR_PALETTE.palette();
+    }
+
+    /**
+     * @return buffer all subviews draw into
+     */
+    public IBuffer getBuffer() {
+        return buffer;
+    }
+}
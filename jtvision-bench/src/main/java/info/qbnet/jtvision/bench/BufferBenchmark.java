@@ -0,0 +1,73 @@
+package info.qbnet.jtvision.bench;
+
+import info.qbnet.jtvision.util.Buffer;
+import info.qbnet.jtvision.util.IBuffer;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures writing into a {@link Buffer} and draining its damage spans the
+ * way backends do once per frame.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = {"-DLOG_LEVEL=WARN", "-Djava.awt.headless=true"})
+public class BufferBenchmark {
+
+    private static final int WIDTH = 80;
+    private static final int HEIGHT = 25;
+
+    private Buffer buffer;
+    private short[][] rows;
+    private int frame;
+
+    @Setup
+    public void setUp() {
+        buffer = new Buffer(WIDTH, HEIGHT);
+        rows = new short[2][WIDTH];
+        for (int x = 0; x < WIDTH; x++) {
+            rows[0][x] = (short) (0x1F00 | ('A' + x % 26));
+            rows[1][x] = (short) (0x7000 | ('a' + x % 26));
+        }
+    }
+
+    /** Rewrites every row with {@link IBuffer#setCells} and drains the spans. */
+    @Benchmark
+    public void fullFrame(Blackhole bh) {
+        short[] row = rows[frame++ & 1];
+        for (int y = 0; y < HEIGHT; y++) {
+            buffer.setCells(0, y, row, 0, WIDTH);
+        }
+        buffer.consumeDirtySpans((y, from, to) -> bh.consume(to - from));
+    }
+
+    /** Changes a single cell per row, as a blinking or typing cursor would. */
+    @Benchmark
+    public void sparseFrame(Blackhole bh) {
+        int attr = (frame++ & 1) == 0 ? 0x1F : 0x70;
+        for (int y = 0; y < HEIGHT; y++) {
+            buffer.setChar(y * 3 % WIDTH, y, 'X', attr);
+        }
+        buffer.consumeDirtySpans((y, from, to) -> bh.consume(to - from));
+    }
+
+    /** Polls a buffer that has nothing to flush. */
+    @Benchmark
+    public boolean idleFrame() {
+        return buffer.consumeDirtySpans((y, from, to) -> { });
+    }
+}
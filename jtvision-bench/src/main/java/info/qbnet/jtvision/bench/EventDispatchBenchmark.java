@@ -0,0 +1,74 @@
+package info.qbnet.jtvision.bench;
+
+import info.qbnet.jtvision.event.TEvent;
+import info.qbnet.jtvision.util.KeyCode;
+import info.qbnet.jtvision.views.TDialog;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures routing of keyboard, broadcast and mouse events through
+ * {@code TGroup.handleEvent} of a dialog on the desktop.
+ *
+ * <p>The events are chosen so that no view acts on them, which keeps the
+ * measurement to the dispatch itself.</p>
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = {"-DLOG_LEVEL=WARN", "-Djava.awt.headless=true"})
+public class EventDispatchBenchmark {
+
+    private static final int UNUSED_COMMAND = 0x7FF0;
+
+    private BenchDesktop desktop;
+    private final TEvent event = new TEvent();
+
+    @Setup
+    public void setUp() {
+        desktop = new BenchDesktop(80, 25);
+        TDialog dialog = SampleDialogs.dataEntry(8);
+        dialog.moveTo(10, 3);
+        desktop.insert(dialog);
+    }
+
+    @Benchmark
+    public int keyDown() {
+        event.what = TEvent.EV_KEYDOWN;
+        event.key.keyCode = KeyCode.KB_F12;
+        event.key.charCode = 0;
+        desktop.handleEvent(event);
+        return event.what;
+    }
+
+    @Benchmark
+    public int broadcast() {
+        event.what = TEvent.EV_BROADCAST;
+        event.msg.command = UNUSED_COMMAND;
+        event.msg.infoPtr = null;
+        desktop.handleEvent(event);
+        return event.what;
+    }
+
+    @Benchmark
+    public int mouseMove() {
+        event.what = TEvent.EV_MOUSE_MOVE;
+        event.mouse.buttons = 0;
+        event.mouse.where.x = 30;
+        event.mouse.where.y = 10;
+        desktop.handleEvent(event);
+        return event.what;
+    }
+}
@@ -0,0 +1,64 @@
+package info.qbnet.jtvision.bench;
+
+import info.qbnet.cubecmd.TFileCollection;
+import info.qbnet.cubecmd.TFileRec;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.File;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures filtering and sorting of a {@link TFileCollection} the way a file
+ * panel does after a directory is read or the sort mode changes.
+ *
+ * <p>Records point at files that do not exist, so sizes and timestamps are
+ * zero and the name and extension keys dominate the ordering.</p>
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = {"-DLOG_LEVEL=WARN", "-Djava.awt.headless=true"})
+public class FileCollectionBenchmark {
+
+    private static final String[] EXTENSIONS = {"txt", "java", "class", "zip", "exe", "md", "png", ""};
+
+    @Param({"1000", "10000"})
+    public int files;
+
+    @Param({"NAME", "EXTENSION", "SIZE"})
+    public String sortMode;
+
+    private TFileCollection collection;
+
+    @Setup
+    public void setUp() {
+        Random random = new Random(42);
+        File dir = new File("bench-missing-dir");
+        collection = new TFileCollection();
+        for (int i = 0; i < files; i++) {
+            String ext = EXTENSIONS[random.nextInt(EXTENSIONS.length)];
+            String name = Long.toString(random.nextLong() & Long.MAX_VALUE, 36) + (ext.isEmpty() ? "" : "." + ext);
+            collection.add(new TFileRec(new File(dir, name)));
+        }
+        collection.setSortMode(TFileCollection.SortMode.valueOf(sortMode));
+    }
+
+    @Benchmark
+    public int refresh() {
+        collection.refresh();
+        return collection.visibleSize();
+    }
+}
@@ -0,0 +1,41 @@
+package info.qbnet.jtvision.bench;
+
+import info.qbnet.jtvision.util.Command;
+import info.qbnet.jtvision.util.TRect;
+import info.qbnet.jtvision.views.TButton;
+import info.qbnet.jtvision.views.TDialog;
+import info.qbnet.jtvision.views.TInputLine;
+import info.qbnet.jtvision.views.TLabel;
+import info.qbnet.jtvision.views.TStaticText;
+
+/**
+ * Builds the dialogs shared by several benchmarks.
+ */
+final class SampleDialogs {
+
+    private SampleDialogs() {
+        // utility class
+    }
+
+    /**
+     * Creates a typical data entry dialog with labelled input lines and
+     * OK/Cancel buttons. Only view types that both {@code TStream} and
+     * {@code JsonViewStore} can load are used.
+     *
+     * @param fields number of labelled input lines
+     * @return the dialog, not yet inserted into an owner
+     */
+    static TDialog dataEntry(int fields) {
+        TDialog dialog = new TDialog(new TRect(0, 0, 60, fields + 8), "Data entry");
+        dialog.insert(new TStaticText(new TRect(2, 1, 58, 2), "Fill in all fields and press OK"));
+        for (int i = 0; i < fields; i++) {
+            TInputLine input = new TInputLine(new TRect(16, i + 3, 56, i + 4), 64);
+            dialog.insert(input);
+            dialog.insert(new TLabel(new TRect(2, i + 3, 15, i + 4), "Field ~" + (char) ('A' + i % 26) + "~", input));
+        }
+        dialog.insert(new TButton(new TRect(36, fields + 4, 46, fields + 6), "~O~K", Command.CM_OK, TButton.BF_DEFAULT));
+        dialog.insert(new TButton(new TRect(47, fields + 4, 57, fields + 6), "Cancel", Command.CM_CANCEL, TButton.BF_NORMAL));
+        dialog.selectNext(false);
+        return dialog;
+    }
+}
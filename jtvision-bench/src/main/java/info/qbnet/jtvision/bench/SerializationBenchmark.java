@@ -0,0 +1,75 @@
+package info.qbnet.jtvision.bench;
+
+import info.qbnet.jtvision.util.JsonViewStore;
+import info.qbnet.jtvision.util.SerializationRegistry;
+import info.qbnet.jtvision.util.TStream;
+import info.qbnet.jtvision.views.TDialog;
+import info.qbnet.jtvision.views.TView;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures storing and loading a dialog through {@link TStream} and
+ * {@link JsonViewStore}.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = {"-DLOG_LEVEL=WARN", "-Djava.awt.headless=true"})
+public class SerializationBenchmark {
+
+    @Param({"4", "16"})
+    public int fields;
+
+    private TDialog dialog;
+    private byte[] streamBytes;
+    private byte[] jsonBytes;
+
+    @Setup
+    public void setUp() throws IOException {
+        SerializationRegistry.initCoreTypes();
+        dialog = SampleDialogs.dataEntry(fields);
+        streamBytes = storeStream();
+        jsonBytes = storeJson();
+    }
+
+    @Benchmark
+    public byte[] storeStream() throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(4096);
+        new TStream(out).storeView(dialog);
+        return out.toByteArray();
+    }
+
+    @Benchmark
+    public TView loadStream() throws IOException {
+        return new TStream(new ByteArrayInputStream(streamBytes)).loadView();
+    }
+
+    @Benchmark
+    public byte[] storeJson() throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(4096);
+        JsonViewStore.store(out, dialog);
+        return out.toByteArray();
+    }
+
+    @Benchmark
+    public TView loadJson() throws IOException {
+        return JsonViewStore.load(new ByteArrayInputStream(jsonBytes));
+    }
+}
@@ -0,0 +1,82 @@
+package info.qbnet.jtvision.bench;
+
+import info.qbnet.jtvision.util.IBuffer;
+import info.qbnet.jtvision.util.TRect;
+import info.qbnet.jtvision.views.TWindow;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures {@code TView.writeView} and {@code TGroup.draw}/{@code redraw} on a
+ * desktop with a cascade of overlapping, shadowed windows.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = {"-DLOG_LEVEL=WARN", "-Djava.awt.headless=true"})
+public class WriteViewBenchmark {
+
+    @Param({"1", "4", "16"})
+    public int windows;
+
+    private BenchDesktop desktop;
+    private TWindow bottom;
+    private TWindow top;
+
+    @Setup
+    public void setUp() {
+        desktop = new BenchDesktop(80, 25);
+        for (int i = 0; i < windows; i++) {
+            int x = (i * 3) % 40;
+            int y = i % 10;
+            TWindow window = new TWindow(new TRect(x, y, x + 40, y + 14), "Window " + i, i + 1);
+            desktop.insert(window);
+            if (bottom == null) {
+                bottom = window;
+            }
+            top = window;
+        }
+        desktop.redraw();
+    }
+
+    /** Redraws every window, back to front. */
+    @Benchmark
+    public IBuffer redrawDesktop() {
+        desktop.redraw();
+        return desktop.getBuffer();
+    }
+
+    /** Redraws the group from its cache buffer. */
+    @Benchmark
+    public IBuffer drawDesktop() {
+        desktop.draw();
+        return desktop.getBuffer();
+    }
+
+    /** Redraws the bottom window, which is mostly covered by the others. */
+    @Benchmark
+    public IBuffer drawBottomWindow() {
+        bottom.drawView();
+        return desktop.getBuffer();
+    }
+
+    /** Redraws the fully exposed top window. */
+    @Benchmark
+    public IBuffer drawTopWindow() {
+        top.drawView();
+        return desktop.getBuffer();
+    }
+}
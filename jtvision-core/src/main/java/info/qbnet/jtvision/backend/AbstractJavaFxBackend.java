@@ -1,9 +1,11 @@
 package info.qbnet.jtvision.backend;
 
 import info.qbnet.jtvision.backend.factory.GuiComponent;
+import info.qbnet.jtvision.util.IBuffer;
 import info.qbnet.jtvision.util.Screen;
 import info.qbnet.jtvision.util.DosPalette;
 import info.qbnet.jtvision.backend.util.ColorUtil;
+import info.qbnet.jtvision.backend.util.InputSignal;
 import info.qbnet.jtvision.event.KeyCodeMapper;
 import info.qbnet.jtvision.event.TEvent;
 import info.qbnet.jtvision.util.TPoint;
@@ -15,12 +17,8 @@ import javafx.scene.input.KeyCode;
 
 import java.util.Optional;
 import java.util.Queue;
-import java.util.List;
-import java.util.ArrayList;
 import java.util.concurrent.ConcurrentLinkedQueue;
-import java.util.concurrent.Executors;
-import java.util.concurrent.ScheduledExecutorService;
-import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 /**
  * Base class for JavaFX backends implementing common rendering logic.
@@ -33,6 +31,7 @@ public abstract class AbstractJavaFxBackend implements GuiComponent<Canvas> {
     private final Integer cellWidth;
     private final Integer cellHeight;
     private final Queue<TEvent> events = new ConcurrentLinkedQueue<>();
+    private final InputSignal inputSignal = new InputSignal();
     private volatile int mouseButtons = 0;
     private volatile int mouseX = 0;
     private volatile int mouseY = 0;
@@ -46,13 +45,8 @@ public abstract class AbstractJavaFxBackend implements GuiComponent<Canvas> {
     private int lastCursorY = -1;
     private boolean lastCursorVisible = false;
     private boolean lastCursorInsert = false;
-    private final ScheduledExecutorService cursorBlink =
-            Executors.newSingleThreadScheduledExecutor(r -> {
-                Thread t = new Thread(r, "cursor-blink");
-                t.setDaemon(true);
-                return t;
-            });
-    private static final long BLINK_MS = 530;
+    private final IBuffer.DirtySpanConsumer spanPainter = this::drawSpan;
+    private final AtomicBoolean framePending = new AtomicBoolean();
 
     protected AbstractJavaFxBackend(Screen screen, int cellWidth, int cellHeight) {
         this.screen = screen;
@@ -75,6 +69,7 @@ public abstract class AbstractJavaFxBackend implements GuiComponent<Canvas> {
             ev.key.charCode = ch;
             ev.key.scanCode = (byte) scan;
             events.add(ev);
+            inputSignal.signal();
         });
         this.canvas.setOnKeyReleased(e -> updateShiftState(e, false));
 
@@ -84,6 +79,7 @@ public abstract class AbstractJavaFxBackend implements GuiComponent<Canvas> {
                 case PRIMARY -> mouseButtons |= 1;
                 case SECONDARY -> mouseButtons |= 2;
             }
+            inputSignal.signal();
         });
 
         this.canvas.setOnMouseReleased(e -> {
@@ -92,16 +88,11 @@ public abstract class AbstractJavaFxBackend implements GuiComponent<Canvas> {
                 case PRIMARY -> mouseButtons &= ~1;
                 case SECONDARY -> mouseButtons &= ~2;
             }
+            inputSignal.signal();
         });
 
         this.canvas.setOnMouseMoved(e -> updateMousePosition(e.getX(), e.getY()));
         this.canvas.setOnMouseDragged(e -> updateMousePosition(e.getX(), e.getY()));
-
-        cursorBlink.scheduleAtFixedRate(() ->
-                Platform.runLater(() -> {
-                    cursorOn = !cursorOn;
-                    renderToCanvas();
-                }), BLINK_MS, BLINK_MS, TimeUnit.MILLISECONDS);
     }
 
     private void updateMousePosition(double px, double py) {
@@ -109,23 +100,38 @@ public abstract class AbstractJavaFxBackend implements GuiComponent<Canvas> {
         int y = (int) (py / cellHeight);
         x = Math.max(0, Math.min(screen.getWidth() - 1, x));
         y = Math.max(0, Math.min(screen.getHeight() - 1, y));
-        mouseX = x;
-        mouseY = y;
+        if (x != mouseX || y != mouseY) {
+            mouseX = x;
+            mouseY = y;
+            inputSignal.signal();
+        }
     }
 
     @Override
     public void renderScreen() {
-        Platform.runLater(this::renderToCanvas);
+        if (framePending.compareAndSet(false, true)) {
+            Platform.runLater(() -> {
+                framePending.set(false);
+                renderToCanvas();
+            });
+        }
+    }
+
+    @Override
+    public boolean isFramePending() {
+        return framePending.get();
+    }
+
+    @Override
+    public void setCursorBlink(boolean on) {
+        cursorOn = on;
     }
 
     protected void renderToCanvas() {
-        List<TPoint> dirty = new ArrayList<>(screen.consumeDirtyCells());
         boolean cursorCurrentlyVisible = cursorVisible && cursorOn;
-        if (lastCursorVisible || cursorCurrentlyVisible) {
-            dirty.add(new TPoint(lastCursorX, lastCursorY));
-            dirty.add(new TPoint(cursorX, cursorY));
-        }
-        if (dirty.isEmpty()) {
+        boolean repaintCursor = lastCursorVisible || cursorCurrentlyVisible;
+        Screen.Frame next = screen.takeFrame();
+        if (!repaintCursor && next == null) {
             lastCursorX = cursorX;
             lastCursorY = cursorY;
             lastCursorVisible = cursorCurrentlyVisible;
@@ -135,17 +141,15 @@ public abstract class AbstractJavaFxBackend implements GuiComponent<Canvas> {
 
         GraphicsContext gc = canvas.getGraphicsContext2D();
         configureGraphics(gc);
-        for (TPoint p : dirty) {
-            if (!screen.isInBounds(p.x, p.y)) continue;
-            short cell = screen.getCell(p.x, p.y);
-            char ch = (char) (cell & 0xFF);
-            int attr = (cell >>> 8) & 0xFF;
-            java.awt.Color fg = DosPalette.getForeground(attr);
-            java.awt.Color bg = DosPalette.getBackground(attr);
-            drawGlyph(gc, p.x, p.y, ch, fg, bg);
+        if (next != null) {
+            next.forEachDamagedSpan(spanPainter);
+        }
+        if (repaintCursor) {
+            drawCell(gc, lastCursorX, lastCursorY);
+            drawCell(gc, cursorX, cursorY);
         }
         if (cursorCurrentlyVisible) {
-            short cell = screen.getCell(cursorX, cursorY);
+            short cell = screen.currentFrame().getCell(cursorX, cursorY);
             int attr = (cell >>> 8) & 0xFF;
             java.awt.Color fg = DosPalette.getForeground(attr);
             gc.setFill(ColorUtil.toFx(fg));
@@ -164,6 +168,26 @@ public abstract class AbstractJavaFxBackend implements GuiComponent<Canvas> {
         lastCursorInsert = cursorInsert;
     }
 
+    private void drawSpan(int y, int fromX, int toX) {
+        GraphicsContext gc = canvas.getGraphicsContext2D();
+        short[] data = screen.currentFrame().getData();
+        int row = y * screen.getWidth();
+        for (int x = fromX; x < toX; x++) {
+            short cell = data[row + x];
+            int attr = (cell >>> 8) & 0xFF;
+            drawGlyph(gc, x, y, (char) (cell & 0xFF),
+                    DosPalette.getForeground(attr), DosPalette.getBackground(attr));
+        }
+    }
+
+    private void drawCell(GraphicsContext gc, int x, int y) {
+        if (!screen.isInBounds(x, y)) return;
+        short cell = screen.currentFrame().getCell(x, y);
+        int attr = (cell >>> 8) & 0xFF;
+        drawGlyph(gc, x, y, (char) (cell & 0xFF),
+                DosPalette.getForeground(attr), DosPalette.getBackground(attr));
+    }
+
     /**
      * Initializes any JavaFX resources required by the backend. This method
      * is expected to be called on the JavaFX Application Thread.
@@ -253,6 +277,18 @@ public abstract class AbstractJavaFxBackend implements GuiComponent<Canvas> {
         return Optional.ofNullable(events.poll());
     }
 
+    @Override
+    public void waitForInput(long timeoutMillis) {
+        if (events.isEmpty()) {
+            inputSignal.await(timeoutMillis);
+        }
+    }
+
+    @Override
+    public void wakeUp() {
+        inputSignal.signal();
+    }
+
     @Override
     public int getMouseButtons() {
         return mouseButtons;
@@ -270,6 +306,5 @@ public abstract class AbstractJavaFxBackend implements GuiComponent<Canvas> {
         cursorInsert = insertMode;
         cursorVisible = visible;
         cursorOn = true;
-        Platform.runLater(this::renderToCanvas);
     }
 }
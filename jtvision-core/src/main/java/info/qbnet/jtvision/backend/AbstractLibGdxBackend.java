@@ -17,14 +17,14 @@ import com.badlogic.gdx.utils.TimeUtils;
 import com.badlogic.gdx.utils.viewport.ScreenViewport;
 import info.qbnet.jtvision.backend.factory.GuiComponent;
 import info.qbnet.jtvision.backend.util.ColorUtil;
+import info.qbnet.jtvision.backend.util.InputSignal;
+import info.qbnet.jtvision.util.IBuffer;
 import info.qbnet.jtvision.util.Screen;
 import info.qbnet.jtvision.util.DosPalette;
 import info.qbnet.jtvision.event.KeyCodeMapper;
 import info.qbnet.jtvision.event.TEvent;
 import info.qbnet.jtvision.util.TPoint;
 
-import java.util.ArrayList;
-import java.util.List;
 import java.util.Optional;
 import java.util.Queue;
 import java.util.concurrent.ConcurrentLinkedQueue;
@@ -43,6 +43,7 @@ public abstract class AbstractLibGdxBackend extends ApplicationAdapter
 
     private CountDownLatch initializationLatch;
     private final Queue<TEvent> events = new ConcurrentLinkedQueue<>();
+    private final InputSignal inputSignal = new InputSignal();
     private volatile int mouseButtons = 0;
     private volatile int mouseX = 0;
     private volatile int mouseY = 0;
@@ -58,6 +59,8 @@ public abstract class AbstractLibGdxBackend extends ApplicationAdapter
     private int lastCursorY = -1;
     private boolean lastCursorVisible = false;
     private boolean lastCursorInsert = false;
+    private final IBuffer.DirtySpanConsumer spanPainter = this::drawSpan;
+    private final IBuffer.ScrollConsumer scroller = this::scrollArea;
 
     protected SpriteBatch batch;
     protected Texture pixel;
@@ -66,6 +69,8 @@ public abstract class AbstractLibGdxBackend extends ApplicationAdapter
     private final Vector3 tmpVec = new Vector3();
     private FrameBuffer frameBuffer;
     private TextureRegion frameRegion;
+    /** Copy of the frame buffer that scrolled rows are drawn back from; created on the first scroll. */
+    private FrameBuffer scratchBuffer;
 
     protected AbstractLibGdxBackend(Screen screen, int cellWidth, int cellHeight) {
         this.screen = screen;
@@ -121,6 +126,7 @@ public abstract class AbstractLibGdxBackend extends ApplicationAdapter
                 ev.key.charCode = ch;
                 ev.key.scanCode = (byte) scan;
                 events.add(ev);
+                inputSignal.signal();
                 return true;
             }
 
@@ -138,6 +144,7 @@ public abstract class AbstractLibGdxBackend extends ApplicationAdapter
                 } else if (button == Input.Buttons.RIGHT) {
                     mouseButtons |= 2;
                 }
+                inputSignal.signal();
                 return true;
             }
 
@@ -149,6 +156,7 @@ public abstract class AbstractLibGdxBackend extends ApplicationAdapter
                 } else if (button == Input.Buttons.RIGHT) {
                     mouseButtons &= ~2;
                 }
+                inputSignal.signal();
                 return true;
             }
 
@@ -187,16 +195,11 @@ public abstract class AbstractLibGdxBackend extends ApplicationAdapter
         boolean cursorChanged = lastCursorX != cursorX || lastCursorY != cursorY
                 || lastCursorVisible != cursorCurrentlyVisible || lastCursorInsert != cursorInsert;
 
-        List<TPoint> dirty = new ArrayList<>(screen.consumeDirtyCells());
-        if (cursorChanged) {
-            dirty.add(new TPoint(lastCursorX, lastCursorY));
-            dirty.add(new TPoint(cursorX, cursorY));
-        }
-
         camera.update();
         batch.setProjectionMatrix(camera.combined);
 
-        if (dirty.isEmpty()) {
+        Screen.Frame next = screen.takeFrame();
+        if (!cursorChanged && next == null) {
             lastCursorX = cursorX;
             lastCursorY = cursorY;
             lastCursorVisible = cursorCurrentlyVisible;
@@ -210,25 +213,21 @@ public abstract class AbstractLibGdxBackend extends ApplicationAdapter
             return;
         }
 
+        if (next != null) {
+            next.forEachScroll(scroller);
+        }
         frameBuffer.begin();
         batch.begin();
-        for (TPoint p : dirty) {
-            if (!screen.isInBounds(p.x, p.y)) continue;
-            short cell = screen.getCell(p.x, p.y);
-            char ch = (char) (cell & 0xFF);
-            int attr = (cell >>> 8) & 0xFF;
-            java.awt.Color fg = DosPalette.getForeground(attr);
-            java.awt.Color bg = DosPalette.getBackground(attr);
-            int pixelY = (screen.getHeight() - p.y - 1) * cellHeight;
-
-            batch.setColor(ColorUtil.toGdx(bg));
-            batch.draw(pixel, p.x * cellWidth, pixelY, cellWidth, cellHeight);
-
-            drawGlyph(batch, ch, fg, p.x, pixelY);
+        if (next != null) {
+            next.forEachDamagedSpanAfterScrolls(spanPainter);
+        }
+        if (cursorChanged) {
+            drawCell(lastCursorX, lastCursorY);
+            drawCell(cursorX, cursorY);
         }
 
         if (cursorCurrentlyVisible) {
-            short cell = screen.getCell(cursorX, cursorY);
+            short cell = screen.currentFrame().getCell(cursorX, cursorY);
             int attr = (cell >>> 8) & 0xFF;
             java.awt.Color fg = DosPalette.getForeground(attr);
             batch.setColor(ColorUtil.toGdx(fg));
@@ -255,6 +254,66 @@ public abstract class AbstractLibGdxBackend extends ApplicationAdapter
         batch.end();
     }
 
+    /**
+     * Moves the pixels of a scrolled rectangle within the frame buffer, so
+     * that only the rows it uncovered are drawn. A texture cannot be drawn
+     * into itself, so the frame buffer is first copied to a scratch buffer.
+     */
+    private void scrollArea(int x, int y, int width, int height, int dy) {
+        if (scratchBuffer == null) {
+            scratchBuffer = new FrameBuffer(Pixmap.Format.RGBA8888,
+                    screen.getWidth() * cellWidth,
+                    screen.getHeight() * cellHeight, false);
+        }
+        int moved = height - Math.abs(dy);
+        int sourceY = dy < 0 ? y - dy : y;
+        // frame buffer textures start at the bottom row
+        int sourcePixelY = (screen.getHeight() - sourceY - moved) * cellHeight;
+
+        batch.disableBlending();
+        batch.setColor(Color.WHITE);
+        scratchBuffer.begin();
+        batch.begin();
+        batch.draw(frameRegion, 0, 0);
+        batch.end();
+        scratchBuffer.end();
+
+        frameBuffer.begin();
+        batch.begin();
+        batch.draw(scratchBuffer.getColorBufferTexture(),
+                x * cellWidth, sourcePixelY - dy * cellHeight, width * cellWidth, moved * cellHeight,
+                x * cellWidth, sourcePixelY, width * cellWidth, moved * cellHeight, false, true);
+        batch.enableBlending();
+        // the cursor drawn into the frame buffer moved along
+        if (lastCursorVisible && lastCursorX >= x && lastCursorX < x + width
+                && lastCursorY >= sourceY && lastCursorY < sourceY + moved) {
+            drawCell(lastCursorX, lastCursorY + dy);
+        }
+        batch.end();
+        frameBuffer.end();
+    }
+
+    private void drawSpan(int y, int fromX, int toX) {
+        for (int x = fromX; x < toX; x++) {
+            drawCell(x, y);
+        }
+    }
+
+    private void drawCell(int x, int y) {
+        if (!screen.isInBounds(x, y)) return;
+        short cell = screen.currentFrame().getCell(x, y);
+        char ch = (char) (cell & 0xFF);
+        int attr = (cell >>> 8) & 0xFF;
+        java.awt.Color fg = DosPalette.getForeground(attr);
+        java.awt.Color bg = DosPalette.getBackground(attr);
+        int pixelY = (screen.getHeight() - y - 1) * cellHeight;
+
+        batch.setColor(ColorUtil.toGdx(bg));
+        batch.draw(pixel, x * cellWidth, pixelY, cellWidth, cellHeight);
+
+        drawGlyph(batch, ch, fg, x, pixelY);
+    }
+
     @Override
     public void resize(int width, int height) {
         viewport.update(width, height);
@@ -265,6 +324,9 @@ public abstract class AbstractLibGdxBackend extends ApplicationAdapter
         batch.dispose();
         pixel.dispose();
         frameBuffer.dispose();
+        if (scratchBuffer != null) {
+            scratchBuffer.dispose();
+        }
         disposeResources();
     }
 
@@ -350,6 +412,18 @@ public abstract class AbstractLibGdxBackend extends ApplicationAdapter
         return Optional.ofNullable(events.poll());
     }
 
+    @Override
+    public void waitForInput(long timeoutMillis) {
+        if (events.isEmpty()) {
+            inputSignal.await(timeoutMillis);
+        }
+    }
+
+    @Override
+    public void wakeUp() {
+        inputSignal.signal();
+    }
+
     @Override
     public int getMouseButtons() {
         return mouseButtons;
@@ -382,8 +456,12 @@ public abstract class AbstractLibGdxBackend extends ApplicationAdapter
         int y = (int) (tmpVec.y / cellHeight);
         x = Math.max(0, Math.min(screen.getWidth() - 1, x));
         y = Math.max(0, Math.min(screen.getHeight() - 1, y));
-        mouseX = x;
-        mouseY = screen.getHeight() - 1 - y;
+        y = screen.getHeight() - 1 - y;
+        if (x != mouseX || y != mouseY) {
+            mouseX = x;
+            mouseY = y;
+            inputSignal.signal();
+        }
     }
 
     @Override
@@ -1,6 +1,8 @@
 package info.qbnet.jtvision.backend;
 
 import info.qbnet.jtvision.backend.factory.GuiComponent;
+import info.qbnet.jtvision.backend.util.InputSignal;
+import info.qbnet.jtvision.util.IBuffer;
 import info.qbnet.jtvision.util.Screen;
 import info.qbnet.jtvision.util.DosPalette;
 
@@ -17,12 +19,7 @@ import info.qbnet.jtvision.util.TPoint;
 import java.awt.image.BufferedImage;
 import java.util.Optional;
 import java.util.Queue;
-import java.util.List;
-import java.util.ArrayList;
 import java.util.concurrent.ConcurrentLinkedQueue;
-import java.util.concurrent.Executors;
-import java.util.concurrent.ScheduledExecutorService;
-import java.util.concurrent.TimeUnit;
 
 /**
  * Base class for Swing based backends implementing the common buffering
@@ -37,6 +34,7 @@ public abstract class AbstractSwingBackend extends JPanel
     private final Integer cellWidth;
     private final Integer cellHeight;
     private final Queue<TEvent> events = new ConcurrentLinkedQueue<>();
+    private final InputSignal inputSignal = new InputSignal();
     private volatile int mouseButtons = 0;
     private volatile int mouseX = 0;
     private volatile int mouseY = 0;
@@ -50,13 +48,10 @@ public abstract class AbstractSwingBackend extends JPanel
     private int lastCursorY = -1;
     private boolean lastCursorVisible = false;
     private boolean lastCursorInsert = false;
-    private final ScheduledExecutorService cursorBlink =
-            Executors.newSingleThreadScheduledExecutor(r -> {
-                Thread t = new Thread(r, "cursor-blink");
-                t.setDaemon(true);
-                return t;
-            });
-    private static final long BLINK_MS = 530;
+    private final IBuffer.DirtySpanConsumer spanPainter = this::drawSpan;
+    private final IBuffer.ScrollConsumer scroller = this::scrollArea;
+    private Graphics2D spanGraphics;
+    private volatile boolean paintPending = false;
 
     protected AbstractSwingBackend(Screen screen, Integer cellWidth, Integer cellHeight) {
         this.screen = screen;
@@ -86,6 +81,7 @@ public abstract class AbstractSwingBackend extends JPanel
                 ev.key.charCode = ch;
                 ev.key.scanCode = (byte) scan;
                 events.add(ev);
+                inputSignal.signal();
             }
 
             @Override
@@ -103,6 +99,7 @@ public abstract class AbstractSwingBackend extends JPanel
                 } else if (e.getButton() == MouseEvent.BUTTON3) {
                     mouseButtons |= 2;
                 }
+                inputSignal.signal();
             }
 
             @Override
@@ -113,6 +110,7 @@ public abstract class AbstractSwingBackend extends JPanel
                 } else if (e.getButton() == MouseEvent.BUTTON3) {
                     mouseButtons &= ~2;
                 }
+                inputSignal.signal();
             }
         });
 
@@ -127,12 +125,6 @@ public abstract class AbstractSwingBackend extends JPanel
                 updateMousePosition(e);
             }
         });
-
-        cursorBlink.scheduleAtFixedRate(() ->
-                SwingUtilities.invokeLater(() -> {
-                    cursorOn = !cursorOn;
-                    renderScreen();
-                }), BLINK_MS, BLINK_MS, TimeUnit.MILLISECONDS);
     }
 
     private void updateMousePosition(MouseEvent e) {
@@ -140,8 +132,11 @@ public abstract class AbstractSwingBackend extends JPanel
         int y = e.getY() / cellHeight;
         x = Math.max(0, Math.min(screen.getWidth() - 1, x));
         y = Math.max(0, Math.min(screen.getHeight() - 1, y));
-        mouseX = x;
-        mouseY = y;
+        if (x != mouseX || y != mouseY) {
+            mouseX = x;
+            mouseY = y;
+            inputSignal.signal();
+        }
     }
 
     @Override
@@ -152,17 +147,32 @@ public abstract class AbstractSwingBackend extends JPanel
     @Override
     public void renderScreen() {
         drawToBackBuffer();
+        paintPending = true;
         repaint();
     }
 
+    @Override
+    public boolean isFramePending() {
+        // repaints of a component that is not showing never arrive
+        return paintPending && isShowing();
+    }
+
+    @Override
+    public void setCursorBlink(boolean on) {
+        cursorOn = on;
+    }
+
+    @Override
+    protected void paintComponent(Graphics g) {
+        paintPending = false;
+        super.paintComponent(g);
+    }
+
     protected void drawToBackBuffer() {
-        List<TPoint> dirty = new ArrayList<>(screen.consumeDirtyCells());
         boolean cursorCurrentlyVisible = cursorVisible && cursorOn;
-        if (lastCursorVisible || cursorCurrentlyVisible) {
-            dirty.add(new TPoint(lastCursorX, lastCursorY));
-            dirty.add(new TPoint(cursorX, cursorY));
-        }
-        if (dirty.isEmpty()) {
+        boolean repaintCursor = lastCursorVisible || cursorCurrentlyVisible;
+        Screen.Frame next = screen.takeFrame();
+        if (!repaintCursor && next == null) {
             lastCursorX = cursorX;
             lastCursorY = cursorY;
             lastCursorVisible = cursorCurrentlyVisible;
@@ -172,17 +182,18 @@ public abstract class AbstractSwingBackend extends JPanel
 
         Graphics2D g2d = backBuffer.createGraphics();
         configureGraphics(g2d);
-        for (TPoint p : dirty) {
-            if (!screen.isInBounds(p.x, p.y)) continue;
-            short cell = screen.getCell(p.x, p.y);
-            char ch = (char) (cell & 0xFF);
-            int attr = (cell >>> 8) & 0xFF;
-            java.awt.Color fg = DosPalette.getForeground(attr);
-            java.awt.Color bg = DosPalette.getBackground(attr);
-            drawGlyph(g2d, p.x, p.y, ch, fg, bg);
+        spanGraphics = g2d;
+        if (next != null) {
+            next.forEachScroll(scroller);
+            next.forEachDamagedSpanAfterScrolls(spanPainter);
+        }
+        spanGraphics = null;
+        if (repaintCursor) {
+            redrawCell(g2d, lastCursorX, lastCursorY);
+            redrawCell(g2d, cursorX, cursorY);
         }
         if (cursorCurrentlyVisible) {
-            short cell = screen.getCell(cursorX, cursorY);
+            short cell = screen.currentFrame().getCell(cursorX, cursorY);
             int attr = (cell >>> 8) & 0xFF;
             java.awt.Color fg = DosPalette.getForeground(attr);
             g2d.setColor(fg);
@@ -202,6 +213,47 @@ public abstract class AbstractSwingBackend extends JPanel
         lastCursorInsert = cursorInsert;
     }
 
+    private void drawSpan(int y, int fromX, int toX) {
+        short[] data = screen.currentFrame().getData();
+        int row = y * screen.getWidth();
+        for (int x = fromX; x < toX; x++) {
+            drawCell(spanGraphics, x, y, data[row + x]);
+        }
+    }
+
+    /**
+     * Moves the pixels of a scrolled rectangle within the back buffer, so
+     * that only the rows it uncovered are painted.
+     */
+    private void scrollArea(int x, int y, int width, int height, int dy) {
+        int moved = height - Math.abs(dy);
+        int sourceY = dy < 0 ? y - dy : y;
+        spanGraphics.copyArea(x * cellWidth, sourceY * cellHeight, width * cellWidth, moved * cellHeight,
+                0, dy * cellHeight);
+        // the cursor drawn into the back buffer moved along
+        if (lastCursorVisible && lastCursorX >= x && lastCursorX < x + width
+                && lastCursorY >= sourceY && lastCursorY < sourceY + moved) {
+            redrawCell(spanGraphics, lastCursorX, lastCursorY + dy);
+        }
+    }
+
+    private void redrawCell(Graphics2D g2d, int x, int y) {
+        if (!screen.isInBounds(x, y)) return;
+        drawCell(g2d, x, y, screen.currentFrame().getCell(x, y));
+    }
+
+    /**
+     * Draws one packed screen cell into the back buffer. The default
+     * implementation resolves the attribute through {@link DosPalette} and
+     * delegates to {@link #drawGlyph}; subclasses able to work on the raw
+     * attribute may override it.
+     */
+    protected void drawCell(Graphics2D g2d, int x, int y, short cell) {
+        int attr = (cell >>> 8) & 0xFF;
+        drawGlyph(g2d, x, y, (char) (cell & 0xFF),
+                DosPalette.getForeground(attr), DosPalette.getBackground(attr));
+    }
+
     /**
      * Hook for subclasses to configure the graphics context before drawing.
      * The default implementation does nothing.
@@ -280,6 +332,18 @@ public abstract class AbstractSwingBackend extends JPanel
         return Optional.ofNullable(events.poll());
     }
 
+    @Override
+    public void waitForInput(long timeoutMillis) {
+        if (events.isEmpty()) {
+            inputSignal.await(timeoutMillis);
+        }
+    }
+
+    @Override
+    public void wakeUp() {
+        inputSignal.signal();
+    }
+
     @Override
     public int getMouseButtons() {
         return mouseButtons;
@@ -297,6 +361,5 @@ public abstract class AbstractSwingBackend extends JPanel
         cursorInsert = insertMode;
         cursorVisible = visible;
         cursorOn = true;
-        SwingUtilities.invokeLater(this::renderScreen);
     }
 }
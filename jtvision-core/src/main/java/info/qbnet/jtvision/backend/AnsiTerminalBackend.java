@@ -0,0 +1,643 @@
+package info.qbnet.jtvision.backend;
+
+import info.qbnet.jtvision.backend.factory.GuiComponent;
+import info.qbnet.jtvision.backend.util.AnsiInputDecoder;
+import info.qbnet.jtvision.backend.util.Cp437;
+import info.qbnet.jtvision.backend.util.InputSignal;
+import info.qbnet.jtvision.event.KeyCodeMapper;
+import info.qbnet.jtvision.event.TEvent;
+import info.qbnet.jtvision.util.IBuffer;
+import info.qbnet.jtvision.util.Screen;
+import info.qbnet.jtvision.util.TPoint;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.FileDescriptor;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Optional;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.function.BooleanSupplier;
+
+/**
+ * Backend that drives a VT/xterm compatible terminal with ANSI escape
+ * sequences, written for slow remote links.
+ *
+ * <p>The backend keeps a copy of the cells the terminal currently shows and
+ * only sends cells that differ from it. Cursor movement between changed cells
+ * uses the shortest of CR/LF, a relative move, an absolute move, or
+ * re-sending the cells in between. Colours are sent as 16-colour SGR
+ * sequences and only the parts that change are emitted. Scrolled rows that
+ * span the full width are moved with the terminal's scroll region, so only
+ * the rows scrolled into view are sent. A frame is assembled
+ * in a reusable buffer and handed to the output in a single write, wrapped
+ * in synchronized-update mode so terminals that support it never show a
+ * half drawn frame. Mouse input uses xterm button-event tracking with SGR
+ * coordinates.</p>
+ *
+ * <p>Input is read by a thread of the backend, or, for connections served
+ * from a selector, pushed by the caller through {@link #receive}. In the
+ * latter case the caller may also report an output backlog; frames are then
+ * skipped until the backlog is gone, and the next frame carries their
+ * changes, so a slow link gets fewer frames instead of a growing queue.</p>
+ */
+public class AnsiTerminalBackend implements GuiComponent<Screen> {
+
+    private static final Logger log = LoggerFactory.getLogger(AnsiTerminalBackend.class);
+
+    /** Maps the DOS colour order (blue before red) to ANSI colour numbers. */
+    private static final int[] DOS_TO_ANSI = {0, 4, 2, 6, 1, 5, 3, 7};
+
+    private static final byte[] SYNC_BEGIN = ascii("\u001b[?2026h");
+    private static final byte[] SYNC_END = ascii("\u001b[?2026l");
+    private static final byte[] ENTER = ascii(
+            "\u001b[?1049h\u001b[?25l\u001b[0m\u001b[2J\u001b[?1000h\u001b[?1002h\u001b[?1006h");
+    private static final byte[] LEAVE = ascii(
+            "\u001b[?1006l\u001b[?1002l\u001b[?1000l\u001b[0m\u001b[?25h\u001b[0 q\u001b[?1049l");
+    private static final byte[] CURSOR_SHOW = ascii("\u001b[?25h");
+    private static final byte[] CURSOR_HIDE = ascii("\u001b[?25l");
+
+    /** How long a lone ESC waits for the rest of a sequence before it counts as the Escape key. */
+    private static final long ESC_TIMEOUT_MS = 30;
+
+    private final Screen screen;
+    private final Integer cellWidth;
+    private final Integer cellHeight;
+    private final InputStream in;
+    private final OutputStream out;
+    private final boolean controlTty;
+    private final BooleanSupplier backlog;
+    private final IBuffer.DirtySpanConsumer spanWriter = this::writeSpan;
+    private final IBuffer.ScrollConsumer scroller = this::scrollLines;
+
+    /** Cells as last sent to the terminal; {@code -1} until a cell was sent. */
+    private final short[] shown;
+    private final FrameBuffer frame = new FrameBuffer();
+
+    // terminal state, guarded by frame
+    private int termX = -1;
+    private int termY = -1;
+    private int termAttr = -1;
+    private boolean termCursorVisible = false;
+    private int termCursorShape = -1;
+    private int lastFrameSize = 0;
+
+    private volatile int cursorX = 0;
+    private volatile int cursorY = 0;
+    private volatile boolean cursorInsert = false;
+    private volatile boolean cursorVisible = false;
+
+    private final Queue<TEvent> events = new ConcurrentLinkedQueue<>();
+    private final InputSignal inputSignal = new InputSignal();
+    private final AnsiInputDecoder decoder = new AnsiInputDecoder(new InputSink());
+    private final Object mouseLock = new Object();
+    private int mouseButtons = 0;
+    private int unseenPresses = 0;
+    private int deferredReleases = 0;
+    private volatile int mouseX = 0;
+    private volatile int mouseY = 0;
+    private volatile byte shiftState = 0;
+    /** When a lone pushed ESC counts as the Escape key; {@code 0} if none is pending. */
+    private volatile long escapeDeadline = 0;
+
+    private Thread reader;
+    private String savedTtyMode;
+    private volatile boolean running = false;
+
+    /**
+     * Creates a backend on the process's standard input and output, which
+     * must be connected to a terminal. The terminal is switched to raw mode by
+     * {@link #afterInitialization()} and restored by {@link #stop()}.
+     */
+    public AnsiTerminalBackend(Screen screen, int cellWidth, int cellHeight) {
+        this(screen, cellWidth, cellHeight,
+                new FileInputStream(FileDescriptor.in), new FileOutputStream(FileDescriptor.out), true, () -> false);
+    }
+
+    /**
+     * Creates a backend on the given streams, for example a network
+     * connection. The streams are expected to be in raw mode already.
+     */
+    public AnsiTerminalBackend(Screen screen, int cellWidth, int cellHeight, InputStream in, OutputStream out) {
+        this(screen, cellWidth, cellHeight, in, out, false, () -> false);
+    }
+
+    /**
+     * Creates a backend whose input is passed to {@link #receive} instead of
+     * read by a thread of its own, for example by a selector serving many
+     * connections. {@code backlog} reports whether output written earlier is
+     * still waiting to be sent; no frames are rendered while it does.
+     */
+    public AnsiTerminalBackend(Screen screen, int cellWidth, int cellHeight,
+                               OutputStream out, BooleanSupplier backlog) {
+        this(screen, cellWidth, cellHeight, null, out, false, backlog);
+    }
+
+    private AnsiTerminalBackend(Screen screen, int cellWidth, int cellHeight,
+                                InputStream in, OutputStream out, boolean controlTty, BooleanSupplier backlog) {
+        this.screen = screen;
+        this.cellWidth = cellWidth;
+        this.cellHeight = cellHeight;
+        this.in = in;
+        this.out = out;
+        this.controlTty = controlTty;
+        this.backlog = backlog;
+        this.shown = new short[screen.getWidth() * screen.getHeight()];
+        Arrays.fill(shown, (short) -1);
+    }
+
+    @Override
+    public void afterInitialization() {
+        if (controlTty) {
+            savedTtyMode = stty("-g");
+            stty("raw", "-echo");
+        }
+        synchronized (frame) {
+            frame.reset();
+            frame.put(ENTER);
+            send();
+        }
+        running = true;
+        if (in != null) {
+            reader = new Thread(this::readInput, "ansi-input");
+            reader.setDaemon(true);
+            reader.start();
+        }
+    }
+
+    /**
+     * Decodes {@code length} bytes of terminal input pushed by the caller.
+     * Only for backends created without an input stream; must not be called
+     * by more than one thread at a time.
+     */
+    public void receive(byte[] data, int offset, int length) {
+        synchronized (decoder) {
+            decoder.feed(data, offset, length);
+            escapeDeadline = decoder.hasPendingEscape() ? System.currentTimeMillis() + ESC_TIMEOUT_MS : 0;
+        }
+        inputSignal.signal();
+    }
+
+    /** Turns a pushed ESC that was not followed by more input in time into the Escape key. */
+    private void flushStaleEscape() {
+        long deadline = escapeDeadline;
+        if (deadline != 0 && System.currentTimeMillis() >= deadline) {
+            synchronized (decoder) {
+                if (escapeDeadline == deadline) {
+                    decoder.flushEscape();
+                    escapeDeadline = 0;
+                }
+            }
+        }
+    }
+
+    /** Restores the terminal. Safe to call more than once. */
+    public void stop() {
+        if (!running) {
+            return;
+        }
+        running = false;
+        synchronized (frame) {
+            frame.reset();
+            frame.put(LEAVE);
+            send();
+        }
+        if (controlTty && savedTtyMode != null) {
+            stty(savedTtyMode);
+        }
+    }
+
+    @Override
+    public void renderScreen() {
+        synchronized (frame) {
+            frame.reset();
+            frame.put(SYNC_BEGIN);
+            int empty = frame.length();
+            Screen.Frame next = screen.takeFrame();
+            if (next != null) {
+                next.forEachScroll(scroller);
+                next.forEachDamagedSpan(spanWriter);
+            }
+            writeCursor();
+            if (frame.length() == empty) {
+                lastFrameSize = 0;
+                return;
+            }
+            frame.put(SYNC_END);
+            lastFrameSize = frame.length();
+            send();
+        }
+    }
+
+    /**
+     * @return number of bytes the last {@link #renderScreen()} call sent,
+     *         {@code 0} if nothing had changed
+     */
+    public int getLastFrameSize() {
+        synchronized (frame) {
+            return lastFrameSize;
+        }
+    }
+
+    /**
+     * Moves full-width rows with the terminal's scroll region and shifts
+     * {@link #shown} to match. Narrower rectangles are left to
+     * {@link #writeSpan}, which sends only the cells that differ.
+     */
+    private void scrollLines(int x, int y, int width, int height, int dy) {
+        int screenWidth = screen.getWidth();
+        if (x != 0 || width != screenWidth) {
+            return;
+        }
+        frame.put((byte) 0x1B).put((byte) '[').putInt(y + 1).put((byte) ';').putInt(y + height).put((byte) 'r');
+        frame.put((byte) 0x1B).put((byte) '[').putInt(Math.abs(dy)).put((byte) (dy < 0 ? 'S' : 'T'));
+        // resetting the region homes the cursor
+        frame.put((byte) 0x1B).put((byte) '[').put((byte) 'r');
+        termX = -1;
+        termY = -1;
+        int moved = (height - Math.abs(dy)) * screenWidth;
+        if (dy < 0) {
+            System.arraycopy(shown, (y - dy) * screenWidth, shown, y * screenWidth, moved);
+        } else {
+            System.arraycopy(shown, y * screenWidth, shown, (y + dy) * screenWidth, moved);
+        }
+        int uncovered = dy < 0 ? y + height + dy : y;
+        Arrays.fill(shown, uncovered * screenWidth, (uncovered + Math.abs(dy)) * screenWidth, (short) -1);
+    }
+
+    private void writeSpan(int y, int fromX, int toX) {
+        short[] data = screen.currentFrame().getData();
+        int row = y * screen.getWidth();
+        for (int x = fromX; x < toX; x++) {
+            short cell = data[row + x];
+            if (shown[row + x] != cell) {
+                moveTo(x, y);
+                writeCell(row + x, cell);
+            }
+        }
+    }
+
+    private void writeCell(int index, short cell) {
+        int attr = (cell >>> 8) & 0xFF;
+        if (attr != termAttr) {
+            writeAttr(attr);
+        }
+        frame.put(Cp437.utf8(cell & 0xFF));
+        shown[index] = cell;
+        termX++;
+        if (termX >= screen.getWidth()) {
+            // the terminal is in its pending-wrap state; force an absolute move next
+            termX = -1;
+        }
+    }
+
+    /**
+     * Moves the terminal cursor to {@code (x, y)} with the fewest bytes.
+     */
+    private void moveTo(int x, int y) {
+        if (x == termX && y == termY) {
+            return;
+        }
+        int width = screen.getWidth();
+        int absolute = 4 + digits(y + 1) + (x > 0 ? 1 + digits(x + 1) : 0);
+        if (termX >= 0 && y == termY && x > termX) {
+            int gap = x - termX;
+            int relative = 3 + (gap > 1 ? digits(gap) : 0);
+            int rewrite = rewriteCost(y * width + termX, gap);
+            if (rewrite >= 0 && rewrite <= relative && rewrite <= absolute) {
+                int row = y * width;
+                short[] data = screen.currentFrame().getData();
+                for (int i = termX; i < x; i++) {
+                    writeCell(row + i, data[row + i]);
+                }
+                return;
+            }
+            if (relative < absolute) {
+                frame.put((byte) 0x1B).put((byte) '[');
+                if (gap > 1) {
+                    frame.putInt(gap);
+                }
+                frame.put((byte) 'C');
+                termX = x;
+                return;
+            }
+        }
+        if (x == 0 && termY >= 0 && y == termY + 1) {
+            frame.put((byte) '\r').put((byte) '\n');
+        } else {
+            frame.put((byte) 0x1B).put((byte) '[').putInt(y + 1);
+            if (x > 0) {
+                frame.put((byte) ';').putInt(x + 1);
+            }
+            frame.put((byte) 'H');
+        }
+        termX = x;
+        termY = y;
+    }
+
+    /**
+     * Returns the bytes needed to re-send {@code count} cells starting at
+     * {@code index}, or {@code -1} if that would change the colour.
+     */
+    private int rewriteCost(int index, int count) {
+        short[] data = screen.currentFrame().getData();
+        int cost = 0;
+        for (int i = index; i < index + count; i++) {
+            short cell = data[i];
+            if (((cell >>> 8) & 0xFF) != termAttr) {
+                return -1;
+            }
+            cost += Cp437.utf8(cell & 0xFF).length;
+        }
+        return cost;
+    }
+
+    private void writeAttr(int attr) {
+        int fg = DOS_TO_ANSI[attr & 0x07] + ((attr & 0x08) != 0 ? 90 : 30);
+        int bg = DOS_TO_ANSI[(attr >> 4) & 0x07] + ((attr & 0x80) != 0 ? 100 : 40);
+        boolean fgChanged = termAttr < 0 || ((termAttr ^ attr) & 0x0F) != 0;
+        boolean bgChanged = termAttr < 0 || ((termAttr ^ attr) & 0xF0) != 0;
+        frame.put((byte) 0x1B).put((byte) '[');
+        if (fgChanged) {
+            frame.putInt(fg);
+        }
+        if (bgChanged) {
+            if (fgChanged) {
+                frame.put((byte) ';');
+            }
+            frame.putInt(bg);
+        }
+        frame.put((byte) 'm');
+        termAttr = attr;
+    }
+
+    private void writeCursor() {
+        boolean visible = cursorVisible;
+        if (visible) {
+            int shape = cursorInsert ? 2 : 4;
+            if (shape != termCursorShape) {
+                frame.put((byte) 0x1B).put((byte) '[').putInt(shape).put((byte) ' ').put((byte) 'q');
+                termCursorShape = shape;
+            }
+            int x = cursorX;
+            int y = cursorY;
+            if (x != termX || y != termY) {
+                // a plain move; re-sending cells would only mark them as shown again
+                frame.put((byte) 0x1B).put((byte) '[').putInt(y + 1).put((byte) ';').putInt(x + 1).put((byte) 'H');
+                termX = x;
+                termY = y;
+            }
+        }
+        if (visible != termCursorVisible) {
+            frame.put(visible ? CURSOR_SHOW : CURSOR_HIDE);
+            termCursorVisible = visible;
+        }
+    }
+
+    private void send() {
+        try {
+            out.write(frame.bytes(), 0, frame.length());
+            out.flush();
+        } catch (IOException e) {
+            log.warn("Terminal output failed: {}", e.getMessage());
+        }
+    }
+
+    private static int digits(int value) {
+        return value < 10 ? 1 : value < 100 ? 2 : value < 1000 ? 3 : String.valueOf(value).length();
+    }
+
+    private static byte[] ascii(String s) {
+        return s.getBytes(StandardCharsets.US_ASCII);
+    }
+
+    private void readInput() {
+        byte[] buf = new byte[1024];
+        try {
+            while (running) {
+                int n = in.read(buf);
+                if (n < 0) {
+                    break;
+                }
+                synchronized (decoder) {
+                    decoder.feed(buf, 0, n);
+                }
+                if (decoder.hasPendingEscape()) {
+                    awaitEscapeSequence();
+                }
+            }
+        } catch (IOException e) {
+            if (running) {
+                log.warn("Terminal input failed: {}", e.getMessage());
+            }
+        }
+    }
+
+    /** Gives the rest of an escape sequence a moment to arrive before ESC counts as a key. */
+    private void awaitEscapeSequence() throws IOException {
+        long deadline = System.currentTimeMillis() + ESC_TIMEOUT_MS;
+        while (in.available() == 0 && System.currentTimeMillis() < deadline) {
+            try {
+                Thread.sleep(2);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+        }
+        if (in.available() == 0) {
+            synchronized (decoder) {
+                decoder.flushEscape();
+            }
+        }
+    }
+
+    private String stty(String... args) {
+        String[] command = new String[args.length + 1];
+        command[0] = "stty";
+        System.arraycopy(args, 0, command, 1, args.length);
+        try {
+            Process process = new ProcessBuilder(command)
+                    .redirectInput(ProcessBuilder.Redirect.from(new java.io.File("/dev/tty")))
+                    .redirectError(ProcessBuilder.Redirect.INHERIT)
+                    .start();
+            String output = new String(process.getInputStream().readAllBytes(), StandardCharsets.US_ASCII).trim();
+            if (process.waitFor() != 0) {
+                log.warn("stty {} failed", String.join(" ", args));
+            }
+            return output;
+        } catch (IOException e) {
+            throw new RuntimeException("Failed to configure terminal", e);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return null;
+        }
+    }
+
+    private final class InputSink implements AnsiInputDecoder.Sink {
+        @Override
+        public void key(int keyCode, char charCode) {
+            byte state = 0;
+            if ((keyCode & KeyCodeMapper.SHIFT) != 0) {
+                state |= 0x03;
+            }
+            if ((keyCode & KeyCodeMapper.CTRL) != 0) {
+                state |= 0x04;
+            }
+            if ((keyCode & KeyCodeMapper.ALT) != 0) {
+                state |= 0x08;
+            }
+            shiftState = state;
+            TEvent ev = new TEvent();
+            ev.what = TEvent.EV_KEYDOWN;
+            ev.key.keyCode = keyCode;
+            ev.key.charCode = charCode;
+            ev.key.scanCode = (byte) keyCode;
+            events.add(ev);
+            inputSignal.signal();
+        }
+
+        @Override
+        public void mouse(int button, boolean pressed, int x, int y) {
+            mouseX = Math.max(0, Math.min(screen.getWidth() - 1, x));
+            mouseY = Math.max(0, Math.min(screen.getHeight() - 1, y));
+            // the views only know the left (bit 0) and right (bit 1) buttons
+            int bit = button == 0 ? 1 : button == 2 ? 2 : 0;
+            if (bit != 0) {
+                synchronized (mouseLock) {
+                    if (pressed) {
+                        mouseButtons |= bit;
+                        unseenPresses |= bit;
+                        deferredReleases &= ~bit;
+                    } else if ((unseenPresses & bit) != 0) {
+                        // keep a quick click visible until the application polled it once
+                        deferredReleases |= bit;
+                    } else {
+                        mouseButtons &= ~bit;
+                    }
+                }
+            }
+            inputSignal.signal();
+        }
+    }
+
+    @Override
+    public int getMouseButtons() {
+        synchronized (mouseLock) {
+            int buttons = mouseButtons;
+            mouseButtons &= ~deferredReleases;
+            deferredReleases = 0;
+            unseenPresses = 0;
+            return buttons;
+        }
+    }
+
+    @Override
+    public TPoint getMouseLocation() {
+        return new TPoint(mouseX, mouseY);
+    }
+
+    @Override
+    public Optional<TEvent> pollEvent() {
+        flushStaleEscape();
+        return Optional.ofNullable(events.poll());
+    }
+
+    @Override
+    public void waitForInput(long timeoutMillis) {
+        if (events.isEmpty()) {
+            long deadline = escapeDeadline;
+            if (deadline != 0) {
+                timeoutMillis = Math.min(timeoutMillis, Math.max(1, deadline - System.currentTimeMillis()));
+            }
+            inputSignal.await(timeoutMillis);
+        }
+    }
+
+    @Override
+    public boolean isFramePending() {
+        return backlog.getAsBoolean();
+    }
+
+    @Override
+    public void wakeUp() {
+        inputSignal.signal();
+    }
+
+    @Override
+    public byte getShiftState() {
+        return shiftState;
+    }
+
+    @Override
+    public void updateCursor(int x, int y, boolean insertMode, boolean visible) {
+        cursorX = x;
+        cursorY = y;
+        cursorInsert = insertMode;
+        cursorVisible = visible;
+    }
+
+    @Override
+    public Integer getCellWidth() {
+        return cellWidth;
+    }
+
+    @Override
+    public Integer getCellHeight() {
+        return cellHeight;
+    }
+
+    @Override
+    public Screen getUIComponent() {
+        return screen;
+    }
+
+    /** Growable byte buffer reused for every frame. */
+    private static final class FrameBuffer {
+        private byte[] bytes = new byte[16 * 1024];
+        private int length = 0;
+
+        void reset() {
+            length = 0;
+        }
+
+        int length() {
+            return length;
+        }
+
+        byte[] bytes() {
+            return bytes;
+        }
+
+        FrameBuffer put(byte b) {
+            ensure(1);
+            bytes[length++] = b;
+            return this;
+        }
+
+        FrameBuffer put(byte[] b) {
+            ensure(b.length);
+            System.arraycopy(b, 0, bytes, length, b.length);
+            length += b.length;
+            return this;
+        }
+
+        FrameBuffer putInt(int value) {
+            if (value >= 10) {
+                putInt(value / 10);
+            }
+            return put((byte) ('0' + value % 10));
+        }
+
+        private void ensure(int extra) {
+            if (length + extra > bytes.length) {
+                bytes = Arrays.copyOf(bytes, Math.max(bytes.length * 2, length + extra));
+            }
+        }
+    }
+}
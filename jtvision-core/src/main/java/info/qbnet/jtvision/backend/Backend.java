@@ -67,6 +67,60 @@ public interface Backend {
      */
     java.util.Optional<TEvent> pollEvent();
 
+    /**
+     * Blocks the calling thread until input may be available, {@link #wakeUp()}
+     * is invoked or {@code timeoutMillis} elapses, whichever happens first.
+     * Spurious returns are allowed; callers always re-poll afterwards.
+     *
+     * <p>The default implementation simply sleeps for a short slice of the
+     * timeout so that backends without a notification mechanism keep
+     * responding to input while no longer spinning the CPU.</p>
+     *
+     * @param timeoutMillis maximum time to wait in milliseconds
+     */
+    default void waitForInput(long timeoutMillis) {
+        if (timeoutMillis <= 0) {
+            return;
+        }
+        try {
+            Thread.sleep(Math.min(timeoutMillis, 10));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Interrupts a pending {@link #waitForInput(long)} call, for example after
+     * an event has been posted to the application from another thread.
+     */
+    default void wakeUp() {
+        // no notification mechanism by default
+    }
+
+    /**
+     * Sets the phase of the blinking text cursor. The render scheduler toggles
+     * the phase and renders a frame afterwards, so backends need no blink
+     * timer of their own. Backends that draw no cursor or blink it themselves
+     * may ignore the call.
+     *
+     * @param on {@code true} while the cursor should be drawn
+     */
+    default void setCursorBlink(boolean on) {
+        // cursor is not drawn by the backend
+    }
+
+    /**
+     * Reports whether a frame passed to {@link #renderScreen()} is still
+     * waiting to be presented, for example because it was posted to a UI
+     * thread that has not run it yet. The render scheduler skips frames while
+     * this returns {@code true}.
+     *
+     * @return {@code true} if the previous frame is still in flight
+     */
+    default boolean isFramePending() {
+        return false;
+    }
+
     /**
      * Returns the current state of keyboard modifier keys.
      *
@@ -0,0 +1,258 @@
+package info.qbnet.jtvision.backend;
+
+import info.qbnet.jtvision.backend.factory.GuiComponent;
+import info.qbnet.jtvision.backend.util.InputSignal;
+import info.qbnet.jtvision.event.TEvent;
+import info.qbnet.jtvision.util.IBuffer;
+import info.qbnet.jtvision.util.Screen;
+import info.qbnet.jtvision.util.TPoint;
+
+import java.util.Optional;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+/**
+ * Backend that renders into the {@link Screen} buffer only.
+ *
+ * <p>No window or terminal is opened. Input comes from a programmable event
+ * queue filled via {@link #pushEvent(TEvent)}, {@link #pushKey(int, char)} and
+ * {@link #setMouse(int, int, int)}. Each {@link #renderScreen()} call counts as
+ * one frame and publishes a copy of the last committed screen frame that
+ * tests and load harnesses can inspect through {@link #snapshot()}. This makes applications runnable in
+ * CI and containers and leaves the view layer as the only rendering cost.</p>
+ */
+public class HeadlessBackend implements GuiComponent<Screen> {
+
+    private final Screen screen;
+    private final Integer cellWidth;
+    private final Integer cellHeight;
+    private final Queue<TEvent> events = new ConcurrentLinkedQueue<>();
+    private final InputSignal inputSignal = new InputSignal();
+    private final IBuffer.DirtySpanConsumer spanCopier = this::copySpan;
+    private volatile int mouseButtons = 0;
+    private volatile int mouseX = 0;
+    private volatile int mouseY = 0;
+    private volatile byte shiftState = 0;
+    private volatile int cursorX = 0;
+    private volatile int cursorY = 0;
+    private volatile boolean cursorVisible = false;
+    private volatile boolean cursorInsert = false;
+    private final short[] frame;
+    private long frameCount = 0;
+
+    public HeadlessBackend(Screen screen, int cellWidth, int cellHeight) {
+        this.screen = screen;
+        this.cellWidth = cellWidth;
+        this.cellHeight = cellHeight;
+        this.frame = new short[screen.getWidth() * screen.getHeight()];
+    }
+
+    @Override
+    public void afterInitialization() {
+        // nothing to set up
+    }
+
+    @Override
+    public void renderScreen() {
+        synchronized (frame) {
+            Screen.Frame next = screen.takeFrame();
+            if (next != null) {
+                next.forEachDamagedSpan(spanCopier);
+            }
+            frameCount++;
+            frame.notifyAll();
+        }
+    }
+
+    private void copySpan(int y, int fromX, int toX) {
+        int row = y * screen.getWidth();
+        System.arraycopy(screen.currentFrame().getData(), row + fromX, frame, row + fromX, toX - fromX);
+    }
+
+    /**
+     * Returns a copy of the cells published by the last {@link #renderScreen()}
+     * call, row by row, in the same packed format as {@link Screen#getData()}.
+     *
+     * @return snapshot of the last rendered frame
+     */
+    public short[] snapshot() {
+        synchronized (frame) {
+            return frame.clone();
+        }
+    }
+
+    /**
+     * Returns the characters of one row of the last rendered frame.
+     *
+     * @param y row index
+     * @return text of the row without attributes
+     */
+    public String rowText(int y) {
+        int width = screen.getWidth();
+        char[] chars = new char[width];
+        synchronized (frame) {
+            for (int x = 0; x < width; x++) {
+                chars[x] = (char) (frame[y * width + x] & 0xFF);
+            }
+        }
+        return new String(chars);
+    }
+
+    /**
+     * @return number of frames rendered so far
+     */
+    public long getFrameCount() {
+        synchronized (frame) {
+            return frameCount;
+        }
+    }
+
+    /**
+     * Waits until more than {@code frames} frames have been rendered or the
+     * timeout elapses.
+     *
+     * @param frames        frame count previously returned by {@link #getFrameCount()}
+     * @param timeoutMillis maximum time to wait in milliseconds
+     * @return {@code true} if a newer frame is available
+     */
+    public boolean awaitFrame(long frames, long timeoutMillis) {
+        long deadline = System.currentTimeMillis() + timeoutMillis;
+        synchronized (frame) {
+            try {
+                long remaining = timeoutMillis;
+                while (frameCount <= frames && remaining > 0) {
+                    frame.wait(remaining);
+                    remaining = deadline - System.currentTimeMillis();
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            return frameCount > frames;
+        }
+    }
+
+    /**
+     * Queues an event for the application loop.
+     *
+     * @param event event to deliver; it is not copied
+     */
+    public void pushEvent(TEvent event) {
+        events.add(event);
+        inputSignal.signal();
+    }
+
+    /**
+     * Queues a key press.
+     *
+     * @param keyCode  key code including modifier bits as produced by {@code KeyCodeMapper}
+     * @param charCode character produced by the key, or {@code 0}
+     */
+    public void pushKey(int keyCode, char charCode) {
+        TEvent ev = new TEvent();
+        ev.what = TEvent.EV_KEYDOWN;
+        ev.key.keyCode = keyCode;
+        ev.key.charCode = charCode;
+        ev.key.scanCode = (byte) keyCode;
+        pushEvent(ev);
+    }
+
+    /**
+     * Updates the simulated mouse state; the application derives mouse events
+     * from it on its next poll.
+     *
+     * @param x       column in character cells
+     * @param y       row in character cells
+     * @param buttons button mask as returned by {@link #getMouseButtons()}
+     */
+    public void setMouse(int x, int y, int buttons) {
+        mouseX = x;
+        mouseY = y;
+        mouseButtons = buttons;
+        inputSignal.signal();
+    }
+
+    /**
+     * Sets the modifier mask reported by {@link #getShiftState()}.
+     *
+     * @param shiftState modifier bits
+     */
+    public void setShiftState(byte shiftState) {
+        this.shiftState = shiftState;
+    }
+
+    /**
+     * @return last cursor position reported by the application
+     */
+    public TPoint getCursorLocation() {
+        return new TPoint(cursorX, cursorY);
+    }
+
+    /**
+     * @return whether the application last requested a visible cursor
+     */
+    public boolean isCursorVisible() {
+        return cursorVisible;
+    }
+
+    /**
+     * @return whether the application last requested an insert-mode cursor
+     */
+    public boolean isCursorInsert() {
+        return cursorInsert;
+    }
+
+    @Override
+    public void updateCursor(int x, int y, boolean insertMode, boolean visible) {
+        cursorX = x;
+        cursorY = y;
+        cursorInsert = insertMode;
+        cursorVisible = visible;
+    }
+
+    @Override
+    public Integer getCellWidth() {
+        return cellWidth;
+    }
+
+    @Override
+    public Integer getCellHeight() {
+        return cellHeight;
+    }
+
+    @Override
+    public int getMouseButtons() {
+        return mouseButtons;
+    }
+
+    @Override
+    public TPoint getMouseLocation() {
+        return new TPoint(mouseX, mouseY);
+    }
+
+    @Override
+    public Optional<TEvent> pollEvent() {
+        return Optional.ofNullable(events.poll());
+    }
+
+    @Override
+    public void waitForInput(long timeoutMillis) {
+        if (events.isEmpty()) {
+            inputSignal.await(timeoutMillis);
+        }
+    }
+
+    @Override
+    public void wakeUp() {
+        inputSignal.signal();
+    }
+
+    @Override
+    public byte getShiftState() {
+        return shiftState;
+    }
+
+    @Override
+    public Screen getUIComponent() {
+        return screen;
+    }
+}
@@ -8,12 +8,12 @@ import com.googlecode.lanterna.input.KeyStroke;
 import com.googlecode.lanterna.screen.Screen;
 import com.googlecode.lanterna.terminal.DefaultTerminalFactory;
 import info.qbnet.jtvision.backend.factory.GuiComponent;
+import info.qbnet.jtvision.backend.util.InputSignal;
 import info.qbnet.jtvision.util.DosPalette;
+import info.qbnet.jtvision.util.IBuffer;
 
 import java.io.IOException;
 import java.util.Optional;
-import java.util.List;
-import java.util.ArrayList;
 import info.qbnet.jtvision.event.TEvent;
 import info.qbnet.jtvision.util.TPoint;
 
@@ -27,6 +27,12 @@ public class LanternaBackend implements GuiComponent<Screen> {
     private final Integer cellHeight;
     private Screen terminalScreen;
     private volatile byte shiftState = 0;
+    private final InputSignal wakeSignal = new InputSignal();
+    private KeyStroke pendingInput;
+    private final IBuffer.DirtySpanConsumer spanPainter = this::drawSpan;
+    private TextGraphics spanGraphics;
+    /** Lanterna offers no timed read, so input is polled in short slices. */
+    private static final long INPUT_POLL_MS = 10;
 
     public LanternaBackend(info.qbnet.jtvision.util.Screen screen,
                            int cellWidth,
@@ -52,27 +58,11 @@ public class LanternaBackend implements GuiComponent<Screen> {
 
     @Override
     public void renderScreen() {
-        List<TPoint> dirty = new ArrayList<>(screenBuffer.consumeDirtyCells());
-        if (dirty.isEmpty()) {
-            try {
-                terminalScreen.refresh();
-            } catch (IOException e) {
-                throw new RuntimeException("Failed to refresh Lanterna screen", e);
-            }
-            return;
-        }
-
-        TextGraphics tg = terminalScreen.newTextGraphics();
-        for (TPoint p : dirty) {
-            if (!screenBuffer.isInBounds(p.x, p.y)) continue;
-            short cell = screenBuffer.getCell(p.x, p.y);
-            char ch = (char) (cell & 0xFF);
-            int attr = (cell >>> 8) & 0xFF;
-            java.awt.Color fg = DosPalette.getForeground(attr);
-            java.awt.Color bg = DosPalette.getBackground(attr);
-            tg.setForegroundColor(toLanterna(fg));
-            tg.setBackgroundColor(toLanterna(bg));
-            tg.putString(p.x, p.y, String.valueOf(ch));
+        info.qbnet.jtvision.util.Screen.Frame next = screenBuffer.takeFrame();
+        if (next != null && next.isDamaged()) {
+            spanGraphics = terminalScreen.newTextGraphics();
+            next.forEachDamagedSpan(spanPainter);
+            spanGraphics = null;
         }
         try {
             terminalScreen.refresh();
@@ -81,6 +71,18 @@ public class LanternaBackend implements GuiComponent<Screen> {
         }
     }
 
+    private void drawSpan(int y, int fromX, int toX) {
+        short[] data = screenBuffer.currentFrame().getData();
+        int row = y * screenBuffer.getWidth();
+        for (int x = fromX; x < toX; x++) {
+            short cell = data[row + x];
+            int attr = (cell >>> 8) & 0xFF;
+            spanGraphics.setForegroundColor(toLanterna(DosPalette.getForeground(attr)));
+            spanGraphics.setBackgroundColor(toLanterna(DosPalette.getBackground(attr)));
+            spanGraphics.setCharacter(x, y, (char) (cell & 0xFF));
+        }
+    }
+
     private static TextColor toLanterna(java.awt.Color c) {
         return new TextColor.RGB(c.getRed(), c.getGreen(), c.getBlue());
     }
@@ -106,7 +108,11 @@ public class LanternaBackend implements GuiComponent<Screen> {
             if (terminalScreen == null) {
                 return Optional.empty();
             }
-            KeyStroke ks = terminalScreen.pollInput();
+            KeyStroke ks = pendingInput;
+            pendingInput = null;
+            if (ks == null) {
+                ks = terminalScreen.pollInput();
+            }
             if (ks == null) {
                 return Optional.empty();
             }
@@ -125,6 +131,33 @@ public class LanternaBackend implements GuiComponent<Screen> {
         }
     }
 
+    @Override
+    public void waitForInput(long timeoutMillis) {
+        if (terminalScreen == null || pendingInput != null) {
+            return;
+        }
+        long deadline = System.currentTimeMillis() + timeoutMillis;
+        try {
+            while (true) {
+                pendingInput = terminalScreen.pollInput();
+                if (pendingInput != null) {
+                    return;
+                }
+                long remaining = deadline - System.currentTimeMillis();
+                if (remaining <= 0 || wakeSignal.await(Math.min(remaining, INPUT_POLL_MS))) {
+                    return;
+                }
+            }
+        } catch (IOException e) {
+            // treat as no input; pollEvent reports the same condition
+        }
+    }
+
+    @Override
+    public void wakeUp() {
+        wakeSignal.signal();
+    }
+
     @Override
     public int getMouseButtons() {
         return 0;
@@ -1,5 +1,6 @@
 package info.qbnet.jtvision.backend;
 
+import info.qbnet.jtvision.util.DosPalette;
 import info.qbnet.jtvision.util.Screen;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -7,11 +8,16 @@ import org.slf4j.LoggerFactory;
 import javax.imageio.ImageIO;
 import java.awt.*;
 import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferInt;
 import java.io.IOException;
 import java.io.InputStream;
 
 /**
  * A backend that uses a 1-bit monochrome bitmap font atlas and applies color dynamically.
+ *
+ * <p>Glyphs are rendered straight into the back buffer's {@link DataBufferInt}
+ * raster. Each (character, attribute) pair is tinted once into an ARGB tile
+ * on first use; drawing a cell then copies one tile row per scanline.</p>
  */
 public class SwingBitmapBackend extends AbstractSwingBackend {
 
@@ -19,6 +25,12 @@ public class SwingBitmapBackend extends AbstractSwingBackend {
 
     private BufferedImage fontAtlas;
 
+    /** Per-character glyph coverage extracted from the atlas. */
+    private boolean[][] glyphMasks;
+    /** Tinted tiles indexed by {@code attribute << 8 | character}, built lazily. */
+    private final int[][] tiles = new int[256 * 256][];
+    private int[] pixels;
+
     public SwingBitmapBackend(Screen screen, int charWidth, int charHeight) {
         super(screen, charWidth, charHeight);
         afterInitialization();
@@ -42,6 +54,41 @@ public class SwingBitmapBackend extends AbstractSwingBackend {
             log.error("Failed to load font atlas", e);
             throw new RuntimeException(e);
         }
+        this.glyphMasks = extractGlyphMasks();
+        this.pixels = ((DataBufferInt) backBuffer.getRaster().getDataBuffer()).getData();
+    }
+
+    private boolean[][] extractGlyphMasks() {
+        int cw = getCellWidth();
+        int chh = getCellHeight();
+        boolean[][] masks = new boolean[256][cw * chh];
+        for (int c = 0; c < 256; c++) {
+            int sourceX = (c % 16) * cw;
+            int sourceY = (c / 16) * chh;
+            for (int glyphY = 0; glyphY < chh; glyphY++) {
+                for (int glyphX = 0; glyphX < cw; glyphX++) {
+                    int pixelColor = fontAtlas.getRGB(sourceX + glyphX, sourceY + glyphY) & 0xFFFFFF;
+                    masks[c][glyphY * cw + glyphX] = pixelColor != 0x000000;
+                }
+            }
+        }
+        return masks;
+    }
+
+    private int[] tile(int charCode, int attr) {
+        int key = (attr << 8) | charCode;
+        int[] tile = tiles[key];
+        if (tile == null) {
+            int fg = DosPalette.getForeground(attr).getRGB();
+            int bg = DosPalette.getBackground(attr).getRGB();
+            boolean[] mask = glyphMasks[charCode];
+            tile = new int[mask.length];
+            for (int i = 0; i < mask.length; i++) {
+                tile[i] = mask[i] ? fg : bg;
+            }
+            tiles[key] = tile;
+        }
+        return tile;
     }
 
     @Override
@@ -50,29 +97,21 @@ public class SwingBitmapBackend extends AbstractSwingBackend {
         g.drawImage(backBuffer, 0, 0, null);
     }
 
+    @Override
+    protected void drawCell(Graphics2D g2d, int x, int y, short cell) {
+        int cw = getCellWidth();
+        int chh = getCellHeight();
+        int[] tile = tile(cell & 0xFF, (cell >>> 8) & 0xFF);
+        int stride = backBuffer.getWidth();
+        int dest = y * chh * stride + x * cw;
+        for (int row = 0, src = 0; row < chh; row++, src += cw, dest += stride) {
+            System.arraycopy(tile, src, pixels, dest, cw);
+        }
+    }
+
     @Override
     protected void drawGlyph(Graphics2D g, int x, int y, char ch,
                               java.awt.Color fg, java.awt.Color bg) {
-        int charCode = ch & 0xFF;
-        int sourceX = (charCode % 16) * getCellWidth();
-        int sourceY = (charCode / 16) * getCellHeight();
-
-        int destX = x * getCellWidth();
-        int destY = y * getCellHeight();
-
-        // Draw background
-        g.setColor(bg);
-        g.fillRect(destX, destY, getCellWidth(), getCellHeight());
-
-        // Apply foreground color to 1-bit glyph
-        for (int glyphY = 0; glyphY < getCellHeight(); glyphY++) {
-            for (int glyphX = 0; glyphX < getCellWidth(); glyphX++) {
-                int pixelColor = fontAtlas.getRGB(sourceX + glyphX, sourceY + glyphY) & 0xFFFFFF;
-                if (pixelColor != 0x000000) {
-                    g.setColor(fg);
-                    g.fillRect(destX + glyphX, destY + glyphY, 1, 1);
-                }
-            }
-        }
+        drawCell(g, x, y, (short) ((DosPalette.toAttribute(fg, bg) << 8) | (ch & 0xFF)));
     }
-}
\ No newline at end of file
+}
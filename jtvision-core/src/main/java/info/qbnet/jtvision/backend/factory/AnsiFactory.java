@@ -0,0 +1,35 @@
+package info.qbnet.jtvision.backend.factory;
+
+import info.qbnet.jtvision.backend.AnsiTerminalBackend;
+import info.qbnet.jtvision.util.Screen;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.function.Function;
+
+/**
+ * Factory for the ANSI terminal backend.
+ */
+public class AnsiFactory extends Factory<GuiComponent<Screen>> {
+
+    private static final Logger log = LoggerFactory.getLogger(AnsiFactory.class);
+
+    public AnsiFactory(Function<Screen, ? extends GuiComponent<Screen>> constructor) {
+        super(constructor, "ANSI");
+    }
+
+    @Override
+    protected GuiComponent<Screen> initializeBackend(Screen screen, CountDownLatch latch, Thread mainThread) {
+        log.info("Starting ANSI terminal backend");
+        GuiComponent<Screen> backend = constructor.apply(screen);
+        backend.afterInitialization();
+
+        if (backend instanceof AnsiTerminalBackend ab) {
+            setupThreadCleanup(mainThread, ab::stop);
+        }
+
+        latch.countDown();
+        return backend;
+    }
+}
@@ -31,6 +31,8 @@ public final class BackendFactoryProvider {
             case LIBGDX_BITMAP -> new LibGdxFactory(screen -> new LibGdxBitmapBackend(screen, charWidth, charHeight));
             case LIBGDX_TRUETYPE -> new LibGdxFactory(screen -> new LibGdxTrueTypeBackend(screen, charWidth, charHeight));
             case LANTERNA -> new LanternaFactory(screen -> new LanternaBackend(screen, charWidth, charHeight));
+            case ANSI -> new AnsiFactory(screen -> new AnsiTerminalBackend(screen, charWidth, charHeight));
+            case HEADLESS -> new HeadlessFactory(screen -> new HeadlessBackend(screen, charWidth, charHeight));
         };
     }
 }
@@ -11,5 +11,7 @@ public enum BackendType {
     JAVAFX_TRUETYPE,
     LIBGDX_BITMAP,
     LIBGDX_TRUETYPE,
-    LANTERNA
+    LANTERNA,
+    ANSI,
+    HEADLESS
 }
@@ -0,0 +1,30 @@
+package info.qbnet.jtvision.backend.factory;
+
+import info.qbnet.jtvision.util.Screen;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.function.Function;
+
+/**
+ * Factory for backends that render into the screen buffer only, without a
+ * window or terminal.
+ */
+public class HeadlessFactory extends Factory<GuiComponent<Screen>> {
+
+    private static final Logger log = LoggerFactory.getLogger(HeadlessFactory.class);
+
+    public HeadlessFactory(Function<Screen, ? extends GuiComponent<Screen>> constructor) {
+        super(constructor, "Headless");
+    }
+
+    @Override
+    protected GuiComponent<Screen> initializeBackend(Screen screen, CountDownLatch latch, Thread mainThread) {
+        log.info("Starting headless backend");
+        GuiComponent<Screen> backend = constructor.apply(screen);
+        backend.afterInitialization();
+        latch.countDown();
+        return backend;
+    }
+}
@@ -0,0 +1,309 @@
+package info.qbnet.jtvision.backend.util;
+
+import info.qbnet.jtvision.event.KeyCodeMapper;
+import info.qbnet.jtvision.util.KeyCode;
+
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Decodes the byte stream of a VT/xterm compatible terminal in raw mode into
+ * key presses and mouse reports.
+ *
+ * <p>Keys are reported in the key code scheme of the other backends: the base
+ * code follows {@code java.awt.event.KeyEvent} and modifiers are added with
+ * {@link KeyCodeMapper}. Mouse input is expected in the SGR extended format
+ * ({@code ESC [ < b ; x ; y M/m}). Input may arrive split at any byte; an
+ * incomplete sequence is kept until the next {@link #feed} call. A lone
+ * {@code ESC} cannot be told apart from the start of a sequence, so the caller
+ * invokes {@link #flushEscape()} when no further input followed it in
+ * time.</p>
+ */
+public final class AnsiInputDecoder {
+
+    /** Receives decoded input. */
+    public interface Sink {
+        /**
+         * Called for each key press.
+         *
+         * @param keyCode  key code including modifier flags
+         * @param charCode typed character in code page 437, or {@code 0}
+         */
+        void key(int keyCode, char charCode);
+
+        /**
+         * Called for each mouse report.
+         *
+         * @param button  {@code 0} left, {@code 1} middle, {@code 2} right,
+         *                {@code -1} for motion without a button change
+         * @param pressed whether the button went down
+         * @param x       zero based column
+         * @param y       zero based row
+         */
+        void mouse(int button, boolean pressed, int x, int y);
+    }
+
+    private static final byte ESC = 0x1B;
+    private static final int MAX_SEQUENCE = 64;
+
+    private final Sink sink;
+    private byte[] pending = new byte[MAX_SEQUENCE];
+    private int pendingLength = 0;
+
+    public AnsiInputDecoder(Sink sink) {
+        this.sink = sink;
+    }
+
+    /**
+     * Decodes {@code length} bytes of terminal input.
+     */
+    public void feed(byte[] data, int offset, int length) {
+        if (pendingLength + length > pending.length) {
+            byte[] grown = new byte[Math.max(pending.length * 2, pendingLength + length)];
+            System.arraycopy(pending, 0, grown, 0, pendingLength);
+            pending = grown;
+        }
+        System.arraycopy(data, offset, pending, pendingLength, length);
+        pendingLength += length;
+
+        int pos = 0;
+        while (pos < pendingLength) {
+            int consumed = decode(pos);
+            if (consumed == 0) {
+                break;
+            }
+            pos += consumed;
+        }
+        if (pendingLength - pos > MAX_SEQUENCE) {
+            // garbage that never completes; drop it rather than grow forever
+            pos = pendingLength;
+        }
+        System.arraycopy(pending, pos, pending, 0, pendingLength - pos);
+        pendingLength -= pos;
+    }
+
+    /**
+     * Reports whether an incomplete escape sequence is waiting for more input.
+     */
+    public boolean hasPendingEscape() {
+        return pendingLength > 0 && pending[0] == ESC;
+    }
+
+    /**
+     * Treats a pending {@code ESC} as the Escape key and decodes what follows
+     * it as ordinary input.
+     */
+    public void flushEscape() {
+        if (!hasPendingEscape()) {
+            return;
+        }
+        sink.key(KeyCode.KB_ESC, (char) ESC);
+        byte[] rest = new byte[pendingLength - 1];
+        System.arraycopy(pending, 1, rest, 0, rest.length);
+        pendingLength = 0;
+        feed(rest, 0, rest.length);
+    }
+
+    /** Decodes one item at {@code pos}; returns the bytes consumed or 0 if incomplete. */
+    private int decode(int pos) {
+        int b = pending[pos] & 0xFF;
+        if (b == ESC) {
+            return decodeEscape(pos);
+        }
+        if (b >= 0x80) {
+            return decodeUtf8(pos, 0);
+        }
+        emitChar(b, 0);
+        return 1;
+    }
+
+    private int decodeEscape(int pos) {
+        if (pos + 1 >= pendingLength) {
+            return 0;
+        }
+        int next = pending[pos + 1] & 0xFF;
+        if (next == '[') {
+            return decodeCsi(pos);
+        }
+        if (next == 'O') {
+            if (pos + 2 >= pendingLength) {
+                return 0;
+            }
+            int code = finalKey(pending[pos + 2] & 0xFF);
+            if (code != 0) {
+                sink.key(code, (char) 0);
+            }
+            return 3;
+        }
+        if (next == ESC) {
+            sink.key(KeyCode.KB_ESC, (char) ESC);
+            return 1;
+        }
+        if (next >= 0x80) {
+            int consumed = decodeUtf8(pos + 1, KeyCodeMapper.ALT);
+            return consumed == 0 ? 0 : consumed + 1;
+        }
+        emitChar(next, KeyCodeMapper.ALT);
+        return 2;
+    }
+
+    private int decodeCsi(int pos) {
+        int end = pos + 2;
+        while (end < pendingLength) {
+            int c = pending[end] & 0xFF;
+            if (c >= 0x40 && c <= 0x7E) {
+                break;
+            }
+            end++;
+        }
+        if (end >= pendingLength) {
+            return 0;
+        }
+        int finalByte = pending[end] & 0xFF;
+        boolean sgrMouse = pending[pos + 2] == '<';
+        int[] params = parseParams(sgrMouse ? pos + 3 : pos + 2, end);
+        int consumed = end - pos + 1;
+
+        if (sgrMouse) {
+            if ((finalByte == 'M' || finalByte == 'm') && params.length >= 3) {
+                decodeMouse(params[0], params[1] - 1, params[2] - 1, finalByte == 'M');
+            }
+            return consumed;
+        }
+
+        int modifiers = params.length >= 2 ? modifierFlags(params[1]) : 0;
+        int code;
+        if (finalByte == '~') {
+            code = params.length >= 1 ? tildeKey(params[0]) : 0;
+        } else if (finalByte == 'Z') {
+            code = KeyCode.KB_SHIFT_TAB;
+        } else {
+            code = finalKey(finalByte);
+        }
+        if (code != 0) {
+            sink.key(code | modifiers, (char) 0);
+        }
+        return consumed;
+    }
+
+    private void decodeMouse(int flags, int x, int y, boolean press) {
+        if ((flags & 64) != 0) {
+            // wheel reports have no matching release
+            return;
+        }
+        if ((flags & 32) != 0) {
+            sink.mouse(-1, false, x, y);
+            return;
+        }
+        int button = flags & 0x03;
+        if (button == 3) {
+            // legacy release without button information
+            sink.mouse(-1, false, x, y);
+            return;
+        }
+        sink.mouse(button, press, x, y);
+    }
+
+    private int[] parseParams(int from, int to) {
+        int count = from < to ? 1 : 0;
+        for (int i = from; i < to; i++) {
+            if (pending[i] == ';') {
+                count++;
+            }
+        }
+        int[] params = new int[count];
+        int index = 0;
+        for (int i = from; i < to; i++) {
+            int c = pending[i];
+            if (c == ';') {
+                index++;
+            } else if (c >= '0' && c <= '9') {
+                params[index] = params[index] * 10 + (c - '0');
+            }
+        }
+        return params;
+    }
+
+    private static int modifierFlags(int param) {
+        int bits = Math.max(0, param - 1);
+        return KeyCodeMapper.applyModifiers(0, (bits & 1) != 0, (bits & 4) != 0, (bits & 2) != 0);
+    }
+
+    private static int finalKey(int c) {
+        return switch (c) {
+            case 'A' -> KeyCode.KB_UP;
+            case 'B' -> KeyCode.KB_DOWN;
+            case 'C' -> KeyCode.KB_RIGHT;
+            case 'D' -> KeyCode.KB_LEFT;
+            case 'H' -> KeyCode.KB_HOME;
+            case 'F' -> KeyCode.KB_END;
+            case 'P' -> KeyCode.KB_F1;
+            case 'Q' -> KeyCode.KB_F2;
+            case 'R' -> KeyCode.KB_F3;
+            case 'S' -> KeyCode.KB_F4;
+            default -> 0;
+        };
+    }
+
+    private static int tildeKey(int n) {
+        return switch (n) {
+            case 1, 7 -> KeyCode.KB_HOME;
+            case 2 -> KeyCode.KB_INS;
+            case 3 -> KeyCode.KB_DEL;
+            case 4, 8 -> KeyCode.KB_END;
+            case 5 -> KeyCode.KB_PAGE_UP;
+            case 6 -> KeyCode.KB_PAGE_DOWN;
+            case 11 -> KeyCode.KB_F1;
+            case 12 -> KeyCode.KB_F2;
+            case 13 -> KeyCode.KB_F3;
+            case 14 -> KeyCode.KB_F4;
+            case 15 -> KeyCode.KB_F5;
+            case 17 -> KeyCode.KB_F6;
+            case 18 -> KeyCode.KB_F7;
+            case 19 -> KeyCode.KB_F8;
+            case 20 -> KeyCode.KB_F9;
+            case 21 -> KeyCode.KB_F10;
+            case 23 -> KeyCode.KB_F11;
+            case 24 -> KeyCode.KB_F12;
+            default -> 0;
+        };
+    }
+
+    private int decodeUtf8(int pos, int modifiers) {
+        int lead = pending[pos] & 0xFF;
+        int length = lead >= 0xF0 ? 4 : lead >= 0xE0 ? 3 : lead >= 0xC0 ? 2 : 1;
+        if (pos + length > pendingLength) {
+            return 0;
+        }
+        String decoded = new String(pending, pos, length, StandardCharsets.UTF_8);
+        char ch = Cp437.fromUnicode(decoded.charAt(0));
+        if (ch != 0) {
+            sink.key(modifiers, ch);
+        }
+        return length;
+    }
+
+    /** Emits a single byte key; {@code modifiers} carries ALT for ESC-prefixed keys. */
+    private void emitChar(int b, int modifiers) {
+        switch (b) {
+            case 0x0D, 0x0A -> sink.key(KeyCode.KB_ENTER | modifiers, (char) 0x0D);
+            case 0x09 -> sink.key(KeyCode.KB_TAB | modifiers, (char) 0x09);
+            case 0x7F, 0x08 -> sink.key(KeyCode.KB_BACK | modifiers, (char) 0x08);
+            default -> {
+                if (b >= 0x01 && b <= 0x1A) {
+                    sink.key(KeyCodeMapper.CTRL | modifiers | ('A' + b - 1), (char) 0);
+                } else if (b >= 'a' && b <= 'z') {
+                    int code = modifiers | Character.toUpperCase(b);
+                    sink.key(code, modifiers == 0 ? (char) b : 0);
+                } else if (b >= 'A' && b <= 'Z') {
+                    int code = modifiers != 0 ? modifiers | b : KeyCodeMapper.SHIFT | b;
+                    sink.key(code, modifiers == 0 ? (char) b : 0);
+                } else if ((b >= '0' && b <= '9') || b == ' ' || b == '-' || b == '=') {
+                    sink.key(modifiers | b, modifiers == 0 ? (char) b : 0);
+                } else if (b >= 0x20 && modifiers == 0) {
+                    // punctuation shares codes with cursor keys; only the character is meaningful
+                    sink.key(KeyCode.KB_NO_KEY, (char) b);
+                }
+            }
+        }
+    }
+}
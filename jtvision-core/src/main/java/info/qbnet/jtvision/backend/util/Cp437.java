@@ -0,0 +1,93 @@
+package info.qbnet.jtvision.backend.util;
+
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Mapping between the code page 437 characters stored in screen cells and
+ * Unicode, for backends that talk to UTF-8 terminals.
+ *
+ * <p>The control range {@code 0x01-0x1F} and {@code 0x7F} map to the glyphs
+ * the DOS text mode showed for them rather than to control characters, so
+ * they can be written to a terminal safely. Cell value {@code 0} maps to a
+ * space.</p>
+ */
+public final class Cp437 {
+
+    private static final char[] LOW = {
+            ' ', '☺', '☻', '♥', '♦', '♣', '♠', '•',
+            '◘', '○', '◙', '♂', '♀', '♪', '♫', '☼',
+            '►', '◄', '↕', '‼', '¶', '§', '▬', '↨',
+            '↑', '↓', '→', '←', '∟', '↔', '▲', '▼'
+    };
+
+    private static final String HIGH =
+            "ÇüéâäàåçêëèïîìÄÅÉæÆôöòûùÿÖÜ¢£¥₧ƒ"
+            + "áíóúñÑªº¿⌐¬½¼¡«»░▒▓│┤╡╢╖╕╣║╗╝╜╛┐"
+            + "└┴┬├─┼╞╟╚╔╩╦╠═╬╧╨╤╥╙╘╒╓╫╪┘┌█▄▌▐▀"
+            + "αßΓπΣσµτΦΘΩδ∞φε∩≡±≥≤⌠⌡÷≈°∙·√ⁿ²■ ";
+
+    private static final char[] UNICODE = new char[256];
+    private static final byte[][] UTF8 = new byte[256][];
+    private static final Map<Character, Character> REVERSE = new HashMap<>();
+
+    static {
+        for (int i = 0; i < 256; i++) {
+            char c;
+            if (i < 0x20) {
+                c = LOW[i];
+            } else if (i == 0x7F) {
+                c = '⌂';
+            } else if (i < 0x80) {
+                c = (char) i;
+            } else {
+                c = HIGH.charAt(i - 0x80);
+            }
+            UNICODE[i] = c;
+            UTF8[i] = String.valueOf(c).getBytes(StandardCharsets.UTF_8);
+            if (i >= 0x80) {
+                REVERSE.put(c, (char) i);
+            }
+        }
+    }
+
+    private Cp437() {
+    }
+
+    /**
+     * Returns the Unicode character shown for a code page 437 value.
+     *
+     * @param code value in the range {@code 0-255}
+     * @return Unicode character
+     */
+    public static char toUnicode(int code) {
+        return UNICODE[code & 0xFF];
+    }
+
+    /**
+     * Returns the UTF-8 encoding of a code page 437 value. The returned array
+     * is shared and must not be modified.
+     *
+     * @param code value in the range {@code 0-255}
+     * @return UTF-8 bytes of the character
+     */
+    public static byte[] utf8(int code) {
+        return UTF8[code & 0xFF];
+    }
+
+    /**
+     * Converts a character typed on a Unicode terminal into the code page 437
+     * value the views expect. ASCII passes through unchanged.
+     *
+     * @param ch typed character
+     * @return code page 437 character, or {@code 0} if it has no equivalent
+     */
+    public static char fromUnicode(char ch) {
+        if (ch < 0x80) {
+            return ch;
+        }
+        Character mapped = REVERSE.get(ch);
+        return mapped != null ? mapped : 0;
+    }
+}
@@ -0,0 +1,48 @@
+package info.qbnet.jtvision.backend.util;
+
+/**
+ * Lightweight wake-up latch shared between a backend's input thread and the
+ * application thread.
+ *
+ * <p>Producers call {@link #signal()} whenever new input is queued or the mouse
+ * state changes; the event loop parks in {@link #await(long)} until such a
+ * signal arrives or the timeout elapses. A signal raised while nobody waits is
+ * remembered so the next {@code await} returns immediately.</p>
+ */
+public final class InputSignal {
+
+    private boolean signalled = false;
+
+    /**
+     * Marks input as available and wakes a waiting thread.
+     */
+    public synchronized void signal() {
+        signalled = true;
+        notifyAll();
+    }
+
+    /**
+     * Waits until {@link #signal()} is called or {@code timeoutMillis} elapses.
+     * The pending signal is consumed on return.
+     *
+     * @param timeoutMillis maximum time to wait; values {@code <= 0} do not block
+     * @return {@code true} if a signal was received, {@code false} on timeout
+     */
+    public synchronized boolean await(long timeoutMillis) {
+        if (!signalled && timeoutMillis > 0) {
+            long deadline = System.currentTimeMillis() + timeoutMillis;
+            long remaining = timeoutMillis;
+            try {
+                while (!signalled && remaining > 0) {
+                    wait(remaining);
+                    remaining = deadline - System.currentTimeMillis();
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        boolean result = signalled;
+        signalled = false;
+        return result;
+    }
+}
@@ -2,20 +2,32 @@ package info.qbnet.jtvision.util;
 
 import java.awt.Color;
 import java.util.Arrays;
-import java.util.ArrayList;
-import java.util.List;
 
 /**
  * Array-based implementation of {@link IBuffer} using a flat array of packed
  * {@code short} values in row-major order. Each cell stores the character in the
  * low byte and the colour attribute in the high byte.
+ *
+ * <p>Damage is tracked per row as a single {@code [from, to)} column range,
+ * so bookkeeping for a full redraw is proportional to the number of rows
+ * rather than the number of cells.</p>
+ *
+ * <p>A buffer is not thread-safe: it is written and its damage consumed by
+ * one thread. {@link Screen} hands frames to renderers on other threads.</p>
  */
 public class Buffer implements IBuffer {
 
     private final int width;
     private final int height;
     private final short[] buffer;
-    private final boolean[] dirty;
+    /** Per-row first dirty column; {@code width} when the row is clean. */
+    private final int[] dirtyFrom;
+    /** Per-row end of the dirty range (exclusive); {@code 0} when clean. */
+    private final int[] dirtyTo;
+    /** Copy handed to span consumers so that they may write to the buffer. */
+    private final int[] spanFrom;
+    private final int[] spanTo;
+    private boolean anyDirty;
     private final Color defaultForeground;
     private final Color defaultBackground;
     private final short emptyCell;
@@ -45,7 +57,11 @@ public class Buffer implements IBuffer {
         int attr = DosPalette.toAttribute(defaultForeground, defaultBackground);
         this.emptyCell = (short) ((attr << 8) | ' ');
         this.buffer = new short[width * height];
-        this.dirty = new boolean[width * height];
+        this.dirtyFrom = new int[height];
+        this.dirtyTo = new int[height];
+        this.spanFrom = new int[height];
+        this.spanTo = new int[height];
+        Arrays.fill(dirtyFrom, width);
         clear();
     }
 
@@ -69,10 +85,106 @@ public class Buffer implements IBuffer {
         short newVal = (short) ((attribute << 8) | (c & 0xFF));
         if (buffer[index] == newVal) return;
         buffer[index] = newVal;
-        dirty[index] = true;
+        markDirty(y, x, x + 1);
         if (dirtyListener != null) dirtyListener.run();
     }
 
+    @Override
+    public void setCells(int x, int y, short[] src, int srcPos, int length) {
+        if (y < 0 || y >= height) {
+            System.err.printf("setCells(): row out of bounds (%d). Ignored.%n", y);
+            return;
+        }
+        if (x < 0) {
+            srcPos -= x;
+            length += x;
+            x = 0;
+        }
+        length = Math.min(length, Math.min(width - x, src.length - srcPos));
+        if (length <= 0) return;
+
+        int base = y * width + x;
+        int first = Arrays.mismatch(buffer, base, base + length, src, srcPos, srcPos + length);
+        if (first < 0) return;
+        int last = length - 1;
+        while (last > first && buffer[base + last] == src[srcPos + last]) {
+            last--;
+        }
+        System.arraycopy(src, srcPos + first, buffer, base + first, last - first + 1);
+        markDirty(y, x + first, x + last + 1);
+        if (dirtyListener != null) dirtyListener.run();
+    }
+
+    @Override
+    public void scrollRect(int x, int y, int width, int height, int dy) {
+        int from = Math.max(0, x);
+        int to = Math.min(this.width, x + width);
+        int top = Math.max(0, y);
+        int bottom = Math.min(this.height, y + height);
+        if (dy == 0 || from >= to || Math.abs(dy) >= bottom - top) {
+            return;
+        }
+        int length = to - from;
+        if (dy < 0) {
+            for (int target = top; target - dy < bottom; target++) {
+                System.arraycopy(buffer, (target - dy) * this.width + from, buffer, target * this.width + from, length);
+            }
+        } else {
+            for (int target = bottom - 1; target - dy >= top; target--) {
+                System.arraycopy(buffer, (target - dy) * this.width + from, buffer, target * this.width + from, length);
+            }
+        }
+        markScrolled(from, top, length, bottom - top, dy);
+        if (dirtyListener != null) dirtyListener.run();
+    }
+
+    /**
+     * Records the damage of a {@link #scrollRect} call, with the rectangle
+     * already clipped to the buffer. The default marks the whole rectangle
+     * dirty.
+     */
+    protected void markScrolled(int x, int y, int width, int height, int dy) {
+        for (int row = y; row < y + height; row++) {
+            markDirty(row, x, x + width);
+        }
+    }
+
+    /**
+     * Moves the pending damage inside a scrolled rectangle along with its
+     * cells and marks the rows the move uncovered dirty, so that the damage
+     * still covers every cell that differs from the moved contents.
+     * Damage that reaches past the rectangle's columns also stays where it
+     * was.
+     */
+    protected void moveDamage(int x, int y, int width, int height, int dy) {
+        int end = x + width;
+        int bottom = y + height;
+        int[] movedFrom = Arrays.copyOfRange(dirtyFrom, y, bottom);
+        int[] movedTo = Arrays.copyOfRange(dirtyTo, y, bottom);
+        for (int row = y; row < bottom; row++) {
+            // a span reaching past the rect cannot be split and stays
+            if (dirtyFrom[row] >= x && dirtyTo[row] <= end) {
+                dirtyFrom[row] = this.width;
+                dirtyTo[row] = 0;
+            }
+        }
+        for (int source = y; source < bottom; source++) {
+            int target = source + dy;
+            if (target < y || target >= bottom) {
+                continue;
+            }
+            int from = Math.max(x, movedFrom[source - y]);
+            int to = Math.min(end, movedTo[source - y]);
+            if (from < to) {
+                markDirty(target, from, to);
+            }
+        }
+        int uncovered = dy > 0 ? y : bottom + dy;
+        for (int row = uncovered; row < uncovered + Math.abs(dy); row++) {
+            markDirty(row, x, end);
+        }
+    }
+
     /**
      * Writes a character using the buffer's default colours.
      */
@@ -92,7 +204,9 @@ public class Buffer implements IBuffer {
     @Override
     public void clear() {
         Arrays.fill(buffer, emptyCell);
-        Arrays.fill(dirty, true);
+        Arrays.fill(dirtyFrom, 0);
+        Arrays.fill(dirtyTo, width);
+        anyDirty = true;
         if (dirtyListener != null) dirtyListener.run();
     }
 
@@ -130,18 +244,34 @@ public class Buffer implements IBuffer {
         this.dirtyListener = listener;
     }
 
+    /**
+     * Extends the dirty range of row {@code y} to cover {@code [from, to)}.
+     */
+    protected void markDirty(int y, int from, int to) {
+        if (from < dirtyFrom[y]) dirtyFrom[y] = from;
+        if (to > dirtyTo[y]) dirtyTo[y] = to;
+        anyDirty = true;
+    }
+
+    @Override
+    public boolean hasDirtyCells() {
+        return anyDirty;
+    }
+
     @Override
-    public List<TPoint> consumeDirtyCells() {
-        List<TPoint> dirtyCells = new ArrayList<>();
-        for (int i = 0; i < dirty.length; i++) {
-            if (dirty[i]) {
-                dirty[i] = false;
-                int x = i % width;
-                int y = i / width;
-                dirtyCells.add(new TPoint(x, y));
+    public boolean consumeDirtySpans(DirtySpanConsumer consumer) {
+        if (!anyDirty) return false;
+        System.arraycopy(dirtyFrom, 0, spanFrom, 0, height);
+        System.arraycopy(dirtyTo, 0, spanTo, 0, height);
+        Arrays.fill(dirtyFrom, width);
+        Arrays.fill(dirtyTo, 0);
+        anyDirty = false;
+        for (int y = 0; y < height; y++) {
+            if (spanFrom[y] < spanTo[y]) {
+                consumer.accept(y, spanFrom[y], spanTo[y]);
             }
         }
-        return dirtyCells;
+        return true;
     }
 
     @Override
@@ -3,20 +3,16 @@ package info.qbnet.jtvision.util;
 import info.qbnet.jtvision.backend.Backend;
 
 import java.awt.*;
-import java.util.concurrent.Executors;
-import java.util.concurrent.ScheduledExecutorService;
-import java.util.concurrent.TimeUnit;
 
 /**
  * Console class provides a text-mode interface for writing to a screen buffer.
+ * Output becomes visible when {@link #flush()} commits it as a frame.
  */
 
 public class Console {
 
     private final Screen screen;
-    private final Backend backend;
-    private final ScheduledExecutorService scheduler;
-    private volatile boolean isScreenDirty = false;
+    private final RenderScheduler scheduler;
 
     /**
      * Constructs a Console with the given screen buffer and rendering backend.
@@ -27,12 +23,24 @@ public class Console {
         this(screen, backend, 33);
     }
 
+    /**
+     * Constructs a Console with its own render scheduler.
+     * @param screen the screen buffer
+     * @param backend the rendering backend
+     * @param refreshIntervalMs minimum time between two frames
+     */
     public Console(Screen screen, Backend backend, long refreshIntervalMs) {
+        this(screen, new RenderScheduler(screen, backend, refreshIntervalMs));
+    }
+
+    /**
+     * Constructs a Console that renders through an existing scheduler.
+     * @param screen the screen buffer
+     * @param scheduler scheduler already attached to {@code screen}
+     */
+    public Console(Screen screen, RenderScheduler scheduler) {
         this.screen = screen;
-        this.backend = backend;
-        this.screen.setDirtyListener(() -> isScreenDirty = true);
-        this.scheduler = Executors.newSingleThreadScheduledExecutor();
-        this.scheduler.scheduleAtFixedRate(this::flush, refreshIntervalMs, refreshIntervalMs, TimeUnit.MILLISECONDS);
+        this.scheduler = scheduler;
     }
 
     /**
@@ -77,24 +85,22 @@ public class Console {
     }
 
     /**
-     * Clears the screen buffer and renders the empty screen.
+     * Clears the screen buffer. The empty screen is shown by the next
+     * {@link #flush()}.
      */
     public void clearScreen() {
         screen.clear();
     }
 
     /**
-     * Renders pending changes if the screen buffer is marked dirty.
+     * Commits the changes written so far and renders them.
      */
     public void flush() {
-        if (isScreenDirty) {
-            backend.renderScreen();
-            isScreenDirty = false;
-        }
+        scheduler.flush();
     }
 
     /**
-     * Stops the internal flush scheduler.
+     * Stops the render scheduler.
      */
     public void shutdown() {
         scheduler.shutdown();
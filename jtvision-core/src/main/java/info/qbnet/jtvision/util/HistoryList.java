@@ -1,10 +1,13 @@
 package info.qbnet.jtvision.util;
 
+import info.qbnet.jtvision.views.TSession;
+
 import java.util.ArrayDeque;
 import java.util.Deque;
 import java.util.HashMap;
 import java.util.Iterator;
 import java.util.Map;
+import java.util.WeakHashMap;
 
 /**
  * Simple in-memory replacement for Turbo Vision's history buffer.
@@ -13,12 +16,14 @@ import java.util.Map;
  * memory block manipulated through assembler routines. For the Java port we
  * model each history list as a deque keyed by its identifier. The behaviour is
  * intentionally conservative: duplicates are removed before the new value is
- * pushed to the front and empty strings are ignored.
+ * pushed to the front and empty strings are ignored. Every {@link TSession}
+ * has histories of its own.
  * </p>
  */
 public final class HistoryList {
 
-    private static final Map<Integer, Deque<String>> ENTRIES = new HashMap<>();
+    /** Histories of each session; those of ended sessions are dropped with them. */
+    private static final Map<TSession, Map<Integer, Deque<String>>> SESSIONS = new WeakHashMap<>();
 
     private HistoryList() {
         // utility class
@@ -33,7 +38,7 @@ public final class HistoryList {
             return;
         }
 
-        Deque<String> history = ENTRIES.computeIfAbsent(id, k -> new ArrayDeque<>());
+        Deque<String> history = entries().computeIfAbsent(id, k -> new ArrayDeque<>());
 
         for (Iterator<String> it = history.iterator(); it.hasNext(); ) {
             if (value.equals(it.next())) {
@@ -45,7 +50,7 @@ public final class HistoryList {
 
     /** Returns the number of entries stored for {@code id}. */
     public static synchronized int count(int id) {
-        Deque<String> history = ENTRIES.get(id);
+        Deque<String> history = entries().get(id);
         return history != null ? history.size() : 0;
     }
 
@@ -54,7 +59,7 @@ public final class HistoryList {
      * Returns {@code null} if the history is shorter than {@code index + 1}.
      */
     public static synchronized String get(int id, int index) {
-        Deque<String> history = ENTRIES.get(id);
+        Deque<String> history = entries().get(id);
         if (history == null || index < 0 || index >= history.size()) {
             return null;
         }
@@ -68,8 +73,12 @@ public final class HistoryList {
         return null;
     }
 
-    /** Clears all stored history data. */
+    private static Map<Integer, Deque<String>> entries() {
+        return SESSIONS.computeIfAbsent(TSession.current(), session -> new HashMap<>());
+    }
+
+    /** Clears all history data of the current session. */
     public static synchronized void clear() {
-        ENTRIES.clear();
+        entries().clear();
     }
 }
\ No newline at end of file
@@ -48,6 +48,78 @@ public interface IBuffer {
      */
     void setChar(int x, int y, char c, int attribute);
 
+    /**
+     * Copies a run of packed cells into row {@code y} starting at column
+     * {@code x}. Cells falling outside the buffer are skipped.
+     *
+     * <p>Implementations should treat the run as a single modification: the
+     * changed range is marked dirty once and the dirty listener is notified at
+     * most once. The default implementation falls back to {@link #setChar}.</p>
+     *
+     * @param x      zero-based column of the first destination cell
+     * @param y      zero-based row index
+     * @param src    packed source cells
+     * @param srcPos index of the first cell in {@code src}
+     * @param length number of cells to copy
+     */
+    default void setCells(int x, int y, short[] src, int srcPos, int length) {
+        for (int i = 0; i < length; i++) {
+            short cell = src[srcPos + i];
+            setChar(x + i, y, (char) (cell & 0xFF), (cell >>> 8) & 0xFF);
+        }
+    }
+
+    /**
+     * Moves the cells of a rectangle by {@code dy} rows, down for positive
+     * values. Cells moved past the rectangle's edge are dropped; the
+     * {@code |dy|} rows uncovered at the opposite edge keep their old cells
+     * until the caller draws them. The rectangle is clipped to the buffer.
+     *
+     * <p>Implementations that pass their contents on may forward the move
+     * instead of the moved cells, so that a renderer can shift its own copy
+     * and only paint the uncovered rows. The default implementation copies
+     * the cells through {@link #setCells}.</p>
+     *
+     * @param x      zero-based column of the rectangle
+     * @param y      zero-based row of the rectangle
+     * @param width  width of the rectangle in columns
+     * @param height height of the rectangle in rows
+     * @param dy     rows to move by; negative values move up
+     */
+    default void scrollRect(int x, int y, int width, int height, int dy) {
+        int from = Math.max(0, x);
+        int to = Math.min(getWidth(), x + width);
+        int top = Math.max(0, y);
+        int bottom = Math.min(getHeight(), y + height);
+        if (dy == 0 || from >= to || Math.abs(dy) >= bottom - top) {
+            return;
+        }
+        short[] row = new short[to - from];
+        int first = dy < 0 ? top : bottom - 1;
+        int step = dy < 0 ? 1 : -1;
+        for (int target = first; target - dy >= top && target - dy < bottom; target += step) {
+            for (int i = 0; i < row.length; i++) {
+                row[i] = getCell(from + i, target - dy);
+            }
+            setCells(from, target, row, 0, row.length);
+        }
+    }
+
+    /**
+     * Receives one rectangle moved by {@link #scrollRect}.
+     */
+    @FunctionalInterface
+    interface ScrollConsumer {
+        /**
+         * @param x      zero-based column of the rectangle
+         * @param y      zero-based row of the rectangle
+         * @param width  width of the rectangle in columns
+         * @param height height of the rectangle in rows
+         * @param dy     rows the cells moved by; negative values moved up
+         */
+        void accept(int x, int y, int width, int height, int dy);
+    }
+
     /**
      * Reads the packed character/attribute cell at given coordinates.
      *
@@ -91,17 +163,44 @@ public interface IBuffer {
     void setDirtyListener(Runnable listener);
 
     /**
-     * Retrieves all cells that have changed since the last call and resets
-     * their dirty state.
+     * Receives one horizontal run of modified cells from
+     * {@link #consumeDirtySpans(DirtySpanConsumer)}.
+     */
+    @FunctionalInterface
+    interface DirtySpanConsumer {
+        /**
+         * @param y     zero-based row index
+         * @param fromX first dirty column (inclusive)
+         * @param toX   end column (exclusive)
+         */
+        void accept(int y, int fromX, int toX);
+    }
+
+    /**
+     * Returns whether any cell changed since the last call to
+     * {@link #consumeDirtySpans(DirtySpanConsumer)}.
+     *
+     * @return {@code true} if there is pending damage
+     */
+    default boolean hasDirtyCells() {
+        return false;
+    }
+
+    /**
+     * Reports the cells changed since the last call as at most one span per
+     * row and resets the dirty state.
      *
-     * <p>The returned list contains the coordinates of cells that were
-     * modified by calls to {@link #setChar} or {@link #clear()}. It may be
-     * empty if no changes occurred.</p>
+     * <p>Each row's span covers every cell modified by {@link #setChar} or
+     * {@link #clear()} in that row; it may include unchanged cells in
+     * between. The dirty state is reset before the consumer is invoked, so
+     * writes made while it runs are reported by the next call. Only one
+     * thread should consume spans at a time.</p>
      *
-     * @return list of dirty cell coordinates
+     * @param consumer callback receiving each dirty span in row order
+     * @return {@code true} if at least one span was reported
      */
-    default java.util.List<TPoint> consumeDirtyCells() {
-        return java.util.List.of();
+    default boolean consumeDirtySpans(DirtySpanConsumer consumer) {
+        return false;
     }
 
     /**
@@ -3,6 +3,7 @@ package info.qbnet.jtvision.util;
 import info.qbnet.jtvision.views.TProgram;
 import info.qbnet.jtvision.views.TButton;
 import info.qbnet.jtvision.views.TDialog;
+import info.qbnet.jtvision.views.TGroup;
 import info.qbnet.jtvision.views.TStaticText;
 import info.qbnet.jtvision.views.TView;
 
@@ -51,14 +52,9 @@ public class MsgBox {
     public static int messageBox(String msg, int options, Object... params) {
         TRect r = new TRect(0, 0, 40, 9);
         TRect area = new TRect();
-        if ((options & MF_INSERT_IN_APP) == 0) {
-            if (TProgram.desktop != null) {
-                TProgram.desktop.getExtent(area);
-            }
-        } else {
-            if (TProgram.application != null) {
-                TProgram.application.getExtent(area);
-            }
+        TGroup owner = (options & MF_INSERT_IN_APP) == 0 ? TProgram.getDesktop() : TProgram.getApplication();
+        if (owner != null) {
+            owner.getExtent(area);
         }
         r.move((area.b.x - r.b.x) / 2, (area.b.y - r.b.y) / 2);
         return messageBoxRect(r, msg, options, params);
@@ -96,13 +92,8 @@ public class MsgBox {
             x += v.getSize().x + 2;
         }
 
-        int res;
-        if ((options & MF_INSERT_IN_APP) == 0) {
-            res = (TProgram.desktop != null) ? TProgram.desktop.execView(dialog) : Command.CM_CANCEL;
-        } else {
-            res = (TProgram.application != null) ? TProgram.application.execView(dialog) : Command.CM_CANCEL;
-        }
-        return res;
+        TGroup owner = (options & MF_INSERT_IN_APP) == 0 ? TProgram.getDesktop() : TProgram.getApplication();
+        return owner != null ? owner.execView(dialog) : Command.CM_CANCEL;
     }
 
 }
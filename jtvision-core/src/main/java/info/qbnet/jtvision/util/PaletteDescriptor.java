@@ -95,11 +95,13 @@ public final class PaletteDescriptor<R extends Enum<R> & PaletteRole> {
      */
     public void overridePalette(TPalette palette) {
         this.override = Objects.requireNonNull(palette, "palette");
+        PaletteFactory.paletteChanged();
     }
 
     /** Clears any palette override previously set via {@link #overridePalette(TPalette)}. */
     public void clearOverride() {
         this.override = null;
+        PaletteFactory.paletteChanged();
     }
 
     /** Returns {@code true} when an override palette is active. */
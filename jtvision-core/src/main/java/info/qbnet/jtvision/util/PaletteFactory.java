@@ -43,9 +43,30 @@ public final class PaletteFactory {
     private static volatile MissingEntryPolicy missingEntryPolicy =
             Boolean.getBoolean(STRICT_PROPERTY) ? MissingEntryPolicy.THROW : MissingEntryPolicy.LOG;
 
+    private static volatile int generation = 0;
+
     private PaletteFactory() {
     }
 
+    /**
+     * Returns a counter that changes whenever a registered palette or a palette
+     * override changes. Views compare it against the value their resolved color
+     * cache was built with.
+     *
+     * @return current palette generation
+     */
+    public static int generation() {
+        return generation;
+    }
+
+    /**
+     * Discards all resolved colors cached by views, for example after a view
+     * started returning a different palette from {@code getPalette()}.
+     */
+    public static synchronized void paletteChanged() {
+        generation++;
+    }
+
     /**
      * Returns the currently configured policy for handling missing palette entries.
      *
@@ -80,6 +101,7 @@ public final class PaletteFactory {
         PaletteDefinition<R> definition = new PaletteDefinition<>(roleEnum, entries);
         DEFAULTS.put(name, definition);
         CACHE.remove(name);
+        paletteChanged();
     }
 
     /**
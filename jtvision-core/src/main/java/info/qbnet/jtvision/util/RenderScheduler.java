@@ -0,0 +1,268 @@
+package info.qbnet.jtvision.util;
+
+import info.qbnet.jtvision.backend.Backend;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Single source of frames for one screen and backend.
+ *
+ * <p>The event loop calls {@link #frameNow()} once it has handled an event.
+ * That commits the screen's changes as a frame (see
+ * {@link Screen#commitFrame()}) and presents it right away, so the result of
+ * user input is shown without waiting for a timer. The frame rate is capped
+ * by a minimum interval between frames. Frames are skipped while
+ * {@link Backend#isFramePending()} reports that the previous one is still
+ * being presented. A background thread presents committed frames the event
+ * loop could not present within one interval and drives the cursor blink, so
+ * backends no longer need timers of their own. Only the writing thread
+ * commits, so the background thread never sees a frame in progress.</p>
+ */
+public class RenderScheduler {
+
+    private static final Logger log = LoggerFactory.getLogger(RenderScheduler.class);
+
+    /** Half period of the text cursor blink. */
+    public static final long BLINK_MS = 530;
+
+    private final Screen screen;
+    private final Backend backend;
+    private final long frameIntervalNanos;
+    private final long blinkNanos = BLINK_MS * 1_000_000L;
+    private final Object lock = new Object();
+    private final Thread thread;
+
+    // guarded by lock
+    private boolean running = true;
+    private boolean framePending = false;
+    private long pendingSince;
+    private long lastFrame;
+    private long nextBlink;
+    private boolean cursorOn = true;
+    private int cursorX = -1;
+    private int cursorY = -1;
+    private boolean cursorInsert;
+    private boolean cursorVisible;
+    private boolean rendering = false;
+    private long frameCount = 0;
+    private long skippedCount = 0;
+
+    /**
+     * Creates a scheduler and starts its background thread.
+     *
+     * @param screen             screen whose committed frames are presented
+     * @param backend            backend that presents the frames
+     * @param frameIntervalMillis minimum time between two frames, must be positive
+     */
+    public RenderScheduler(Screen screen, Backend backend, long frameIntervalMillis) {
+        if (frameIntervalMillis <= 0) {
+            throw new IllegalArgumentException("Frame interval must be positive: " + frameIntervalMillis);
+        }
+        this.screen = screen;
+        this.backend = backend;
+        this.frameIntervalNanos = frameIntervalMillis * 1_000_000L;
+        long now = System.nanoTime();
+        this.lastFrame = now - frameIntervalNanos;
+        this.nextBlink = now + blinkNanos;
+        this.thread = new Thread(this::renderLoop, "render");
+        this.thread.setDaemon(true);
+        this.thread.start();
+        log.debug("Render scheduler started, frame interval {} ms", frameIntervalMillis);
+    }
+
+    /**
+     * Marks a frame as pending. The frame itself is rendered later by
+     * {@link #frameNow()} or by the background thread.
+     */
+    public void requestFrame() {
+        synchronized (lock) {
+            if (!framePending) {
+                framePending = true;
+                pendingSince = System.nanoTime();
+                lock.notifyAll();
+            }
+        }
+    }
+
+    /**
+     * Passes the cursor state to the backend. When it differs from the last
+     * one, the blink restarts in its visible phase and a frame is requested.
+     *
+     * @param x          horizontal cursor location in screen cells
+     * @param y          vertical cursor location in screen cells
+     * @param insertMode {@code true} for a block cursor
+     * @param visible    whether the cursor is shown
+     */
+    public void updateCursor(int x, int y, boolean insertMode, boolean visible) {
+        synchronized (lock) {
+            if (x == cursorX && y == cursorY && insertMode == cursorInsert && visible == cursorVisible) {
+                return;
+            }
+            cursorX = x;
+            cursorY = y;
+            cursorInsert = insertMode;
+            cursorVisible = visible;
+            cursorOn = true;
+            nextBlink = System.nanoTime() + blinkNanos;
+        }
+        backend.updateCursor(x, y, insertMode, visible);
+        backend.setCursorBlink(true);
+        requestFrame();
+    }
+
+    /**
+     * Commits the screen's changes and renders the pending frame right away
+     * unless the frame cap has not elapsed yet, in which case the background
+     * thread renders it at the next allowed moment. Intended to be called by
+     * the event loop after each handled event; must be called by the thread
+     * that writes the screen.
+     */
+    public void frameNow() {
+        commit();
+        synchronized (lock) {
+            if (!framePending || System.nanoTime() - lastFrame < frameIntervalNanos) {
+                return;
+            }
+        }
+        renderFrame();
+    }
+
+    /**
+     * Commits the screen's changes and renders the pending frame regardless
+     * of the frame cap. Must be called by the thread that writes the screen.
+     */
+    public void flush() {
+        commit();
+        synchronized (lock) {
+            if (!framePending) {
+                return;
+            }
+        }
+        renderFrame();
+    }
+
+    private void commit() {
+        if (screen.commitFrame()) {
+            requestFrame();
+        }
+    }
+
+    /**
+     * @return number of frames handed to the backend so far
+     */
+    public long getFrameCount() {
+        synchronized (lock) {
+            return frameCount;
+        }
+    }
+
+    /**
+     * @return number of frames dropped because the backend was still busy
+     */
+    public long getSkippedCount() {
+        synchronized (lock) {
+            return skippedCount;
+        }
+    }
+
+    /**
+     * Stops the background thread. Pending damage is not rendered.
+     */
+    public void shutdown() {
+        synchronized (lock) {
+            running = false;
+            lock.notifyAll();
+        }
+    }
+
+    /**
+     * Hands one frame to the backend. Renders never overlap: if another
+     * thread is already rendering, that frame picks up the damage instead.
+     */
+    private void renderFrame() {
+        synchronized (lock) {
+            if (rendering) {
+                return;
+            }
+            long now = System.nanoTime();
+            lastFrame = now;
+            if (backend.isFramePending()) {
+                skippedCount++;
+                // keep the frame pending; it is retried in the next slot
+                pendingSince = now;
+                lock.notifyAll();
+                return;
+            }
+            rendering = true;
+            framePending = false;
+            frameCount++;
+        }
+        try {
+            backend.renderScreen();
+        } finally {
+            synchronized (lock) {
+                rendering = false;
+                lock.notifyAll();
+            }
+        }
+    }
+
+    private void renderLoop() {
+        while (true) {
+            boolean render = false;
+            boolean blink = false;
+            boolean blinkOn = false;
+            synchronized (lock) {
+                if (!running) {
+                    return;
+                }
+                long now = System.nanoTime();
+                if (now - nextBlink >= 0) {
+                    nextBlink = now + blinkNanos;
+                    // a hidden cursor needs no blink frames
+                    blink = cursorVisible;
+                }
+                if (blink) {
+                    cursorOn = !cursorOn;
+                    blinkOn = cursorOn;
+                    if (!framePending) {
+                        framePending = true;
+                        // blink frames are not damage the event loop will flush
+                        pendingSince = now - frameIntervalNanos;
+                    }
+                }
+                long wakeAt = nextBlink;
+                if (framePending && !rendering) {
+                    long due = Math.max(lastFrame, pendingSince) + frameIntervalNanos;
+                    if (due - now <= 0) {
+                        render = true;
+                    } else if (due - wakeAt < 0) {
+                        wakeAt = due;
+                    }
+                }
+                if (!render && !blink) {
+                    waitNanos(wakeAt - now);
+                    continue;
+                }
+            }
+            if (blink) {
+                backend.setCursorBlink(blinkOn);
+            }
+            if (render) {
+                renderFrame();
+            }
+        }
+    }
+
+    private void waitNanos(long nanos) {
+        if (nanos <= 0) {
+            return;
+        }
+        try {
+            lock.wait(nanos / 1_000_000L, (int) (nanos % 1_000_000L));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            running = false;
+        }
+    }
+}
@@ -1,18 +1,316 @@
 package info.qbnet.jtvision.util;
 
 import java.awt.Color;
+import java.util.Arrays;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicReference;
 
 /**
- * Compatibility wrapper that extends {@link Buffer}.
+ * Screen buffer that hands finished frames to a renderer on another thread.
+ *
+ * <p>The view layer writes into the buffer as before, from one thread. When
+ * a frame is complete it calls {@link #commitFrame()}, which copies the
+ * changed rows into a {@link Frame} and publishes it. The renderer calls
+ * {@link #takeFrame()} to get the newest published frame together with the
+ * damage since the frame it took before, and reads cells only from that
+ * frame. A renderer therefore never sees a half-written frame, and damage of
+ * frames it skipped is merged into the next one instead of being lost.</p>
+ *
+ * <p>Rectangles moved with {@link #scrollRect} are handed on as moves: a
+ * renderer that keeps its own copy of the screen may shift that copy with
+ * {@link Frame#forEachScroll} and then paint only
+ * {@link Frame#forEachDamagedSpanAfterScrolls}, the rows the moves uncovered
+ * and whatever else changed. Other renderers paint
+ * {@link Frame#forEachDamagedSpan}, which includes the moved cells. When a
+ * renderer skips a frame, the moves of both frames become plain damage.</p>
+ *
+ * <p>Frames cycle through three roles: the one being filled by the writer,
+ * the published one and the one the renderer holds. Handing them over takes
+ * a single atomic exchange on either side, so neither thread ever waits for
+ * the other. The methods of {@link Buffer} remain for the writing thread;
+ * renderers must use only {@link #takeFrame()}, {@link #currentFrame()} and
+ * the frames they return.</p>
  */
 public class Screen extends Buffer {
 
+    /**
+     * Immutable copy of the screen as committed by the writer, with the
+     * damage since the renderer's previous frame.
+     */
+    public static final class Frame {
+        private final int width;
+        private final int height;
+        private final short[] cells;
+        private final int[] damageFrom;
+        private final int[] damageTo;
+        private boolean damaged;
+        /** Moves since the previous frame, five values each: x, y, width, height, dy. */
+        private int[] scrolls = new int[0];
+        private int scrollCount = 0;
+        /** Commit whose contents the cells hold; {@code -1} for none. */
+        private long version = -1;
+
+        private Frame(int width, int height) {
+            this.width = width;
+            this.height = height;
+            this.cells = new short[width * height];
+            this.damageFrom = new int[height];
+            this.damageTo = new int[height];
+            clearDamage();
+        }
+
+        public int getWidth() {
+            return width;
+        }
+
+        public int getHeight() {
+            return height;
+        }
+
+        /**
+         * Returns the cells in the packed row-major format of
+         * {@link Buffer#getData()}. The array must not be modified.
+         */
+        public short[] getData() {
+            return cells;
+        }
+
+        /**
+         * Returns the packed cell at {@code (x, y)} or {@code 0} if out of
+         * range.
+         */
+        public short getCell(int x, int y) {
+            return x >= 0 && x < width && y >= 0 && y < height ? cells[y * width + x] : 0;
+        }
+
+        /** Returns whether any cell differs from the previous frame. */
+        public boolean isDamaged() {
+            return damaged;
+        }
+
+        /**
+         * Reports the cells that changed since the renderer's previous frame
+         * as at most one span per row, in row order. Moved rectangles count
+         * as changed.
+         */
+        public void forEachDamagedSpan(IBuffer.DirtySpanConsumer consumer) {
+            if (!damaged) {
+                return;
+            }
+            for (int y = 0; y < height; y++) {
+                int from = damageFrom[y];
+                int to = damageTo[y];
+                for (int i = 0; i < scrollCount * 5; i += 5) {
+                    if (y >= scrolls[i + 1] && y < scrolls[i + 1] + scrolls[i + 3]) {
+                        from = Math.min(from, scrolls[i]);
+                        to = Math.max(to, scrolls[i] + scrolls[i + 2]);
+                    }
+                }
+                if (from < to) {
+                    consumer.accept(y, from, to);
+                }
+            }
+        }
+
+        /**
+         * Reports the rectangles moved since the renderer's previous frame,
+         * in the order they were moved. A renderer applying them to its copy
+         * of that frame paints {@link #forEachDamagedSpanAfterScrolls} next.
+         */
+        public void forEachScroll(IBuffer.ScrollConsumer consumer) {
+            for (int i = 0; i < scrollCount * 5; i += 5) {
+                consumer.accept(scrolls[i], scrolls[i + 1], scrolls[i + 2], scrolls[i + 3], scrolls[i + 4]);
+            }
+        }
+
+        /**
+         * Counterpart of {@link #forEachDamagedSpan} for renderers that
+         * applied {@link #forEachScroll}: reports only the cells that differ
+         * from the moved contents of the previous frame.
+         */
+        public void forEachDamagedSpanAfterScrolls(IBuffer.DirtySpanConsumer consumer) {
+            if (!damaged) {
+                return;
+            }
+            for (int y = 0; y < height; y++) {
+                if (damageFrom[y] < damageTo[y]) {
+                    consumer.accept(y, damageFrom[y], damageTo[y]);
+                }
+            }
+        }
+
+        private void clearDamage() {
+            Arrays.fill(damageFrom, width);
+            Arrays.fill(damageTo, 0);
+            damaged = false;
+            scrollCount = 0;
+        }
+
+        private void addScrolls(int[] moves, int count) {
+            if (scrolls.length < count * 5) {
+                scrolls = new int[count * 5];
+            }
+            System.arraycopy(moves, 0, scrolls, 0, count * 5);
+            scrollCount = count;
+        }
+
+        /** Turns the moves into damage of the rectangles they moved. */
+        private void flattenScrolls(Frame source) {
+            for (int i = 0; i < source.scrollCount * 5; i += 5) {
+                for (int y = source.scrolls[i + 1]; y < source.scrolls[i + 1] + source.scrolls[i + 3]; y++) {
+                    addDamage(y, source.scrolls[i], source.scrolls[i] + source.scrolls[i + 2]);
+                }
+            }
+        }
+
+        private void addDamage(int y, int from, int to) {
+            if (from < damageFrom[y]) damageFrom[y] = from;
+            if (to > damageTo[y]) damageTo[y] = to;
+            damaged = true;
+        }
+
+        private void mergeDamage(Frame other) {
+            // moves only apply to the frame right before; the renderer never saw that one
+            if (scrollCount > 0 || other.scrollCount > 0) {
+                flattenScrolls(this);
+                flattenScrolls(other);
+                scrollCount = 0;
+            }
+            for (int y = 0; y < height; y++) {
+                if (other.damageFrom[y] < other.damageTo[y]) {
+                    addDamage(y, other.damageFrom[y], other.damageTo[y]);
+                }
+            }
+        }
+    }
+
+    /** Newest committed frame the renderer has not taken yet. */
+    private final AtomicReference<Frame> published = new AtomicReference<>();
+    /** Frames neither published nor held by the renderer. */
+    private final Queue<Frame> spare = new ConcurrentLinkedQueue<>();
+    /** Frame the renderer holds; only touched by the rendering thread. */
+    private volatile Frame current;
+
+    // writer state
+    private long commits = 0;
+    /** Commit that last changed each row. */
+    private final long[] rowVersion;
+    private Frame filling;
+    /** Moves since the last commit, five values each as in {@link Frame}. */
+    private int[] pendingScrolls = new int[5 * 4];
+    private int pendingScrollCount = 0;
+    private final IBuffer.DirtySpanConsumer damageCollector = this::collectDamage;
+
     public Screen(int width, int height, Color defaultForeground, Color defaultBackground) {
         super(width, height, defaultForeground, defaultBackground);
+        this.rowVersion = new long[height];
+        this.current = new Frame(width, height);
+        System.arraycopy(getData(), 0, current.cells, 0, current.cells.length);
     }
 
     public Screen(int width, int height) {
-        super(width, height);
+        this(width, height, Color.LIGHT_GRAY, Color.BLACK);
     }
-}
 
+    /**
+     * Publishes the buffer's contents as a new frame if anything changed
+     * since the last commit. Must be called by the thread that writes the
+     * buffer.
+     *
+     * @return {@code true} if a frame was published
+     */
+    public boolean commitFrame() {
+        if (!hasDirtyCells()) {
+            return false;
+        }
+        Frame frame = spare.poll();
+        if (frame == null) {
+            frame = new Frame(getWidth(), getHeight());
+        }
+        frame.clearDamage();
+        commits++;
+        filling = frame;
+        consumeDirtySpans(damageCollector);
+        filling = null;
+        frame.addScrolls(pendingScrolls, pendingScrollCount);
+        for (int i = 0; i < pendingScrollCount * 5; i += 5) {
+            for (int y = pendingScrolls[i + 1]; y < pendingScrolls[i + 1] + pendingScrolls[i + 3]; y++) {
+                rowVersion[y] = commits;
+            }
+        }
+        pendingScrollCount = 0;
+
+        // bring the recycled frame up to date with every row changed since it was filled
+        short[] data = getData();
+        int width = getWidth();
+        for (int y = 0; y < getHeight(); y++) {
+            if (rowVersion[y] > frame.version) {
+                System.arraycopy(data, y * width, frame.cells, y * width, width);
+            }
+        }
+        frame.version = commits;
+
+        while (true) {
+            Frame previous = published.get();
+            if (previous != null) {
+                // the renderer skips the previous frame, so it needs its damage too
+                frame.mergeDamage(previous);
+            }
+            if (published.compareAndSet(previous, frame)) {
+                if (previous != null) {
+                    spare.offer(previous);
+                }
+                return true;
+            }
+            // the renderer took the previous frame meanwhile; its damage was merged in vain
+        }
+    }
+
+    @Override
+    protected void markScrolled(int x, int y, int width, int height, int dy) {
+        moveDamage(x, y, width, height, dy);
+        if (pendingScrolls.length < (pendingScrollCount + 1) * 5) {
+            pendingScrolls = Arrays.copyOf(pendingScrolls, pendingScrolls.length * 2);
+        }
+        int i = pendingScrollCount++ * 5;
+        pendingScrolls[i] = x;
+        pendingScrolls[i + 1] = y;
+        pendingScrolls[i + 2] = width;
+        pendingScrolls[i + 3] = height;
+        pendingScrolls[i + 4] = dy;
+    }
+
+    private void collectDamage(int y, int fromX, int toX) {
+        rowVersion[y] = commits;
+        filling.addDamage(y, fromX, toX);
+    }
+
+    /**
+     * Takes the newest committed frame for rendering. The frame taken before
+     * is handed back for reuse and must no longer be read. Must be called by
+     * one rendering thread at a time.
+     *
+     * @return the new frame, or {@code null} if nothing was committed since
+     *         the last call
+     */
+    public Frame takeFrame() {
+        Frame frame = published.getAndSet(null);
+        if (frame == null) {
+            return null;
+        }
+        Frame previous = current;
+        current = frame;
+        spare.offer(previous);
+        return frame;
+    }
+
+    /**
+     * Returns the frame last returned by {@link #takeFrame()}, or a blank
+     * frame before the first one. For redrawing parts of the screen that
+     * did not change, such as the cell under the cursor.
+     */
+    public Frame currentFrame() {
+        return current;
+    }
+}
@@ -2,40 +2,51 @@ package info.qbnet.jtvision.util;
 
 import java.util.Collections;
 import java.util.EnumMap;
-import java.util.HashMap;
 import java.util.LinkedHashMap;
 import java.util.Map;
 import java.util.Objects;
 
 public class TPalette {
 
+    /** Number of addressable palette indices; index {@code 0} is never defined. */
+    public static final int SIZE = 256;
+
     private final Map<PaletteRole, Byte> roleData;
-    private final Map<Integer, Byte> indexData;
+    private final byte[] table = new byte[SIZE];
+    private final boolean[] defined = new boolean[SIZE];
+    private final int length;
 
     public <R extends Enum<R> & PaletteRole> TPalette(EnumMap<R, Byte> data) {
         Objects.requireNonNull(data, "palette data");
         Map<PaletteRole, Byte> roleCopy = new LinkedHashMap<>();
-        Map<Integer, Byte> indexCopy = new HashMap<>();
-        data.forEach((role, value) -> {
+        int count = 0;
+        for (Map.Entry<R, Byte> entry : data.entrySet()) {
+            R role = entry.getKey();
+            byte value = Objects.requireNonNull(entry.getValue(), "palette value");
             roleCopy.put(role, value);
             int index = PaletteRole.hasExplicitIndex(role) ? role.index() : role.defaultIndex();
             if (index <= 0) {
                 throw new IllegalArgumentException("Palette role index must be positive: " + role);
             }
-            Byte previous = indexCopy.put(index, value);
-            if (previous != null) {
+            if (index >= SIZE) {
+                throw new IllegalArgumentException("Palette role index must be below " + SIZE + ": " + role);
+            }
+            if (defined[index]) {
                 throw new IllegalArgumentException("Duplicate palette index " + index + " for role " + role);
             }
-        });
+            defined[index] = true;
+            table[index] = value;
+            count++;
+        }
         this.roleData = Collections.unmodifiableMap(roleCopy);
-        this.indexData = Collections.unmodifiableMap(indexCopy);
+        this.length = count;
     }
 
     /**
      * Returns the number of colors in this palette.
      */
     public int length() {
-        return indexData.size();
+        return length;
     }
 
     /**
@@ -46,11 +57,10 @@ public class TPalette {
      * @throws ArrayIndexOutOfBoundsException if the index is out of range
      */
     public byte get(int index) {
-        Byte value = indexData.get(index);
-        if (value == null) {
+        if (!containsIndex(index)) {
             throw new ArrayIndexOutOfBoundsException("Palette index " + index + " out of range");
         }
-        return value;
+        return table[index];
     }
 
     /**
@@ -58,7 +68,20 @@ public class TPalette {
      * palette does not define the index.
      */
     public Byte getOrNull(int index) {
-        return indexData.get(index);
+        return containsIndex(index) ? table[index] : null;
+    }
+
+    /**
+     * Returns the unsigned palette entry at the specified index, or {@code -1}
+     * when the palette does not define the index. Unlike
+     * {@link #getOrNull(int)} this never boxes and is meant for hot paths such
+     * as color mapping.
+     *
+     * @param index index of the color to return
+     * @return unsigned color value or {@code -1}
+     */
+    public int lookup(int index) {
+        return containsIndex(index) ? table[index] & 0xFF : -1;
     }
 
     /**
@@ -76,7 +99,7 @@ public class TPalette {
      * Checks whether the palette defines a value for the requested index.
      */
     public boolean containsIndex(int index) {
-        return indexData.containsKey(index);
+        return index >= 0 && index < SIZE && defined[index];
     }
 
     /**
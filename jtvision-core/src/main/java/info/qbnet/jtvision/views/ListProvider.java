@@ -0,0 +1,64 @@
+package info.qbnet.jtvision.views;
+
+import java.util.List;
+
+/**
+ * Source of the items shown by a {@link TListViewer}.
+ *
+ * <p>The viewer asks only for the items it is about to draw, one window of
+ * consecutive indices at a time, and keeps that window until it scrolls or
+ * the provider reports a change. A provider can therefore front very large
+ * or computed collections without holding every item's text.</p>
+ *
+ * <p>A provider that cannot answer at once returns {@code null} for the
+ * missing items and reports them through {@link Listener#itemsChanged} when
+ * they arrive. Listener methods must be called on the event loop thread,
+ * for example through {@link TProgram#invokeLater(Runnable)}.</p>
+ */
+public interface ListProvider {
+
+    /** Receives changes of a provider's items. */
+    interface Listener {
+        /** The items {@code first} to {@code first + count - 1} have changed. */
+        void itemsChanged(int first, int count);
+
+        /** The number of items has changed. */
+        void sizeChanged();
+    }
+
+    /** Returns the number of items. */
+    int size();
+
+    /**
+     * Returns the text of the items {@code first} to {@code first + count - 1}.
+     * The array has {@code count} elements; an element is {@code null} if
+     * its text is not available yet.
+     */
+    String[] fetch(int first, int count);
+
+    /**
+     * Sets the listener to notify of changes, or {@code null} to stop. A
+     * provider whose items never change may ignore it.
+     */
+    default void setListener(Listener listener) {
+    }
+
+    /** Returns a provider showing the strings of {@code items}. */
+    static ListProvider of(List<String> items) {
+        return new ListProvider() {
+            @Override
+            public int size() {
+                return items.size();
+            }
+
+            @Override
+            public String[] fetch(int first, int count) {
+                String[] texts = new String[count];
+                for (int i = 0; i < count; i++) {
+                    texts[i] = items.get(first + i);
+                }
+                return texts;
+            }
+        };
+    }
+}
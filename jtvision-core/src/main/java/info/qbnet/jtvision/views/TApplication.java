@@ -1,10 +1,14 @@
 package info.qbnet.jtvision.views;
 
+import info.qbnet.jtvision.backend.Backend;
 import info.qbnet.jtvision.backend.factory.BackendType;
 import info.qbnet.jtvision.util.Command;
 import info.qbnet.jtvision.event.TEvent;
+import info.qbnet.jtvision.util.Screen;
 import info.qbnet.jtvision.util.TRect;
 
+import java.util.function.Function;
+
 /**
  * {@code TApplication} is a simple wrapper around {@link TProgram}.
  * <p>
@@ -54,6 +58,21 @@ public class TApplication extends TProgram {
         logger.debug("{} TApplication@TApplication(type={})", getLogName(), type);
     }
 
+    /**
+     * Constructs a new application with a screen of the given size drawn by
+     * the backend {@code backendFactory} creates, for example for one
+     * {@link TSession} among many in the same process.
+     *
+     * @param width          screen width in cells
+     * @param height         screen height in cells
+     * @param backendFactory creates the backend rendering the screen
+     */
+    public TApplication(int width, int height, Function<Screen, ? extends Backend> backendFactory) {
+        super(width, height, backendFactory);
+
+        logger.debug("{} TApplication@TApplication(width={}, height={})", getLogName(), width, height);
+    }
+
     /**
      * Calls {@link #getTileRect(TRect)} to obtain the region over which
      * windows should cascade. If {@code desktop} is not {@code null},
@@ -16,6 +16,7 @@ import info.qbnet.jtvision.util.TStream;
 import java.io.IOException;
 import java.nio.ByteBuffer;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 import java.util.Set;
 import java.util.function.Consumer;
@@ -67,14 +68,12 @@ public class TGroup extends TView {
     }
 
     /**
-     * Tracks the group currently being loaded from a {@link TStream} to ensure
-     * the {@link #awaken()} hook is invoked only once after the entire view
-     * hierarchy has been constructed.
+     * Returns the group currently being loaded from a {@link TStream}, which
+     * ensures the {@link #awaken()} hook is invoked only once after the
+     * entire view hierarchy has been constructed.
      */
-    private static TGroup loadingGroup = null;
-
     static TGroup getLoadingGroup() {
-        return loadingGroup;
+        return TSession.current().loadingGroup;
     }
 
     private static class PeerFixup {
@@ -135,6 +134,32 @@ public class TGroup extends TView {
      */
     protected IBuffer buffer = null;
 
+    /** Marker used in the occlusion maps for cells no subview covers. */
+    static final short NO_COVER = Short.MAX_VALUE;
+
+    /**
+     * Z-order occlusion map in row-major order over the group's extent. Each
+     * cell holds the Z index (0 = {@link #first()}) of the frontmost visible
+     * subview covering it, or {@link #NO_COVER}.
+     */
+    private short[] coverMap;
+
+    /**
+     * Companion to {@link #coverMap} for shadows: the frontmost shadow's Z
+     * index in the upper bits and its attribute in the low byte, or
+     * {@code -1} when no shadow falls on the cell.
+     */
+    private int[] shadowMap;
+
+    private boolean coverValid = false;
+
+    /**
+     * Set when a subview, or a view further down, is
+     * {@linkplain TView#invalidate() invalid}; the next {@link #draw()} from
+     * the cache buffer then redraws just those.
+     */
+    boolean subViewsInvalid = false;
+
     protected int endState = 0;
 
     /**
@@ -174,8 +199,9 @@ public class TGroup extends TView {
         super(stream);
         getExtent(clip);
 
-        TGroup previous = loadingGroup;
-        loadingGroup = this;
+        TSession session = TSession.current();
+        TGroup previous = session.loadingGroup;
+        session.loadingGroup = this;
         try {
             int count = stream.readInt();
             for (int i = 0; i < count; i++) {
@@ -190,7 +216,7 @@ public class TGroup extends TView {
         } catch (IOException e) {
             throw new RuntimeException(e);
         } finally {
-            loadingGroup = previous;
+            session.loadingGroup = previous;
         }
 
         if (previous == null) {
@@ -202,8 +228,9 @@ public class TGroup extends TView {
         super(node);
         getExtent(clip);
 
-        TGroup previous = loadingGroup;
-        loadingGroup = this;
+        TSession session = TSession.current();
+        TGroup previous = session.loadingGroup;
+        session.loadingGroup = this;
         try {
             ArrayNode children = JsonUtil.getArray(node, "children");
             if (children != null) {
@@ -221,7 +248,7 @@ public class TGroup extends TView {
             }
             resolvePeerFixups();
         } finally {
-            loadingGroup = previous;
+            session.loadingGroup = previous;
         }
 
         if (previous == null) {
@@ -330,8 +357,11 @@ public class TGroup extends TView {
 
     /**
      * Overrides TView.draw. If a cache buffer exists (see TGroup.buffer field),
-     * then the buffer is written to the screen using TView.writeBuf.
-     * Otherwise, each subview is told to draw itself using a call to TGroup.drawSubViews.
+     * the subviews that were {@linkplain TView#invalidate() invalidated} are
+     * drawn into it and the buffer is written to the screen using
+     * TView.writeBuf. A new buffer, or an invalidated group, has all its
+     * subviews drawn. Without a buffer, each subview is told to draw itself
+     * using a call to TGroup.drawSubViews.
      */
     @Override
     public void draw() {
@@ -343,7 +373,11 @@ public class TGroup extends TView {
 
         if (buffer != null) {
             lockFlag++;
-            redraw();
+            if (invalid) {
+                redraw();
+            } else if (subViewsInvalid) {
+                drawInvalidSubViews();
+            }
             lockFlag--;
             writeBuf(0, 0, getSize().x, getSize().y, buffer.getData());
         } else {
@@ -351,24 +385,6 @@ public class TGroup extends TView {
             redraw();
             getExtent(clip);
         }
-
-        // CHECK: always redraw buffer (CM_PREV problem), original implementation
-//        if (buffer == null) {
-//            getBuffer();
-//            if (buffer != null) {
-//                lockFlag++;
-//                redraw();
-//                lockFlag--;
-//            }
-//        }
-//
-//        if (buffer != null) {
-//            writeBuf(0, 0, size.x, size.y, buffer.getData());
-//        } else {
-//            getClipRect(clip);
-//            redraw();
-//            getExtent(clip);
-//        }
     }
 
     /**
@@ -383,6 +399,19 @@ public class TGroup extends TView {
         }
     }
 
+    /**
+     * Draws the subviews that are invalid or hold invalid views, in Z-order.
+     * Views still hidden stay invalid.
+     */
+    private void drawInvalidSubViews() {
+        subViewsInvalid = false;
+        for (TView p = first(); p != null; p = p.nextView()) {
+            if (p.invalid || (p instanceof TGroup g && g.subViewsInvalid)) {
+                p.drawView();
+            }
+        }
+    }
+
     @Override
     public void endModal(int command) {
         if ((state & State.SF_MODAL) != 0) {
@@ -419,10 +448,11 @@ public class TGroup extends TView {
         if (p != null) {
             int saveOptions = p.options;
             TGroup saveOwner = p.getOwner();
-            TView saveTopView = theTopView;
+            TSession session = TSession.current();
+            TView saveTopView = session.topView;
             TView saveCurrent = current;
             Set<Integer> saveCommands = getCommands();
-            theTopView = p;
+            session.topView = p;
             p.options = saveOptions & ~Options.OF_SELECTABLE;
             p.setState(State.SF_MODAL, true);
             setCurrent(p, SelectMode.ENTER_SELECT);
@@ -436,7 +466,7 @@ public class TGroup extends TView {
             setCurrent(saveCurrent, SelectMode.LEAVE_SELECT);
             p.setState(State.SF_MODAL, false);
             p.options = saveOptions;
-            theTopView = saveTopView;
+            session.topView = saveTopView;
             setCommands(saveCommands);
         }
 
@@ -502,6 +532,16 @@ public class TGroup extends TView {
         return true;
     }
 
+    /**
+     * Discards the resolved colors of this group and of all subviews, whose
+     * palette chains run through this group.
+     */
+    @Override
+    public void invalidateColorCache() {
+        super.invalidateColorCache();
+        forEach(TView::invalidateColorCache);
+    }
+
     public void forEach(Consumer<TView> action) {
         if (last == null) return;
 
@@ -535,6 +575,7 @@ public class TGroup extends TView {
             return;
         }
         buffer = new Buffer(getSize().x, getSize().y);
+        invalid = true;
     }
 
     @Override
@@ -742,6 +783,7 @@ public class TGroup extends TView {
     protected void insertView(TView p, TView target) {
         logger.trace("{} TGroup@insertView({}, {})", getLogName(), p, target);
 
+        invalidateCoverMap();
         p.setOwner(this);
         if (target != null) {
             target = target.prev();
@@ -807,6 +849,8 @@ public class TGroup extends TView {
     public void redraw() {
         logger.trace("{} TGroup@redraw()", getLogName());
 
+        invalid = false;
+        subViewsInvalid = false;
         drawSubViews(first(), null);
     }
 
@@ -814,6 +858,7 @@ public class TGroup extends TView {
         if (p == null || last == null) {
             return;       // nothing to remove
         }
+        invalidateCoverMap();
 
         TView current = last;
         do {
@@ -832,6 +877,168 @@ public class TGroup extends TView {
         } while (current != last);       // stop after full circle if p not found
     }
 
+    /**
+     * Discards the occlusion map; it is rebuilt on the next query. Called when
+     * subviews are inserted, removed, moved, resized, shown or hidden.
+     */
+    void invalidateCoverMap() {
+        coverValid = false;
+    }
+
+    @Override
+    protected void setSize(TPoint size) {
+        super.setSize(size);
+        invalidateCoverMap();
+    }
+
+    private void ensureCoverMap() {
+        if (coverValid) {
+            return;
+        }
+        int w = Math.max(0, getSize().x);
+        int h = Math.max(0, getSize().y);
+        int cells = w * h;
+        if (coverMap == null || coverMap.length != cells) {
+            coverMap = new short[cells];
+            shadowMap = new int[cells];
+        }
+        Arrays.fill(coverMap, NO_COVER);
+        Arrays.fill(shadowMap, -1);
+
+        // Walk front to back so the first writer of a cell is the frontmost view.
+        int z = 0;
+        for (TView v = first(); v != null; v = v.nextView()) {
+            v.coverIndex = (short) Math.min(z++, NO_COVER - 1);
+            if ((v.state & State.SF_VISIBLE) == 0) {
+                continue;
+            }
+            int x1 = Math.max(0, v.getOrigin().x);
+            int x2 = Math.min(w, v.getOrigin().x + v.getSize().x);
+            int y1 = Math.max(0, v.getOrigin().y);
+            int y2 = Math.min(h, v.getOrigin().y + v.getSize().y);
+            for (int y = y1; y < y2; y++) {
+                int row = y * w;
+                for (int x = x1; x < x2; x++) {
+                    if (coverMap[row + x] == NO_COVER) {
+                        coverMap[row + x] = v.coverIndex;
+                    }
+                }
+            }
+            if ((v.state & State.SF_SHADOW) != 0) {
+                int shadow = (v.coverIndex << 8) | (v.getShadowAttr() & 0xFF);
+                int sx = v.getOrigin().x + v.getShadowSize().x;
+                int sy = v.getOrigin().y + v.getShadowSize().y;
+                x1 = Math.max(0, sx);
+                x2 = Math.min(w, sx + v.getSize().x);
+                y1 = Math.max(0, sy);
+                y2 = Math.min(h, sy + v.getSize().y);
+                for (int y = y1; y < y2; y++) {
+                    int row = y * w;
+                    for (int x = x1; x < x2; x++) {
+                        if (shadowMap[row + x] < 0) {
+                            shadowMap[row + x] = shadow;
+                        }
+                    }
+                }
+            }
+        }
+        coverValid = true;
+    }
+
+    /**
+     * Returns the first column in {@code [from, to)} of row {@code y} at which
+     * {@code child} is <em>not</em> hidden by a subview in front of it, or
+     * {@code to} if the whole range is covered. Coordinates are local to this
+     * group; cells outside its extent count as uncovered.
+     */
+    int nextUncovered(TView child, int y, int from, int to) {
+        ensureCoverMap();
+        int w = getSize().x;
+        if (y < 0 || y >= getSize().y) {
+            return from;
+        }
+        int z = child.coverIndex;
+        int row = y * w;
+        for (int x = from; x < to; x++) {
+            if (x < 0 || x >= w || coverMap[row + x] >= z) {
+                return x;
+            }
+        }
+        return to;
+    }
+
+    /**
+     * Counterpart of {@link #nextUncovered}: returns the first column in
+     * {@code [from, to)} hidden by a subview in front of {@code child}, or
+     * {@code to} if none is.
+     */
+    int nextCovered(TView child, int y, int from, int to) {
+        ensureCoverMap();
+        int w = getSize().x;
+        if (y < 0 || y >= getSize().y) {
+            return to;
+        }
+        int z = child.coverIndex;
+        int row = y * w;
+        for (int x = Math.max(from, 0); x < Math.min(to, w); x++) {
+            if (coverMap[row + x] < z) {
+                return x;
+            }
+        }
+        return to;
+    }
+
+    /**
+     * Returns whether no subview in front of {@code child}, nor the shadow of
+     * one, falls on the rectangle at {@code (x, y)} of size
+     * {@code width} x {@code height}, in this group's coordinates.
+     */
+    boolean isUncovered(TView child, int x, int y, int width, int height) {
+        ensureCoverMap();
+        int w = getSize().x;
+        int z = child.coverIndex;
+        for (int row = Math.max(0, y); row < Math.min(getSize().y, y + height); row++) {
+            for (int col = Math.max(0, x); col < Math.min(w, x + width); col++) {
+                int idx = row * w + col;
+                int shadow = shadowMap[idx];
+                if (coverMap[idx] < z || (shadow >= 0 && (shadow >>> 8) < z)) {
+                    return false;
+                }
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Folds this group's occlusion of {@code child} into {@code out} for
+     * {@code count} cells of row {@code y} starting at column {@code x}.
+     * Hidden cells become {@link TView#OCCLUDED}; cells that are still
+     * untouched and lie in a front sibling's shadow receive
+     * {@code 0x100 | shadowAttr}.
+     */
+    void markOcclusion(TView child, int y, int x, short[] out, int count) {
+        ensureCoverMap();
+        int w = getSize().x;
+        if (y < 0 || y >= getSize().y) {
+            return;
+        }
+        int z = child.coverIndex;
+        int row = y * w;
+        int from = Math.max(0, -x);
+        int to = Math.min(count, w - x);
+        for (int i = from; i < to; i++) {
+            int idx = row + x + i;
+            if (coverMap[idx] < z) {
+                out[i] = TView.OCCLUDED;
+            } else if (out[i] == 0) {
+                int shadow = shadowMap[idx];
+                if (shadow >= 0 && (shadow >>> 8) < z) {
+                    out[i] = (short) (0x100 | (shadow & 0xFF));
+                }
+            }
+        }
+    }
+
     /**
      * Sets the current view to the first visible and selectable view.
      */
@@ -10,10 +10,16 @@ import java.util.function.Consumer;
  * Scrollable list view translated from Turbo Vision's {@code TListViewer}.
  *
  * <p>The widget displays a list of items arranged in one or more columns and
- * supports optional horizontal and vertical scroll bars.  Subclasses must
- * provide the item text via {@link #getText(int, int)} and may override
+ * supports optional horizontal and vertical scroll bars.  The item text
+ * comes either from a {@link ListProvider} set with
+ * {@link #setProvider(ListProvider)} or from a subclass overriding
+ * {@link #getText(int, int)}.  Subclasses may override
  * {@link #isSelected(int)} and {@link #selectItem(int)} to implement custom
  * selection logic.</p>
+ *
+ * <p>With a provider, the texts of the visible items are fetched in one
+ * call before drawing and kept until the view scrolls or the provider
+ * reports a change, so a redraw does not ask for every row again.</p>
  */
 public class TListViewer extends TView {
 
@@ -59,6 +65,15 @@ public class TListViewer extends TView {
     /** Total number of items. */
     protected int range;
 
+    /** Source of the item texts or {@code null} if {@link #getText} is overridden. */
+    protected ListProvider provider;
+    /** Texts of the items from {@link #windowFirst}; {@code null} when stale. */
+    private String[] window;
+    /** Index of the first item in {@link #window}. */
+    private int windowFirst;
+    /** {@link #topItem} of the last {@link #draw()}; {@code -1} before the first. */
+    private int drawnTopItem = -1;
+
     /** Palette describing active, inactive, focused, selected and divider colors. */
     public static final PaletteDescriptor<ListViewerColor> LIST_VIEWER_PALETTE =
             PaletteDescriptor.register("listViewer", ListViewerColor.class);
@@ -139,6 +154,14 @@ public class TListViewer extends TView {
         int indent = (hScrollBar != null) ? hScrollBar.value : 0;
         int colWidth = getSize().x / numCols + 1;
         TDrawBuffer b = new TDrawBuffer();
+        if (provider != null) {
+            fetchWindow();
+        }
+        if (numCols == 1 && drawnTopItem >= 0) {
+            // rows still in view move; only the ones scrolled in differ afterwards
+            scrollView(0, getSize().y, drawnTopItem - topItem);
+        }
+        drawnTopItem = topItem;
 
         for (int i = 0; i < getSize().y; i++) {
             for (int j = 0; j < numCols; j++) {
@@ -222,9 +245,65 @@ public class TListViewer extends TView {
         return LIST_VIEWER_PALETTE.palette();
     }
 
-    /** Returns the text for {@code item}. Subclasses must override. */
+    /**
+     * Returns the text for {@code item}. Without a provider subclasses must
+     * override this method.
+     */
     protected String getText(int item, int maxLen) {
-        throw new UnsupportedOperationException();
+        if (provider == null) {
+            throw new UnsupportedOperationException();
+        }
+        int index = item - windowFirst;
+        if (window == null || index < 0 || index >= window.length) {
+            String[] texts = provider.fetch(item, 1);
+            return texts[0] != null ? texts[0] : "";
+        }
+        return window[index] != null ? window[index] : "";
+    }
+
+    /**
+     * Shows the items of {@code aProvider}, or nothing if it is {@code null}.
+     */
+    public void setProvider(ListProvider aProvider) {
+        if (provider != null) {
+            provider.setListener(null);
+        }
+        provider = aProvider;
+        window = null;
+        if (provider != null) {
+            provider.setListener(new ListProvider.Listener() {
+                @Override
+                public void itemsChanged(int first, int count) {
+                    if (window != null && first < windowFirst + window.length && first + count > windowFirst) {
+                        window = null;
+                        drawView();
+                    }
+                }
+
+                @Override
+                public void sizeChanged() {
+                    window = null;
+                    setRange(provider.size());
+                    drawView();
+                }
+            });
+        }
+        setRange(provider != null ? provider.size() : 0);
+        drawView();
+    }
+
+    public ListProvider getProvider() {
+        return provider;
+    }
+
+    /** Fetches the texts of the visible items unless they are cached. */
+    private void fetchWindow() {
+        int count = Math.max(0, Math.min(getSize().y * numCols, range - topItem));
+        if (window != null && windowFirst == topItem && window.length == count) {
+            return;
+        }
+        windowFirst = topItem;
+        window = count > 0 ? provider.fetch(topItem, count) : new String[0];
     }
 
     /** Determines if {@code item} should be drawn as selected. */
@@ -8,21 +8,24 @@ import info.qbnet.jtvision.backend.factory.Factory;
 import info.qbnet.jtvision.event.TEvent;
 
 import java.util.Optional;
+import java.util.Queue;
+import java.util.function.Function;
 
 import java.awt.*;
 
 public class TProgram extends TGroup {
 
-    public static TProgram application = null;
-    public static TDesktop desktop = null;
-    public static TMenuBar menuBar = null;
-    public static TStatusLine statusLine = null;
+    protected TDesktop desktop = null;
+    protected TMenuBar menuBar = null;
+    protected TStatusLine statusLine = null;
 
+    private final TSession session;
     private final Screen screen;
     private final Backend backend;
+    private final RenderScheduler renderScheduler;
     private final Console console;
 
-    private static int getScreenSize(String key, int defaultValue) {
+    private static int getIntProperty(String key, int defaultValue) {
         String value = System.getProperty(key);
         if (value != null) {
             try {
@@ -37,8 +40,10 @@ public class TProgram extends TGroup {
         return defaultValue;
     }
 
-    private static final int SCREEN_WIDTH = getScreenSize("console.width", 80);
-    private static final int SCREEN_HEIGHT = getScreenSize("console.height", 25);
+    private static final int SCREEN_WIDTH = getIntProperty("console.width", 80);
+    private static final int SCREEN_HEIGHT = getIntProperty("console.height", 25);
+    private static final int IDLE_TICK = getIntProperty("console.idleTick", 100);
+    private static final int MAX_FPS = getIntProperty("console.maxFps", 60);
 
     /**
      * Base application palette roles exposed by {@link TProgram}. The indices
@@ -311,18 +316,22 @@ public class TProgram extends TGroup {
     public static final PaletteDescriptor<ProgramColor> APP_COLOR_PALETTE =
             PaletteDescriptor.register("program.appColor", ProgramColor.class);
 
-    private static TEvent pending = new TEvent();
+    private final TEvent pending = new TEvent();
 
     private static final long DOUBLE_DELAY = 300; // milliseconds
     private static final long REPEAT_DELAY = 100; // milliseconds
 
-    private static int lastMouseButtons = 0;
-    private static TPoint lastMousePos = new TPoint();
-    private static boolean lastMouseDouble = false;
-    private static long lastClickTime = 0;
-    private static int lastClickButton = 0;
-    private static TPoint lastClickPos = new TPoint();
-    private static long lastMouseEventTime = 0;
+    private int lastMouseButtons = 0;
+    private TPoint lastMousePos = new TPoint();
+    private boolean lastMouseDouble = false;
+    private long lastClickTime = 0;
+    private int lastClickButton = 0;
+    private TPoint lastClickPos = new TPoint();
+    private long lastMouseEventTime = 0;
+
+    /** Minimum interval between {@link #idle()} calls in milliseconds. */
+    private long idleTick = IDLE_TICK;
+    private long nextIdleTime = 0;
 
     /**
      * Creates a new program using the specified backend.
@@ -330,18 +339,35 @@ public class TProgram extends TGroup {
      * @param type the backend type used to render the console
      */
     public TProgram(BackendType type) {
-        super(new TRect(0, 0, SCREEN_WIDTH, SCREEN_HEIGHT));
+        this(SCREEN_WIDTH, SCREEN_HEIGHT, screen -> {
+            Factory<? extends Backend> factory = BackendFactoryProvider.getFactory(type);
+            factory.initialize();
+            return factory.createBackend(screen);
+        });
+    }
 
-        logger.debug("{} TProgram@TProgram(type={})", getLogName(), type);
+    /**
+     * Creates a new program in the session of the calling thread with a
+     * screen of the given size and the backend {@code backendFactory}
+     * creates for it. This is how programs of a {@link TSession} get
+     * backends of their own, such as a terminal on a network connection.
+     *
+     * @param width          screen width in cells
+     * @param height         screen height in cells
+     * @param backendFactory creates the backend rendering the screen
+     */
+    public TProgram(int width, int height, Function<Screen, ? extends Backend> backendFactory) {
+        super(new TRect(0, 0, width, height));
 
-        Factory<? extends Backend> factory = BackendFactoryProvider.getFactory(type);
-        factory.initialize();
+        logger.debug("{} TProgram@TProgram(width={}, height={})", getLogName(), width, height);
 
-        this.screen = new Screen(SCREEN_WIDTH, SCREEN_HEIGHT, Color.LIGHT_GRAY, Color.BLACK);
-        this.backend = factory.createBackend(screen);
-        this.console = new Console(screen, backend);
+        this.session = TSession.current();
+        this.screen = new Screen(width, height, Color.LIGHT_GRAY, Color.BLACK);
+        this.backend = backendFactory.apply(screen);
+        this.renderScheduler = new RenderScheduler(screen, backend, Math.max(1, 1000 / MAX_FPS));
+        this.console = new Console(screen, renderScheduler);
 
-        application = this;
+        session.application = this;
 
         this.state = State.SF_VISIBLE | State.SF_SELECTED | State.SF_FOCUSED | State.SF_MODAL | State.SF_EXPOSED;
         this.options = 0;
@@ -366,7 +392,27 @@ public class TProgram extends TGroup {
         return desktop.valid(Command.CM_RELEASED_FOCUS);
     }
 
+    /**
+     * Returns the program of the calling thread's session.
+     *
+     * @return program or {@code null} if none is running
+     */
+    public static TProgram getApplication() {
+        return TSession.current().application;
+    }
+
+    /**
+     * Returns the desktop of the calling thread's program.
+     *
+     * @return desktop or {@code null} if no program is running
+     */
+    public static TDesktop getDesktop() {
+        TProgram application = getApplication();
+        return application != null ? application.desktop : null;
+    }
+
     public static void getKeyEvent(TEvent event) {
+        TProgram application = getApplication();
         if (application == null) {
             event.what = TEvent.EV_NOTHING;
             return;
@@ -381,13 +427,17 @@ public class TProgram extends TGroup {
     }
 
     public static void getMouseEvent(TEvent event) {
+        TProgram application = getApplication();
         if (application == null) {
             event.what = TEvent.EV_NOTHING;
             return;
         }
+        application.pollMouseEvent(event);
+    }
 
-        int buttons = application.backend.getMouseButtons();
-        TPoint where = application.backend.getMouseLocation();
+    private void pollMouseEvent(TEvent event) {
+        int buttons = backend.getMouseButtons();
+        TPoint where = backend.getMouseLocation();
         long now = System.currentTimeMillis();
 
         boolean buttonChanged = buttons != lastMouseButtons;
@@ -431,6 +481,9 @@ public class TProgram extends TGroup {
 
     @Override
     public void getEvent(TEvent event) {
+        runQueuedTasks();
+        // show the outcome of the previous event before looking for the next one
+        renderScheduler.frameNow();
         if (pending.what != TEvent.EV_NOTHING) {
             event.copyFrom(pending);
             pending.what = TEvent.EV_NOTHING;
@@ -439,7 +492,7 @@ public class TProgram extends TGroup {
             if (event.what == TEvent.EV_NOTHING) {
                 getKeyEvent(event);
                 if (event.what == TEvent.EV_NOTHING) {
-                    idle();
+                    waitForEvent();
                 }
             }
         }
@@ -460,12 +513,37 @@ public class TProgram extends TGroup {
         }
     }
 
+    /**
+     * Runs {@link #idle()} when its tick is due, renders what it changed and
+     * then parks the calling thread until the backend reports input, an event
+     * is posted or the next idle tick is reached. While a mouse button is held the wait is capped at
+     * the auto-repeat delay so {@code EV_MOUSE_AUTO} events keep flowing.
+     */
+    private void waitForEvent() {
+        long now = System.currentTimeMillis();
+        if (now >= nextIdleTime) {
+            idle();
+            nextIdleTime = now + idleTick;
+            // show what idle() changed before parking for up to a whole tick
+            renderScheduler.frameNow();
+        }
+        if (pending.what != TEvent.EV_NOTHING || !session.queuedTasks.isEmpty()) {
+            return;
+        }
+        long timeout = nextIdleTime - now;
+        if (lastMouseButtons != 0) {
+            timeout = Math.min(timeout, REPEAT_DELAY);
+        }
+        backend.waitForInput(timeout);
+    }
+
     @Override
     public TPalette getPalette() {
         return APP_COLOR_PALETTE.palette();
     }
 
     public static byte getShiftState() {
+        TProgram application = getApplication();
         return (application != null) ? application.backend.getShiftState() : 0;
     }
 
@@ -475,9 +553,26 @@ public class TProgram extends TGroup {
      * @return backend instance or {@code null} if program not initialized
      */
     public static Backend getBackend() {
+        TProgram application = getApplication();
         return (application != null) ? application.backend : null;
     }
 
+    /**
+     * Moves the text cursor of the active program. The render scheduler
+     * passes the change to the backend and renders it with the next frame.
+     *
+     * @param x          horizontal cursor location in screen cells
+     * @param y          vertical cursor location in screen cells
+     * @param insertMode {@code true} for a block cursor
+     * @param visible    whether the cursor is shown
+     */
+    public static void updateCursor(int x, int y, boolean insertMode, boolean visible) {
+        TProgram application = getApplication();
+        if (application != null) {
+            application.renderScheduler.updateCursor(x, y, insertMode, visible);
+        }
+    }
+
     @Override
     public void handleEvent(TEvent event) {
         boolean logEvent = LOG_EVENTS && event.what != TEvent.EV_NOTHING;
@@ -506,13 +601,38 @@ public class TProgram extends TGroup {
         }
     }
 
+    /**
+     * Returns the minimum interval between two {@link #idle()} calls.
+     *
+     * @return idle tick in milliseconds
+     */
+    public long getIdleTick() {
+        return idleTick;
+    }
+
+    /**
+     * Sets the minimum interval between two {@link #idle()} calls. The
+     * default is taken from the {@code console.idleTick} system property
+     * (100 ms when unset). The event loop sleeps for at most this long when
+     * no input arrives.
+     *
+     * @param millis idle tick in milliseconds, must be positive
+     */
+    public void setIdleTick(long millis) {
+        if (millis <= 0) {
+            throw new IllegalArgumentException("Idle tick must be positive: " + millis);
+        }
+        this.idleTick = millis;
+        this.nextIdleTime = 0;
+    }
+
     public void idle() {
         if (statusLine != null) {
             statusLine.update();
         }
-        if (commandSetChanged) {
+        if (session.commandSetChanged) {
             message(this, TEvent.EV_BROADCAST, Command.CM_COMMAND_SET_CHANGED, null);
-            commandSetChanged = false;
+            session.commandSetChanged = false;
         }
     }
 
@@ -569,6 +689,47 @@ public class TProgram extends TGroup {
     @Override
     public void putEvent(TEvent event) {
         pending.copyFrom(event);
+        backend.wakeUp();
+    }
+
+    /** Wakes the event loop if it waits for input. */
+    void wakeUp() {
+        backend.wakeUp();
+    }
+
+    /**
+     * Runs {@code task} on the event loop thread of the calling thread's
+     * session before the next event is read. Views are not thread safe, so
+     * background work such as directory loading hands its results to the
+     * views this way. A background thread belongs to no session and reaches
+     * the default one; work for another session goes through
+     * {@link TSession#invokeLater(Runnable)} of a session captured on its
+     * event loop thread.
+     *
+     * @param task work to run on the event loop thread
+     */
+    public static void invokeLater(Runnable task) {
+        TSession.current().invokeLater(task);
+    }
+
+    /**
+     * Runs the tasks queued by {@link #invokeLater(Runnable)}. Tasks queued
+     * while draining wait for the next call, so a task that re-queues itself
+     * cannot starve input.
+     */
+    private void runQueuedTasks() {
+        Queue<Runnable> queuedTasks = session.queuedTasks;
+        for (int n = queuedTasks.size(); n > 0; n--) {
+            Runnable task = queuedTasks.poll();
+            if (task == null) {
+                return;
+            }
+            try {
+                task.run();
+            } catch (RuntimeException e) {
+                logger.error("{} queued task failed", getLogName(), e);
+            }
+        }
     }
 
     public void run() {
@@ -600,4 +761,18 @@ public class TProgram extends TGroup {
         return console;
     }
 
+    /**
+     * Returns the session this program runs in.
+     */
+    public TSession getSession() {
+        return session;
+    }
+
+    /**
+     * Returns the scheduler that renders this program's frames.
+     */
+    public RenderScheduler getRenderScheduler() {
+        return renderScheduler;
+    }
+
 }
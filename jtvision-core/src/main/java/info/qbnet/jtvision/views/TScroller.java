@@ -113,18 +113,26 @@ public class TScroller extends TView {
         }
     }
 
-    /** Updates the view when scroll bar values change. */
+    /**
+     * Updates the view when scroll bar values change. A vertical scroll moves
+     * the rows still in view with {@link #scrollView} before drawing.
+     */
     protected void scrollDraw() {
         TPoint d = new TPoint();
         d.x = (hScrollBar != null) ? hScrollBar.value : 0;
         d.y = (vScrollBar != null) ? vScrollBar.value : 0;
         if (d.x != delta.x || d.y != delta.y) {
             setCursor(getCursor().x + delta.x - d.x, getCursor().y + delta.y - d.y);
+            int dy = delta.y - d.y;
+            boolean vertical = d.x == delta.x;
             delta.x = d.x;
             delta.y = d.y;
             if (drawLock != 0) {
                 drawFlag = true;
             } else {
+                if (vertical) {
+                    scrollView(0, getSize().y, dy);
+                }
                 drawView();
             }
         }
@@ -0,0 +1,134 @@
+package info.qbnet.jtvision.views;
+
+import info.qbnet.jtvision.util.Command;
+
+import java.util.HashSet;
+import java.util.Objects;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.function.Supplier;
+
+/**
+ * State of one user interface: its program, enabled commands, modal view
+ * and the work queued for its event loop.
+ *
+ * <p>Turbo Vision keeps this state in globals, which limits a process to a
+ * single program. Here it belongs to a session, and every thread is bound
+ * to at most one session. Static methods such as
+ * {@link TView#commandEnabled(int)} or {@link TProgram#getDesktop()} act on
+ * the session of the calling thread, so views need not know which session
+ * they live in. Threads that were never bound share a default session,
+ * which is what a program started from {@code main} uses.</p>
+ *
+ * <p>{@link #start(Supplier)} runs a program on a thread of its own; one
+ * process can run as many of them side by side as it has memory for, each
+ * with its own screen and backend. Background threads are not bound, so
+ * work started by a view must capture the session on the event loop thread
+ * with {@link #current()} and hand results back through
+ * {@link #invokeLater(Runnable)}.</p>
+ */
+public final class TSession {
+
+    private static final TSession DEFAULT = new TSession("main");
+    private static final ThreadLocal<TSession> CURRENT = new ThreadLocal<>();
+
+    private final String name;
+
+    /** Program running in this session, or {@code null}. */
+    volatile TProgram application = null;
+    /** Explicit top view; when non-null it overrides the automatic search. */
+    TView topView = null;
+    /** Enabled commands 0–255. */
+    Set<Integer> commandSet = defaultCommands();
+    /** True if the command set has changed since it was last reset. */
+    boolean commandSetChanged = false;
+    /** Group being loaded from a stream, so only the outermost one is awakened. */
+    TGroup loadingGroup = null;
+    /** Work handed to the event loop thread by {@link #invokeLater(Runnable)}. */
+    final Queue<Runnable> queuedTasks = new ConcurrentLinkedQueue<>();
+
+    public TSession(String name) {
+        this.name = Objects.requireNonNull(name, "name");
+    }
+
+    /**
+     * Returns the session of the calling thread, or the default session if
+     * the thread is not bound to one.
+     */
+    public static TSession current() {
+        TSession session = CURRENT.get();
+        return session != null ? session : DEFAULT;
+    }
+
+    /**
+     * Creates the program returned by {@code factory} on the calling thread
+     * and runs it until it ends, with the thread bound to this session for
+     * that time.
+     *
+     * @param factory creates the program, typically a {@link TApplication}
+     */
+    public void run(Supplier<? extends TProgram> factory) {
+        TSession previous = CURRENT.get();
+        CURRENT.set(this);
+        try {
+            factory.get().run();
+        } finally {
+            application = null;
+            queuedTasks.clear();
+            if (previous != null) {
+                CURRENT.set(previous);
+            } else {
+                CURRENT.remove();
+            }
+        }
+    }
+
+    /**
+     * Runs the program returned by {@code factory} on a new thread, as
+     * {@link #run(Supplier)} does.
+     *
+     * @return the started thread, which ends with the program
+     */
+    public Thread start(Supplier<? extends TProgram> factory) {
+        Thread thread = new Thread(() -> run(factory), "session-" + name);
+        thread.start();
+        return thread;
+    }
+
+    /**
+     * Runs {@code task} on this session's event loop thread before its next
+     * event is read. May be called from any thread.
+     *
+     * @param task work to run on the event loop thread
+     */
+    public void invokeLater(Runnable task) {
+        queuedTasks.add(Objects.requireNonNull(task, "task"));
+        TProgram app = application;
+        if (app != null) {
+            app.wakeUp();
+        }
+    }
+
+    /** Returns the program running in this session, or {@code null}. */
+    public TProgram getApplication() {
+        return application;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    private static Set<Integer> defaultCommands() {
+        Set<Integer> commands = new HashSet<>();
+        for (int i = 0; i < 256; i++) {
+            commands.add(i);
+        }
+        commands.remove(Command.CM_ZOOM);
+        commands.remove(Command.CM_CLOSE);
+        commands.remove(Command.CM_RESIZE);
+        commands.remove(Command.CM_NEXT);
+        commands.remove(Command.CM_PREV);
+        return commands;
+    }
+}
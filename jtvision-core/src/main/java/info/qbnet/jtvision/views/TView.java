@@ -1,7 +1,6 @@
 package info.qbnet.jtvision.views;
 
 import com.fasterxml.jackson.databind.node.ObjectNode;
-import info.qbnet.jtvision.backend.Backend;
 import info.qbnet.jtvision.event.TEvent;
 import info.qbnet.jtvision.util.Command;
 import info.qbnet.jtvision.util.IBuffer;
@@ -266,33 +265,6 @@ public class TView {
     public static final char[] SPECIAL_CHARS =
             {(char)0xAF, (char)0xAE, (char)0x1A, (char)0x1B, ' ', ' '};
 
-    /**
-     * Explicit top view pointer; when non-null it overrides the automatic search.
-     */
-    protected static TView theTopView = null;
-
-    /**
-     * Active command set (0–255) excluding standard window commands such as
-     * {@link Command#CM_ZOOM} or {@link Command#CM_CLOSE}.
-     */
-    protected static Set<Integer> curCommandSet = new HashSet<>();
-
-    static {
-        for (int i = 0; i < 256; i++) {
-            curCommandSet.add(i);
-        }
-        curCommandSet.remove(Command.CM_ZOOM);
-        curCommandSet.remove(Command.CM_CLOSE);
-        curCommandSet.remove(Command.CM_RESIZE);
-        curCommandSet.remove(Command.CM_NEXT);
-        curCommandSet.remove(Command.CM_PREV);
-    }
-
-    /**
-     * True if the command set has changed since it was last reset.
-     */
-    protected static boolean commandSetChanged = false;
-
     /**
      * Enables trace logging in {@link #handleEvent}; override with
      * {@code -Djtvision.logEvents=false}.
@@ -306,6 +278,28 @@ public class TView {
     /** Attribute for shadow rendering. */
     private byte shadowAttr = 0x08;
 
+    /** Marks a cell hidden by a sibling in {@link TGroup#markOcclusion}. */
+    static final short OCCLUDED = -1;
+
+    /** Z index within the owner, maintained by the owner's occlusion map. */
+    short coverIndex;
+
+    /**
+     * Set while the cells of this view in its owners' cache buffers may be
+     * stale: until the view is first drawn, and whenever {@link #drawView()}
+     * skipped it because it was hidden. See {@link #invalidate()}.
+     */
+    boolean invalid = true;
+
+    /**
+     * Attributes resolved through the palette chain, indexed by palette index.
+     * {@code 0} marks an index that has not been resolved yet.
+     */
+    private byte[] resolvedColors;
+
+    /** {@link PaletteFactory#generation()} the resolved colors belong to. */
+    private int resolvedGeneration;
+
     private static final ConcurrentHashMap<Class<?>, AtomicInteger> CLASS_COUNTERS = new ConcurrentHashMap<>();
 
     protected final Logger logger;
@@ -449,9 +443,9 @@ public class TView {
         event.msg.infoPtr = this;
     }
 
-    /** Checks if {@code command} is enabled in {@link #curCommandSet}. */
+    /** Checks if {@code command} is enabled in the current session. */
     public static boolean commandEnabled(int command) {
-        return command > 255 || curCommandSet.contains(command);
+        return command > 255 || TSession.current().commandSet.contains(command);
     }
 
     /**
@@ -469,12 +463,13 @@ public class TView {
         return 0;
     }
 
-    /** Removes {@code commands} from {@link #curCommandSet} and flags changes. */
+    /** Removes {@code commands} from the current session's commands and flags changes. */
     public static void disableCommands(Set<Integer> commands) {
-        if (!Collections.disjoint(curCommandSet, commands)) {
-            commandSetChanged = true;
+        TSession session = TSession.current();
+        if (!Collections.disjoint(session.commandSet, commands)) {
+            session.commandSetChanged = true;
         }
-        curCommandSet.removeAll(commands);
+        session.commandSet.removeAll(commands);
     }
 
     /** Hides this view and asks the owner to delete it. */
@@ -661,24 +656,45 @@ public class TView {
         drawUnderRect(r, lastView);
     }
 
-    /** Calls {@link #draw()} when {@link #exposed()} is true. */
+    /**
+     * Calls {@link #draw()} when {@link #exposed()} is true. Otherwise the
+     * view is {@link #invalidate() invalidated}, so owners with a cache
+     * buffer draw it once it comes into view again.
+     */
     public void drawView() {
         logger.trace("{} TView@drawView()", logName);
 
         if (exposed()) {
             draw();
+            invalid = false;
             drawCursor();
+        } else {
+            invalidate();
+        }
+    }
+
+    /**
+     * Marks the view as needing to be drawn again. Nothing is drawn now; the
+     * next time an owner draws itself from its cache buffer, it redraws its
+     * invalid subviews, and those holding invalid views, instead of all of
+     * them. Invalidating a group makes it redraw all its subviews.
+     */
+    public void invalidate() {
+        invalid = true;
+        for (TGroup g = getOwner(); g != null; g = g.getOwner()) {
+            g.subViewsInvalid = true;
         }
     }
 
     /**
-     * Adds {@code commands} to {@link #curCommandSet} and flags changes.
+     * Adds {@code commands} to the current session's commands and flags changes.
      */
     public static void enableCommands(Set<Integer> commands) {
-        if (!curCommandSet.containsAll(commands)) {
-            commandSetChanged = true;
+        TSession session = TSession.current();
+        if (!session.commandSet.containsAll(commands)) {
+            session.commandSetChanged = true;
         }
-        curCommandSet.addAll(commands);
+        session.commandSet.addAll(commands);
     }
 
     /** Terminates the current modal state with {@code command}. */
@@ -715,12 +731,12 @@ public class TView {
      * segment of {@code target} remains visible after accounting for clipping
      * and for all siblings in front of it.
      *
-     * <p>This method mirrors the logic of the original Turbo Vision
-     * implementation which recursively analyses the row against every
-     * predecessor in Z‑order and then ascends through the owner chain.</p>
+     * <p>The segment is clipped to the owner, split into the runs the owner's
+     * occlusion map leaves uncovered, and each run is then checked one level
+     * up the owner chain, as in Turbo Vision's recursive implementation.</p>
      */
-    private boolean isRowExposed(TView target, TGroup parent, int y,
-                                 int xStart, int xEnd, TView start) {
+    private static boolean isRowExposed(TView target, TGroup parent, int y,
+                                        int xStart, int xEnd) {
         if (parent == null) {
             return false;
         }
@@ -732,51 +748,24 @@ public class TView {
         }
         if (xStart < clip.a.x) xStart = clip.a.x;
         if (xEnd > clip.b.x) xEnd = clip.b.x;
-        if (xStart >= xEnd) {
-            return false;
-        }
-
-        TView v = start;
-        while (v != null && v != target) {
-            if ((v.state & State.SF_VISIBLE) != 0) {
-                int vy1 = v.getOrigin().y;
-                int vy2 = vy1 + v.getSize().y;
-                if (y >= vy1 && y < vy2) {
-                    int vx1 = v.getOrigin().x;
-                    int vx2 = vx1 + v.getSize().x;
 
-                    if (xStart >= vx1) {
-                        if (xStart < vx2) {
-                            xStart = vx2;
-                            if (xStart >= xEnd) return false;
-                        }
-                    } else if (xEnd > vx1) {
-                        if (xEnd <= vx2) {
-                            xEnd = vx1;
-                            if (xStart >= xEnd) return false;
-                        } else {
-                            if (isRowExposed(target, parent, y, xStart, vx1, v.nextView())) {
-                                return true;
-                            }
-                            xStart = vx2;
-                            if (xStart >= xEnd) return false;
-                        }
-                    }
-                }
+        int x = xStart;
+        while (x < xEnd) {
+            int runStart = parent.nextUncovered(target, y, x, xEnd);
+            if (runStart >= xEnd) {
+                return false;
             }
-            v = v.nextView();
-        }
-
-        // No more siblings: ascend to the parent group.
-        if (parent.getOwner() == null) {
-            return true;
+            if (parent.getOwner() == null) {
+                return true;
+            }
+            int runEnd = parent.nextCovered(target, y, runStart, xEnd);
+            TPoint o = parent.getOrigin();
+            if (isRowExposed(parent, parent.getOwner(), y + o.y, runStart + o.x, runEnd + o.x)) {
+                return true;
+            }
+            x = runEnd;
         }
-
-        int newY = y + parent.getOrigin().y;
-        int newStart = xStart + parent.getOrigin().x;
-        int newEnd = xEnd + parent.getOrigin().x;
-        return isRowExposed(parent, parent.getOwner(), newY, newStart,
-                newEnd, parent.getOwner().first());
+        return false;
     }
 
     /**
@@ -795,8 +784,7 @@ public class TView {
 
         for (int y = 0; y < getSize().y; y++) {
             int rowY = getOrigin().y + y;
-            if (isRowExposed(this, getOwner(), rowY, getOrigin().x, getOrigin().x + getSize().x,
-                    getOwner().first())) {
+            if (isRowExposed(this, getOwner(), rowY, getOrigin().x, getOrigin().x + getSize().x)) {
                 return true;
             }
         }
@@ -929,7 +917,7 @@ public class TView {
      * @return a new {@link Set} containing the enabled commands
      */
     public static Set<Integer> getCommands() {
-        return new HashSet<>(curCommandSet);
+        return new HashSet<>(TSession.current().commandSet);
     }
 
     /**
@@ -1128,22 +1116,45 @@ public class TView {
         } while (current != null);
     }
 
-    /** Translates a palette index to an attribute using the palette chain. */
+    /**
+     * Translates a palette index to an attribute using the palette chain.
+     * Successful lookups are cached per view until the view is re-parented or
+     * a palette changes.
+     */
     private int mapColor(int color) {
         final int requestedIndex = color & 0xFF;
         if (color == 0) {
             return handleMissingPaletteEntry(requestedIndex, 0, null, "requested index is zero");
         }
 
+        byte[] cache = null;
+        if (color < TPalette.SIZE) {
+            cache = resolvedColors;
+            int generation = PaletteFactory.generation();
+            if (cache == null) {
+                cache = new byte[TPalette.SIZE];
+                resolvedColors = cache;
+                resolvedGeneration = generation;
+            } else if (resolvedGeneration != generation) {
+                Arrays.fill(cache, (byte) 0);
+                resolvedGeneration = generation;
+            }
+            int cached = cache[color];
+            if (cached != 0) {
+                return cached & 0xFF;
+            }
+        }
+
+        final int index = color;
         TView view = this;
         while (view != null) {
             TPalette palette = view.getPalette();
             if (palette != null) {
-                Byte mapped = palette.getOrNull(color);
-                if (mapped == null) {
+                int mapped = palette.lookup(color);
+                if (mapped < 0) {
                     return handleMissingPaletteEntry(requestedIndex, color, view, "palette entry missing");
                 }
-                color = Byte.toUnsignedInt(mapped);
+                color = mapped;
                 if (color == 0) {
                     return handleMissingPaletteEntry(requestedIndex, 0, view, "palette entry resolved to zero");
                 }
@@ -1151,9 +1162,22 @@ public class TView {
             view = view.getOwner();
         }
 
+        if (cache != null) {
+            cache[index] = (byte) color;
+        }
         return color;
     }
 
+    /**
+     * Discards the resolved colors of this view. Called when the owner chain
+     * changes; views whose {@link #getPalette()} result changes at run time
+     * should call it as well, or {@link PaletteFactory#paletteChanged()} to
+     * reset every view.
+     */
+    public void invalidateColorCache() {
+        resolvedColors = null;
+    }
+
     private int handleMissingPaletteEntry(int requestedIndex, int failingIndex, TView failingView, String reason) {
         String chain = describeViewChain();
         String failurePoint = failingView != null ? failingView.getLogName() : "initial request";
@@ -1310,11 +1334,13 @@ public class TView {
                     }
                 }
                 state &= ~State.SF_VISIBLE;
+                getOwner().invalidateCoverMap();
                 if (lastView == target) {
                     drawHide(lastView);
                 }
                 moveView(target);
                 state |= State.SF_VISIBLE;
+                getOwner().invalidateCoverMap();
                 if (lastView != target) {
                     drawShow(lastView);
                 }
@@ -1347,11 +1373,8 @@ public class TView {
             }
         }
 
-        Backend backend = TProgram.getBackend();
-        if (backend != null) {
-            backend.updateCursor(global.x, global.y,
-                    (state & State.SF_CURSOR_INS) != 0, show);
-        }
+        TProgram.updateCursor(global.x, global.y,
+                (state & State.SF_CURSOR_INS) != 0, show);
         logger.trace("{} TView@resetCursor() global=({}, {}) show={}",
                 logName, global.x, global.y, show);
     }
@@ -1397,7 +1420,7 @@ public class TView {
     }
 
     /**
-     * Adds or removes {@code commands} from {@link #curCommandSet} based on {@code enable}.
+     * Adds or removes {@code commands} from the current session's commands based on {@code enable}.
      *
      * @param commands set of command identifiers to update
      * @param enable   {@code true} to enable commands, {@code false} to disable
@@ -1420,10 +1443,11 @@ public class TView {
      * @param commands the new set of command identifiers to assign
      */
     public static void setCommands(Set<Integer> commands) {
-        if (!curCommandSet.equals(commands)) {
-            commandSetChanged = true;
+        TSession session = TSession.current();
+        if (!session.commandSet.equals(commands)) {
+            session.commandSetChanged = true;
         }
-        curCommandSet = new HashSet<>(commands);
+        session.commandSet = new HashSet<>(commands);
     }
 
     /** Sets the cursor position. */
@@ -1476,6 +1500,10 @@ public class TView {
 
         if (getOwner() == null) return;
 
+        if ((state & (State.SF_VISIBLE | State.SF_SHADOW)) != 0) {
+            getOwner().invalidateCoverMap();
+        }
+
         switch (state) {
             case State.SF_VISIBLE:
                 if ((getOwner().state & State.SF_EXPOSED) != 0) {
@@ -1670,6 +1698,7 @@ public class TView {
      * Returns the current modal view, or null if none exists.
      */
     public TView topView() {
+        TView theTopView = TSession.current().topView;
         if (theTopView == null) {
             TView p = this;
             while (p != null && (p.state & State.SF_MODAL) == 0) {
@@ -1773,6 +1802,73 @@ public class TView {
         writeView(y, x, len, line, 0);
     }
 
+    /**
+     * Moves rows {@code y} to {@code y + height - 1} of the view by
+     * {@code dy} rows, down for positive values, in its owners' cache
+     * buffers and on the screen. Call it right before drawing the view after
+     * its contents scrolled: the draw then only changes the rows that
+     * scrolled into view, and renderers move the other rows instead of
+     * painting them again.
+     *
+     * <p>A buffer in which some of the rows are covered, shadowed or clipped
+     * is left alone, and so is everything above a locked owner. The draw
+     * writes all rows there as usual, so the view must be drawn completely
+     * afterwards in any case.</p>
+     *
+     * @param y      first row to move
+     * @param height number of rows to move
+     * @param dy     rows to move by; negative values move up
+     */
+    protected void scrollView(int y, int height, int dy) {
+        final int required = State.SF_VISIBLE | State.SF_EXPOSED;
+        int top = Math.max(0, y);
+        int bottom = Math.min(getSize().y, y + height);
+        int width = getSize().x;
+        if (dy == 0 || width <= 0 || Math.abs(dy) >= bottom - top) {
+            return;
+        }
+
+        TView view = this;
+        int areaX = 0;
+        int areaY = top;
+        while (true) {
+            if ((view.state & required) != required) return;
+
+            // Ascend to the nearest ancestor that owns a buffer or is locked,
+            // as writeView does, giving up where the rows are not all shown.
+            int destX = view.getOrigin().x + areaX;
+            int destY = view.getOrigin().y + areaY;
+            TView child = view;
+            TGroup g = view.getOwner();
+            TGroup target = null;
+            while (g != null) {
+                if ((g.state & required) != required) return;
+                if (destX < g.clip.a.x || destY < g.clip.a.y
+                        || destX + width > g.clip.b.x || destY + bottom - top > g.clip.b.y) {
+                    return;
+                }
+                if (!g.isUncovered(child, destX, destY, width, bottom - top)) return;
+                if (g.buffer != null || g.lockFlag != 0) {
+                    target = g;
+                    break;
+                }
+                destX += g.getOrigin().x;
+                destY += g.getOrigin().y;
+                child = g;
+                g = g.getOwner();
+            }
+
+            if (target == null || target.buffer == null) return;
+            target.buffer.scrollRect(destX, destY, width, bottom - top, dy);
+            if (target.lockFlag != 0 || target.getOwner() == null) {
+                return;
+            }
+            view = target;
+            areaX = destX;
+            areaY = destY;
+        }
+    }
+
     /**
      * Writes a horizontal sequence of cells to this view after applying clipping
      * and owner translations.
@@ -1850,55 +1946,51 @@ public class TView {
             if (target == null) return;
 
             int available = Math.min(length, curBuffer.length - bufIndex);
-            TPoint tmp = new TPoint();
+            // Resolve siblings in front of this view (and of each ancestor up
+            // to the target) through the owners' occlusion maps: OCCLUDED
+            // cells are skipped, shadowed cells carry 0x100 | shadow attribute.
+            // Views covering the target itself apply once its cells propagate
+            // further up, so its cache holds every cell even while hidden.
+            short[] occlusion = new short[available];
             TPoint topOrigin = new TPoint(0, 0);
             top.makeGlobal(topOrigin, topOrigin);
-            for (int i = 0; i < available; i++) {
-                short cell = curBuffer[bufIndex + i];
-                char ch = (char) (cell & 0xFF);
-                int attr = (cell >>> 8) & 0xFF;
-                int outAttr = attr;
-                boolean covered = false;
-
-                int globalX = topOrigin.x + destX + i;
-                int globalY = topOrigin.y + destY;
-
-                // For each ancestor level, check siblings drawn before this view
-                TView child = view;
-                for (TGroup parent = view.getOwner(); parent != null && !covered; parent = parent.getOwner()) {
-                    for (TView s = parent.first(); s != null && s != child; s = s.nextView()) {
-                        if ((s.state & State.SF_VISIBLE) == 0) continue;
-
-                        tmp.x = 0;
-                        tmp.y = 0;
-                        s.makeGlobal(tmp, tmp);
-                        int sx1 = tmp.x;
-                        int sy1 = tmp.y;
-                        int sx2 = sx1 + s.getSize().x;
-                        int sy2 = sy1 + s.getSize().y;
-
-                        if (globalY >= sy1 && globalY < sy2 && globalX >= sx1 && globalX < sx2) {
-                            covered = true;
-                            break;
-                        }
+            int globalX = topOrigin.x + destX;
+            int globalY = topOrigin.y + destY;
+            TPoint tmp = new TPoint();
+            TView child = view;
+            for (TGroup parent = view.getOwner(); child != top; parent = parent.getOwner()) {
+                tmp.x = 0;
+                tmp.y = 0;
+                parent.makeGlobal(tmp, tmp);
+                parent.markOcclusion(child, globalY - tmp.y, globalX - tmp.x, occlusion, available);
+                child = parent;
+            }
 
-                        if ((s.state & State.SF_SHADOW) != 0) {
-                            int shx1 = sx1 + s.shadowSize.x;
-                            int shy1 = sy1 + s.shadowSize.y;
-                            int shx2 = shx1 + s.getSize().x;
-                            int shy2 = shy1 + s.getSize().y;
-                            if (globalY >= shy1 && globalY < shy2 && globalX >= shx1 && globalX < shx2) {
-                                if (outAttr == attr) {
-                                    outAttr = s.shadowAttr & 0xFF;
-                                }
-                            }
+            // Uncovered cells are flushed to the target in runs; a private copy
+            // of the source is made only once a shadow changes an attribute.
+            short[] shaded = null;
+            int runStart = -1;
+            for (int i = 0; i <= available; i++) {
+                short occ = i < available ? occlusion[i] : OCCLUDED;
+                if (occ == OCCLUDED) {
+                    if (runStart >= 0) {
+                        if (shaded != null) {
+                            target.setCells(destX + runStart, destY, shaded, runStart, i - runStart);
+                        } else {
+                            target.setCells(destX + runStart, destY, curBuffer, bufIndex + runStart, i - runStart);
                         }
+                        runStart = -1;
                     }
-                    child = parent;
+                    continue;
                 }
-
-                if (!covered) {
-                    target.setChar(destX + i, destY, ch, outAttr);
+                if (occ != 0) {
+                    if (shaded == null) {
+                        shaded = Arrays.copyOfRange(curBuffer, bufIndex, bufIndex + available);
+                    }
+                    shaded[i] = (short) (((occ & 0xFF) << 8) | (shaded[i] & 0xFF));
+                }
+                if (runStart < 0) {
+                    runStart = i;
                 }
             }
 
@@ -1997,6 +2089,7 @@ public class TView {
      */
     protected void setOwner(TGroup owner) {
         this.owner = owner;
+        invalidateColorCache();
     }
 
     /**
@@ -2020,6 +2113,9 @@ public class TView {
 
     protected void setOrigin(TPoint origin) {
         this.origin = origin;
+        if (getOwner() != null) {
+            getOwner().invalidateCoverMap();
+        }
     }
 
     /** View dimensions; {@code x} is width and {@code y} is height. */
@@ -2029,6 +2125,17 @@ public class TView {
 
     protected void setSize(TPoint size) {
         this.size = size;
+        if (getOwner() != null) {
+            getOwner().invalidateCoverMap();
+        }
+    }
+
+    TPoint getShadowSize() {
+        return shadowSize;
+    }
+
+    byte getShadowAttr() {
+        return shadowAttr;
     }
 
     /** Cursor position relative to the view's origin. */
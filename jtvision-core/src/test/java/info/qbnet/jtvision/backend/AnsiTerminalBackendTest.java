@@ -0,0 +1,83 @@
+package info.qbnet.jtvision.backend;
+
+import info.qbnet.jtvision.util.Screen;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class AnsiTerminalBackendTest {
+
+    private static AnsiTerminalBackend start(Screen screen, ByteArrayOutputStream out) {
+        AnsiTerminalBackend backend = new AnsiTerminalBackend(screen, 8, 16,
+                new ByteArrayInputStream(new byte[0]), out);
+        backend.afterInitialization();
+        screen.commitFrame();
+        backend.renderScreen();
+        out.reset();
+        return backend;
+    }
+
+    @Test
+    public void onlyChangedCellsAreSent() {
+        Screen screen = new Screen(10, 3);
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        AnsiTerminalBackend backend = start(screen, out);
+
+        screen.setChar(2, 1, 'A', 0x0F);
+        screen.setChar(3, 1, 'B', 0x0F);
+        screen.commitFrame();
+        backend.renderScreen();
+        String first = out.toString(StandardCharsets.UTF_8);
+        assertTrue(first.contains("\u001b[2;3H\u001b[97mAB"), first);
+
+        out.reset();
+        screen.setChar(3, 1, 'B', 0x0F);
+        screen.commitFrame();
+        backend.renderScreen();
+        assertEquals(0, out.size(), "rewriting an identical cell sends nothing");
+        assertEquals(0, backend.getLastFrameSize());
+
+        screen.setChar(4, 1, 'C', 0x0E);
+        screen.commitFrame();
+        backend.renderScreen();
+        String second = out.toString(StandardCharsets.UTF_8);
+        assertTrue(second.contains("\u001b[93mC"), "only the foreground changes: " + second);
+        assertFalse(second.contains("H"), "cursor is already in place: " + second);
+        assertEquals(out.size(), backend.getLastFrameSize());
+    }
+
+    @Test
+    public void shortGapsAreRewrittenInsteadOfMoved() {
+        Screen screen = new Screen(10, 1);
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        AnsiTerminalBackend backend = start(screen, out);
+        for (int x = 0; x < 10; x++) {
+            screen.setChar(x, 0, '.', 0x07);
+        }
+        screen.commitFrame();
+        backend.renderScreen();
+
+        out.reset();
+        screen.setChar(1, 0, 'x', 0x07);
+        screen.setChar(3, 0, 'y', 0x07);
+        screen.commitFrame();
+        backend.renderScreen();
+        String frame = out.toString(StandardCharsets.UTF_8);
+        assertTrue(frame.contains("x.y"), frame);
+    }
+
+    @Test
+    public void boxDrawingCharactersAreSentAsUtf8() {
+        Screen screen = new Screen(2, 1);
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        AnsiTerminalBackend backend = start(screen, out);
+        screen.setChar(0, 0, (char) 0xC9, 0x0F);
+        screen.commitFrame();
+        backend.renderScreen();
+        assertTrue(out.toString(StandardCharsets.UTF_8).contains("╔"));
+    }
+}
@@ -0,0 +1,61 @@
+package info.qbnet.jtvision.backend;
+
+import info.qbnet.jtvision.event.TEvent;
+import info.qbnet.jtvision.util.Screen;
+import org.junit.jupiter.api.Test;
+
+import java.awt.Color;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class HeadlessBackendTest {
+
+    @Test
+    public void renderPublishesDirtyCellsAsSnapshot() {
+        Screen screen = new Screen(4, 2);
+        HeadlessBackend backend = new HeadlessBackend(screen, 8, 16);
+        screen.setChar(1, 1, 'X', Color.WHITE, Color.BLUE);
+
+        assertEquals(0, backend.snapshot()[5], "nothing is published before a frame is rendered");
+        screen.commitFrame();
+        backend.renderScreen();
+
+        assertEquals(1, backend.getFrameCount());
+        assertEquals(screen.getData()[5], backend.snapshot()[5]);
+        assertEquals('X', backend.rowText(1).charAt(1));
+
+        screen.setChar(2, 0, 'Y', Color.WHITE, Color.BLUE);
+        short[] before = backend.snapshot();
+        assertNotEquals(screen.getData()[2], before[2], "snapshot is a copy of the last frame");
+    }
+
+    @Test
+    public void queuedKeysAreDeliveredInOrder() {
+        HeadlessBackend backend = new HeadlessBackend(new Screen(1, 1), 8, 16);
+        backend.pushKey('A', 'a');
+        backend.pushKey('B', 'b');
+
+        backend.waitForInput(1000);
+        Optional<TEvent> first = backend.pollEvent();
+        Optional<TEvent> second = backend.pollEvent();
+
+        assertTrue(first.isPresent());
+        assertEquals(TEvent.EV_KEYDOWN, first.get().what);
+        assertEquals('a', first.get().key.charCode);
+        assertEquals('b', second.orElseThrow().key.charCode);
+        assertTrue(backend.pollEvent().isEmpty());
+    }
+
+    @Test
+    public void awaitFrameReturnsOnceAFrameIsRendered() throws Exception {
+        HeadlessBackend backend = new HeadlessBackend(new Screen(1, 1), 8, 16);
+        long frames = backend.getFrameCount();
+        Thread renderer = new Thread(backend::renderScreen);
+        renderer.start();
+
+        assertTrue(backend.awaitFrame(frames, 5000));
+        renderer.join();
+        assertFalse(backend.awaitFrame(backend.getFrameCount(), 10));
+    }
+}
@@ -0,0 +1,41 @@
+package info.qbnet.jtvision.backend;
+
+import info.qbnet.jtvision.util.DosPalette;
+import info.qbnet.jtvision.util.Screen;
+import org.junit.jupiter.api.Test;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.io.InputStream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+public class SwingBitmapBackendTest {
+
+    @Test
+    public void renderedCellMatchesTintedAtlasGlyph() throws Exception {
+        System.setProperty("java.awt.headless", "true");
+        Screen screen = new Screen(2, 1);
+        SwingBitmapBackend backend = new SwingBitmapBackend(screen, 8, 16);
+        int attr = 0x1E;
+        screen.setChar(1, 0, 'A', attr);
+        screen.commitFrame();
+        backend.drawToBackBuffer();
+
+        BufferedImage atlas;
+        try (InputStream in = getClass().getResourceAsStream("/font_white_8x16_2.png")) {
+            atlas = ImageIO.read(in);
+        }
+        int fg = DosPalette.getForeground(attr).getRGB();
+        int bg = DosPalette.getBackground(attr).getRGB();
+        int sx = ('A' % 16) * 8;
+        int sy = ('A' / 16) * 16;
+        for (int y = 0; y < 16; y++) {
+            for (int x = 0; x < 8; x++) {
+                boolean lit = (atlas.getRGB(sx + x, sy + y) & 0xFFFFFF) != 0;
+                assertEquals(lit ? fg : bg, backend.backBuffer.getRGB(8 + x, y),
+                        "pixel " + x + "," + y);
+            }
+        }
+    }
+}
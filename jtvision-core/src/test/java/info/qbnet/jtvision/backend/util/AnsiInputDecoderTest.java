@@ -0,0 +1,90 @@
+package info.qbnet.jtvision.backend.util;
+
+import info.qbnet.jtvision.event.KeyCodeMapper;
+import info.qbnet.jtvision.util.KeyCode;
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class AnsiInputDecoderTest {
+
+    private final List<String> received = new ArrayList<>();
+    private final AnsiInputDecoder decoder = new AnsiInputDecoder(new AnsiInputDecoder.Sink() {
+        @Override
+        public void key(int keyCode, char charCode) {
+            received.add("key " + Integer.toHexString(keyCode) + " " + (int) charCode);
+        }
+
+        @Override
+        public void mouse(int button, boolean pressed, int x, int y) {
+            received.add("mouse " + button + " " + pressed + " " + x + "," + y);
+        }
+    });
+
+    private void feed(String s) {
+        byte[] bytes = s.getBytes(StandardCharsets.UTF_8);
+        decoder.feed(bytes, 0, bytes.length);
+    }
+
+    private static String key(int keyCode, int charCode) {
+        return "key " + Integer.toHexString(keyCode) + " " + charCode;
+    }
+
+    @Test
+    public void decodesCursorAndFunctionKeys() {
+        feed("\u001b[A\u001b[1;5C\u001bOP\u001b[15~\u001b[3~");
+        assertEquals(List.of(
+                key(KeyCode.KB_UP, 0),
+                key(KeyCode.KB_CTRL_RIGHT, 0),
+                key(KeyCode.KB_F1, 0),
+                key(KeyCode.KB_F5, 0),
+                key(KeyCode.KB_DEL, 0)), received);
+    }
+
+    @Test
+    public void decodesCharactersAndAltCombinations() {
+        feed("aZ\u001bx\r");
+        assertEquals(List.of(
+                key('A', 'a'),
+                key(KeyCodeMapper.SHIFT | 'Z', 'Z'),
+                key(KeyCode.KB_ALT_X, 0),
+                key(KeyCode.KB_ENTER, 0x0D)), received);
+    }
+
+    @Test
+    public void keepsSplitSequencesUntilComplete() {
+        feed("\u001b[");
+        assertTrue(received.isEmpty());
+        assertTrue(decoder.hasPendingEscape());
+        feed("B");
+        assertEquals(List.of(key(KeyCode.KB_DOWN, 0)), received);
+    }
+
+    @Test
+    public void loneEscapeIsFlushedAsKey() {
+        feed("\u001b");
+        assertTrue(received.isEmpty());
+        decoder.flushEscape();
+        assertEquals(List.of(key(KeyCode.KB_ESC, 0x1B)), received);
+        assertFalse(decoder.hasPendingEscape());
+    }
+
+    @Test
+    public void decodesSgrMouseReports() {
+        feed("\u001b[<0;5;3M\u001b[<32;6;3M\u001b[<0;6;3m");
+        assertEquals(List.of(
+                "mouse 0 true 4,2",
+                "mouse -1 false 5,2",
+                "mouse 0 false 5,2"), received);
+    }
+
+    @Test
+    public void mapsUnicodeInputToCodePage437() {
+        feed("ä");
+        assertEquals(List.of(key(0, 0x84)), received);
+    }
+}
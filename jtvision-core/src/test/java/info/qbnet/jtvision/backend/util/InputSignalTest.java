@@ -0,0 +1,39 @@
+package info.qbnet.jtvision.backend.util;
+
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.*;
+
+class InputSignalTest {
+
+    @Test
+    void awaitTimesOutWithoutSignal() {
+        InputSignal signal = new InputSignal();
+        assertFalse(signal.await(5));
+    }
+
+    @Test
+    void signalRaisedBeforeAwaitIsRemembered() {
+        InputSignal signal = new InputSignal();
+        signal.signal();
+        assertTrue(signal.await(1000));
+        assertFalse(signal.await(0));
+    }
+
+    @Test
+    void signalFromOtherThreadWakesWaiter() throws InterruptedException {
+        InputSignal signal = new InputSignal();
+        Thread producer = new Thread(() -> {
+            try {
+                Thread.sleep(20);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            signal.signal();
+        });
+        producer.start();
+        long start = System.currentTimeMillis();
+        assertTrue(signal.await(10_000));
+        assertTrue(System.currentTimeMillis() - start < 10_000);
+        producer.join();
+    }
+}
@@ -0,0 +1,106 @@
+package info.qbnet.jtvision.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class BufferTest {
+
+    private static List<int[]> consume(Buffer buffer) {
+        List<int[]> spans = new ArrayList<>();
+        buffer.consumeDirtySpans((y, fromX, toX) -> spans.add(new int[]{y, fromX, toX}));
+        return spans;
+    }
+
+    @Test
+    void newBufferReportsEveryRowFullyDirty() {
+        Buffer buffer = new Buffer(4, 3);
+        List<int[]> spans = consume(buffer);
+        assertEquals(3, spans.size());
+        for (int y = 0; y < 3; y++) {
+            assertArrayEquals(new int[]{y, 0, 4}, spans.get(y));
+        }
+        assertFalse(buffer.hasDirtyCells());
+        assertTrue(consume(buffer).isEmpty());
+    }
+
+    @Test
+    void writesInOneRowMergeIntoSingleSpan() {
+        Buffer buffer = new Buffer(10, 2);
+        consume(buffer);
+        buffer.setChar(6, 1, 'a', 0x1F);
+        buffer.setChar(2, 1, 'b', 0x1F);
+        assertTrue(buffer.hasDirtyCells());
+        List<int[]> spans = consume(buffer);
+        assertEquals(1, spans.size());
+        assertArrayEquals(new int[]{1, 2, 7}, spans.get(0));
+    }
+
+    @Test
+    void unchangedWriteDoesNotMarkDirty() {
+        Buffer buffer = new Buffer(3, 1);
+        buffer.setChar(1, 0, 'x', 0x07);
+        consume(buffer);
+        buffer.setChar(1, 0, 'x', 0x07);
+        assertFalse(buffer.hasDirtyCells());
+    }
+
+    @Test
+    void setCellsMarksOnlyChangedRangeAndNotifiesOnce() {
+        Buffer buffer = new Buffer(8, 2);
+        short blank = buffer.getCell(0, 0);
+        consume(buffer);
+        int[] calls = {0};
+        buffer.setDirtyListener(() -> calls[0]++);
+
+        short[] src = {blank, 0x1F41, 0x1F42, blank, blank};
+        buffer.setCells(1, 1, src, 0, src.length);
+
+        assertEquals(1, calls[0]);
+        assertEquals((short) 0x1F41, buffer.getCell(2, 1));
+        assertEquals((short) 0x1F42, buffer.getCell(3, 1));
+        List<int[]> spans = consume(buffer);
+        assertEquals(1, spans.size());
+        assertArrayEquals(new int[]{1, 2, 4}, spans.get(0));
+
+        buffer.setCells(1, 1, src, 0, src.length);
+        assertEquals(1, calls[0]);
+        assertFalse(buffer.hasDirtyCells());
+    }
+
+    @Test
+    void setCellsClipsToRow() {
+        Buffer buffer = new Buffer(4, 1);
+        short[] src = {0x0761, 0x0762, 0x0763, 0x0764, 0x0765, 0x0766};
+        buffer.setCells(-2, 0, src, 0, src.length);
+        assertEquals((short) 0x0763, buffer.getCell(0, 0));
+        assertEquals((short) 0x0766, buffer.getCell(3, 0));
+    }
+
+    @Test
+    void scrollRectMovesRowsInsideTheRectOnly() {
+        Buffer buffer = new Buffer(5, 4);
+        for (int y = 0; y < 4; y++) {
+            for (int x = 0; x < 5; x++) {
+                buffer.setChar(x, y, (char) ('a' + y), 0x07);
+            }
+        }
+        consume(buffer);
+
+        buffer.scrollRect(1, 0, 3, 4, 2);
+        assertEquals('a', buffer.getCell(1, 0) & 0xFF, "uncovered rows keep their cells");
+        assertEquals('b', buffer.getCell(2, 1) & 0xFF);
+        assertEquals('a', buffer.getCell(1, 2) & 0xFF);
+        assertEquals('b', buffer.getCell(3, 3) & 0xFF);
+        assertEquals('d', buffer.getCell(0, 3) & 0xFF, "columns outside the rect stay");
+        assertEquals('d', buffer.getCell(4, 3) & 0xFF);
+        List<int[]> spans = consume(buffer);
+        assertEquals(4, spans.size());
+        for (int y = 0; y < 4; y++) {
+            assertArrayEquals(new int[]{y, 1, 4}, spans.get(y));
+        }
+    }
+}
@@ -0,0 +1,105 @@
+package info.qbnet.jtvision.util;
+
+import info.qbnet.jtvision.backend.HeadlessBackend;
+import org.junit.jupiter.api.Test;
+
+import java.awt.Color;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class RenderSchedulerTest {
+
+    private static class BusyBackend extends HeadlessBackend {
+        volatile boolean busy;
+
+        BusyBackend(Screen screen) {
+            super(screen, 8, 16);
+        }
+
+        @Override
+        public boolean isFramePending() {
+            return busy;
+        }
+    }
+
+    @Test
+    void frameNowRendersPendingDamageOnce() {
+        Screen screen = new Screen(4, 1);
+        HeadlessBackend backend = new HeadlessBackend(screen, 8, 16);
+        RenderScheduler scheduler = new RenderScheduler(screen, backend, 10_000);
+        try {
+            screen.setChar(0, 0, 'A', Color.WHITE, Color.BLACK);
+            screen.setChar(1, 0, 'B', Color.WHITE, Color.BLACK);
+            scheduler.frameNow();
+
+            assertEquals(1, backend.getFrameCount());
+            assertEquals("AB", backend.rowText(0).substring(0, 2));
+
+            scheduler.frameNow();
+            assertEquals(1, backend.getFrameCount(), "no frame without new damage");
+        } finally {
+            scheduler.shutdown();
+        }
+    }
+
+    @Test
+    void frameCapDefersSecondFrameToSchedulerThread() {
+        Screen screen = new Screen(4, 1);
+        HeadlessBackend backend = new HeadlessBackend(screen, 8, 16);
+        RenderScheduler scheduler = new RenderScheduler(screen, backend, 250);
+        try {
+            screen.setChar(0, 0, 'A', Color.WHITE, Color.BLACK);
+            scheduler.frameNow();
+            long frames = backend.getFrameCount();
+
+            screen.setChar(0, 0, 'B', Color.WHITE, Color.BLACK);
+            scheduler.frameNow();
+            assertEquals(frames, backend.getFrameCount(), "second frame within the cap is deferred");
+
+            assertTrue(backend.awaitFrame(frames, 5000));
+            assertEquals('B', backend.rowText(0).charAt(0));
+        } finally {
+            scheduler.shutdown();
+        }
+    }
+
+    @Test
+    void framesAreSkippedWhileBackendIsBusy() {
+        Screen screen = new Screen(4, 1);
+        BusyBackend backend = new BusyBackend(screen);
+        RenderScheduler scheduler = new RenderScheduler(screen, backend, 10_000);
+        try {
+            backend.busy = true;
+            screen.setChar(0, 0, 'A', Color.WHITE, Color.BLACK);
+            scheduler.flush();
+            assertEquals(0, backend.getFrameCount());
+            assertEquals(1, scheduler.getSkippedCount());
+
+            backend.busy = false;
+            scheduler.flush();
+            assertEquals(1, backend.getFrameCount(), "skipped damage is kept for the next frame");
+            assertEquals('A', backend.rowText(0).charAt(0));
+        } finally {
+            scheduler.shutdown();
+        }
+    }
+
+    @Test
+    void unchangedCursorDoesNotRequestFrame() {
+        Screen screen = new Screen(4, 1);
+        HeadlessBackend backend = new HeadlessBackend(screen, 8, 16);
+        RenderScheduler scheduler = new RenderScheduler(screen, backend, 10_000);
+        try {
+            scheduler.updateCursor(1, 0, false, true);
+            scheduler.flush();
+            assertEquals(1, backend.getFrameCount());
+            assertTrue(backend.isCursorVisible());
+
+            scheduler.updateCursor(1, 0, false, true);
+            scheduler.flush();
+            assertEquals(1, backend.getFrameCount());
+        } finally {
+            scheduler.shutdown();
+        }
+    }
+}
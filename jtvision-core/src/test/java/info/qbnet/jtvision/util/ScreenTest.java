@@ -0,0 +1,209 @@
+package info.qbnet.jtvision.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ScreenTest {
+
+    private static List<int[]> damage(Screen.Frame frame) {
+        List<int[]> spans = new ArrayList<>();
+        frame.forEachDamagedSpan((y, fromX, toX) -> spans.add(new int[]{y, fromX, toX}));
+        return spans;
+    }
+
+    private static List<int[]> scrolls(Screen.Frame frame) {
+        List<int[]> moves = new ArrayList<>();
+        frame.forEachScroll((x, y, width, height, dy) -> moves.add(new int[]{x, y, width, height, dy}));
+        return moves;
+    }
+
+    private static Screen screenWithRows(int width, String rows) {
+        Screen screen = new Screen(width, rows.length());
+        for (int y = 0; y < rows.length(); y++) {
+            for (int x = 0; x < width; x++) {
+                screen.setChar(x, y, rows.charAt(y), 0x07);
+            }
+        }
+        screen.commitFrame();
+        screen.takeFrame();
+        return screen;
+    }
+
+    @Test
+    void nothingIsPublishedBeforeACommit() {
+        Screen screen = new Screen(4, 2);
+        screen.commitFrame();
+        screen.takeFrame();
+
+        screen.setChar(1, 1, 'X', 0x1F);
+        assertNull(screen.takeFrame());
+        assertEquals(' ', screen.currentFrame().getCell(1, 1) & 0xFF);
+
+        assertTrue(screen.commitFrame());
+        assertFalse(screen.commitFrame(), "no frame without new changes");
+        Screen.Frame frame = screen.takeFrame();
+        assertEquals('X', frame.getCell(1, 1) & 0xFF);
+        assertSame(frame, screen.currentFrame());
+        assertNull(screen.takeFrame());
+    }
+
+    @Test
+    void takenFrameIsNotChangedByLaterWrites() {
+        Screen screen = new Screen(4, 1);
+        screen.setChar(0, 0, 'A', 0x07);
+        screen.commitFrame();
+        Screen.Frame frame = screen.takeFrame();
+
+        screen.setChar(0, 0, 'B', 0x07);
+        screen.commitFrame();
+        assertEquals('A', frame.getCell(0, 0) & 0xFF);
+    }
+
+    @Test
+    void damageOfSkippedFramesIsMerged() {
+        Screen screen = new Screen(8, 2);
+        screen.commitFrame();
+        screen.takeFrame();
+
+        screen.setChar(1, 0, 'A', 0x07);
+        screen.commitFrame();
+        screen.setChar(5, 0, 'B', 0x07);
+        screen.setChar(2, 1, 'C', 0x07);
+        screen.commitFrame();
+
+        Screen.Frame frame = screen.takeFrame();
+        List<int[]> spans = damage(frame);
+        assertEquals(2, spans.size());
+        assertArrayEquals(new int[]{0, 1, 6}, spans.get(0));
+        assertArrayEquals(new int[]{1, 2, 3}, spans.get(1));
+        assertEquals('A', frame.getCell(1, 0) & 0xFF);
+        assertEquals('B', frame.getCell(5, 0) & 0xFF);
+    }
+
+    @Test
+    void recycledFramesCatchUpWithEveryChangedRow() {
+        Screen screen = new Screen(6, 4);
+        for (int i = 0; i < 50; i++) {
+            screen.setChar(i % 6, i % 4, (char) ('a' + i % 26), 0x07);
+            screen.commitFrame();
+            if (i % 3 != 0) {
+                Screen.Frame frame = screen.takeFrame();
+                assertArrayEquals(screen.getData(), frame.getData(), "frame " + i);
+            }
+        }
+    }
+
+    @Test
+    void rendererOnAnotherThreadSeesOnlyWholeFramesAndNoLostDamage() throws Exception {
+        int width = 40;
+        int height = 10;
+        int frames = 2000;
+        Screen screen = new Screen(width, height);
+        AtomicReference<String> failure = new AtomicReference<>();
+        short[] mirror = new short[width * height];
+        Thread renderer = new Thread(() -> {
+            while (true) {
+                Screen.Frame frame = screen.takeFrame();
+                if (frame == null) {
+                    if (Thread.currentThread().isInterrupted()) {
+                        return;
+                    }
+                    Thread.onSpinWait();
+                    continue;
+                }
+                short[] cells = frame.getData();
+                for (short cell : cells) {
+                    if (cell != cells[0]) {
+                        failure.compareAndSet(null, "torn frame");
+                    }
+                }
+                frame.forEachDamagedSpan((y, fromX, toX) ->
+                        System.arraycopy(cells, y * width + fromX, mirror, y * width + fromX, toX - fromX));
+            }
+        });
+        renderer.start();
+
+        short[] row = new short[width];
+        for (int i = 0; i < frames; i++) {
+            Arrays.fill(row, (short) ((0x07 << 8) | ('A' + i % 26)));
+            for (int y = 0; y < height; y++) {
+                screen.setCells(0, y, row, 0, width);
+            }
+            screen.commitFrame();
+        }
+        renderer.interrupt();
+        renderer.join(10_000);
+        // whatever the renderer missed while stopping is still published
+        Screen.Frame last = screen.takeFrame();
+        if (last != null) {
+            last.forEachDamagedSpan((y, fromX, toX) ->
+                    System.arraycopy(last.getData(), y * width + fromX, mirror, y * width + fromX, toX - fromX));
+        }
+
+        assertNull(failure.get());
+        assertArrayEquals(screen.getData(), mirror);
+    }
+
+    @Test
+    void scrolledRowsArePublishedAsAMoveAndOnlyUncoveredRowsAsDamage() {
+        Screen screen = screenWithRows(6, "abcd");
+        screen.scrollRect(0, 0, 6, 4, -1);
+        for (int x = 0; x < 6; x++) {
+            screen.setChar(x, 3, 'e', 0x07);
+        }
+        screen.commitFrame();
+
+        Screen.Frame frame = screen.takeFrame();
+        for (int y = 0; y < 4; y++) {
+            assertEquals("bcde".charAt(y), frame.getCell(2, y) & 0xFF);
+        }
+        List<int[]> moves = scrolls(frame);
+        assertEquals(1, moves.size());
+        assertArrayEquals(new int[]{0, 0, 6, 4, -1}, moves.get(0));
+        List<int[]> spans = new ArrayList<>();
+        frame.forEachDamagedSpanAfterScrolls((y, fromX, toX) -> spans.add(new int[]{y, fromX, toX}));
+        assertEquals(1, spans.size());
+        assertArrayEquals(new int[]{3, 0, 6}, spans.get(0));
+        assertEquals(4, damage(frame).size(), "renderers that cannot move pixels repaint the whole rect");
+    }
+
+    @Test
+    void damageWrittenBeforeAScrollMovesWithTheRows() {
+        Screen screen = screenWithRows(6, "abcd");
+        screen.setChar(4, 1, 'X', 0x07);
+        screen.scrollRect(0, 0, 6, 4, 1);
+        screen.commitFrame();
+
+        Screen.Frame frame = screen.takeFrame();
+        List<int[]> spans = new ArrayList<>();
+        frame.forEachDamagedSpanAfterScrolls((y, fromX, toX) -> spans.add(new int[]{y, fromX, toX}));
+        assertEquals(2, spans.size());
+        assertArrayEquals(new int[]{0, 0, 6}, spans.get(0));
+        assertArrayEquals(new int[]{2, 4, 5}, spans.get(1));
+        assertEquals('X', frame.getCell(4, 2) & 0xFF);
+    }
+
+    @Test
+    void movesOfSkippedFramesBecomeDamage() {
+        Screen screen = screenWithRows(5, "abcdef");
+        screen.scrollRect(0, 1, 5, 3, -1);
+        screen.commitFrame();
+        screen.setChar(0, 5, 'Z', 0x07);
+        screen.commitFrame();
+
+        Screen.Frame frame = screen.takeFrame();
+        assertTrue(scrolls(frame).isEmpty());
+        List<int[]> spans = damage(frame);
+        assertEquals(4, spans.size());
+        assertArrayEquals(new int[]{1, 0, 5}, spans.get(0));
+        assertArrayEquals(new int[]{3, 0, 5}, spans.get(2));
+        assertArrayEquals(new int[]{5, 0, 1}, spans.get(3));
+        assertArrayEquals(screen.getData(), frame.getData());
+    }
+}
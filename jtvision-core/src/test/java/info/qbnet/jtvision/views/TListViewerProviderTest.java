@@ -0,0 +1,112 @@
+package info.qbnet.jtvision.views;
+
+import info.qbnet.jtvision.util.TRect;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TListViewerProviderTest {
+
+    /** Provider of "item N" texts that records every fetch. */
+    private static class CountingProvider implements ListProvider {
+        final List<int[]> fetches = new ArrayList<>();
+        int size;
+        boolean pending = false;
+        Listener listener;
+
+        CountingProvider(int size) {
+            this.size = size;
+        }
+
+        @Override
+        public int size() {
+            return size;
+        }
+
+        @Override
+        public String[] fetch(int first, int count) {
+            fetches.add(new int[]{first, count});
+            String[] texts = new String[count];
+            for (int i = 0; i < count; i++) {
+                texts[i] = pending ? null : "item " + (first + i);
+            }
+            return texts;
+        }
+
+        @Override
+        public void setListener(Listener listener) {
+            this.listener = listener;
+        }
+    }
+
+    @Test
+    void drawFetchesOnlyTheVisibleWindowOnce() {
+        CountingProvider provider = new CountingProvider(1_000_000);
+        TListViewer viewer = new TListViewer(new TRect(0, 0, 20, 5), 1, null, null);
+        viewer.setProvider(provider);
+        assertEquals(1_000_000, viewer.range);
+
+        viewer.draw();
+        viewer.draw();
+        assertEquals(1, provider.fetches.size());
+        assertArrayEquals(new int[]{0, 5}, provider.fetches.get(0));
+        assertEquals("item 3", viewer.getText(3, 20));
+
+        viewer.focusItem(500_000);
+        viewer.draw();
+        assertEquals(2, provider.fetches.size());
+        assertArrayEquals(new int[]{499_996, 5}, provider.fetches.get(1));
+        assertEquals("item 500000", viewer.getText(500_000, 20));
+    }
+
+    @Test
+    void pendingItemsAreFetchedAgainWhenReported() {
+        CountingProvider provider = new CountingProvider(10);
+        provider.pending = true;
+        TListViewer viewer = new TListViewer(new TRect(0, 0, 20, 5), 1, null, null);
+        viewer.setProvider(provider);
+
+        viewer.draw();
+        assertEquals("", viewer.getText(2, 20));
+
+        provider.pending = false;
+        provider.listener.itemsChanged(7, 3);
+        viewer.draw();
+        assertEquals(1, provider.fetches.size(), "change outside the window keeps the cache");
+
+        provider.listener.itemsChanged(2, 1);
+        viewer.draw();
+        assertEquals(2, provider.fetches.size());
+        assertEquals("item 2", viewer.getText(2, 20));
+    }
+
+    @Test
+    void sizeChangeUpdatesRangeAndWindow() {
+        CountingProvider provider = new CountingProvider(3);
+        TListViewer viewer = new TListViewer(new TRect(0, 0, 20, 5), 1, null, null);
+        viewer.setProvider(provider);
+        viewer.draw();
+        assertArrayEquals(new int[]{0, 3}, provider.fetches.get(0));
+
+        provider.size = 8;
+        provider.listener.sizeChanged();
+        assertEquals(8, viewer.range);
+        viewer.draw();
+        assertArrayEquals(new int[]{0, 5}, provider.fetches.get(1));
+    }
+
+    @Test
+    void replacingTheProviderDetachesTheOldOne() {
+        CountingProvider first = new CountingProvider(3);
+        TListViewer viewer = new TListViewer(new TRect(0, 0, 20, 5), 1, null, null);
+        viewer.setProvider(first);
+        viewer.setProvider(ListProvider.of(List.of("a", "b")));
+        assertNull(first.listener);
+        assertEquals(2, viewer.range);
+        viewer.draw();
+        assertEquals("b", viewer.getText(1, 20));
+    }
+}
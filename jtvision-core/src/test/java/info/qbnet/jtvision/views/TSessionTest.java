@@ -0,0 +1,87 @@
+package info.qbnet.jtvision.views;
+
+import info.qbnet.jtvision.backend.HeadlessBackend;
+import info.qbnet.jtvision.util.Command;
+import org.junit.jupiter.api.Test;
+
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TSessionTest {
+
+    private static TProgram headlessProgram() {
+        return new TProgram(20, 5, screen -> new HeadlessBackend(screen, 8, 16));
+    }
+
+    @Test
+    void sessionsKeepTheirOwnCommandsAndProgram() throws Exception {
+        TSession first = new TSession("first");
+        TSession second = new TSession("second");
+        CountDownLatch disabled = new CountDownLatch(1);
+        AtomicReference<Boolean> enabledInSecond = new AtomicReference<>();
+        AtomicReference<TSession> firstCurrent = new AtomicReference<>();
+        AtomicReference<TProgram> firstProgram = new AtomicReference<>();
+        AtomicReference<TProgram> secondProgram = new AtomicReference<>();
+
+        Thread firstThread = first.start(() -> {
+            TProgram program = headlessProgram();
+            TView.disableCommands(Set.of(Command.CM_HELP));
+            disabled.countDown();
+            firstCurrent.set(TSession.current());
+            firstProgram.set(TProgram.getApplication());
+            program.getSession().invokeLater(() -> program.endModal(Command.CM_QUIT));
+            return program;
+        });
+        Thread secondThread = second.start(() -> {
+            TProgram program = headlessProgram();
+            try {
+                disabled.await(5, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            enabledInSecond.set(TView.commandEnabled(Command.CM_HELP));
+            secondProgram.set(TProgram.getApplication());
+            program.getSession().invokeLater(() -> program.endModal(Command.CM_QUIT));
+            return program;
+        });
+        firstThread.join(5000);
+        secondThread.join(5000);
+
+        assertFalse(firstThread.isAlive());
+        assertFalse(secondThread.isAlive());
+        assertSame(first, firstCurrent.get());
+        assertSame(first, firstProgram.get().getSession());
+        assertTrue(enabledInSecond.get());
+        assertNotNull(secondProgram.get());
+        assertSame(second, secondProgram.get().getSession());
+        assertTrue(TView.commandEnabled(Command.CM_HELP), "the default session is untouched");
+        assertNull(first.getApplication(), "an ended session has no program");
+    }
+
+    @Test
+    void invokeLaterRunsOnTheSessionThread() throws Exception {
+        TSession session = new TSession("worker");
+        AtomicReference<Thread> eventLoop = new AtomicReference<>();
+        AtomicReference<Thread> ranOn = new AtomicReference<>();
+
+        Thread thread = session.start(() -> {
+            TProgram program = headlessProgram();
+            eventLoop.set(Thread.currentThread());
+            Thread worker = new Thread(() -> session.invokeLater(() -> {
+                ranOn.set(Thread.currentThread());
+                program.endModal(Command.CM_QUIT);
+            }));
+            worker.start();
+            return program;
+        });
+        thread.join(5000);
+
+        assertFalse(thread.isAlive());
+        assertSame(eventLoop.get(), ranOn.get());
+        assertSame(thread, ranOn.get());
+    }
+}
@@ -0,0 +1,102 @@
+package info.qbnet.jtvision.views;
+
+import info.qbnet.jtvision.util.PaletteFactory;
+import info.qbnet.jtvision.util.PaletteRole;
+import info.qbnet.jtvision.util.TPalette;
+import info.qbnet.jtvision.util.TRect;
+import info.qbnet.jtvision.views.support.TestGroup;
+import info.qbnet.jtvision.views.support.TestableTView;
+import org.junit.jupiter.api.Test;
+
+import java.util.EnumMap;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class TViewColorCacheTest {
+
+    private enum Role implements PaletteRole {
+        FIRST(1),
+        SECOND(2);
+
+        private final int index;
+
+        Role(int index) {
+            this.index = index;
+        }
+
+        @Override
+        public int index() {
+            return index;
+        }
+    }
+
+    private enum OutOfRangeRole implements PaletteRole {
+        TOO_LARGE(256);
+
+        private final int index;
+
+        OutOfRangeRole(int index) {
+            this.index = index;
+        }
+
+        @Override
+        public int index() {
+            return index;
+        }
+    }
+
+    private static TPalette palette(int first, int second) {
+        EnumMap<Role, Byte> map = new EnumMap<>(Role.class);
+        map.put(Role.FIRST, (byte) first);
+        map.put(Role.SECOND, (byte) second);
+        return new TPalette(map);
+    }
+
+    @Test
+    void reparentingGroupInvalidatesColorsOfNestedViews() {
+        TestGroup blue = new TestGroup(new TRect(0, 0, 20, 10), palette(0x1F, 0x17));
+        TestGroup cyan = new TestGroup(new TRect(0, 0, 20, 10), palette(0x3E, 0x37));
+        TestGroup middle = new TestGroup(new TRect(0, 0, 10, 5));
+        TestableTView leaf = new TestableTView(new TRect(0, 0, 5, 1), palette(2, 1));
+        middle.insert(leaf);
+        blue.insert(middle);
+
+        assertEquals(0x17, leaf.getColor((short) 1) & 0xFF);
+        assertEquals(0x17, leaf.getColor((short) 1) & 0xFF);
+
+        blue.delete(middle);
+        cyan.insert(middle);
+
+        assertEquals(0x37, leaf.getColor((short) 1) & 0xFF);
+        assertEquals(0x3E, leaf.getColor((short) 2) & 0xFF);
+    }
+
+    @Test
+    void paletteChangeInvalidatesResolvedColors() {
+        TPalette[] current = {palette(0x1F, 0x17)};
+        TestableTView view = new TestableTView(new TRect(0, 0, 5, 1)) {
+            @Override
+            public TPalette getPalette() {
+                return current[0];
+            }
+        };
+
+        assertEquals(0x1F, view.getColor((short) 1) & 0xFF);
+        current[0] = palette(0x4F, 0x47);
+        assertEquals(0x1F, view.getColor((short) 1) & 0xFF, "resolved color stays cached");
+
+        PaletteFactory.paletteChanged();
+        assertEquals(0x4F, view.getColor((short) 1) & 0xFF);
+    }
+
+    @Test
+    void paletteRejectsIndicesOutsideTable() {
+        EnumMap<OutOfRangeRole, Byte> map = new EnumMap<>(OutOfRangeRole.class);
+        map.put(OutOfRangeRole.TOO_LARGE, (byte) 1);
+
+        assertThrows(IllegalArgumentException.class, () -> new TPalette(map));
+        assertEquals(-1, palette(1, 2).lookup(3));
+        assertEquals(0xF0, palette(0xF0, 2).lookup(1));
+    }
+}
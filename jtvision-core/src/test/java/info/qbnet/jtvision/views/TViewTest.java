@@ -67,8 +67,8 @@ class TViewTest {
     @BeforeEach
     void saveTViewState() {
         originalCommands = new java.util.HashSet<>(TView.getCommands());
-        originalCommandSetChanged = TView.commandSetChanged;
-        originalTopView = TView.theTopView;
+        originalCommandSetChanged = TSession.current().commandSetChanged;
+        originalTopView = TSession.current().topView;
         originalMissingEntryPolicy = PaletteFactory.getMissingEntryPolicy();
         PaletteFactory.setMissingEntryPolicy(PaletteFactory.MissingEntryPolicy.LOG);
     }
@@ -81,8 +81,8 @@ class TViewTest {
     @AfterEach
     void restoreTViewState() {
         TView.setCommands(originalCommands);
-        TView.commandSetChanged = originalCommandSetChanged;
-        TView.theTopView = originalTopView;
+        TSession.current().commandSetChanged = originalCommandSetChanged;
+        TSession.current().topView = originalTopView;
         PaletteFactory.setMissingEntryPolicy(originalMissingEntryPolicy);
     }
 
@@ -721,6 +721,183 @@ class TViewTest {
         assertTrue(back.exposed());
     }
 
+    private static TView fillView(TRect bounds, char ch, int attr) {
+        return new TView(bounds) {
+            @Override
+            public void draw() {
+                writeChar(0, 0, ch, attr, getSize().x);
+            }
+        };
+    }
+
+    @Test
+    void writeViewSkipsCellsCoveredByFrontSiblingUntilItIsHidden() {
+        TGroup root = new TGroup(new TRect(0, 0, 6, 1));
+        root.setState(SF_EXPOSED, true);
+        TView back = fillView(new TRect(0, 0, 6, 1), 'B', 0x07);
+        root.insert(back);
+        TView front = fillView(new TRect(2, 0, 4, 1), 'F', 0x07);
+        root.insert(front);
+        root.draw();
+
+        back.draw();
+        assertEquals('B', (char) (root.buffer.getCell(1, 0) & 0xFF));
+        assertEquals('F', (char) (root.buffer.getCell(2, 0) & 0xFF));
+        assertEquals('F', (char) (root.buffer.getCell(3, 0) & 0xFF));
+        assertEquals('B', (char) (root.buffer.getCell(4, 0) & 0xFF));
+
+        front.hide();
+        back.draw();
+        assertEquals('B', (char) (root.buffer.getCell(2, 0) & 0xFF));
+    }
+
+    @Test
+    void writeViewAppliesShadowOfFrontSibling() {
+        TGroup root = new TGroup(new TRect(0, 0, 6, 3));
+        root.setState(SF_EXPOSED, true);
+        TView back = fillView(new TRect(0, 1, 6, 2), 'B', 0x1F);
+        root.insert(back);
+        TView front = fillView(new TRect(0, 0, 2, 1), 'F', 0x07);
+        root.insert(front);
+        front.setState(SF_SHADOW, true);
+        root.draw();
+
+        // The shadow is offset by (2, 1) and covers columns 2..3 of row 1.
+        assertEquals(0x1F, (root.buffer.getCell(1, 1) >>> 8) & 0xFF);
+        assertEquals(0x08, (root.buffer.getCell(2, 1) >>> 8) & 0xFF);
+        assertEquals(0x08, (root.buffer.getCell(3, 1) >>> 8) & 0xFF);
+        assertEquals(0x1F, (root.buffer.getCell(4, 1) >>> 8) & 0xFF);
+    }
+
+    @Test
+    void groupDrawRedrawsOnlyInvalidSubviews() {
+        TGroup root = new TGroup(new TRect(0, 0, 4, 2));
+        root.setState(SF_EXPOSED, true);
+        TGroup window = new TGroup(new TRect(0, 0, 4, 2));
+        root.insert(window);
+        CountingDrawView first = new CountingDrawView(new TRect(0, 0, 4, 1));
+        CountingDrawView second = new CountingDrawView(new TRect(0, 1, 4, 2));
+        window.insert(first);
+        window.insert(second);
+        root.draw();
+        int firstDraws = first.drawCount;
+        int secondDraws = second.drawCount;
+
+        window.drawView();
+        assertEquals(firstDraws, first.drawCount);
+        assertEquals(secondDraws, second.drawCount);
+
+        first.invalidate();
+        window.drawView();
+        assertEquals(firstDraws + 1, first.drawCount);
+        assertEquals(secondDraws, second.drawCount);
+
+        window.invalidate();
+        window.drawView();
+        assertEquals(firstDraws + 2, first.drawCount);
+        assertEquals(secondDraws + 1, second.drawCount);
+    }
+
+    @Test
+    void writeViewFillsCacheOfGroupCoveredBySibling() {
+        TGroup root = new TGroup(new TRect(0, 0, 6, 1));
+        root.setState(SF_EXPOSED, true);
+        TGroup back = new TGroup(new TRect(0, 0, 6, 1));
+        root.insert(back);
+        TView leaf = fillView(new TRect(0, 0, 6, 1), 'B', 0x07);
+        back.insert(leaf);
+        root.insert(fillView(new TRect(2, 0, 4, 1), 'F', 0x07));
+        root.draw();
+
+        leaf.drawView();
+        // the front sibling hides the cells on the screen, not in the cache
+        assertEquals('B', (char) (back.buffer.getCell(2, 0) & 0xFF));
+        assertEquals('F', (char) (root.buffer.getCell(2, 0) & 0xFF));
+    }
+
+    @Test
+    void viewChangedWhileHiddenIsDrawnWhenItsWindowComesToFront() {
+        TGroup root = new TGroup(new TRect(0, 0, 4, 1));
+        root.setState(SF_EXPOSED, true);
+        TGroup back = new TGroup(new TRect(0, 0, 4, 1));
+        root.insert(back);
+        char[] text = {'A'};
+        TView leaf = new TView(new TRect(0, 0, 4, 1)) {
+            @Override
+            public void draw() {
+                writeChar(0, 0, text[0], 0x07, getSize().x);
+            }
+        };
+        back.insert(leaf);
+        TView front = fillView(new TRect(0, 0, 4, 1), 'F', 0x07);
+        root.insert(front);
+        root.draw();
+
+        text[0] = 'B';
+        leaf.drawView();
+        assertEquals('A', (char) (back.buffer.getCell(0, 0) & 0xFF));
+        assertEquals('F', (char) (root.buffer.getCell(0, 0) & 0xFF));
+
+        back.makeFirst();
+        assertEquals('B', (char) (back.buffer.getCell(0, 0) & 0xFF));
+        assertEquals('B', (char) (root.buffer.getCell(0, 0) & 0xFF));
+    }
+
+    /** A view showing one letter per row, starting at {@code top[0]}. */
+    private static TView rowsView(TRect bounds, int[] top) {
+        return new TView(bounds) {
+            @Override
+            public void draw() {
+                for (int y = 0; y < getSize().y; y++) {
+                    writeChar(0, y, (char) ('a' + top[0] + y), 0x07, getSize().x);
+                }
+            }
+        };
+    }
+
+    @Test
+    void scrollViewMovesRowsInEveryCacheUpToTheScreen() {
+        TGroup root = new TGroup(new TRect(0, 0, 4, 3));
+        root.setState(SF_EXPOSED, true);
+        TGroup window = new TGroup(new TRect(0, 0, 4, 3));
+        root.insert(window);
+        int[] top = {0};
+        TView list = rowsView(new TRect(0, 0, 4, 3), top);
+        window.insert(list);
+        root.draw();
+
+        list.scrollView(0, 3, -1);
+        assertEquals('b', (char) (window.buffer.getCell(1, 0) & 0xFF));
+        assertEquals('c', (char) (root.buffer.getCell(1, 1) & 0xFF));
+        assertEquals('c', (char) (root.buffer.getCell(1, 2) & 0xFF), "the uncovered row keeps its cells");
+
+        top[0] = 1;
+        list.drawView();
+        assertEquals('d', (char) (root.buffer.getCell(1, 2) & 0xFF));
+    }
+
+    @Test
+    void scrollViewLeavesBuffersWhereTheRowsAreCovered() {
+        TGroup root = new TGroup(new TRect(0, 0, 4, 3));
+        root.setState(SF_EXPOSED, true);
+        TGroup window = new TGroup(new TRect(0, 0, 4, 3));
+        root.insert(window);
+        int[] top = {0};
+        TView list = rowsView(new TRect(0, 0, 4, 3), top);
+        window.insert(list);
+        root.insert(fillView(new TRect(3, 1, 4, 2), 'F', 0x07));
+        root.draw();
+
+        list.scrollView(0, 3, -1);
+        assertEquals('b', (char) (window.buffer.getCell(1, 0) & 0xFF));
+        assertEquals('a', (char) (root.buffer.getCell(1, 0) & 0xFF));
+
+        top[0] = 1;
+        list.drawView();
+        assertEquals('b', (char) (root.buffer.getCell(1, 0) & 0xFF));
+        assertEquals('F', (char) (root.buffer.getCell(3, 1) & 0xFF));
+    }
+
     @Test
     void focusReturnsFalseAndDoesNotSelectWhenOwnerRefuses() {
         RefusingGroup owner = new RefusingGroup(new TRect(0, 0, 1, 1));
@@ -752,27 +929,27 @@ class TViewTest {
     @Test
     void disableCommandsDisablesAndEnableRestores() {
         Set<Integer> cmds = Set.of(Command.CM_HELP);
-        TView.commandSetChanged = false;
+        TSession.current().commandSetChanged = false;
         TView.disableCommands(cmds);
         assertFalse(TView.commandEnabled(Command.CM_HELP));
-        assertTrue(TView.commandSetChanged);
+        assertTrue(TSession.current().commandSetChanged);
 
-        TView.commandSetChanged = false;
+        TSession.current().commandSetChanged = false;
         TView.enableCommands(cmds);
         assertTrue(TView.commandEnabled(Command.CM_HELP));
-        assertTrue(TView.commandSetChanged);
+        assertTrue(TSession.current().commandSetChanged);
     }
 
     @Test
     void commandEnabledIgnoresHighCodes() {
         int highCommand = 0x1000;
         Set<Integer> original = TView.getCommands();
-        boolean changed = TView.commandSetChanged;
+        boolean changed = TSession.current().commandSetChanged;
 
         assertFalse(original.contains(highCommand));
         assertTrue(TView.commandEnabled(highCommand));
         assertEquals(original, TView.getCommands());
-        assertEquals(changed, TView.commandSetChanged);
+        assertEquals(changed, TSession.current().commandSetChanged);
     }
 
     @Test
@@ -815,7 +992,7 @@ class TViewTest {
         modal.insert(leaf);
         modal.setState(SF_MODAL, true);
 
-        TView.theTopView = null;
+        TSession.current().topView = null;
         assertSame(modal, leaf.topView());
     }
 
@@ -2,6 +2,7 @@ package info.qbnet.jtvdemo;
 
 import info.qbnet.jtvision.util.*;
 import info.qbnet.jtvision.views.TApplication;
+import info.qbnet.jtvision.backend.Backend;
 import info.qbnet.jtvision.backend.factory.BackendType;
 import info.qbnet.jtvision.views.TProgram;
 import info.qbnet.jtvision.event.TEvent;
@@ -20,6 +21,7 @@ import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
 import java.util.Random;
+import java.util.function.Function;
 
 public class DemoApp extends TApplication {
 
@@ -89,6 +91,16 @@ public class DemoApp extends TApplication {
 //        console.shutdown();
     }
 
+    /**
+     * Creates the demo with a backend of its own, for running it in one of
+     * many {@link TSession}s of a process.
+     */
+    public DemoApp(int width, int height, Function<Screen, ? extends Backend> backendFactory) {
+        super(width, height, backendFactory);
+        registerSerializableViews();
+        readFile();
+    }
+
     /**
      * Ensures that core view classes are registered for deserialization.
      */
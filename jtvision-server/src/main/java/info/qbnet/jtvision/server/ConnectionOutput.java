@@ -0,0 +1,144 @@
+package info.qbnet.jtvision.server;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.SocketChannel;
+import java.util.Arrays;
+
+/**
+ * Output of one connection, written by the session and sent by the
+ * selector thread.
+ *
+ * <p>Writes only append to a buffer and never block. Everything written
+ * while the previous bytes were still being sent goes out together in the
+ * next socket write. Two buffers take turns: the session fills one while the
+ * selector sends the other. {@link #isBacklogged()} tells the session's
+ * backend to stop rendering frames while a slow client has more than
+ * {@value #HIGH_WATER} bytes waiting, which bounds the memory a connection
+ * holds without ever stalling the selector or other sessions.</p>
+ *
+ * <p>Bytes are escaped for telnet, so {@code 0xFF} is sent twice.</p>
+ */
+final class ConnectionOutput extends OutputStream {
+
+    /** Unsent bytes above which the session renders no further frames. */
+    static final int HIGH_WATER = 64 * 1024;
+
+    private final Runnable writeRequest;
+
+    // guarded by this
+    private byte[] pending = new byte[16 * 1024];
+    private int pendingLength = 0;
+    private boolean closed = false;
+
+    /** Buffer being sent; only touched by the selector thread. */
+    private ByteBuffer sending = ByteBuffer.wrap(new byte[16 * 1024], 0, 0);
+    /** Bytes of {@link #sending} not sent yet. */
+    private volatile int sendingRemaining = 0;
+
+    /**
+     * @param writeRequest asks the selector thread to call
+     *                     {@link #flushTo(SocketChannel)}; run when bytes
+     *                     are written to an empty buffer
+     */
+    ConnectionOutput(Runnable writeRequest) {
+        this.writeRequest = writeRequest;
+    }
+
+    @Override
+    public void write(int b) throws IOException {
+        write(new byte[]{(byte) b}, 0, 1);
+    }
+
+    @Override
+    public void write(byte[] b, int off, int len) throws IOException {
+        boolean wasEmpty;
+        synchronized (this) {
+            if (closed) {
+                throw new IOException("Connection closed");
+            }
+            wasEmpty = pendingLength == 0;
+            ensure(len);
+            for (int i = off; i < off + len; i++) {
+                if (b[i] == (byte) TelnetDecoder.IAC) {
+                    ensure(off + len - i + 1);
+                    pending[pendingLength++] = b[i];
+                }
+                pending[pendingLength++] = b[i];
+            }
+        }
+        if (wasEmpty && len > 0) {
+            writeRequest.run();
+        }
+    }
+
+    /** Writes {@code bytes} unescaped, for telnet commands. */
+    void writeCommand(byte[] bytes) {
+        if (bytes.length == 0) {
+            return;
+        }
+        boolean wasEmpty;
+        synchronized (this) {
+            if (closed) {
+                return;
+            }
+            wasEmpty = pendingLength == 0;
+            ensure(bytes.length);
+            System.arraycopy(bytes, 0, pending, pendingLength, bytes.length);
+            pendingLength += bytes.length;
+        }
+        if (wasEmpty) {
+            writeRequest.run();
+        }
+    }
+
+    private void ensure(int extra) {
+        if (pendingLength + extra > pending.length) {
+            pending = Arrays.copyOf(pending, Math.max(pending.length * 2, pendingLength + extra));
+        }
+    }
+
+    /** Whether more than {@value #HIGH_WATER} bytes wait to be sent. */
+    boolean isBacklogged() {
+        int waiting;
+        synchronized (this) {
+            waiting = pendingLength;
+        }
+        return waiting + sendingRemaining > HIGH_WATER;
+    }
+
+    /**
+     * Sends as much as {@code channel} accepts without blocking. Called by
+     * the selector thread only.
+     *
+     * @return {@code true} if nothing is left to send
+     */
+    boolean flushTo(SocketChannel channel) throws IOException {
+        while (true) {
+            if (!sending.hasRemaining()) {
+                synchronized (this) {
+                    if (pendingLength == 0) {
+                        sendingRemaining = 0;
+                        return true;
+                    }
+                    byte[] drained = sending.array();
+                    sending = ByteBuffer.wrap(pending, 0, pendingLength);
+                    pending = drained;
+                    pendingLength = 0;
+                }
+            }
+            channel.write(sending);
+            sendingRemaining = sending.remaining();
+            if (sending.hasRemaining()) {
+                return false;
+            }
+        }
+    }
+
+    /** Rejects further writes; bytes already written are still sent. */
+    @Override
+    public synchronized void close() {
+        closed = true;
+    }
+}
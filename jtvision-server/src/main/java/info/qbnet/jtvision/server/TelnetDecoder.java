@@ -0,0 +1,205 @@
+package info.qbnet.jtvision.server;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Telnet protocol of one connection (RFC 854). Separates the user's bytes
+ * from option negotiation and collects the window size (NAWS, RFC 1073) and
+ * terminal type (RFC 1091) the client reports.
+ *
+ * <p>The server offers to echo and to suppress go-ahead, which switches
+ * common clients to character mode without local echo, the raw mode the
+ * ANSI backend expects. Other options are refused. A carriage return is
+ * passed on alone; the LF or NUL a client sends after it is dropped, so
+ * Enter arrives as one key.</p>
+ */
+final class TelnetDecoder {
+
+    static final int IAC = 255;
+    static final int DONT = 254;
+    static final int DO = 253;
+    static final int WONT = 252;
+    static final int WILL = 251;
+    static final int SB = 250;
+    static final int SE = 240;
+
+    static final int ECHO = 1;
+    static final int SGA = 3;
+    static final int TTYPE = 24;
+    static final int NAWS = 31;
+    private static final int TTYPE_IS = 0;
+    private static final int TTYPE_SEND = 1;
+
+    /** Sent on connect: character mode, then ask for window size and terminal type. */
+    static final byte[] GREETING = bytes(
+            IAC, WILL, ECHO, IAC, WILL, SGA, IAC, DO, NAWS, IAC, DO, TTYPE);
+
+    private static final int MAX_SUBNEGOTIATION = 64;
+
+    private enum State { DATA, CR, IAC, OPTION, SB, SB_IAC }
+
+    private State state = State.DATA;
+    private int verb;
+    private final byte[] subnegotiation = new byte[MAX_SUBNEGOTIATION];
+    private int subnegotiationLength = 0;
+    private final ByteArrayOutputStream replies = new ByteArrayOutputStream();
+
+    private int width = 0;
+    private int height = 0;
+    private String terminalType = null;
+    private boolean sizeAnswered = false;
+    private boolean typeAnswered = false;
+
+    /**
+     * Decodes the bytes between position and limit of {@code in} and stores
+     * the user's bytes in {@code data}, which must be at least as long as the
+     * input.
+     *
+     * @return number of bytes stored in {@code data}
+     */
+    int decode(ByteBuffer in, byte[] data) {
+        int length = 0;
+        while (in.hasRemaining()) {
+            int b = in.get() & 0xFF;
+            if (state == State.CR) {
+                // the NUL or LF after CR is dropped, anything else is ordinary data
+                state = State.DATA;
+                if (b == 0 || b == '\n') {
+                    continue;
+                }
+            }
+            switch (state) {
+                case DATA:
+                    if (b == IAC) {
+                        state = State.IAC;
+                    } else {
+                        data[length++] = (byte) b;
+                        if (b == '\r') {
+                            state = State.CR;
+                        }
+                    }
+                    break;
+                case IAC:
+                    if (b == IAC) {
+                        data[length++] = (byte) b;
+                        state = State.DATA;
+                    } else if (b >= WILL && b <= DONT) {
+                        verb = b;
+                        state = State.OPTION;
+                    } else if (b == SB) {
+                        subnegotiationLength = 0;
+                        state = State.SB;
+                    } else {
+                        // commands such as NOP, AYT or GA carry nothing for us
+                        state = State.DATA;
+                    }
+                    break;
+                case OPTION:
+                    option(verb, b);
+                    state = State.DATA;
+                    break;
+                case SB:
+                    if (b == IAC) {
+                        state = State.SB_IAC;
+                    } else {
+                        addSubnegotiation(b);
+                    }
+                    break;
+                case SB_IAC:
+                    if (b == SE) {
+                        subnegotiation();
+                        state = State.DATA;
+                    } else {
+                        addSubnegotiation(b);
+                        state = State.SB;
+                    }
+                    break;
+                default:
+                    throw new IllegalStateException(state.name());
+            }
+        }
+        return length;
+    }
+
+    private void addSubnegotiation(int b) {
+        if (subnegotiationLength < MAX_SUBNEGOTIATION) {
+            subnegotiation[subnegotiationLength++] = (byte) b;
+        }
+    }
+
+    private void option(int verb, int option) {
+        switch (verb) {
+            case WILL:
+                if (option == TTYPE) {
+                    replies.writeBytes(bytes(IAC, SB, TTYPE, TTYPE_SEND, IAC, SE));
+                } else if (option != NAWS) {
+                    replies.writeBytes(bytes(IAC, DONT, option));
+                }
+                break;
+            case WONT:
+                if (option == NAWS) {
+                    sizeAnswered = true;
+                } else if (option == TTYPE) {
+                    typeAnswered = true;
+                }
+                break;
+            case DO:
+                if (option != ECHO && option != SGA) {
+                    replies.writeBytes(bytes(IAC, WONT, option));
+                }
+                break;
+            default:
+                // DONT: nothing of ours to switch off
+                break;
+        }
+    }
+
+    private void subnegotiation() {
+        int option = subnegotiationLength > 0 ? subnegotiation[0] & 0xFF : -1;
+        if (option == NAWS && subnegotiationLength >= 5) {
+            width = ((subnegotiation[1] & 0xFF) << 8) | (subnegotiation[2] & 0xFF);
+            height = ((subnegotiation[3] & 0xFF) << 8) | (subnegotiation[4] & 0xFF);
+            sizeAnswered = true;
+        } else if (option == TTYPE && subnegotiationLength >= 2 && subnegotiation[1] == TTYPE_IS) {
+            terminalType = new String(subnegotiation, 2, subnegotiationLength - 2, StandardCharsets.US_ASCII);
+            typeAnswered = true;
+        }
+    }
+
+    /** Returns and clears the negotiation replies to send to the client. */
+    byte[] takeReplies() {
+        byte[] result = replies.toByteArray();
+        replies.reset();
+        return result;
+    }
+
+    /** Whether the client answered both the window size and terminal type requests. */
+    boolean isNegotiated() {
+        return sizeAnswered && typeAnswered;
+    }
+
+    /** Window width reported by the client, or {@code 0} if unknown. */
+    int getWidth() {
+        return width;
+    }
+
+    /** Window height reported by the client, or {@code 0} if unknown. */
+    int getHeight() {
+        return height;
+    }
+
+    /** Terminal type reported by the client, or {@code null} if unknown. */
+    String getTerminalType() {
+        return terminalType;
+    }
+
+    static byte[] bytes(int... values) {
+        byte[] result = new byte[values.length];
+        for (int i = 0; i < values.length; i++) {
+            result[i] = (byte) values[i];
+        }
+        return result;
+    }
+}
@@ -0,0 +1,379 @@
+package info.qbnet.jtvision.server;
+
+import info.qbnet.cubecmd.CubeCmdApp;
+import info.qbnet.jtvdemo.DemoApp;
+import info.qbnet.jtvision.backend.AnsiTerminalBackend;
+import info.qbnet.jtvision.backend.Backend;
+import info.qbnet.jtvision.util.Command;
+import info.qbnet.jtvision.util.Screen;
+import info.qbnet.jtvision.views.TProgram;
+import info.qbnet.jtvision.views.TSession;
+import info.qbnet.jtvision.views.TView;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+/**
+ * Serves jtvision applications to telnet clients, one {@link TSession} per
+ * connection.
+ *
+ * <p>A single selector thread accepts connections and does all socket I/O
+ * without blocking. A new connection first negotiates its window size and
+ * terminal type (see {@link TelnetDecoder}); clients that do not answer
+ * within {@value #NEGOTIATION_MS} ms get an 80x25 screen. Then the
+ * application runs in a session of its own, drawn by an
+ * {@link AnsiTerminalBackend} whose input the selector pushes and whose
+ * output goes through a {@link ConnectionOutput}. A slow client therefore
+ * only delays its own frames. The session ends when the application quits
+ * or the client disconnects.</p>
+ */
+public final class TerminalServer implements Closeable {
+
+    private static final Logger log = LoggerFactory.getLogger(TerminalServer.class);
+
+    /** How long a new connection may take to report its window size and terminal type. */
+    static final long NEGOTIATION_MS = 1000;
+
+    private static final int DEFAULT_WIDTH = 80;
+    private static final int DEFAULT_HEIGHT = 25;
+    private static final int MIN_WIDTH = 40;
+    private static final int MIN_HEIGHT = 12;
+    private static final int MAX_WIDTH = 250;
+    private static final int MAX_HEIGHT = 100;
+
+    /** Creates the application of a new connection. */
+    @FunctionalInterface
+    public interface ApplicationFactory {
+        /**
+         * @param width          screen width in cells
+         * @param height         screen height in cells
+         * @param backendFactory creates the backend drawing into the connection
+         */
+        TProgram create(int width, int height, Function<Screen, ? extends Backend> backendFactory);
+    }
+
+    private final ApplicationFactory factory;
+    private final Selector selector;
+    private final ServerSocketChannel server;
+    private final ByteBuffer readBuffer = ByteBuffer.allocateDirect(16 * 1024);
+    private final byte[] data = new byte[16 * 1024];
+    private final List<Connection> negotiating = new ArrayList<>();
+    private final Queue<Connection> writeRequests = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger sessions = new AtomicInteger();
+    private final AtomicInteger ids = new AtomicInteger();
+    private volatile boolean running = false;
+    private Thread thread;
+
+    /**
+     * Opens a server on {@code address}; port {@code 0} picks a free one.
+     * Connections are accepted once {@link #start()} is called.
+     */
+    public TerminalServer(InetSocketAddress address, ApplicationFactory factory) throws IOException {
+        this.factory = factory;
+        this.selector = Selector.open();
+        this.server = ServerSocketChannel.open();
+        server.bind(address);
+        server.configureBlocking(false);
+        server.register(selector, SelectionKey.OP_ACCEPT);
+    }
+
+    /** Starts accepting connections on a thread of the server. */
+    public void start() {
+        running = true;
+        thread = new Thread(this::selectLoop, "terminal-server");
+        thread.start();
+        log.info("Terminal server listening on {}", server.socket().getLocalSocketAddress());
+    }
+
+    /** Returns the port the server listens on. */
+    public int getPort() {
+        return server.socket().getLocalPort();
+    }
+
+    /** Returns the number of sessions running. */
+    public int getSessionCount() {
+        return sessions.get();
+    }
+
+    /**
+     * Stops accepting connections and disconnects all clients, which ends
+     * their sessions.
+     */
+    @Override
+    public void close() throws IOException {
+        running = false;
+        selector.wakeup();
+        if (thread != null && thread != Thread.currentThread()) {
+            try {
+                thread.join();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    private void selectLoop() {
+        try {
+            while (running) {
+                selector.select(negotiating.isEmpty() ? 0 : 50);
+                for (SelectionKey key : selector.selectedKeys()) {
+                    if (!key.isValid()) {
+                        continue;
+                    }
+                    if (key.isAcceptable()) {
+                        accept();
+                    } else {
+                        Connection connection = (Connection) key.attachment();
+                        if (key.isReadable()) {
+                            connection.read();
+                        }
+                        if (key.isValid() && key.isWritable()) {
+                            connection.flush();
+                        }
+                    }
+                }
+                selector.selectedKeys().clear();
+                Connection connection;
+                while ((connection = writeRequests.poll()) != null) {
+                    connection.writeRequested.set(false);
+                    connection.flush();
+                }
+                checkNegotiations();
+            }
+        } catch (IOException e) {
+            log.error("Terminal server failed", e);
+        } finally {
+            for (SelectionKey key : selector.keys()) {
+                if (key.attachment() instanceof Connection connection) {
+                    connection.disconnect();
+                }
+            }
+            try {
+                server.close();
+                selector.close();
+            } catch (IOException e) {
+                log.warn("Closing terminal server failed: {}", e.getMessage());
+            }
+        }
+    }
+
+    private void accept() throws IOException {
+        SocketChannel channel = server.accept();
+        if (channel == null) {
+            return;
+        }
+        channel.configureBlocking(false);
+        channel.socket().setTcpNoDelay(true);
+        Connection connection = new Connection(channel, "tty" + ids.incrementAndGet());
+        connection.key = channel.register(selector, SelectionKey.OP_READ, connection);
+        negotiating.add(connection);
+        connection.output.writeCommand(TelnetDecoder.GREETING);
+        log.debug("{} connected from {}", connection.name, channel.socket().getRemoteSocketAddress());
+    }
+
+    private void checkNegotiations() {
+        long now = System.currentTimeMillis();
+        negotiating.removeIf(connection -> {
+            if (connection.closed) {
+                return true;
+            }
+            if (connection.telnet.isNegotiated() || now >= connection.negotiationDeadline) {
+                connection.startSession();
+                return true;
+            }
+            return false;
+        });
+    }
+
+    private static int clamp(int value, int fallback, int min, int max) {
+        return value <= 0 ? fallback : Math.max(min, Math.min(max, value));
+    }
+
+    /** Ends {@code program}'s modal views one by one, then the program itself. */
+    private static void quit(TProgram program) {
+        if (program == null) {
+            return;
+        }
+        TView top = program.topView();
+        if (top != null && top != program) {
+            top.endModal(Command.CM_CANCEL);
+            program.getSession().invokeLater(() -> quit(program));
+        } else {
+            program.endModal(Command.CM_QUIT);
+        }
+    }
+
+    /** One client connection and the session serving it. */
+    private final class Connection {
+        final SocketChannel channel;
+        final String name;
+        final TelnetDecoder telnet = new TelnetDecoder();
+        final AtomicBoolean writeRequested = new AtomicBoolean();
+        final ConnectionOutput output = new ConnectionOutput(this::requestWrite);
+        final long negotiationDeadline = System.currentTimeMillis() + NEGOTIATION_MS;
+        SelectionKey key;
+        volatile boolean closed = false;
+        /** Set once the session has ended; the channel closes when the output is sent. */
+        volatile boolean finished = false;
+
+        private TSession session;
+        // guarded by this
+        private AnsiTerminalBackend backend;
+        private final ByteArrayOutputStream early = new ByteArrayOutputStream();
+
+        Connection(SocketChannel channel, String name) {
+            this.channel = channel;
+            this.name = name;
+        }
+
+        /** Asks the selector thread to send the output; may be called from any thread. */
+        void requestWrite() {
+            if (writeRequested.compareAndSet(false, true)) {
+                writeRequests.add(this);
+                selector.wakeup();
+            }
+        }
+
+        void read() {
+            int n;
+            try {
+                readBuffer.clear();
+                n = channel.read(readBuffer);
+            } catch (IOException e) {
+                n = -1;
+            }
+            if (n < 0) {
+                disconnect();
+                return;
+            }
+            readBuffer.flip();
+            int length = telnet.decode(readBuffer, data);
+            output.writeCommand(telnet.takeReplies());
+            if (length > 0) {
+                synchronized (this) {
+                    if (backend != null) {
+                        backend.receive(data, 0, length);
+                    } else {
+                        early.write(data, 0, length);
+                    }
+                }
+            }
+        }
+
+        void flush() {
+            if (closed) {
+                return;
+            }
+            try {
+                boolean done = output.flushTo(channel);
+                if (done && finished) {
+                    disconnect();
+                } else if (key.isValid()) {
+                    int ops = done ? SelectionKey.OP_READ : SelectionKey.OP_READ | SelectionKey.OP_WRITE;
+                    if (key.interestOps() != ops) {
+                        key.interestOps(ops);
+                    }
+                }
+            } catch (IOException e) {
+                disconnect();
+            }
+        }
+
+        void startSession() {
+            int width = clamp(telnet.getWidth(), DEFAULT_WIDTH, MIN_WIDTH, MAX_WIDTH);
+            int height = clamp(telnet.getHeight(), DEFAULT_HEIGHT, MIN_HEIGHT, MAX_HEIGHT);
+            log.info("{} starts a {}x{} session on terminal {}", name, width, height, telnet.getTerminalType());
+            session = new TSession(name);
+            sessions.incrementAndGet();
+            Thread thread = new Thread(() -> {
+                try {
+                    session.run(() -> factory.create(width, height, this::createBackend));
+                } catch (RuntimeException e) {
+                    log.error("{} session failed", name, e);
+                } finally {
+                    sessionEnded();
+                }
+            }, "session-" + name);
+            thread.start();
+        }
+
+        private AnsiTerminalBackend createBackend(Screen screen) {
+            AnsiTerminalBackend created = new AnsiTerminalBackend(screen, 8, 16, output, output::isBacklogged);
+            created.afterInitialization();
+            synchronized (this) {
+                backend = created;
+                if (early.size() > 0) {
+                    created.receive(early.toByteArray(), 0, early.size());
+                    early.reset();
+                }
+            }
+            return created;
+        }
+
+        private void sessionEnded() {
+            sessions.decrementAndGet();
+            AnsiTerminalBackend ended;
+            synchronized (this) {
+                ended = backend;
+            }
+            if (ended != null) {
+                ended.stop();
+            }
+            output.close();
+            finished = true;
+            requestWrite();
+            log.debug("{} session ended", name);
+        }
+
+        /** Closes the channel; a running session is asked to quit. Selector thread only. */
+        void disconnect() {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            output.close();
+            key.cancel();
+            try {
+                channel.close();
+            } catch (IOException e) {
+                log.debug("{} close failed: {}", name, e.getMessage());
+            }
+            if (session != null && !finished) {
+                session.invokeLater(() -> quit(session.getApplication()));
+            }
+            log.debug("{} disconnected", name);
+        }
+    }
+
+    /**
+     * Runs the server. Arguments: the port (default 2323) and the
+     * application, {@code cube-cmd} (default) or {@code demo}.
+     */
+    public static void main(String[] args) throws IOException {
+        int port = args.length > 0 ? Integer.parseInt(args[0]) : 2323;
+        String application = args.length > 1 ? args[1] : "cube-cmd";
+        ApplicationFactory factory = switch (application) {
+            case "cube-cmd" -> CubeCmdApp::new;
+            case "demo" -> DemoApp::new;
+            default -> throw new IllegalArgumentException("Unknown application: " + application);
+        };
+        TerminalServer server = new TerminalServer(new InetSocketAddress(port), factory);
+        server.start();
+    }
+}
@@ -0,0 +1,121 @@
+package info.qbnet.jtvision.server;
+
+import info.qbnet.jtvision.views.TApplication;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.net.SocketTimeoutException;
+import java.nio.charset.StandardCharsets;
+
+import static info.qbnet.jtvision.server.TelnetDecoder.*;
+import static org.junit.jupiter.api.Assertions.*;
+
+class TerminalServerTest {
+
+    private TerminalServer server;
+
+    @BeforeEach
+    void startServer() throws IOException {
+        server = new TerminalServer(new InetSocketAddress("127.0.0.1", 0), TApplication::new);
+        server.start();
+    }
+
+    @AfterEach
+    void stopServer() throws IOException {
+        server.close();
+    }
+
+    private Socket connect(int width, int height) throws IOException {
+        Socket socket = new Socket("127.0.0.1", server.getPort());
+        socket.setSoTimeout(5000);
+        OutputStream out = socket.getOutputStream();
+        out.write(bytes(IAC, WILL, NAWS, IAC, SB, NAWS, 0, width, 0, height, IAC, SE));
+        out.write(bytes(IAC, WILL, TTYPE));
+        out.write(bytes(IAC, SB, TTYPE, 0));
+        out.write("xterm".getBytes(StandardCharsets.US_ASCII));
+        out.write(bytes(IAC, SE));
+        out.flush();
+        return socket;
+    }
+
+    /** Reads until {@code text} was received and returns everything read. */
+    private static String readUntil(InputStream in, String text) throws IOException {
+        ByteArrayOutputStream received = new ByteArrayOutputStream();
+        byte[] buf = new byte[4096];
+        while (!received.toString(StandardCharsets.ISO_8859_1).contains(text)) {
+            int n = in.read(buf);
+            if (n < 0) {
+                fail("connection closed before " + text);
+            }
+            received.write(buf, 0, n);
+        }
+        return received.toString(StandardCharsets.ISO_8859_1);
+    }
+
+    private static boolean closedWithin(Socket socket, long millis) throws IOException {
+        long deadline = System.currentTimeMillis() + millis;
+        byte[] buf = new byte[4096];
+        while (System.currentTimeMillis() < deadline) {
+            try {
+                if (socket.getInputStream().read(buf) < 0) {
+                    return true;
+                }
+            } catch (SocketTimeoutException e) {
+                return false;
+            }
+        }
+        return false;
+    }
+
+    @Test
+    void sessionUsesNegotiatedSizeAndEndsOnQuit() throws Exception {
+        try (Socket socket = connect(60, 20)) {
+            InputStream in = socket.getInputStream();
+            String received = readUntil(in, "Exit");
+            assertTrue(received.startsWith(new String(GREETING, StandardCharsets.ISO_8859_1)));
+            // the first frame is drawn top to bottom; the status line sits on the last of the 20 rows
+            String frame = received.substring(received.indexOf("\u001b[1H"));
+            assertEquals(19, frame.split("\r\n", -1).length - 1);
+            assertEquals(1, server.getSessionCount());
+
+            socket.getOutputStream().write("\u001bx".getBytes(StandardCharsets.US_ASCII));
+            socket.getOutputStream().flush();
+            readUntil(in, "\u001b[?1049l");
+            assertTrue(closedWithin(socket, 5000), "the connection closes when the application quits");
+        }
+        assertEquals(0, server.getSessionCount());
+    }
+
+    @Test
+    void disconnectEndsTheSession() throws Exception {
+        Socket socket = connect(80, 25);
+        readUntil(socket.getInputStream(), "\u001b[?1049h");
+        assertEquals(1, server.getSessionCount());
+        socket.close();
+
+        long deadline = System.currentTimeMillis() + 5000;
+        while (server.getSessionCount() > 0 && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        assertEquals(0, server.getSessionCount());
+    }
+
+    @Test
+    void clientThatStopsReadingDoesNotDelayOthers() throws Exception {
+        try (Socket stalled = connect(80, 25); Socket active = connect(80, 25)) {
+            readUntil(active.getInputStream(), "\u001b[?1049h");
+            // the stalled client never reads; the other one still gets its frames
+            active.getOutputStream().write("\u001bx".getBytes(StandardCharsets.US_ASCII));
+            active.getOutputStream().flush();
+            readUntil(active.getInputStream(), "\u001b[?1049l");
+            assertTrue(stalled.isConnected());
+        }
+    }
+}